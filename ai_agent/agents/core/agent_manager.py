@@ -231,6 +231,14 @@ class AgentManager:
             del self.conversation_history[session_id]
             print(f"🗑️ Conversation history cleared for session {session_id}")
 
+    def end_session(self, session_id: str):
+        """
+        Xóa toàn bộ trạng thái của session đã đóng phía Java (lịch sử, chat session, pending action)
+        """
+        self.conversation_history.pop(session_id, None)
+        self.chat_sessions.pop(session_id, None)
+        self.pending_actions.pop(session_id, None)
+
 # Test function
 def test_agent_manager():
     """
@@ -12,6 +12,8 @@ import pickle
 from ..utils.rate_limiter import RateLimiter
 from ..utils.tool_detector import ToolDetector
 from ..utils.data_tool_manager import DataToolManager
+from ..utils.streaming import claim_token_sink, NaturalResponseExtractor
+from ..utils.upstream_quota import is_quota_error, mark_quota_exceeded
 
 
 class BaseAgent(ABC):
@@ -198,6 +200,11 @@ class BaseAgent(ABC):
         # Apply rate limiting
         self.rate_limiter.wait_if_needed()
         
+        # Request đang stream (/process/stream): đẩy naturalResponse về Java ngay khi Gemini sinh ra
+        token_sink = claim_token_sink()
+        if token_sink:
+            return self._call_gemini_streaming(prompt, chat_session, token_sink)
+        
         try:
             if chat_session:
                 # Nếu có chat_session, gửi message vào session
@@ -208,6 +215,32 @@ class BaseAgent(ABC):
             return response.text
         except Exception as e:
             print(f"🔥 {self.agent_name}: Error calling Gemini: {e}")
+            if is_quota_error(e):
+                mark_quota_exceeded()
+            return "Xin lỗi, có lỗi xảy ra khi xử lý yêu cầu."
+    
+    def _call_gemini_streaming(self, prompt: str, chat_session: Optional[Any], token_sink) -> str:
+        """
+        Gọi Gemini ở chế độ stream, chuyển từng đoạn naturalResponse cho token_sink; trả về toàn bộ text như _call_gemini
+        """
+        try:
+            if chat_session:
+                response = chat_session.send_message(prompt, stream=True)
+            else:
+                response = self.gemini_model.generate_content(prompt, stream=True)
+            extractor = NaturalResponseExtractor()
+            parts = []
+            for chunk in response:
+                text = chunk.text
+                parts.append(text)
+                piece = extractor.feed(text)
+                if piece:
+                    token_sink(piece)
+            return "".join(parts)
+        except Exception as e:
+            print(f"🔥 {self.agent_name}: Error calling Gemini: {e}")
+            if is_quota_error(e):
+                mark_quota_exceeded()
             return "Xin lỗi, có lỗi xảy ra khi xử lý yêu cầu."
     
     def _vector_db_cache_file(self):
@@ -63,6 +63,9 @@ class MenuAgent(BaseAgent):
             print(f"[DEBUG] MenuAgent sẽ đọc file menu từ: {menu_path}")
             with open(menu_path, "r", encoding="utf-8") as f:
                 menu_data = json.load(f)
+            # Backend ghi file kèm header {"schemaVersion", "records"}
+            if isinstance(menu_data, dict):
+                menu_data = menu_data.get("records") or []
             
             # Format menu data một cách rõ ràng với itemId
             menu_context = "MENU THỰC TẾ CỦA NHÀ HÀNG:\n" + "\n".join([
@@ -5,6 +5,7 @@ import tempfile
 import hashlib
 import logging
 import threading
+import time
 from collections import OrderedDict
 from typing import Dict, Any, List, Optional
 from langchain_google_genai import GoogleGenerativeAIEmbeddings
@@ -36,6 +37,11 @@ class DataToolManager:
     _RAM_CACHE_SIZE = 1000
     _MAX_CACHE_SIZE_BYTES = 1 * 1024 * 1024 * 1024  # 1GB
     _MAX_BATCH_SIZE = 10  # Limit batch size to avoid timeouts
+    # Backend ghi data/generations.json: generation lẻ = đang ghi, chẵn = đã commit
+    _GENERATIONS_FILE = 'generations.json'
+    _GENERATION_RETRIES = 5
+    _GENERATION_WAIT_SECONDS = 0.05
+    _GENERATION_MAX_WAIT_SECONDS = 2.0
 
     def __new__(cls):
         if cls._instance is None:
@@ -47,6 +53,7 @@ class DataToolManager:
         if self._initialized:
             return
         self._data_cache = LRUCache(self._RAM_CACHE_SIZE)
+        self._data_generations = {}
         self._tools_cache = LRUCache(self._RAM_CACHE_SIZE)
         self._embeddings_cache = LRUCache(self._RAM_CACHE_SIZE)
         self._filtered_tools_cache = {}
@@ -119,7 +126,61 @@ class DataToolManager:
         except Exception as e:
             logger.error(f"Error writing JSON cache file {path}: {e}")
 
+    def _find_generations_file(self, data_dir_candidates: List[str]) -> Optional[str]:
+        for data_dir in data_dir_candidates:
+            path = os.path.join(data_dir, self._GENERATIONS_FILE)
+            if os.path.exists(path):
+                return path
+        return None
+
+    def _read_generation(self, generations_path: str, data_set: str) -> Optional[int]:
+        try:
+            with open(generations_path, 'r', encoding='utf-8') as f:
+                return json.load(f).get(data_set)
+        except Exception as e:
+            logger.warning(f"Error reading generations file {generations_path}: {e}")
+            return None
+
+    def _wait_committed_generation(self, generations_path: str, data_set: str) -> Optional[int]:
+        """Đợi tới khi generation là số chẵn (backend không còn đang ghi tập dữ liệu này)"""
+        waited = 0.0
+        generation = self._read_generation(generations_path, data_set)
+        while generation is not None and generation % 2 == 1 and waited < self._GENERATION_MAX_WAIT_SECONDS:
+            time.sleep(self._GENERATION_WAIT_SECONDS)
+            waited += self._GENERATION_WAIT_SECONDS
+            generation = self._read_generation(generations_path, data_set)
+        return generation
+
     def load_data(self, data_file: str, data_dir_candidates: List[str]) -> List[Dict[str, Any]]:
+        """
+        Đọc một tập dữ liệu của backend. Nếu có data/generations.json thì cache theo generation:
+        generation không đổi thì dùng lại bản đã parse, đổi giữa lúc đọc thì đọc lại (kiểu seqlock).
+        """
+        generations_path = self._find_generations_file(data_dir_candidates)
+        data_set = os.path.splitext(data_file)[0]
+        if generations_path is None or self._read_generation(generations_path, data_set) is None:
+            return self._load_data_from_source(data_file, data_dir_candidates)
+        data = []
+        for _ in range(self._GENERATION_RETRIES):
+            before = self._wait_committed_generation(generations_path, data_set)
+            with self._data_lock:
+                if data_file in self._data_cache and self._data_generations.get(data_file) == before:
+                    logger.debug(f"Generation hit for data: {data_file} (generation {before})")
+                    return self._data_cache[data_file]
+                # Bỏ bản trong RAM để đọc lại từ nguồn
+                self._data_cache.pop(data_file, None)
+                self._data_generations.pop(data_file, None)
+            data = self._load_data_from_source(data_file, data_dir_candidates)
+            after = self._read_generation(generations_path, data_set)
+            if after == before:
+                with self._data_lock:
+                    self._data_generations[data_file] = before
+                return data
+            logger.info(f"Data {data_file} changed while reading (generation {before} -> {after}), retrying")
+        logger.warning(f"Data {data_file} kept changing while reading, using last result")
+        return data
+
+    def _load_data_from_source(self, data_file: str, data_dir_candidates: List[str]) -> List[Dict[str, Any]]:
         with self._data_lock:
             if data_file in self._data_cache:
                 logger.debug(f"RAM hit for data: {data_file}")
@@ -131,6 +192,10 @@ class DataToolManager:
             if os.path.exists(candidate):
                 file_path = candidate
                 break
+            # orders/bookings được backend lưu theo partition tháng: <name>/yyyy-MM.json + manifest.json
+            partition_dir = os.path.join(data_dir, os.path.splitext(data_file)[0])
+            if os.path.exists(os.path.join(partition_dir, 'manifest.json')):
+                return self._load_partitioned_data(data_file, partition_dir, cache_path)
         if file_path and os.path.exists(cache_path):
             try:
                 cache_mtime = os.path.getmtime(cache_path)
@@ -150,7 +215,7 @@ class DataToolManager:
                     pass
         if file_path:
             with open(file_path, 'r', encoding='utf-8') as f:
-                data = json.load(f)
+                data = self._records(json.load(f))
                 with self._data_lock:
                     self._data_cache[data_file] = data
                 try:
@@ -164,6 +229,43 @@ class DataToolManager:
         logger.info(f"Miss for data: {data_file}")
         return []
 
+    @staticmethod
+    def _records(content: Any) -> List[Dict[str, Any]]:
+        """File dữ liệu của backend có dạng {"schemaVersion": n, "records": [...]}; file cũ là mảng trần"""
+        if isinstance(content, dict):
+            return content.get('records') or []
+        return content or []
+
+    def _load_partitioned_data(self, data_file: str, partition_dir: str, cache_path: str) -> List[Dict[str, Any]]:
+        manifest_path = os.path.join(partition_dir, 'manifest.json')
+        with open(manifest_path, 'r', encoding='utf-8') as f:
+            manifest = json.load(f)
+        part_files = [os.path.join(partition_dir, p['key'] + '.json') for p in manifest.get('partitions', [])]
+        part_files = [p for p in part_files if os.path.exists(p)]
+        source_mtime = max([os.path.getmtime(manifest_path)] + [os.path.getmtime(p) for p in part_files])
+        if os.path.exists(cache_path) and os.path.getmtime(cache_path) >= source_mtime:
+            try:
+                with open(cache_path, 'r', encoding='utf-8') as f:
+                    data = json.load(f)
+                with self._data_lock:
+                    self._data_cache[data_file] = data
+                logger.info(f"File hit for data: {data_file}")
+                return data
+            except Exception as e:
+                logger.warning(f"Error loading JSON cache for data {data_file}: {e}")
+        data = []
+        for part_file in part_files:
+            with open(part_file, 'r', encoding='utf-8') as f:
+                data.extend(self._records(json.load(f)))
+        with self._data_lock:
+            self._data_cache[data_file] = data
+        try:
+            self._safe_write_json(data, cache_path)
+        except Exception as e:
+            logger.error(f"Error writing JSON cache for data {data_file}: {e}")
+        logger.info(f"Loaded {len(part_files)} partitions for data: {data_file}")
+        return data
+
     def load_tools(self, tools_file: str) -> List[Dict[str, Any]]:
         with self._tools_lock:
             if tools_file in self._tools_cache:
@@ -378,6 +480,7 @@ class DataToolManager:
     def clear_cache(self):
         with self._data_lock:
             self._data_cache.clear()
+            self._data_generations.clear()
         with self._tools_lock:
             self._tools_cache.clear()
         with self._embeddings_lock:
@@ -0,0 +1,93 @@
+"""
+Stream trường naturalResponse về backend Java ngay khi Gemini sinh ra, thay vì chờ đủ cả phản hồi JSON.
+
+handle_process_stream đặt một token sink cho thread đang xử lý request; lần gọi Gemini đầu tiên của request
+(BaseAgent._call_gemini) nhận sink, gọi Gemini ở chế độ stream và đẩy từng đoạn text của naturalResponse vào sink.
+Các lần gọi Gemini sau trong cùng request chạy như bình thường.
+"""
+import json
+import threading
+
+_local = threading.local()
+
+
+def set_token_sink(sink):
+    """sink(text) nhận từng đoạn naturalResponse; None để tắt stream cho thread hiện tại."""
+    _local.sink = sink
+
+
+def claim_token_sink():
+    """Lấy sink của request hiện tại (chỉ một lần) để chỉ một lời gọi Gemini được stream."""
+    sink = getattr(_local, "sink", None)
+    _local.sink = None
+    return sink
+
+
+class NaturalResponseExtractor:
+    """
+    Đọc dần JSON Gemini đang sinh và trả về phần text mới giải mã được của trường "naturalResponse".
+    Escape bị cắt ngang giữa hai chunk được giữ lại chờ chunk sau.
+    """
+    KEY = '"naturalResponse"'
+
+    def __init__(self):
+        self._text = ""
+        self._pos = 0
+        self._state = "search"  # search -> open -> value -> done
+
+    def feed(self, chunk):
+        self._text += chunk
+        if self._state == "search":
+            index = self._text.find(self.KEY, self._pos)
+            if index < 0:
+                self._pos = max(0, len(self._text) - len(self.KEY))
+                return ""
+            self._pos = index + len(self.KEY)
+            self._state = "open"
+        if self._state == "open":
+            while self._pos < len(self._text) and self._text[self._pos] in " \t\r\n:":
+                self._pos += 1
+            if self._pos >= len(self._text):
+                return ""
+            if self._text[self._pos] != '"':
+                self._state = "search"  # Không phải chuỗi (ví dụ null), tìm lần xuất hiện sau
+                return self.feed("")
+            self._pos += 1
+            self._state = "value"
+        if self._state == "value":
+            return self._read_value()
+        return ""
+
+    def _read_value(self):
+        out = []
+        text, pos = self._text, self._pos
+        while pos < len(text):
+            char = text[pos]
+            if char == '"':
+                self._state = "done"
+                pos += 1
+                break
+            if char != "\\":
+                out.append(char)
+                pos += 1
+                continue
+            escape = self._escape_length(text, pos)
+            if escape is None:
+                break  # Escape chưa đủ, chờ chunk sau
+            out.append(json.loads('"' + text[pos:pos + escape] + '"'))
+            pos += escape
+        self._pos = pos
+        return "".join(out)
+
+    @staticmethod
+    def _escape_length(text, pos):
+        if pos + 1 >= len(text):
+            return None
+        if text[pos + 1] != "u":
+            return 2
+        if pos + 6 > len(text):
+            return None
+        # Cặp surrogate (emoji) phải giải mã cùng nhau
+        if 0xD800 <= int(text[pos + 2:pos + 6], 16) <= 0xDBFF:
+            return 12 if pos + 12 <= len(text) else None
+        return 6
@@ -0,0 +1,35 @@
+"""
+Báo cho backend Java khi Gemini từ chối vì hết quota (HTTP 429 / RESOURCE_EXHAUSTED).
+
+Các agent bắt mọi lỗi khi gọi Gemini và trả câu xin lỗi, nên lỗi quota không tự đi tới handler.
+BaseAgent gọi mark_quota_exceeded() cho thread đang xử lý request; handle_process (dùng chung cho Flask
+và Unix socket) kiểm tra cờ sau khi xử lý và trả mã 429, để RequestScheduler phía Java chờ bucket nạp lại.
+"""
+import threading
+
+TOO_MANY_REQUESTS = 429
+
+_local = threading.local()
+
+
+def reset_quota_flag():
+    """Gọi đầu mỗi request: thread của server được dùng lại cho nhiều request."""
+    _local.quota_exceeded = False
+
+
+def mark_quota_exceeded():
+    _local.quota_exceeded = True
+
+
+def quota_exceeded():
+    return getattr(_local, "quota_exceeded", False)
+
+
+def is_quota_error(error):
+    """google.api_core.exceptions.ResourceExhausted (code 429) hoặc lỗi REST/gRPC tương đương."""
+    if getattr(error, "code", None) == TOO_MANY_REQUESTS:
+        return True
+    if type(error).__name__ in ("ResourceExhausted", "TooManyRequests"):
+        return True
+    message = str(error)
+    return "429" in message or "RESOURCE_EXHAUSTED" in message or "quota" in message.lower()
@@ -1,11 +1,17 @@
 import os
 import json
-from flask import Flask, request, jsonify
+import queue
+import threading
+from flask import Flask, Response, request, jsonify
 from flask_cors import CORS
+from werkzeug.serving import WSGIRequestHandler
 from collections import defaultdict
 
 # Import the reorganized agents
 from agents.core.agent_manager import AgentManager
+from agents.utils.streaming import set_token_sink
+from agents.utils.upstream_quota import TOO_MANY_REQUESTS, is_quota_error, quota_exceeded, reset_quota_flag
+from uds_server import start_uds_listener
 
 # Load environment variables from .env if available
 try:
@@ -18,6 +24,15 @@ except ImportError:
 app = Flask(__name__)
 CORS(app)
 
+
+@app.after_request
+def add_client_port_header(response):
+    """Báo lại cổng phía client của kết nối TCP để backend Java đo tỉ lệ tái sử dụng kết nối"""
+    port = request.environ.get('REMOTE_PORT')
+    if port is not None:
+        response.headers['X-Client-Port'] = str(port)
+    return response
+
 # Configure Gemini API
 GOOGLE_API_KEY = os.getenv('GOOGLE_API_KEY')
 gemini_model = None
@@ -43,13 +58,13 @@ if AgentManager:
         print(f"🔥 Error initializing AgentManager: {e}")
         agent_manager = None
 
-@app.route('/process', methods=['POST'])
-def process_user_input():
-    """Main API endpoint to process user input using AgentManager."""
+# Các handler trả về (status, dict) để dùng chung cho Flask và Unix socket listener
+def handle_process(data):
+    """Xử lý input của người dùng qua AgentManager; Gemini hết quota thì trả 429."""
+    reset_quota_flag()
     try:
-        data = request.get_json()
         if not data or 'userInput' not in data:
-            return jsonify({"error": "Invalid input. 'userInput' field is required."}), 400
+            return 400, {"error": "Invalid input. 'userInput' field is required."}
 
         user_input = data['userInput']
         session_id = data.get('sessionId', 'default')
@@ -63,7 +78,7 @@ def process_user_input():
         print(f"➡️ Received input from session {session_id} (Role: {role}): {user_input}")
 
         if not agent_manager:
-            return jsonify({
+            return 500, {
                 "action": "error",
                 "parameters": {},
                 "naturalResponse": "Xin lỗi, hệ thống AI chưa sẵn sàng. Vui lòng thử lại sau.",
@@ -73,16 +88,21 @@ def process_user_input():
                     "agent": "FallbackAgent",
                     "confidence": 0.0
                 }
-            }), 500
+            }
 
         # Process through AgentManager, truyền user_info
         response = agent_manager.process_user_input(user_input, session_id, role, user_info=user_info)
+        if quota_exceeded():
+            # Java (RequestScheduler.throttle) dựa vào mã 429 để giãn các request sau
+            print(f"⏳ Gemini quota exceeded while handling session {session_id}")
+            return TOO_MANY_REQUESTS, response
         print(f"✅ AgentManager response for session {session_id}: {response}")
-        return jsonify(response)
+        return 200, response
 
     except Exception as e:
         print(f"🔥 Critical error in /process endpoint: {e}")
-        return jsonify({
+        status = TOO_MANY_REQUESTS if quota_exceeded() or is_quota_error(e) else 500
+        return status, {
             "action": "error",
             "parameters": {},
             "naturalResponse": "Xin lỗi, có lỗi xảy ra. Vui lòng thử lại sau.",
@@ -92,35 +112,112 @@ def process_user_input():
                 "agent": "FallbackAgent",
                 "confidence": 0.0
             }
-        }), 500
+        }
 
-@app.route('/refresh-knowledge', methods=['POST'])
-def refresh_knowledge():
-    """Endpoint để Java thông báo rằng dữ liệu đã thay đổi."""
+def handle_process_stream(data, emit):
+    """Như handle_process nhưng đẩy từng đoạn naturalResponse qua emit(text) ngay khi Gemini sinh ra."""
+    set_token_sink(emit)
+    try:
+        return handle_process(data)
+    finally:
+        set_token_sink(None)
+
+def handle_refresh(_data=None):
+    """Nạp lại kiến thức khi Java báo dữ liệu đã thay đổi."""
     try:
         if agent_manager:
             agent_manager.refresh_all_knowledge()
-            return jsonify({"status": "success", "message": "All agent knowledge bases refreshed."}), 200
+            return 200, {"status": "success", "message": "All agent knowledge bases refreshed."}
         else:
-            return jsonify({"status": "error", "message": "AgentManager not available."}), 500
+            return 500, {"status": "error", "message": "AgentManager not available."}
     except Exception as e:
         print(f"🔥 Error in refresh-knowledge endpoint: {e}")
-        return jsonify({"status": "error", "message": str(e)}), 500
+        return 500, {"status": "error", "message": str(e)}
 
-@app.route('/health', methods=['GET'])
-def health_check():
-    """Health check endpoint."""
+def handle_health(_data=None):
+    """Trạng thái của AI Agent."""
     agent_status = {}
     if agent_manager:
         agent_status = agent_manager.get_agent_status()
     
-    return jsonify({
+    return 200, {
         "status": "healthy",
         "message": "AI Agent Manager is running",
         "gemini_api_status": "available" if gemini_model else "not_configured",
         "agent_manager_status": "available" if agent_manager else "not_available",
         "agent_status": agent_status
-    })
+    }
+
+def handle_end_session(data):
+    """Java đã đóng session (người dùng thoát chat hoặc session hết hạn): xóa trạng thái của session."""
+    session_id = (data or {}).get('sessionId')
+    if not session_id:
+        return 400, {"status": "error", "message": "sessionId is required"}
+    if not agent_manager:
+        return 500, {"status": "error", "message": "AgentManager not available."}
+    agent_manager.end_session(session_id)
+    return 200, {"status": "success", "sessionId": session_id}
+
+UDS_ROUTES = {
+    ('POST', '/process'): handle_process,
+    ('POST', '/refresh-knowledge'): handle_refresh,
+    ('GET', '/health'): handle_health,
+    ('POST', '/session/end'): handle_end_session,
+}
+
+# Route stream: handler(body, emit) -> (status, dict)
+UDS_STREAM_ROUTES = {
+    ('POST', '/process/stream'): handle_process_stream,
+}
+
+@app.route('/process', methods=['POST'])
+def process_user_input():
+    """Main API endpoint to process user input using AgentManager."""
+    status, body = handle_process(request.get_json())
+    return jsonify(body), status
+
+@app.route('/process/stream', methods=['POST'])
+def process_user_input_stream():
+    """
+    Server-sent events: mỗi đoạn naturalResponse là một event 'token' (data là chuỗi JSON),
+    cuối cùng là event 'status' (mã trạng thái) và event 'final' (phản hồi đầy đủ như /process).
+    """
+    data = request.get_json()
+    events = queue.Queue()
+
+    def worker():
+        status, body = handle_process_stream(data, lambda text: events.put(("token", text)))
+        events.put(("status", status))
+        events.put(("final", body))
+
+    threading.Thread(target=worker, name="process-stream", daemon=True).start()
+
+    def generate():
+        while True:
+            event, payload = events.get()
+            yield f"event: {event}\ndata: {json.dumps(payload, ensure_ascii=False)}\n\n"
+            if event == "final":
+                return
+
+    return Response(generate(), mimetype='text/event-stream', headers={'Cache-Control': 'no-cache'})
+
+@app.route('/refresh-knowledge', methods=['POST'])
+def refresh_knowledge():
+    """Endpoint để Java thông báo rằng dữ liệu đã thay đổi."""
+    status, body = handle_refresh()
+    return jsonify(body), status
+
+@app.route('/health', methods=['GET'])
+def health_check():
+    """Health check endpoint."""
+    status, body = handle_health()
+    return jsonify(body), status
+
+@app.route('/session/end', methods=['POST'])
+def end_session():
+    """Endpoint để Java báo một session hội thoại đã đóng."""
+    status, body = handle_end_session(request.get_json(silent=True))
+    return jsonify(body), status
 
 @app.route('/agents/status', methods=['GET'])
 def get_agents_status():
@@ -162,11 +259,14 @@ if __name__ == '__main__':
     print("🚀 Starting AI Agent Manager Server...")
     print("📋 Available endpoints:")
     print("  - POST /process - Process user input")
+    print("  - POST /process/stream - Process user input, streaming the reply (SSE)")
     print("  - POST /refresh-knowledge - Refresh knowledge bases")
     print("  - GET /health - Health check")
+    print("  - POST /session/end - End a chat session")
     print("  - GET /agents/status - Agent status")
     print("  - GET /conversation/history/<session_id> - Get conversation history")
     print("  - POST /conversation/clear/<session_id> - Clear conversation history")
+    print("  - Unix socket (process, refresh-knowledge, health) - set RBM_AGENT_SOCKET to change path")
     
     if agent_manager:
         print("✅ AgentManager ready with specialized agents:")
@@ -175,4 +275,10 @@ if __name__ == '__main__':
     else:
         print("⚠️ AgentManager not available")
     
+    # Werkzeug mặc định trả lời HTTP/1.0 và đóng kết nối sau mỗi request;
+    # bật HTTP/1.1 để HttpClient dùng chung của backend giữ kết nối keep-alive
+    WSGIRequestHandler.protocol_version = "HTTP/1.1"
+    # Với debug=True, Werkzeug chạy app trong tiến trình con (WERKZEUG_RUN_MAIN); chỉ tiến trình đó mở socket
+    if os.environ.get('WERKZEUG_RUN_MAIN') == 'true':
+        start_uds_listener(UDS_ROUTES, stream_routes=UDS_STREAM_ROUTES)
     app.run(host='0.0.0.0', port=5000, debug=True, threaded=True) 
\ No newline at end of file
@@ -0,0 +1,134 @@
+"""
+AI Agent giả lập để đo thời gian tới đoạn text đầu tiên (time-to-first-token) của phản hồi stream
+mà không cần Gemini API key hay Flask. Chỉ dùng thư viện chuẩn và các module stream thật của agent
+(agents.utils.streaming, uds_server), nên Java nhận đúng định dạng như khi chạy app.py.
+
+Gemini được giả lập bằng một phản hồi JSON cố định, cắt thành chunk CHUNK_CHARS ký tự, mỗi chunk cách nhau
+CHUNK_DELAY giây. /process chờ đủ phản hồi rồi mới trả (như gọi Gemini không stream), /process/stream đẩy
+từng đoạn naturalResponse ngay khi "sinh" ra.
+
+Chạy:
+    python ai_agent/stream_stub.py
+Lắng nghe cổng 5000 như app.py, socket UDS lấy theo RBM_AGENT_SOCKET. Đo phía Java bằng restaurantbookingmanagement.ai.StreamingBenchmark.
+"""
+import json
+import os
+import sys
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+sys.path.insert(0, os.path.dirname(os.path.abspath(__file__)))
+
+from agents.utils.streaming import NaturalResponseExtractor, claim_token_sink, set_token_sink  # noqa: E402
+from uds_server import default_socket_path, start_uds_listener  # noqa: E402
+
+PORT = 5000
+CHUNK_CHARS = 12
+CHUNK_DELAY = 0.1
+REPLY = json.dumps({
+    "action": "greeting",
+    "parameters": {},
+    "naturalResponse": "Xin chào! Nhà hàng mở cửa từ 10h đến 22h mỗi ngày, cuối tuần nên đặt bàn trước 😀",
+}, ensure_ascii=False)
+
+
+def fake_gemini():
+    """Như BaseAgent._call_gemini: nếu request có token sink thì đẩy naturalResponse qua sink trong lúc nhận chunk."""
+    sink = claim_token_sink()
+    extractor = NaturalResponseExtractor()
+    parts = []
+    for i in range(0, len(REPLY), CHUNK_CHARS):
+        time.sleep(CHUNK_DELAY)
+        chunk = REPLY[i:i + CHUNK_CHARS]
+        parts.append(chunk)
+        piece = extractor.feed(chunk)
+        if piece and sink:
+            sink(piece)
+    return json.loads("".join(parts))
+
+
+def handle_process(_data):
+    return 200, fake_gemini()
+
+
+def handle_process_stream(data, emit):
+    set_token_sink(emit)
+    try:
+        return handle_process(data)
+    finally:
+        set_token_sink(None)
+
+
+def handle_health(_data=None):
+    return 200, {"status": "healthy", "gemini_api_status": "stub"}
+
+
+def handle_ok(_data=None):
+    return 200, {"status": "success"}
+
+
+ROUTES = {
+    ('POST', '/process'): handle_process,
+    ('POST', '/refresh-knowledge'): handle_ok,
+    ('POST', '/session/end'): handle_ok,
+    ('GET', '/health'): handle_health,
+}
+
+STREAM_ROUTES = {
+    ('POST', '/process/stream'): handle_process_stream,
+}
+
+
+class StubHandler(BaseHTTPRequestHandler):
+    """HTTP/1.1 keep-alive; /process/stream trả server-sent events giống route Flask trong app.py."""
+    protocol_version = "HTTP/1.1"
+    disable_nagle_algorithm = True
+
+    def log_message(self, *args):
+        pass
+
+    def do_GET(self):
+        self._dispatch('GET')
+
+    def do_POST(self):
+        self._dispatch('POST')
+
+    def _dispatch(self, method):
+        length = int(self.headers.get('Content-Length', 0))
+        data = json.loads(self.rfile.read(length) or b'null')
+        stream = STREAM_ROUTES.get((method, self.path))
+        if stream:
+            self._stream(stream, data)
+            return
+        route = ROUTES.get((method, self.path))
+        status, body = route(data) if route else (404, {"status": "error", "message": "Not found"})
+        payload = json.dumps(body, ensure_ascii=False).encode('utf-8')
+        self.send_response(status)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(payload)))
+        self.end_headers()
+        self.wfile.write(payload)
+
+    def _stream(self, handler, data):
+        self.send_response(200)
+        self.send_header("Content-Type", "text/event-stream")
+        self.send_header("Cache-Control", "no-cache")
+        self.send_header("Transfer-Encoding", "chunked")
+        self.end_headers()
+
+        def write(event, payload):
+            chunk = f"event: {event}\ndata: {json.dumps(payload, ensure_ascii=False)}\n\n".encode('utf-8')
+            self.wfile.write(b"%x\r\n%s\r\n" % (len(chunk), chunk))
+            self.wfile.flush()
+
+        status, body = handler(data, lambda text: write("token", text))
+        write("status", status)
+        write("final", body)
+        self.wfile.write(b"0\r\n\r\n")
+        self.wfile.flush()
+
+
+if __name__ == '__main__':
+    start_uds_listener(ROUTES, stream_routes=STREAM_ROUTES)
+    print(f"Stream stub on http://127.0.0.1:{PORT} and {default_socket_path()}")
+    ThreadingHTTPServer(('127.0.0.1', PORT), StubHandler).serve_forever()
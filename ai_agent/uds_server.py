@@ -0,0 +1,101 @@
+"""
+Unix domain socket listener cho backend Java (UnixSocketAgentTransport), chạy song song với Flask.
+
+Giao thức, mọi số nguyên là big-endian:
+    request : [u32 độ dài][JSON UTF-8 {"method": "POST", "path": "/process", "body": {...}}]
+    response: [u32 độ dài][u16 mã trạng thái][JSON UTF-8 body]   (độ dài tính cả 2 byte trạng thái)
+
+Route stream gửi thêm các frame trạng thái 100 trước frame cuối, body là một đoạn text UTF-8 (không phải JSON).
+
+Mỗi kết nối được giữ lâu dài và xử lý lần lượt từng request trên một thread riêng.
+"""
+import json
+import os
+import socket
+import socketserver
+import struct
+import tempfile
+import threading
+
+SOCKET_ENV = "RBM_AGENT_SOCKET"
+DEFAULT_SOCKET_NAME = "rbm-agent.sock"
+MAX_FRAME_BYTES = 16 * 1024 * 1024
+PARTIAL_STATUS = 100
+
+
+def default_socket_path():
+    return os.getenv(SOCKET_ENV) or os.path.join(tempfile.gettempdir(), DEFAULT_SOCKET_NAME)
+
+
+def _read_exact(stream, size):
+    data = stream.read(size)
+    if data is None or len(data) < size:
+        return None
+    return data
+
+
+class _FrameHandler(socketserver.StreamRequestHandler):
+    def handle(self):
+        routes = self.server.routes
+        stream_routes = self.server.stream_routes
+        while True:
+            header = _read_exact(self.rfile, 4)
+            if header is None:
+                return  # Java đóng kết nối
+            (length,) = struct.unpack(">I", header)
+            if length > MAX_FRAME_BYTES:
+                return
+            payload = _read_exact(self.rfile, length)
+            if payload is None:
+                return
+            status, body = self._dispatch(routes, stream_routes, payload)
+            self._write_frame(status, json.dumps(body, ensure_ascii=False).encode("utf-8"))
+
+    def _write_frame(self, status, data):
+        self.wfile.write(struct.pack(">IH", len(data) + 2, status) + data)
+        self.wfile.flush()
+
+    def _emit_partial(self, text):
+        self._write_frame(PARTIAL_STATUS, text.encode("utf-8"))
+
+    def _dispatch(self, routes, stream_routes, payload):
+        try:
+            request = json.loads(payload.decode("utf-8"))
+            key = (request.get("method", "POST"), request.get("path"))
+            stream_handler = stream_routes.get(key)
+            if stream_handler is not None:
+                return stream_handler(request.get("body"), self._emit_partial)
+            handler = routes.get(key)
+            if handler is None:
+                return 404, {"error": f"Unknown endpoint: {request.get('path')}"}
+            return handler(request.get("body"))
+        except Exception as e:
+            print(f"🔥 Error in unix socket request: {e}")
+            return 500, {"action": "error", "parameters": {},
+                         "naturalResponse": "Xin lỗi, có lỗi xảy ra. Vui lòng thử lại sau."}
+
+
+class _Server(socketserver.ThreadingMixIn, socketserver.UnixStreamServer):
+    daemon_threads = True
+
+
+def start_uds_listener(routes, path=None, stream_routes=None):
+    """
+    Mở listener trên thread nền.
+    routes: dict {(method, path): handler(body) -> (status, dict)}
+    stream_routes: dict {(method, path): handler(body, emit) -> (status, dict)}, emit(text) gửi một frame 100
+    Trả về server hoặc None nếu hệ điều hành không hỗ trợ AF_UNIX.
+    """
+    if not hasattr(socket, "AF_UNIX"):
+        print("⚠️ Unix domain sockets not supported on this platform, listener disabled")
+        return None
+    path = path or default_socket_path()
+    # Socket cũ còn sót lại khi tiến trình trước dừng đột ngột
+    if os.path.exists(path):
+        os.remove(path)
+    server = _Server(path, _FrameHandler)
+    server.routes = routes
+    server.stream_routes = stream_routes or {}
+    threading.Thread(target=server.serve_forever, name="uds-listener", daemon=True).start()
+    print(f"🔌 Unix socket listener on {path}")
+    return server
@@ -0,0 +1,61 @@
+package restaurantbookingmanagement.ai;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * So thời gian tới đoạn text đầu tiên (time-to-first-token) và tổng thời gian của một câu hỏi AI
+ * khi gọi /process thường và khi bật stream (/process/stream). Chạy với agent giả lập ai_agent/stream_stub.py
+ * để kết quả không phụ thuộc Gemini; chọn transport bằng -Drbm.agentTransport=uds như khi chạy ứng dụng.
+ * Nằm trong bench/ (không thuộc src/ nên không được đóng gói vào jar), biên dịch sau khi đã build ứng dụng:
+ * <pre>
+ * javac -encoding UTF-8 -cp build/classes:lib/gson-2.10.1.jar -d build/bench $(find bench -name '*.java')
+ * python ai_agent/stream_stub.py
+ * java -Drbm.aiRequestsPerMinute=600 -cp build/bench:build/classes:lib/gson-2.10.1.jar restaurantbookingmanagement.ai.StreamingBenchmark [số câu hỏi mỗi chế độ, mặc định 5]
+ * </pre>
+ */
+public class StreamingBenchmark {
+    private static final Duration DEADLINE = Duration.ofSeconds(30);
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        AIAgentConnector connector = AIAgentConnector.shared();
+        System.setProperty(AIAgentConnector.STREAMING_PROPERTY, "false");
+        run("blocking ", connector, rounds);
+        System.setProperty(AIAgentConnector.STREAMING_PROPERTY, "true");
+        run("streaming", connector, rounds);
+        System.out.println("Connections: " + connector.getConnectionStats());
+        System.exit(0);
+    }
+
+    private static void run(String name, AIAgentConnector connector, int rounds) throws Exception {
+        long[] firstText = new long[rounds];
+        long[] total = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            long[] first = {0};
+            StringBuilder streamed = new StringBuilder();
+            // Mỗi câu hỏi khác nhau để không trúng ResponseCache
+            AIResponse response = connector.processUserInputAsync("Nhà hàng mở cửa lúc mấy giờ? #" + name.trim() + i,
+                    "user", null, null, null, null, "benchmark_" + name.trim() + i, DEADLINE, text -> {
+                        if (first[0] == 0) first[0] = System.nanoTime();
+                        streamed.append(text);
+                    }).get();
+            long end = System.nanoTime();
+            // Không stream thì người dùng chỉ thấy chữ khi có phản hồi đầy đủ
+            firstText[i] = (first[0] != 0 ? first[0] : end) - start;
+            total[i] = end - start;
+            if (streamed.length() > 0 && !streamed.toString().equals(response.getNaturalResponse())) {
+                throw new IllegalStateException("Streamed text differs from final naturalResponse");
+            }
+        }
+        System.out.printf("%s first text p50=%dms   total p50=%dms   (%d questions)%n", name,
+                median(firstText) / 1_000_000, median(total) / 1_000_000, rounds);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
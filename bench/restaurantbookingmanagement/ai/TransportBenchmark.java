@@ -0,0 +1,57 @@
+package restaurantbookingmanagement.ai;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Đo độ trễ khứ hồi của riêng transport (không tính thời gian LLM) bằng cách gọi /health liên tiếp
+ * qua HTTP loopback và qua Unix domain socket. AI Agent phải đang chạy.
+ * Biên dịch từ bench/ trên bản build của ứng dụng:
+ * <pre>
+ * javac -encoding UTF-8 -cp build/classes:lib/gson-2.10.1.jar -d build/bench $(find bench -name '*.java')
+ * java -cp build/bench:build/classes:lib/gson-2.10.1.jar restaurantbookingmanagement.ai.TransportBenchmark [số lần gọi, mặc định 2000]
+ * </pre>
+ */
+public class TransportBenchmark {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            AIAgentConnector.ConnectionStats httpStats = new AIAgentConnector.ConnectionStats();
+            try (AgentTransport http = new HttpAgentTransport(httpStats, executor)) {
+                run("HTTP", http, iterations);
+            }
+            AIAgentConnector.ConnectionStats udsStats = new AIAgentConnector.ConnectionStats();
+            try (AgentTransport uds = new UnixSocketAgentTransport(UnixSocketAgentTransport.defaultSocketPath(), udsStats, executor)) {
+                run("UDS ", uds, iterations);
+            }
+            System.out.println("HTTP connections: " + httpStats);
+            System.out.println("UDS  connections: " + udsStats);
+        }
+    }
+
+    private static void run(String name, AgentTransport transport, int iterations) throws Exception {
+        // Làm nóng JIT và mở sẵn kết nối
+        for (int i = 0; i < Math.min(iterations, 500); i++) {
+            roundTrip(transport);
+        }
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            roundTrip(transport);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double average = Arrays.stream(nanos).average().orElse(0);
+        System.out.printf("%s avg=%.1fus p50=%.1fus p99=%.1fus (%d round trips)%n", name,
+                average / 1000, nanos[iterations / 2] / 1000.0, nanos[(int) (iterations * 0.99)] / 1000.0, iterations);
+    }
+
+    private static void roundTrip(AgentTransport transport) throws Exception {
+        AgentTransport.Reply reply = transport.send("GET", "/health", null, TIMEOUT).get();
+        if (reply.status != 200) throw new IllegalStateException("Unexpected status " + reply.status);
+    }
+}
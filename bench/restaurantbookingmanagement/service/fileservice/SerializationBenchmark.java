@@ -0,0 +1,184 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import restaurantbookingmanagement.model.Booking;
+import restaurantbookingmanagement.model.Customer;
+import restaurantbookingmanagement.model.Order;
+import restaurantbookingmanagement.model.OrderStatus;
+import restaurantbookingmanagement.model.Table;
+import restaurantbookingmanagement.utils.IntArrayList;
+import restaurantbookingmanagement.utils.IntCollectionAdapters;
+import restaurantbookingmanagement.utils.IntHashSet;
+import restaurantbookingmanagement.utils.LocalDateTimeAdapter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Đo tốc độ ghi/đọc JSON của orders và bookings (trong bộ nhớ, không tính đĩa) theo từng cách serialize:
+ * Gson reflection có pretty printing (cách cũ), reflection gọn, adapter viết tay (ModelTypeAdapters) có/không pretty,
+ * và đường đi thật của FileServiceBase (writeList/scan, kèm header schemaVersion).
+ * Không được đóng gói vào jar; biên dịch bench/ trên build/classes rồi chạy:
+ * <pre>
+ * javac -encoding UTF-8 -cp build/classes:lib/gson-2.10.1.jar -d build/bench $(find bench -name '*.java')
+ * java -cp build/bench:build/classes:lib/gson-2.10.1.jar restaurantbookingmanagement.service.fileservice.SerializationBenchmark [số record, mặc định 100000]
+ * </pre>
+ */
+public class SerializationBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 7;
+
+    private interface Codec<T> {
+        byte[] write(List<T> values) throws IOException;
+        int read(byte[] data) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<Order> orders = orders(records);
+        List<Booking> bookings = bookings(records);
+        System.out.printf("%d orders (5 items each), %d bookings; median of %d rounds after %d warm-up rounds%n",
+                records, records, MEASURED_ROUNDS, WARMUP_ROUNDS);
+        compare("orders", orders, Order.class, new TypeToken<List<Order>>(){}.getType());
+        compare("bookings", bookings, Booking.class, new TypeToken<List<Booking>>(){}.getType());
+    }
+
+    private static <T> void compare(String name, List<T> values, Class<T> type, Type listType) throws IOException {
+        Gson reflectionPretty = reflectionBuilder().setPrettyPrinting().create();
+        Gson reflectionCompact = reflectionBuilder().create();
+        Gson adaptersPretty = FileServiceBase.gson.newBuilder().setPrettyPrinting().create();
+        System.out.println();
+        System.out.println(name + ":");
+        double[] baseline = run("reflection, pretty (old)", values, gsonCodec(reflectionPretty, listType), null);
+        run("reflection, compact", values, gsonCodec(reflectionCompact, listType), baseline);
+        run("adapters, pretty", values, gsonCodec(adaptersPretty, listType), baseline);
+        run("adapters, compact", values, gsonCodec(FileServiceBase.gson, listType), baseline);
+        run("FileServiceBase writeList/scan", values, fileServiceCodec(type), baseline);
+    }
+
+    /**
+     * Gson như FileServiceBase trước khi có ModelTypeAdapters: model đi qua reflection
+     */
+    private static GsonBuilder reflectionBuilder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .registerTypeAdapter(IntArrayList.class, new IntCollectionAdapters.IntArrayListAdapter())
+                .registerTypeAdapter(IntHashSet.class, new IntCollectionAdapters.IntHashSetAdapter());
+    }
+
+    private static <T> Codec<T> gsonCodec(Gson gson, Type listType) {
+        return new Codec<>() {
+            @Override
+            public byte[] write(List<T> values) throws IOException {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                    gson.toJson(values, listType, writer);
+                }
+                return out.toByteArray();
+            }
+
+            @Override
+            public int read(byte[] data) throws IOException {
+                try (Reader reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+                    List<T> values = gson.fromJson(reader, listType);
+                    return values.size();
+                }
+            }
+        };
+    }
+
+    private static <T> Codec<T> fileServiceCodec(Class<T> type) {
+        return new Codec<>() {
+            @Override
+            public byte[] write(List<T> values) throws IOException {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                FileServiceBase.writeList(out, values, type);
+                return out.toByteArray();
+            }
+
+            @Override
+            public int read(byte[] data) throws IOException {
+                int[] count = {0};
+                FileServiceBase.scan(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8),
+                        type, value -> {
+                            count[0]++;
+                            return true;
+                        });
+                return count[0];
+            }
+        };
+    }
+
+    /**
+     * Trả về {thời gian ghi ms, thời gian đọc ms} (trung vị) để so với baseline
+     */
+    private static <T> double[] run(String name, List<T> values, Codec<T> codec, double[] baseline) throws IOException {
+        byte[] data = codec.write(values);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            codec.write(values);
+            codec.read(data);
+        }
+        long[] writeNanos = new long[MEASURED_ROUNDS];
+        long[] readNanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            data = codec.write(values);
+            writeNanos[i] = System.nanoTime() - start;
+            start = System.nanoTime();
+            int count = codec.read(data);
+            readNanos[i] = System.nanoTime() - start;
+            if (count != values.size()) throw new IllegalStateException(name + " read " + count + " records");
+        }
+        double writeMs = median(writeNanos) / 1e6;
+        double readMs = median(readNanos) / 1e6;
+        String speedup = baseline == null ? ""
+                : String.format("   x%.2f write, x%.2f read", baseline[0] / writeMs, baseline[1] / readMs);
+        System.out.printf("  %-32s %6.1f MB   write %7.1f ms   read %7.1f ms%s%n",
+                name, data.length / 1e6, writeMs, readMs, speedup);
+        return new double[] {writeMs, readMs};
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static List<Order> orders(int count) {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Booking booking = new Booking(i, null, new Table(i % 20 + 1, 4), time, 2);
+            Order order = new Order(i, booking);
+            for (int item = 1; item <= 5; item++) {
+                order.addItem((i + item) % 30 + 1, item);
+            }
+            order.setTotalAmount(150_000.0 + i % 1000);
+            if (i % 3 == 0) order.transitionTo(OrderStatus.COMPLETED);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private static List<Booking> bookings(int count) {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 18, 0);
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Customer customer = new Customer(i % 5000 + 1, "Khách " + i, "09" + (10_000_000 + i));
+            bookings.add(new Booking(i, customer, new Table(i % 20 + 1, 4), time.plusMinutes(i), i % 6 + 1));
+        }
+        return bookings;
+    }
+}
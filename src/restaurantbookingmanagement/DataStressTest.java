@@ -0,0 +1,153 @@
+package restaurantbookingmanagement;
+
+import restaurantbookingmanagement.model.*;
+import restaurantbookingmanagement.service.*;
+import restaurantbookingmanagement.service.actor.TableActorSystem;
+import restaurantbookingmanagement.service.fileservice.*;
+import restaurantbookingmanagement.service.validator.BookingValidator;
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * Kiểm tra ghi đồng thời từ nhiều tiến trình trên cùng thư mục data/ (DataTransaction, DataLock).
+ * Chạy N JVM con, mỗi JVM tạo lần lượt món, khách hàng, bàn, booking và order; sau khi tất cả kết thúc
+ * thì đọc lại data/ và kiểm tra số record, id không trùng và booking/order trỏ tới record có thật.
+ * <pre>
+ * java -cp ... restaurantbookingmanagement.DataStressTest [số tiến trình, mặc định 4] [số vòng mỗi tiến trình, mặc định 25]
+ * </pre>
+ * Thêm -Drbm.tableActors=true để các tiến trình con đặt bàn qua TableActorSystem.
+ * Chạy trong một thư mục tạm mới, không đụng tới data/ của ứng dụng.
+ */
+public class DataStressTest {
+    private static final String ACTORS_PROPERTY = "rbm.tableActors";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("worker")) {
+            worker(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            System.exit(0);
+        }
+        if (args.length > 0 && args[0].equals("check")) {
+            System.exit(check(Integer.parseInt(args[1])) ? 0 : 1);
+        }
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+        File dir = Files.createTempDirectory("rbm-stress").toFile();
+        System.out.println("Data directory: " + new File(dir, "data"));
+
+        long start = System.nanoTime();
+        List<Process> workers = new ArrayList<>();
+        for (int w = 0; w < processes; w++) {
+            workers.add(new ProcessBuilder(
+                    new File(System.getProperty("java.home"), "bin/java").getPath(),
+                    "-cp", System.getProperty("java.class.path"),
+                    "-D" + ACTORS_PROPERTY + "=" + TableActorSystem.isEnabled(),
+                    DataStressTest.class.getName(), "worker", String.valueOf(w), String.valueOf(rounds))
+                    .directory(dir)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File(dir, "worker-" + w + ".log"))
+                    .start());
+        }
+        boolean ok = true;
+        for (int w = 0; w < processes; w++) {
+            int exit = workers.get(w).waitFor();
+            if (exit != 0) {
+                System.out.println("Worker " + w + " exited with " + exit + ", see " + new File(dir, "worker-" + w + ".log"));
+                ok = false;
+            }
+        }
+        System.out.printf("%d processes x %d rounds finished in %d ms%n", processes, rounds, (System.nanoTime() - start) / 1_000_000);
+
+        // Đọc lại bằng một JVM khác với dữ liệu vừa ghi
+        Process check = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                DataStressTest.class.getName(), "check", String.valueOf(processes * rounds))
+                .directory(dir)
+                .inheritIO()
+                .start();
+        ok &= check.waitFor() == 0;
+        System.out.println(ok ? "OK" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static void worker(int worker, int rounds) {
+        TableService tableService = new TableService();
+        MenuService menuService = new MenuService();
+        BookingService bookingService = new BookingService(tableService, new BookingValidator());
+        OrderService orderService = new OrderService(menuService, bookingService, tableService);
+        CustomerService customerService = new CustomerService(tableService, new BookingValidator());
+        TableActorSystem tableActors = null;
+        if (TableActorSystem.isEnabled()) {
+            tableActors = new TableActorSystem();
+            tableService.setTableActorSystem(tableActors);
+            bookingService.setTableActorSystem(tableActors);
+            orderService.setTableActorSystem(tableActors);
+        }
+        LocalDateTime time = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+        for (int i = 0; i < rounds; i++) {
+            String name = "Stress " + worker + "-" + i;
+            menuService.addMenuItem(name, 10000 + i, "");
+            Customer customer = customerService.createCustomer(name, "09" + (worker * 100_000 + i), null);
+            tableService.addTable(4);
+            // Bàn của chính tiến trình này đã được thêm trước nên luôn còn bàn trống
+            Booking booking = bookingService.createBooking(customer, 2, time);
+            if (booking == null) throw new IllegalStateException("No table for booking in round " + i);
+            orderService.createOrder(booking);
+        }
+        if (tableActors != null) tableActors.close();
+    }
+
+    /**
+     * Chạy trong JVM riêng (args: check, số record mong đợi mỗi tập)
+     */
+    private static boolean check(int expected) {
+        boolean ok = true;
+        List<MenuItem> items = new MenuItemFileService().readMenuItemsFromFile();
+        List<Customer> customers = new CustomerFileService().readCustomersFromFile();
+        List<Table> tables = new TableFileService().readTablesFromFile();
+        List<Booking> bookings = new BookingFileService().readBookingsFromFile();
+        List<Order> orders = new OrderFileService().readOrdersFromFile();
+        ok &= checkIds("menu items", items, expected, MenuItem::getItemId);
+        ok &= checkIds("customers", customers, expected, Customer::getCustomerId);
+        ok &= checkIds("tables", tables, expected, Table::getTableId);
+        ok &= checkIds("bookings", bookings, expected, Booking::getBookingId);
+        ok &= checkIds("orders", orders, expected, Order::getOrderId);
+
+        Set<Integer> bookingIds = new HashSet<>();
+        Set<Integer> reservedTables = new HashSet<>();
+        for (Booking booking : bookings) {
+            bookingIds.add(booking.getBookingId());
+            if (booking.getCustomer() == null || booking.getTable() == null) {
+                System.out.println("Booking " + booking.getBookingId() + " points to a missing customer or table");
+                ok = false;
+            } else if (!reservedTables.add(booking.getTableId())) {
+                System.out.println("Table " + booking.getTableId() + " is booked twice");
+                ok = false;
+            }
+        }
+        long reserved = tables.stream().filter(t -> t.getStatus() == TableStatus.RESERVED).count();
+        if (reserved != bookings.size()) {
+            System.out.println("Reserved tables: " + reserved + ", bookings: " + bookings.size());
+            ok = false;
+        }
+        for (Order order : orders) {
+            if (!bookingIds.contains(order.getBookingId())) {
+                System.out.println("Order " + order.getOrderId() + " points to missing booking " + order.getBookingId());
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    private static <T> boolean checkIds(String name, List<T> values, int expected, ToIntFunction<T> id) {
+        Set<Integer> ids = new HashSet<>();
+        for (T value : values) ids.add(id.applyAsInt(value));
+        boolean ok = values.size() == expected && ids.size() == values.size();
+        System.out.printf("  %-10s %5d records, %5d distinct ids (expected %d)%s%n",
+                name, values.size(), ids.size(), expected, ok ? "" : "   <-- FAILED");
+        return ok;
+    }
+}
@@ -7,6 +7,10 @@ package restaurantbookingmanagement;
 import restaurantbookingmanagement.service.*;
 import restaurantbookingmanagement.view.*;
 import restaurantbookingmanagement.controller.*;
+import restaurantbookingmanagement.service.actor.TableActorSystem;
+import restaurantbookingmanagement.service.fileservice.DataDirectoryWatcher;
+import restaurantbookingmanagement.service.fileservice.ReplicaApplier;
+import restaurantbookingmanagement.service.fileservice.ReplicationLog;
 import restaurantbookingmanagement.service.validator.BookingValidator;
 
 /**
@@ -27,6 +31,28 @@ public class RestaurantBookingManagement {
             BookingService bookingService = new BookingService(tableService, bookingValidator);
             OrderService orderService = new OrderService(menuService, bookingService, tableService);
 
+            // Chế độ actor-per-table (tùy chọn): -Drbm.tableActors=true
+            if (TableActorSystem.isEnabled()) {
+                TableActorSystem tableActors = new TableActorSystem();
+                tableService.setTableActorSystem(tableActors);
+                bookingService.setTableActorSystem(tableActors);
+                orderService.setTableActorSystem(tableActors);
+                Runtime.getRuntime().addShutdownHook(new Thread(tableActors::close));
+            }
+
+            // Nạp lại dữ liệu khi file trong data/ bị sửa từ bên ngoài
+            DataDirectoryWatcher dataWatcher = new DataDirectoryWatcher();
+            Runtime.getRuntime().addShutdownHook(new Thread(dataWatcher::close));
+
+            // Primary nhân bản (tùy chọn): lưu thư mục replica để mọi tiến trình ghi trên data/ này đều gửi thay đổi
+            ReplicationLog.registerTarget();
+
+            // Chế độ replica chỉ đọc (tùy chọn): -Drbm.replica=true, nhận thay đổi từ primary chạy với -Drbm.replicateTo=<data replica>
+            if (ReplicaApplier.isReplica()) {
+                ReplicaApplier replicaApplier = ReplicaApplier.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(replicaApplier::close));
+            }
+
             // 2. Initialize View
             ConsoleView view = new ConsoleView();
 
@@ -1,38 +1,165 @@
 package restaurantbookingmanagement.ai;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
+import java.io.StringReader;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.List;
-import java.util.ArrayList;
 import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import restaurantbookingmanagement.utils.DebugUtil;
 import restaurantbookingmanagement.model.Customer;
 
+// Design Pattern: Singleton
+// Purpose: Cả tiến trình dùng chung một connector và một transport, kết nối keep-alive tới AI Agent
+//          được tái sử dụng giữa file service, controller và mọi phiên chat thay vì mỗi nơi tự mở client riêng.
 /**
- * Helper class để giao tiếp với Python AI Agent
+ * Helper class để giao tiếp với Python AI Agent.
+ * API bất đồng bộ (processUserInputAsync) không chặn thread gọi: request chạy trên virtual thread,
+ * future trả về có thể hủy (hủy luôn request đang chạy) và có deadline riêng cho từng request.
+ * Lấy instance qua AIAgentConnector.shared().
+ * Request đi qua AgentTransport: HTTP loopback mặc định, hoặc Unix domain socket với -Drbm.agentTransport=uds.
+ * Mọi lời gọi đi qua CircuitBreaker: agent lỗi liên tiếp thì các lời gọi sau trả lỗi ngay
+ * cho tới khi health check nền thấy agent sống lại.
+ * Phản hồi của các intent chỉ đọc dữ liệu được cache (ResponseCache) và bị xóa khi dữ liệu thay đổi.
+ * Request gọi LLM đi qua RequestScheduler (token bucket, hàng đợi công bằng theo session) trước khi gửi.
+ * Với -Drbm.aiStreaming=true, naturalResponse được nhận dần qua /process/stream để hiển thị ngay khi agent sinh ra.
  */
 public class AIAgentConnector {
-    private static final String AI_API_URL = "http://localhost:5000/process";
+    private static final String PROCESS_PATH = "/process";
+    private static final String PROCESS_STREAM_PATH = "/process/stream";
+    static final String STREAMING_PROPERTY = "rbm.aiStreaming";
+    private static final String HEALTH_PATH = "/health";
+    private static final String REFRESH_PATH = "/refresh-knowledge";
+    private static final String END_SESSION_PATH = "/session/end";
+    private static final Duration END_SESSION_TIMEOUT = Duration.ofSeconds(2);
     private static final int TIMEOUT_SECONDS = 30;
+    private static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(TIMEOUT_SECONDS);
+    // AI Agent báo lại cổng phía client của kết nối TCP, dùng để đếm kết nối mới / được tái sử dụng
+    private static final String CLIENT_PORT_HEADER = "X-Client-Port";
+    // Request và callback (parse phản hồi) chạy trên virtual thread, không chiếm thread pool riêng
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    // Circuit breaker: số lỗi liên tiếp để ngắt mạch, chu kỳ và timeout của health check khi mạch mở
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final Duration PROBE_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(2);
+    // Cache phản hồi intent chỉ đọc: số câu hỏi tối đa và thời gian sống
+    private static final int RESPONSE_CACHE_SIZE = 256;
+    private static final long RESPONSE_CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final String UNAVAILABLE_MESSAGE = "AI Agent tạm thời không khả dụng. Vui lòng thử lại sau ít phút.";
+    // Giới hạn tốc độ gọi LLM phía Java, chỉnh bằng -Drbm.aiRequestsPerMinute / -Drbm.aiBurst
+    private static final String RATE_PROPERTY = "rbm.aiRequestsPerMinute";
+    private static final String BURST_PROPERTY = "rbm.aiBurst";
+    private static final int DEFAULT_REQUESTS_PER_MINUTE = 60;
+    private static final int DEFAULT_BURST = 10;
+    private static final int MAX_QUEUED_REQUESTS = 100;
+    private static final int MAX_QUEUED_PER_SESSION = 3;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final Duration REFRESH_RETRY_DELAY = Duration.ofSeconds(10);
+    private static final String BUSY_MESSAGE = "Hệ thống AI đang bận, vui lòng thử lại sau giây lát.";
     
-    private final HttpClient httpClient;
     private final Gson gson;
-    private String currentSessionId;
+    private final ConnectionStats connectionStats = new ConnectionStats();
+    private final AgentTransport transport;
+    private final CircuitBreaker breaker;
+    private final ResponseCache responseCache = new ResponseCache(RESPONSE_CACHE_SIZE, RESPONSE_CACHE_TTL_MS);
+    private final RequestScheduler scheduler = new RequestScheduler(Integer.getInteger(BURST_PROPERTY, DEFAULT_BURST),
+            Integer.getInteger(RATE_PROPERTY, DEFAULT_REQUESTS_PER_MINUTE), MAX_QUEUED_REQUESTS, MAX_QUEUED_PER_SESSION, EXECUTOR);
+    // Dữ liệu đổi trong lúc mạch mở: gửi lại refresh khi agent sống lại
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    // Đã có một refresh bất đồng bộ đang chờ chạy trên EXECUTOR, các lần ghi tiếp theo gộp vào đó
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private volatile String currentSessionId;
     
-    public AIAgentConnector() {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
-                .build();
+    private static final class Holder {
+        static final AIAgentConnector INSTANCE = new AIAgentConnector();
+    }
+    
+    private AIAgentConnector() {
+        this.transport = AgentTransport.fromSystemProperties(connectionStats, EXECUTOR);
         this.gson = new Gson();
         this.currentSessionId = generateSessionId();
+        this.breaker = new CircuitBreaker(FAILURE_THRESHOLD, PROBE_INTERVAL, this::probeHealth, () -> {
+            if (refreshPending.compareAndSet(true, false)) EXECUTOR.execute(this::notifyKnowledgeRefresh);
+        });
+    }
+    
+    /**
+     * Connector dùng chung của cả tiến trình
+     */
+    public static AIAgentConnector shared() {
+        return Holder.INSTANCE;
+    }
+    
+    /**
+     * Thống kê tái sử dụng kết nối tới AI Agent
+     */
+    public static final class ConnectionStats {
+        // Giới hạn số cổng nhớ lại; cổng cũ bị hệ điều hành cấp lại sau một thời gian dài nên xóa định kỳ là đủ
+        private static final int MAX_TRACKED_PORTS = 1024;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder newConnections = new LongAdder();
+        private final LongAdder reusedConnections = new LongAdder();
+        private final Set<String> seenPorts = ConcurrentHashMap.newKeySet();
+        
+        void record(HttpResponse<?> response) {
+            requests.increment();
+            Optional<String> port = response.headers().firstValue(CLIENT_PORT_HEADER);
+            if (port.isEmpty()) return;
+            if (seenPorts.size() > MAX_TRACKED_PORTS) seenPorts.clear();
+            if (seenPorts.add(port.get())) newConnections.increment();
+            else reusedConnections.increment();
+        }
+        
+        /**
+         * Phản hồi nhận qua transport tự quản lý kết nối (Unix domain socket)
+         */
+        void record(boolean reusedConnection) {
+            requests.increment();
+            if (reusedConnection) reusedConnections.increment();
+            else newConnections.increment();
+        }
+        
+        /** Số phản hồi đã nhận từ AI Agent */
+        public long getRequests() { return requests.sum(); }
+        /** Số request chạy trên kết nối mới mở */
+        public long getNewConnections() { return newConnections.sum(); }
+        /** Số request chạy trên kết nối đã có trong pool */
+        public long getReusedConnections() { return reusedConnections.sum(); }
+        /** Tỉ lệ request dùng lại kết nối (0..1), chỉ tính request agent có báo cổng */
+        public double getReuseRate() {
+            long reused = reusedConnections.sum();
+            long total = reused + newConnections.sum();
+            return total == 0 ? 0.0 : (double) reused / total;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("requests=%d, newConnections=%d, reused=%d, reuseRate=%.0f%%",
+                    getRequests(), getNewConnections(), getReusedConnections(), getReuseRate() * 100);
+        }
+    }
+    
+    public ConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+    
+    /**
+     * Độ sâu hàng đợi, thời gian chờ và số request bị từ chối của bộ giới hạn tốc độ
+     */
+    public RequestScheduler getRequestScheduler() {
+        return scheduler;
     }
     
     private String generateSessionId() {
@@ -64,259 +191,186 @@ public class AIAgentConnector {
      * Gửi yêu cầu đến AI Agent với pending action (originalTool, collectedParams, missingParams)
      */
     public AIResponse processUserInput(String userInput, String role, Customer currentCustomer, String originalTool, Map<String, Object> collectedParams, java.util.List<String> missingParams) {
+        return processUserInputAsync(userInput, role, currentCustomer, originalTool, collectedParams, missingParams,
+                currentSessionId, DEFAULT_DEADLINE).join();
+    }
+    
+    /**
+     * Bản bất đồng bộ của processUserInput với session hiện tại và deadline mặc định
+     */
+    public CompletableFuture<AIResponse> processUserInputAsync(String userInput, String role, Customer currentCustomer) {
+        return processUserInputAsync(userInput, role, currentCustomer, null, null, null, currentSessionId, DEFAULT_DEADLINE);
+    }
+    
+    /**
+     * Gửi yêu cầu đến AI Agent mà không chặn thread gọi.
+     * Lỗi kết nối và quá deadline đều hoàn thành future bằng phản hồi lỗi như bản đồng bộ;
+     * cancel() future trả về thì request HTTP đang chạy cũng bị hủy.
+     * sessionId được gửi theo từng request nên nhiều phiên chat có thể chạy song song trên cùng connector.
+     * Câu hỏi đã có trong cache (không có pending action) được trả lời ngay, kể cả khi agent đang ngừng.
+     * Mạch đang mở thì trả ngay phản hồi lỗi mà không gửi request.
+     */
+    public CompletableFuture<AIResponse> processUserInputAsync(String userInput, String role, Customer currentCustomer,
+                                                               String originalTool, Map<String, Object> collectedParams,
+                                                               java.util.List<String> missingParams, String sessionId, Duration deadline) {
+        return processUserInputAsync(userInput, role, currentCustomer, originalTool, collectedParams, missingParams,
+                sessionId, deadline, null);
+    }
+    
+    /**
+     * Như bản trên; khi bật stream (rbm.aiStreaming), onToken nhận từng đoạn naturalResponse ngay khi agent sinh ra,
+     * trước khi future hoàn thành với phản hồi đầy đủ (action, parameters). onToken null hoặc chưa bật stream
+     * thì gửi request thường. Phản hồi từ cache không đi qua onToken.
+     */
+    public CompletableFuture<AIResponse> processUserInputAsync(String userInput, String role, Customer currentCustomer,
+                                                               String originalTool, Map<String, Object> collectedParams,
+                                                               java.util.List<String> missingParams, String sessionId,
+                                                               Duration deadline, Consumer<String> onToken) {
+        if (deadline == null) deadline = DEFAULT_DEADLINE;
+        String request;
         try {
-            Map<String, Object> requestData = new HashMap<>();
-            requestData.put("userInput", userInput);
-            requestData.put("sessionId", currentSessionId);
-            requestData.put("role", role);
-            if (currentCustomer != null) {
-                requestData.put("customerName", currentCustomer.getName());
-                requestData.put("customerPhone", currentCustomer.getPhone());
-                requestData.put("customerEmail", currentCustomer.getEmail());
+            request = buildProcessRequest(userInput, role, currentCustomer, originalTool, collectedParams, missingParams, sessionId);
+        } catch (Exception e) {
+            System.err.println("Error communicating with AI Agent: " + e.getMessage());
+            return CompletableFuture.completedFuture(createErrorResponse("Không thể kết nối với AI Agent. Vui lòng thử lại sau."));
+        }
+        // Đang dở một pending action thì câu trả lời phụ thuộc ngữ cảnh, không dùng cache
+        String cacheKey = originalTool == null && collectedParams == null && missingParams == null && userInput != null
+                ? ResponseCache.key(userInput, role) : null;
+        long cacheGeneration = responseCache.generation();
+        if (cacheKey != null) {
+            AIResponse cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                DebugUtil.debugPrint("⚡ AI response cache hit (" + cached.getAction() + "), hits=" + responseCache.getHits()
+                        + ", misses=" + responseCache.getMisses());
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        if (!breaker.tryAcquire()) {
+            DebugUtil.debugPrint("⛔ AI Agent circuit open, request rejected without calling agent");
+            return CompletableFuture.completedFuture(createErrorResponse(UNAVAILABLE_MESSAGE));
+        }
+        // Chờ token của RequestScheduler; hàng đợi đầy thì trả lời bận ngay thay vì treo terminal
+        CompletableFuture<Void> permit = scheduler.acquire(sessionId != null ? sessionId : currentSessionId);
+        if (permit.isCompletedExceptionally()) {
+            breaker.recordCancelled();
+            DebugUtil.debugPrint("🚦 AI request shed, queue full: " + scheduler);
+            return CompletableFuture.completedFuture(createErrorResponse(BUSY_MESSAGE));
+        }
+        if (!permit.isDone()) DebugUtil.debugPrint("🚦 AI request queued: " + scheduler);
+        CompletableFuture<AIResponse> result = new CompletableFuture<>();
+        long startNanos = System.nanoTime();
+        Duration requestDeadline = deadline;
+        AtomicReference<CompletableFuture<AgentTransport.Reply>> inFlight = new AtomicReference<>();
+        CompletableFuture<AgentTransport.Reply> exchange = permit.thenCompose(granted -> {
+            // Thời gian chờ trong hàng đợi đã tính vào deadline
+            Duration remaining = requestDeadline.minusNanos(System.nanoTime() - startNanos);
+            CompletableFuture<AgentTransport.Reply> sent = onToken != null && isStreamingEnabled()
+                    ? transport.stream(PROCESS_STREAM_PATH, request, remaining, token -> {
+                        // Quá hạn hoặc đã hủy thì không hiển thị thêm
+                        if (!result.isDone()) onToken.accept(token);
+                    })
+                    : transport.send("POST", PROCESS_PATH, request, remaining);
+            inFlight.set(sent);
+            if (result.isDone()) sent.cancel(true);
+            return sent;
+        });
+        exchange.whenComplete((response, error) -> {
+            // Đã hủy hoặc quá hạn: request bị bỏ giữa chừng, không cần báo lỗi
+            if (result.isDone()) return;
+            if (error != null) {
+                System.err.println("Error communicating with AI Agent: " + error.getMessage());
+                if (result.complete(createErrorResponse("Không thể kết nối với AI Agent. Vui lòng thử lại sau."))) breaker.recordFailure();
+                return;
             }
-            if (originalTool != null) requestData.put("originalTool", originalTool);
-            if (collectedParams != null) requestData.put("collectedParams", collectedParams);
-            if (missingParams != null) requestData.put("missingParams", missingParams);
-            String jsonRequest = gson.toJson(requestData);
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(AI_API_URL))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonRequest))
-                    .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-                return parseJsonResponse(response.body());
+            DebugUtil.debugPrint("🔌 AI Agent connections: " + connectionStats);
+            recordOutcome(response.status);
+            if (response.status == 200) {
+                AIResponse aiResponse = parseJsonResponse(response.body);
+                if (cacheKey != null) responseCache.put(cacheKey, aiResponse, cacheGeneration);
+                result.complete(aiResponse);
+            } else if (response.status == TOO_MANY_REQUESTS) {
+                // LLM đang throttle: các request đang chờ phải đợi bucket nạp lại thay vì dồn thêm
+                scheduler.throttle();
+                result.complete(createErrorResponse(BUSY_MESSAGE));
             } else {
-                System.err.println("AI API returned status code: " + response.statusCode());
-                return createErrorResponse("Lỗi kết nối với AI Agent");
+                System.err.println("AI API returned status code: " + response.status);
+                result.complete(createErrorResponse("Lỗi kết nối với AI Agent"));
             }
-        } catch (Exception e) {
-            System.err.println("Error communicating with AI Agent: " + e.getMessage());
-            return createErrorResponse("Không thể kết nối với AI Agent. Vui lòng thử lại sau.");
+        });
+        // Deadline tính cho cả lúc chờ token, request lẫn đọc body; timeout của HttpRequest chỉ tính tới lúc nhận header.
+        // Chỉ tính là lỗi nếu chính deadline hoàn thành future (không phải phản hồi tới cùng lúc) và request đã được gửi
+        CompletableFuture.delayedExecutor(deadline.toMillis(), TimeUnit.MILLISECONDS, EXECUTOR).execute(() -> {
+            if (inFlight.get() == null) {
+                if (result.complete(createErrorResponse(BUSY_MESSAGE))) breaker.recordCancelled();
+            } else if (result.complete(createErrorResponse("AI Agent không phản hồi kịp thời hạn. Vui lòng thử lại."))) {
+                breaker.recordFailure();
+            }
+        });
+        // Bị hủy hoặc quá hạn thì rút khỏi hàng đợi và bỏ luôn request đang chạy để giải phóng kết nối
+        result.whenComplete((response, error) -> {
+            permit.cancel(true);
+            CompletableFuture<AgentTransport.Reply> sent = inFlight.get();
+            if (sent != null) sent.cancel(true);
+            if (result.isCancelled()) breaker.recordCancelled();
+        });
+        return result;
+    }
+    
+    /**
+     * Có nhận phản hồi dạng stream không (-Drbm.aiStreaming=true)
+     */
+    public static boolean isStreamingEnabled() {
+        return Boolean.getBoolean(STREAMING_PROPERTY);
+    }
+    
+    private String buildProcessRequest(String userInput, String role, Customer currentCustomer, String originalTool,
+                                            Map<String, Object> collectedParams, java.util.List<String> missingParams,
+                                            String sessionId) {
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("userInput", userInput);
+        requestData.put("sessionId", sessionId != null ? sessionId : currentSessionId);
+        requestData.put("role", role);
+        if (currentCustomer != null) {
+            requestData.put("customerName", currentCustomer.getName());
+            requestData.put("customerPhone", currentCustomer.getPhone());
+            requestData.put("customerEmail", currentCustomer.getEmail());
+        }
+        if (originalTool != null) requestData.put("originalTool", originalTool);
+        if (collectedParams != null) requestData.put("collectedParams", collectedParams);
+        if (missingParams != null) requestData.put("missingParams", missingParams);
+        return gson.toJson(requestData);
+    }
+    
+    /**
+     * Gửi request và chờ phản hồi tối đa timeout; quá hạn thì hủy request (đóng kết nối đang dùng)
+     */
+    private AgentTransport.Reply sendAndWait(String method, String path, String body, Duration timeout) throws Exception {
+        CompletableFuture<AgentTransport.Reply> reply = transport.send(method, path, body, timeout);
+        try {
+            return reply.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            reply.cancel(true);
+            throw e;
         }
     }
     
     /**
-     * Parse JSON response từ AI Agent sử dụng Gson
+     * Parse JSON response từ AI Agent bằng AIResponseParser (một lượt JsonReader, không dựng cây JsonObject)
      */
     private AIResponse parseJsonResponse(String jsonStr) {
         try {
-            DebugUtil.debugPrint("🔍 DEBUG - Raw JSON from AI Agent: " + jsonStr);
-            
-            Map<String, Object> parameters = new HashMap<>();
-            String action = "";
-            String naturalResponse = "";
-            
-            // Parse JSON sử dụng Gson
-            JsonObject jsonObject = gson.fromJson(jsonStr, JsonObject.class);
-            
-            // Parse action
-            if (jsonObject.has("action")) {
-                action = jsonObject.get("action").getAsString();
-            }
-            
-            // Parse naturalResponse
-            if (jsonObject.has("naturalResponse")) {
-                naturalResponse = jsonObject.get("naturalResponse").getAsString();
-            }
+            if (DebugUtil.isDebug()) DebugUtil.debugPrint("🔍 DEBUG - Raw JSON from AI Agent: " + jsonStr);
+            AIResponse response = AIResponseParser.parse(new StringReader(jsonStr));
             
-            // Parse parameters
-            if (jsonObject.has("parameters")) {
-                JsonObject paramsObj = jsonObject.getAsJsonObject("parameters");
-                
-                // Parse guests
-                if (paramsObj.has("guests") && !paramsObj.get("guests").isJsonNull()) {
-                    JsonElement guestsElement = paramsObj.get("guests");
-                    if (guestsElement.isJsonPrimitive()) {
-                        try {
-                            parameters.put("guests", guestsElement.getAsInt());
-                        } catch (Exception e) {
-                            // If not an integer, try as string
-                            parameters.put("guests", guestsElement.getAsString());
-                        }
-                    }
-                }
-                
-                // Parse time
-                if (paramsObj.has("time") && !paramsObj.get("time").isJsonNull()) {
-                    parameters.put("time", paramsObj.get("time").getAsString());
-                }
-                
-                // Parse customerName
-                if (paramsObj.has("customerName") && !paramsObj.get("customerName").isJsonNull()) {
-                    parameters.put("customerName", paramsObj.get("customerName").getAsString());
-                }
-                
-                // Parse customerPhone
-                if (paramsObj.has("customerPhone") && !paramsObj.get("customerPhone").isJsonNull()) {
-                    parameters.put("customerPhone", paramsObj.get("customerPhone").getAsString());
-                }
-                
-                // Parse bookingId
-                if (paramsObj.has("bookingId") && !paramsObj.get("bookingId").isJsonNull()) {
-                    try {
-                        parameters.put("bookingId", paramsObj.get("bookingId").getAsInt());
-                    } catch (Exception e) {
-                        // If not an integer, try as string
-                        parameters.put("bookingId", paramsObj.get("bookingId").getAsString());
-                    }
-                }
-                
-                // Parse dishes/items
-                if (paramsObj.has("dishes")) {
-                    JsonArray dishesArray = paramsObj.getAsJsonArray("dishes");
-                    List<Map<String, Object>> dishes = new ArrayList<>();
-                    
-                    for (JsonElement dishElement : dishesArray) {
-                        JsonObject dishObj = dishElement.getAsJsonObject();
-                        Map<String, Object> dish = new HashMap<>();
-                        
-                        if (dishObj.has("name")) {
-                            dish.put("name", dishObj.get("name").getAsString());
-                        }
-                        if (dishObj.has("quantity")) {
-                            dish.put("quantity", dishObj.get("quantity").getAsInt());
-                        }
-                        
-                        dishes.add(dish);
-                    }
-                    
-                    parameters.put("dishes", dishes);
-                }
-                
-                // Parse items (new format from AI)
-                if (paramsObj.has("items")) {
-                    JsonArray itemsArray = paramsObj.getAsJsonArray("items");
-                    List<Map<String, Object>> items = new ArrayList<>();
-                    for (JsonElement itemElement : itemsArray) {
-                        JsonObject itemObj = itemElement.getAsJsonObject();
-                        Map<String, Object> item = new HashMap<>();
-                        if (itemObj.has("name")) {
-                            item.put("name", itemObj.get("name").getAsString());
-                        }
-                        if (itemObj.has("item")) {
-                            item.put("name", itemObj.get("item").getAsString());
-                        }
-                        if (itemObj.has("quantity")) {
-                            item.put("quantity", itemObj.get("quantity").getAsInt());
-                        }
-                        items.add(item);
-                    }
-                    parameters.put("dishes", items); // Map to dishes for compatibility
-                }
-                
-                // Parse single item + quantity (fallback for AI)
-                if (paramsObj.has("item") && paramsObj.has("quantity")) {
-                    List<Map<String, Object>> singleDish = new ArrayList<>();
-                    Map<String, Object> dish = new HashMap<>();
-                    dish.put("name", paramsObj.get("item").getAsString());
-                    dish.put("quantity", paramsObj.get("quantity").getAsInt());
-                    singleDish.add(dish);
-                    parameters.put("dishes", singleDish);
-                }
-                
-                // Parse single name + quantity (fallback for AI)
-                if (paramsObj.has("name") && paramsObj.has("quantity")) {
-                    List<Map<String, Object>> singleDish = new ArrayList<>();
-                    Map<String, Object> dish = new HashMap<>();
-                    dish.put("name", paramsObj.get("name").getAsString());
-                    dish.put("quantity", paramsObj.get("quantity").getAsInt());
-                    singleDish.add(dish);
-                    parameters.put("dishes", singleDish);
-                }
-                
-                // Parse menu item parameters (for add_menu action)
-                if (paramsObj.has("name") && !paramsObj.get("name").isJsonNull()) {
-                    parameters.put("name", paramsObj.get("name").getAsString());
-                }
-                
-                if (paramsObj.has("price") && !paramsObj.get("price").isJsonNull()) {
-                    try {
-                        parameters.put("price", paramsObj.get("price").getAsDouble());
-                    } catch (Exception e) {
-                        // If not a double, try as string
-                        parameters.put("price", paramsObj.get("price").getAsString());
-                    }
-                }
-                
-                if (paramsObj.has("description") && !paramsObj.get("description").isJsonNull()) {
-                    parameters.put("description", paramsObj.get("description").getAsString());
-                }
-                
-                // Parse menu item ID (for delete_menu action)
-                if (paramsObj.has("itemId") && !paramsObj.get("itemId").isJsonNull()) {
-                    try {
-                        parameters.put("itemId", paramsObj.get("itemId").getAsInt());
-                    } catch (Exception e) {
-                        // If not an integer, try as string
-                        parameters.put("itemId", paramsObj.get("itemId").getAsString());
-                    }
-                }
-                
-                // Parse table capacity (for add_table action)
-                if (paramsObj.has("capacity") && !paramsObj.get("capacity").isJsonNull()) {
-                    try {
-                        parameters.put("capacity", paramsObj.get("capacity").getAsInt());
-                    } catch (Exception e) {
-                        // If not an integer, try as string
-                        parameters.put("capacity", paramsObj.get("capacity").getAsString());
-                    }
-                }
-                
-                // Parse search term (for customer_search action)
-                if (paramsObj.has("searchTerm") && !paramsObj.get("searchTerm").isJsonNull()) {
-                    parameters.put("searchTerm", paramsObj.get("searchTerm").getAsString());
-                }
-                
-                // Parse date (for booking actions)
-                if (paramsObj.has("date") && !paramsObj.get("date").isJsonNull()) {
-                    parameters.put("date", paramsObj.get("date").getAsString());
-                }
-                
-                // Parse requiresJavaService flag
-                if (jsonObject.has("requiresJavaService")) {
-                    parameters.put("requiresJavaService", jsonObject.get("requiresJavaService").getAsBoolean());
-                }
-                
-                // Parse javaServiceType
-                if (jsonObject.has("javaServiceType")) {
-                    parameters.put("javaServiceType", jsonObject.get("javaServiceType").getAsString());
-                }
-            }
-            
-            DebugUtil.debugPrint("🔍 DEBUG - Parsed AI Response:");
-            DebugUtil.debugPrint("   - Action: " + action);
-            DebugUtil.debugPrint("   - NaturalResponse: " + naturalResponse);
-            DebugUtil.debugPrint("   - Parameters size: " + parameters.size());
-            DebugUtil.debugPrint("   - CustomerName: " + parameters.get("customerName"));
-            DebugUtil.debugPrint("   - CustomerPhone: " + parameters.get("customerPhone"));
-            DebugUtil.debugPrint("   - Guests: " + parameters.get("guests"));
-            DebugUtil.debugPrint("   - Time: " + parameters.get("time"));
-            DebugUtil.debugPrint("   - MenuItemName: " + parameters.get("name"));
-            DebugUtil.debugPrint("   - MenuItemPrice: " + parameters.get("price"));
-            DebugUtil.debugPrint("   - MenuItemDescription: " + parameters.get("description"));
-            DebugUtil.debugPrint("   - MenuItemId: " + parameters.get("itemId"));
-            DebugUtil.debugPrint("   - TableCapacity: " + parameters.get("capacity"));
-            DebugUtil.debugPrint("   - SearchTerm: " + parameters.get("searchTerm"));
-            DebugUtil.debugPrint("   - BookingId: " + parameters.get("bookingId"));
-            DebugUtil.debugPrint("   - RequiresJavaService: " + parameters.get("requiresJavaService"));
-            DebugUtil.debugPrint("   - JavaServiceType: " + parameters.get("javaServiceType"));
-            
-            if ("order_food".equals(action)) {
-                boolean needCustomerInfo = false;
-                if (!parameters.containsKey("customerName") || parameters.get("customerName") == null || ((String)parameters.get("customerName")).isEmpty()) {
-                    needCustomerInfo = true;
-                }
-                if (!parameters.containsKey("customerPhone") || parameters.get("customerPhone") == null || ((String)parameters.get("customerPhone")).isEmpty()) {
-                    needCustomerInfo = true;
-                }
-                if (needCustomerInfo) {
+            if ("order_food".equals(response.getAction())) {
+                Map<String, Object> parameters = response.getParameters();
+                if (isBlank(parameters.get("customerName")) || isBlank(parameters.get("customerPhone"))) {
                     return new AIResponse("collect_customer_info", parameters, "Để gọi món, vui lòng cung cấp tên và số điện thoại khách hàng.");
                 }
             }
             
-            return new AIResponse(action, parameters, naturalResponse);
+            return response;
             
         } catch (Exception e) {
             System.err.println("Error parsing JSON response: " + e.getMessage());
@@ -325,6 +379,10 @@ public class AIAgentConnector {
         }
     }
     
+    private static boolean isBlank(Object value) {
+        return value == null || value.toString().isEmpty();
+    }
+    
     /**
      * Escape JSON string
      */
@@ -345,50 +403,114 @@ public class AIAgentConnector {
     }
     
     /**
-     * Kiểm tra xem AI Agent có đang hoạt động không
+     * Agent trả lời được thì coi là còn sống; lỗi 5xx mới tính là lỗi của agent
+     */
+    private void recordOutcome(int statusCode) {
+        if (statusCode >= 500) breaker.recordFailure();
+        else breaker.recordSuccess();
+    }
+    
+    /**
+     * Kiểm tra xem AI Agent có đang hoạt động không.
+     * Trả về trạng thái đã cache theo kết quả các lời gọi gần nhất và health check nền, không gửi request.
      */
     public boolean isAIAgentAvailable() {
+        return breaker.isAvailable();
+    }
+    
+    /**
+     * Gọi /health với timeout ngắn, dùng cho health check nền khi mạch đang mở
+     */
+    private boolean probeHealth() {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(AI_API_URL.replace("/process", "/health")))
-                    .GET()
-                    .timeout(Duration.ofSeconds(15))
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200;
+            return sendAndWait("GET", HEALTH_PATH, null, PROBE_TIMEOUT).status == 200;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             return false;
         }
     }
     
     /**
-     * Thông báo cho AI Agent rằng dữ liệu đã thay đổi và cần nạp lại kiến thức
+     * Xóa cache phản hồi AI, gọi khi dữ liệu bị thay đổi (kể cả do tiến trình khác)
+     */
+    public void invalidateResponseCache() {
+        responseCache.invalidate();
+    }
+    
+    /**
+     * Như notifyKnowledgeRefresh nhưng không chặn thread gọi: cache phản hồi bị xóa ngay,
+     * request chạy trên EXECUTOR; nhiều lần gọi trước khi request kịp chạy chỉ gửi một refresh.
+     * File service gọi sau khi đã nhả khóa dữ liệu, để agent chậm không giữ khóa của các console khác.
+     */
+    public void requestKnowledgeRefresh() {
+        responseCache.invalidate();
+        if (refreshQueued.compareAndSet(false, true)) {
+            EXECUTOR.execute(() -> {
+                refreshQueued.set(false);
+                notifyKnowledgeRefresh();
+            });
+        }
+    }
+    
+    /**
+     * Thông báo cho AI Agent rằng dữ liệu đã thay đổi và cần nạp lại kiến thức.
+     * Cache phản hồi bị xóa ngay; mạch đang mở thì bỏ qua thông báo và gửi lại một lần khi agent sống lại.
+     * Đang có chat chờ token thì refresh bị bỏ để nhường chỗ và được gửi lại sau REFRESH_RETRY_DELAY.
      */
     public void notifyKnowledgeRefresh() {
+        responseCache.invalidate();
+        if (!breaker.tryAcquire()) {
+            refreshPending.set(true);
+            DebugUtil.debugPrint("⛔ AI Agent unavailable, knowledge refresh deferred until it recovers");
+            return;
+        }
+        if (!scheduler.tryAcquireBackground()) {
+            breaker.recordCancelled();
+            DebugUtil.debugPrint("🚦 Knowledge refresh shed while chats are waiting: " + scheduler);
+            // Gửi lại sau, chỉ hẹn một lần dù dữ liệu đổi nhiều lần
+            if (refreshPending.compareAndSet(false, true)) {
+                CompletableFuture.delayedExecutor(REFRESH_RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS, EXECUTOR).execute(() -> {
+                    if (refreshPending.compareAndSet(true, false)) notifyKnowledgeRefresh();
+                });
+            }
+            return;
+        }
         try {
-            String refreshUrl = AI_API_URL.replace("/process", "/refresh-knowledge");
+            AgentTransport.Reply response = sendAndWait("POST", REFRESH_PATH, "{}", DEFAULT_DEADLINE);
+            recordOutcome(response.status);
             
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(refreshUrl))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString("{}"))
-                    .timeout(Duration.ofSeconds(30))
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() == 200) {
+            if (response.status == 200) {
                 System.out.println("✅ AI Agent knowledge refreshed successfully.");
             } else {
-                System.err.println("⚠️ AI Agent knowledge refresh returned status: " + response.statusCode());
+                System.err.println("⚠️ AI Agent knowledge refresh returned status: " + response.status);
             }
             
         } catch (Exception e) {
+            breaker.recordFailure();
+            refreshPending.set(true);
             System.err.println("⚠️ Could not notify AI Agent of knowledge refresh: " + e.getMessage());
         }
     }
     
+    /**
+     * Báo AI Agent xóa lịch sử hội thoại và pending action của một session đã đóng.
+     * Không chặn thread gọi và bỏ qua lỗi: agent không nhận được thì session cũ chỉ tốn bộ nhớ phía agent.
+     */
+    public void endSession(String sessionId) {
+        if (sessionId == null || !breaker.isAvailable()) return;
+        CompletableFuture<AgentTransport.Reply> reply = transport.send("POST", END_SESSION_PATH,
+                gson.toJson(Map.of("sessionId", sessionId)), END_SESSION_TIMEOUT);
+        CompletableFuture.delayedExecutor(END_SESSION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, EXECUTOR)
+                .execute(() -> reply.cancel(true));
+        reply.whenComplete((result, error) -> {
+            if (error != null && !reply.isCancelled()) {
+                DebugUtil.debugPrint("⚠️ Could not end AI session " + sessionId + ": " + error.getMessage());
+            }
+        });
+    }
+    
     /**
      * Reset session để bắt đầu cuộc hội thoại mới
      */
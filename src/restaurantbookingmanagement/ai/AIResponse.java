@@ -1,5 +1,6 @@
 package restaurantbookingmanagement.ai;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -9,6 +10,8 @@ public class AIResponse {
     private String action;
     private Map<String, Object> parameters;
     private String naturalResponse;
+    // Các trường cấp cao nhất mà Java chưa biết, giữ lại để agent mới vẫn tương thích
+    private Map<String, Object> extensions = new LinkedHashMap<>();
     
     public AIResponse() {
     }
@@ -32,6 +35,10 @@ public class AIResponse {
         return naturalResponse;
     }
     
+    public Map<String, Object> getExtensions() {
+        return extensions;
+    }
+    
     // Setters
     public void setAction(String action) {
         this.action = action;
@@ -45,6 +52,10 @@ public class AIResponse {
         this.naturalResponse = naturalResponse;
     }
     
+    public void setExtensions(Map<String, Object> extensions) {
+        this.extensions = extensions != null ? extensions : new LinkedHashMap<>();
+    }
+    
     @Override
     public String toString() {
         return "AIResponse{" +
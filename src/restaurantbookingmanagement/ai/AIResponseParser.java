@@ -0,0 +1,259 @@
+package restaurantbookingmanagement.ai;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import restaurantbookingmanagement.utils.DebugUtil;
+
+/**
+ * Đọc phản hồi JSON của AI Agent trong một lượt bằng JsonReader, không dựng cây JsonObject trung gian.
+ * Kiểu của từng tham số được khai báo trong PARAMETER_SCHEMA; khóa không có trong schema vẫn được giữ
+ * (trong parameters hoặc AIResponse.getExtensions()) để agent thêm trường mới mà không cần sửa Java.
+ */
+final class AIResponseParser {
+
+    /**
+     * Cách giải mã một tham số
+     */
+    enum ParamType {
+        /** Chuỗi; số và boolean được đổi sang chuỗi */
+        STRING {
+            @Override
+            Object read(JsonReader reader) throws IOException {
+                JsonToken token = reader.peek();
+                if (token == JsonToken.BOOLEAN) return String.valueOf(reader.nextBoolean());
+                if (token == JsonToken.STRING || token == JsonToken.NUMBER) return reader.nextString();
+                reader.skipValue();
+                return null;
+            }
+        },
+        /** Số nguyên; không đọc được là số thì giữ nguyên chuỗi */
+        INT_OR_STRING {
+            @Override
+            Object read(JsonReader reader) throws IOException {
+                String text = (String) STRING.read(reader);
+                if (text == null) return null;
+                Integer value = toInt(text);
+                return value != null ? value : text;
+            }
+        },
+        /** Số thực; không đọc được là số thì giữ nguyên chuỗi */
+        DOUBLE_OR_STRING {
+            @Override
+            Object read(JsonReader reader) throws IOException {
+                String text = (String) STRING.read(reader);
+                if (text == null) return null;
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    return text;
+                }
+            }
+        },
+        /** Danh sách món [{name|item, quantity}] */
+        DISHES {
+            @Override
+            Object read(JsonReader reader) throws IOException {
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    return null;
+                }
+                List<Map<String, Object>> dishes = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    Map<String, Object> dish = new HashMap<>();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String key = reader.nextName();
+                        Object value = switch (key) {
+                            case "name", "item" -> STRING.read(reader);
+                            case "quantity" -> INT_OR_STRING.read(reader);
+                            default -> {
+                                reader.skipValue();
+                                yield null;
+                            }
+                        };
+                        if (value == null) continue;
+                        // "item" là tên món theo định dạng mới, ưu tiên hơn "name"
+                        if ("item".equals(key) || ("name".equals(key) && !dish.containsKey("name"))) dish.put("name", value);
+                        else if ("quantity".equals(key)) dish.put("quantity", value);
+                    }
+                    reader.endObject();
+                    dishes.add(dish);
+                }
+                reader.endArray();
+                return dishes;
+            }
+        };
+
+        abstract Object read(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Schema tham số mà các handler đang dùng. "items" là tên mới của "dishes" và được gộp vào "dishes".
+     */
+    static final Map<String, ParamType> PARAMETER_SCHEMA = Map.ofEntries(
+            Map.entry("guests", ParamType.INT_OR_STRING),
+            Map.entry("bookingId", ParamType.INT_OR_STRING),
+            Map.entry("itemId", ParamType.INT_OR_STRING),
+            Map.entry("capacity", ParamType.INT_OR_STRING),
+            Map.entry("quantity", ParamType.INT_OR_STRING),
+            Map.entry("price", ParamType.DOUBLE_OR_STRING),
+            Map.entry("time", ParamType.STRING),
+            Map.entry("date", ParamType.STRING),
+            Map.entry("customerName", ParamType.STRING),
+            Map.entry("customerPhone", ParamType.STRING),
+            Map.entry("name", ParamType.STRING),
+            Map.entry("item", ParamType.STRING),
+            Map.entry("description", ParamType.STRING),
+            Map.entry("searchTerm", ParamType.STRING),
+            Map.entry("dishes", ParamType.DISHES),
+            Map.entry("items", ParamType.DISHES));
+
+    private AIResponseParser() {}
+
+    /**
+     * Đọc một phản hồi; JSON sai cú pháp thì ném IOException (hoặc IllegalStateException của JsonReader)
+     */
+    static AIResponse parse(Reader in) throws IOException {
+        String action = "";
+        String naturalResponse = "";
+        Map<String, Object> parameters = new HashMap<>();
+        Map<String, Object> extensions = new LinkedHashMap<>();
+        Object requiresJavaService = null;
+        Object javaServiceType = null;
+
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            switch (key) {
+                case "action" -> action = orEmpty(ParamType.STRING.read(reader));
+                case "naturalResponse" -> naturalResponse = orEmpty(ParamType.STRING.read(reader));
+                case "parameters" -> readParameters(reader, parameters);
+                case "requiresJavaService" -> requiresJavaService = readValue(reader);
+                case "javaServiceType" -> javaServiceType = ParamType.STRING.read(reader);
+                default -> extensions.put(key, readValue(reader));
+            }
+        }
+        reader.endObject();
+
+        if (requiresJavaService != null) parameters.put("requiresJavaService", requiresJavaService);
+        if (javaServiceType != null) parameters.put("javaServiceType", javaServiceType);
+        AIResponse response = new AIResponse(action, parameters, naturalResponse);
+        response.setExtensions(extensions);
+        if (DebugUtil.isDebug()) {
+            DebugUtil.debugPrint("🔍 DEBUG - Parsed AI Response: action=" + action + ", parameters=" + parameters
+                    + (extensions.isEmpty() ? "" : ", extensions=" + extensions.keySet()));
+        }
+        return response;
+    }
+
+    private static void readParameters(JsonReader reader, Map<String, Object> parameters) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        List<?> dishes = null;
+        List<?> items = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            ParamType type = PARAMETER_SCHEMA.get(key);
+            Object value = type != null ? type.read(reader) : readValue(reader);
+            if (value == null) continue;
+            if ("dishes".equals(key)) dishes = (List<?>) value;
+            else if ("items".equals(key)) items = (List<?>) value;
+            else parameters.put(key, value);
+        }
+        reader.endObject();
+
+        // Thứ tự ưu tiên như trước: name/item + quantity đơn lẻ > items > dishes
+        Object quantity = parameters.get("quantity");
+        Object singleName = parameters.containsKey("name") ? parameters.get("name") : parameters.get("item");
+        if (quantity != null && singleName != null) {
+            Map<String, Object> dish = new HashMap<>();
+            dish.put("name", singleName);
+            dish.put("quantity", quantity);
+            List<Map<String, Object>> single = new ArrayList<>();
+            single.add(dish);
+            parameters.put("dishes", single);
+        } else if (items != null) {
+            parameters.put("dishes", items);
+        } else if (dishes != null) {
+            parameters.put("dishes", dishes);
+        }
+    }
+
+    /**
+     * Đọc một giá trị bất kỳ sang kiểu Java: Map, List, String, Boolean, Integer/Long/Double
+     */
+    static Object readValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    map.put(key, readValue(reader));
+                }
+                reader.endObject();
+                return map;
+            }
+            case BEGIN_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(readValue(reader));
+                }
+                reader.endArray();
+                return list;
+            }
+            case STRING:
+                return reader.nextString();
+            case NUMBER: {
+                // Số nguyên giữ kiểu Integer để AIResponseUtils.getInt đọc được (Gson mặc định trả Double)
+                String text = reader.nextString();
+                try {
+                    long value = Long.parseLong(text);
+                    return value == (int) value ? (Object) (int) value : (Object) value;
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(text);
+                }
+            }
+            case BOOLEAN:
+                return reader.nextBoolean();
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    // Như JsonPrimitive.getAsInt: "4" và "4.5" đều thành 4
+    private static Integer toInt(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            try {
+                double value = Double.parseDouble(text.trim());
+                return Double.isFinite(value) ? (int) value : null;
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static String orEmpty(Object value) {
+        return value != null ? value.toString() : "";
+    }
+}
@@ -0,0 +1,57 @@
+package restaurantbookingmanagement.ai;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+// Design Pattern: Strategy
+// Purpose: AIAgentConnector không phụ thuộc cách chuyển request tới AI Agent (HTTP loopback hoặc Unix domain socket).
+/**
+ * Kênh gửi một request tới AI Agent và nhận về mã trạng thái + body JSON.
+ * Hủy future trả về thì request đang chạy cũng bị bỏ (đóng kết nối đang dùng).
+ */
+interface AgentTransport extends AutoCloseable {
+    String SOCKET_PROPERTY = "rbm.agentSocket";
+    String SOCKET_ENV = "RBM_AGENT_SOCKET";
+    String TRANSPORT_PROPERTY = "rbm.agentTransport";
+
+    /**
+     * Phản hồi của agent
+     */
+    final class Reply {
+        final int status;
+        final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * @param method GET hoặc POST
+     * @param path   endpoint của agent, ví dụ /process
+     * @param body   JSON gửi kèm, null với GET
+     */
+    CompletableFuture<Reply> send(String method, String path, String body, Duration timeout);
+
+    /**
+     * POST tới endpoint stream: agent gửi từng đoạn text trước phản hồi cuối.
+     * onPartial nhận các đoạn theo đúng thứ tự, trên thread của transport, trước khi future hoàn thành.
+     */
+    CompletableFuture<Reply> stream(String path, String body, Duration timeout, Consumer<String> onPartial);
+
+    @Override
+    void close();
+
+    /**
+     * Chọn transport theo system property rbm.agentTransport (http mặc định, uds dùng Unix domain socket)
+     */
+    static AgentTransport fromSystemProperties(AIAgentConnector.ConnectionStats stats, ExecutorService executor) {
+        if ("uds".equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY))) {
+            return new UnixSocketAgentTransport(UnixSocketAgentTransport.defaultSocketPath(), stats, executor);
+        }
+        return new HttpAgentTransport(stats, executor);
+    }
+}
@@ -0,0 +1,96 @@
+package restaurantbookingmanagement.ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import restaurantbookingmanagement.model.Customer;
+
+/**
+ * Một cuộc hội thoại với AI Agent của một người dùng (một máy tính bảng, một phiên quản lý...).
+ * Nhiều session dùng chung một AIAgentConnector; mỗi session có sessionId riêng gửi kèm request
+ * và pending action riêng nên các cuộc hội thoại không lẫn vào nhau.
+ */
+public final class ChatSession {
+    private final String id;
+    private final String role;
+    private final Customer customer;
+    private final AtomicReference<PendingAction> pendingAction = new AtomicReference<>();
+    private final AtomicLong turns = new AtomicLong();
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    /**
+     * Hành động AI đang hỏi thêm thông tin (ask_for_info); bất biến để chia sẻ an toàn giữa các thread
+     */
+    public static final class PendingAction {
+        private final String originalTool;
+        private final Map<String, Object> collectedParams;
+        private final List<String> missingParams;
+
+        public PendingAction(String originalTool, Map<String, Object> collectedParams, List<String> missingParams) {
+            this.originalTool = originalTool;
+            // Không dùng Map.copyOf: tham số AI trả về có thể chứa giá trị null
+            this.collectedParams = Collections.unmodifiableMap(new HashMap<>(collectedParams));
+            this.missingParams = Collections.unmodifiableList(new ArrayList<>(missingParams));
+        }
+
+        public String getOriginalTool() { return originalTool; }
+        public Map<String, Object> getCollectedParams() { return collectedParams; }
+        public List<String> getMissingParams() { return missingParams; }
+    }
+
+    ChatSession(String id, String role, Customer customer) {
+        this.id = id != null ? id : "session_" + UUID.randomUUID();
+        this.role = role;
+        this.customer = customer;
+    }
+
+    public String getId() { return id; }
+    public String getRole() { return role; }
+    public Customer getCustomer() { return customer; }
+
+    /**
+     * Session có thuộc đúng người dùng này không (cùng role và cùng khách hàng, so theo customerId)
+     */
+    public boolean belongsTo(String role, Customer customer) {
+        if (!Objects.equals(this.role, role)) return false;
+        if (this.customer == null || customer == null) return this.customer == customer;
+        return this.customer.getCustomerId() == customer.getCustomerId();
+    }
+
+    public PendingAction getPendingAction() {
+        return pendingAction.get();
+    }
+
+    /**
+     * Bắt đầu một lượt hỏi mới, trả về số lượt để so khi phản hồi về
+     */
+    public long beginTurn() {
+        touch();
+        return turns.incrementAndGet();
+    }
+
+    /**
+     * Cập nhật pending action theo phản hồi của lượt turn; phản hồi của lượt cũ hơn
+     * (người dùng đã hủy và hỏi câu khác) bị bỏ qua để không ghi đè trạng thái mới
+     */
+    public boolean completeTurn(long turn, PendingAction next) {
+        if (turns.get() != turn) return false;
+        pendingAction.set(next);
+        touch();
+        return true;
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+}
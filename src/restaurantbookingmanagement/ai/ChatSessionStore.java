@@ -0,0 +1,115 @@
+package restaurantbookingmanagement.ai;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import restaurantbookingmanagement.model.Customer;
+import restaurantbookingmanagement.utils.DebugUtil;
+
+/**
+ * Kho session hội thoại dùng chung, an toàn khi nhiều người chat cùng lúc.
+ * Session không hoạt động quá idleTtl bị xóa; vượt quá maxSessions thì session lâu không dùng nhất bị xóa,
+ * nên bộ nhớ không tăng mãi theo số người dùng. Mỗi session bị xóa được báo qua onEvict.
+ */
+public class ChatSessionStore {
+    private final Map<String, ChatSession> sessions = new ConcurrentHashMap<>();
+    private final int maxSessions;
+    private final long idleTtlMillis;
+    private final Consumer<ChatSession> onEvict;
+
+    public ChatSessionStore(int maxSessions, long idleTtlMillis, Consumer<ChatSession> onEvict) {
+        this.maxSessions = maxSessions;
+        this.idleTtlMillis = idleTtlMillis;
+        this.onEvict = onEvict;
+    }
+
+    /**
+     * Mở session mới với id ngẫu nhiên
+     */
+    public ChatSession open(String role, Customer customer) {
+        return getOrOpen(null, role, customer);
+    }
+
+    /**
+     * Session có id cho trước (tạo mới nếu chưa có hoặc đã hết hạn); id null thì tạo id ngẫu nhiên.
+     * Session đang mở của người dùng khác (khác role hoặc khách hàng) thì bị từ chối bằng IllegalArgumentException,
+     * để một người không đọc được hội thoại và pending action của người khác chỉ vì biết sessionId.
+     */
+    public ChatSession getOrOpen(String id, String role, Customer customer) {
+        ChatSession session = id != null ? get(id) : null;
+        if (session != null) {
+            if (!session.belongsTo(role, customer)) {
+                throw new IllegalArgumentException("Chat session " + id + " belongs to another user");
+            }
+            return session;
+        }
+        evictExpired();
+        ChatSession created = new ChatSession(id, role, customer);
+        session = sessions.putIfAbsent(created.getId(), created);
+        if (session == null) {
+            session = created;
+            evictOverflow();
+        } else if (!session.belongsTo(role, customer)) {
+            throw new IllegalArgumentException("Chat session " + id + " belongs to another user");
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Session đang mở, null nếu không có hoặc đã hết hạn
+     */
+    public ChatSession get(String id) {
+        ChatSession session = sessions.get(id);
+        if (session == null) return null;
+        if (isExpired(session, System.currentTimeMillis())) {
+            evict(session);
+            return null;
+        }
+        session.touch();
+        return session;
+    }
+
+    public void close(ChatSession session) {
+        if (session != null) evict(session);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private boolean isExpired(ChatSession session, long now) {
+        return now - session.getLastAccess() > idleTtlMillis;
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        for (ChatSession session : sessions.values()) {
+            if (isExpired(session, now)) evict(session);
+        }
+    }
+
+    // Quét tuyến tính chỉ xảy ra khi chạm giới hạn, số session tối đa nhỏ nên đủ rẻ
+    private void evictOverflow() {
+        while (sessions.size() > maxSessions) {
+            ChatSession oldest = null;
+            for (ChatSession session : sessions.values()) {
+                if (oldest == null || session.getLastAccess() < oldest.getLastAccess()) oldest = session;
+            }
+            if (oldest == null) return;
+            evict(oldest);
+        }
+    }
+
+    private void evict(ChatSession session) {
+        // remove(key, value): chỉ một thread xóa được và chỉ xóa đúng session này
+        if (sessions.remove(session.getId(), session)) {
+            DebugUtil.debugPrint("🗑️ Chat session closed: " + session.getId() + " (" + sessions.size() + " open)");
+            try {
+                onEvict.accept(session);
+            } catch (Exception e) {
+                System.err.println("Error closing chat session: " + e.getMessage());
+            }
+        }
+    }
+}
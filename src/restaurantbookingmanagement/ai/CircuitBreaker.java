@@ -0,0 +1,135 @@
+package restaurantbookingmanagement.ai;
+
+import restaurantbookingmanagement.utils.DebugUtil;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+// Design Pattern: State (Circuit Breaker)
+// Purpose: Khi AI Agent ngừng hoạt động, mọi lời gọi trả lỗi ngay thay vì mỗi lời gọi tự chờ hết timeout.
+/**
+ * CLOSED: lời gọi đi bình thường, đủ FAILURE_THRESHOLD lỗi liên tiếp thì chuyển OPEN.
+ * OPEN: lời gọi bị từ chối ngay; một virtual thread gọi health check định kỳ, thành công thì chuyển HALF_OPEN.
+ * HALF_OPEN: cho đúng một lời gọi thử đi qua, thành công thì CLOSED, lỗi thì quay lại OPEN.
+ * Cờ available được cập nhật theo kết quả lời gọi và health check nên đọc không tốn request nào.
+ */
+final class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final Duration probeInterval;
+    private final BooleanSupplier healthProbe;
+    private final Runnable onRecovered;
+
+    // Các field dưới được truy cập trong synchronized
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private boolean trialInFlight;
+    private Thread prober;
+    // Lạc quan lúc khởi động: lỗi đầu tiên sẽ cập nhật lại
+    private volatile boolean available = true;
+
+    /**
+     * @param healthProbe health check chạy trên thread nền khi mạch đang mở, trả về true nếu agent đã sống lại
+     * @param onRecovered chạy khi mạch đóng lại sau một lần mở (ví dụ gửi lại thông báo bị bỏ qua)
+     */
+    CircuitBreaker(int failureThreshold, Duration probeInterval, BooleanSupplier healthProbe, Runnable onRecovered) {
+        this.failureThreshold = failureThreshold;
+        this.probeInterval = probeInterval;
+        this.healthProbe = healthProbe;
+        this.onRecovered = onRecovered;
+    }
+
+    /**
+     * Xin phép gọi agent; false nghĩa là phải trả lỗi ngay
+     */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) return false;
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    void recordSuccess() {
+        boolean recovered;
+        synchronized (this) {
+            recovered = state != State.CLOSED;
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            available = true;
+        }
+        if (recovered) {
+            DebugUtil.debugPrint("🟢 AI Agent circuit closed");
+            onRecovered.run();
+        }
+    }
+
+    synchronized void recordFailure() {
+        if (state == State.HALF_OPEN || (state == State.CLOSED && ++consecutiveFailures >= failureThreshold)) {
+            open();
+        }
+    }
+
+    /**
+     * Lời gọi bị người dùng hủy: không tính là lỗi, chỉ trả lại lượt thử của HALF_OPEN
+     */
+    synchronized void recordCancelled() {
+        trialInFlight = false;
+    }
+
+    boolean isAvailable() {
+        return available;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        trialInFlight = false;
+        available = false;
+        System.err.println("⚠️ AI Agent unavailable, failing fast until it recovers");
+        // prober chỉ được xóa trong lock khi nó quyết định dừng, nên khác null nghĩa là nó vẫn sẽ kiểm tra lại state
+        if (prober == null) {
+            prober = Thread.ofVirtual().name("ai-agent-health-probe").start(this::probeUntilHealthy);
+        }
+    }
+
+    private void probeUntilHealthy() {
+        try {
+            while (true) {
+                Thread.sleep(probeInterval.toMillis());
+                boolean healthy = healthProbe.getAsBoolean();
+                boolean halfOpened = false;
+                boolean done;
+                synchronized (this) {
+                    if (healthy && state == State.OPEN) {
+                        state = State.HALF_OPEN;
+                        available = true;
+                        halfOpened = true;
+                    }
+                    // Quyết định dừng và xóa prober trong cùng một lock: nếu lời gọi thử lỗi ngay sau đó,
+                    // open() thấy prober == null và tạo prober mới thay vì để mạch mở mãi
+                    done = state != State.OPEN;
+                    if (done) prober = null;
+                }
+                if (halfOpened) {
+                    DebugUtil.debugPrint("🟡 AI Agent health check passed, circuit half-open");
+                }
+                if (done) return;
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                if (prober == Thread.currentThread()) prober = null;
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+package restaurantbookingmanagement.ai;
+
+import com.google.gson.Gson;
+import java.io.EOFException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Gửi request tới AI Agent qua HTTP loopback (Flask, cổng 5000) bằng một HttpClient keep-alive dùng chung.
+ * Endpoint stream trả về server-sent events: nhiều event "token" (data là chuỗi JSON), rồi "status" và "final".
+ */
+final class HttpAgentTransport implements AgentTransport {
+    private static final String BASE_URL = "http://localhost:5000";
+    private static final int CONNECT_TIMEOUT_SECONDS = 30;
+    // Pool kết nối của HttpClient cấu hình qua system property của JDK, phải đặt trước khi client đầu tiên được tạo
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEPALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    private static final String DEFAULT_POOL_SIZE = "8";
+    private static final String DEFAULT_KEEPALIVE_SECONDS = "120";
+    private static final Gson GSON = new Gson();
+
+    private final HttpClient httpClient;
+    private final AIAgentConnector.ConnectionStats stats;
+    private final ExecutorService executor;
+
+    HttpAgentTransport(AIAgentConnector.ConnectionStats stats, ExecutorService executor) {
+        if (System.getProperty(POOL_SIZE_PROPERTY) == null) System.setProperty(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE);
+        if (System.getProperty(KEEPALIVE_PROPERTY) == null) System.setProperty(KEEPALIVE_PROPERTY, DEFAULT_KEEPALIVE_SECONDS);
+        // Agent chạy Flask/Werkzeug chỉ hỗ trợ HTTP/1.1: chọn thẳng 1.1 keep-alive để không phải thử nâng cấp h2c ở mỗi kết nối
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+                .executor(executor)
+                .build();
+        this.stats = stats;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Reply> send(String method, String path, String body, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + path))
+                .timeout(timeout);
+        if ("GET".equals(method)) {
+            builder.GET();
+        } else {
+            builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body != null ? body : "{}"));
+        }
+        CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<Reply> reply = exchange.thenApply(response -> {
+            stats.record(response);
+            return new Reply(response.statusCode(), response.body());
+        });
+        // Hủy reply thì hủy luôn request HTTP để giải phóng kết nối
+        reply.whenComplete((result, error) -> {
+            if (reply.isCancelled()) exchange.cancel(true);
+        });
+        return reply;
+    }
+
+    @Override
+    public CompletableFuture<Reply> stream(String path, String body, Duration timeout, Consumer<String> onPartial) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(body != null ? body : "{}"))
+                .build();
+        CompletableFuture<HttpResponse<Stream<String>>> exchange = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofLines());
+        CompletableFuture<Reply> reply = new CompletableFuture<>();
+        AtomicReference<Stream<String>> lines = new AtomicReference<>();
+        exchange.whenCompleteAsync((response, error) -> {
+            if (error != null) {
+                reply.completeExceptionally(error);
+                return;
+            }
+            stats.record(response);
+            lines.set(response.body());
+            if (reply.isDone()) {
+                response.body().close();
+                return;
+            }
+            try (Stream<String> events = response.body()) {
+                if (response.statusCode() != 200) {
+                    reply.complete(new Reply(response.statusCode(), events.collect(Collectors.joining("\n"))));
+                } else {
+                    readEvents(events.iterator(), reply, onPartial);
+                }
+            } catch (Exception e) {
+                reply.completeExceptionally(e);
+            }
+        }, executor);
+        // Hủy reply thì đóng luôn stream đang đọc (đóng kết nối) để thread đọc thoát ra
+        reply.whenComplete((result, error) -> {
+            if (!reply.isCancelled()) return;
+            exchange.cancel(true);
+            Stream<String> events = lines.get();
+            if (events != null) events.close();
+        });
+        return reply;
+    }
+
+    private static void readEvents(Iterator<String> lines, CompletableFuture<Reply> reply, Consumer<String> onPartial) throws EOFException {
+        String event = "message";
+        StringBuilder data = new StringBuilder();
+        int status = 200;
+        while (!reply.isDone() && lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) data.append('\n');
+                data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+            } else if (line.isEmpty() && data.length() > 0) {
+                // Dòng trống kết thúc một event
+                switch (event) {
+                    case "token" -> onPartial.accept(GSON.fromJson(data.toString(), String.class));
+                    case "status" -> status = Integer.parseInt(data.toString().trim());
+                    case "final" -> {
+                        reply.complete(new Reply(status, data.toString()));
+                        return;
+                    }
+                    default -> { }
+                }
+                event = "message";
+                data.setLength(0);
+            }
+        }
+        if (!reply.isDone()) throw new EOFException("AI Agent closed the stream before the final event");
+    }
+
+    @Override
+    public void close() {
+        // HttpClient dùng chung tự đóng kết nối rảnh sau keep-alive timeout
+    }
+}
@@ -0,0 +1,216 @@
+package restaurantbookingmanagement.ai;
+
+import java.text.Normalizer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import restaurantbookingmanagement.model.Customer;
+
+// Design Pattern: Interpreter (bảng luật)
+// Purpose: Các lệnh ngắn, rõ nghĩa ("xem menu", "doanh thu", "hủy booking 5") được nhận diện ngay trong Java
+//          và đi thẳng tới handler sẵn có, không tốn một vòng HTTP + LLM tới AI Agent.
+/**
+ * Mỗi luật là một mẫu regex phải khớp TOÀN BỘ câu đã chuẩn hóa (chữ thường, bỏ dấu tiếng Việt,
+ * gộp khoảng trắng), nên chỉ câu chắc chắn mới được xử lý tại chỗ; còn lại trả về null để gửi AI Agent.
+ * Mọi luật được ghép thành một Pattern duy nhất nên câu không khớp chỉ tốn một lần quét.
+ * Slot trong mẫu: {id}, {guests}, {time}, {date}, {month}.
+ * Luật thay đổi dữ liệu theo ID (hủy/hoàn thành/tính tiền booking) chỉ dành cho MANAGER;
+ * khách hàng vẫn đi qua AI Agent để được hỏi lại khi cần.
+ */
+public class LocalIntentMatcher {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.,;:]+$");
+    private static final Pattern TIME = Pattern.compile("(\\d{1,2})(?::(\\d{2})|h(\\d{2})?)");
+    private static final Map<String, String> SLOT_PATTERNS = Map.of(
+            "id", "\\d{1,9}",
+            "guests", "\\d{1,2}",
+            "time", "\\d{1,2}(?::\\d{2}|h(?:\\d{2})?)",
+            "date", "\\d{1,2}/\\d{1,2}(?:/\\d{4})?|hom nay|ngay mai",
+            "month", "\\d{1,2}(?:/\\d{4})?");
+    private static final Pattern SLOT = Pattern.compile("\\{(\\w+)}");
+    private static final DateTimeFormatter BOOKING_TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Pattern combined;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    private enum Access { ANY, CUSTOMER, MANAGER }
+
+    private static final class Rule {
+        final String action;
+        final Access access;
+        final List<String> slots = new ArrayList<>();
+        String regex;
+
+        Rule(String action, Access access) {
+            this.action = action;
+            this.access = access;
+        }
+    }
+
+    public LocalIntentMatcher() {
+        rule("show_menu", Access.ANY,
+                "(?:(?:cho (?:toi |minh )?)?(?:xem|hien thi|show|in) )?(?:thuc don|menu)(?: (?:di|nhe|a))?");
+        rule("show_all_tables", Access.ANY,
+                "(?:(?:xem|hien thi|show|liet ke) )?(?:tat ca (?:cac )?ban|danh sach (?:tat ca )?ban|all tables|tables)");
+        rule("show_available_tables", Access.ANY,
+                "(?:(?:xem|hien thi|show|tim) )?(?:cac )?ban (?:con )?trong|available tables|con ban (?:trong )?khong");
+        rule("create_booking", Access.CUSTOMER,
+                "(?:dat|book) ban (?:cho )?{guests} (?:nguoi|khach) (?:luc |vao luc |vao )?{time} (?:ngay )?{date}");
+        rule("create_booking", Access.CUSTOMER,
+                "(?:dat|book) ban (?:cho )?{guests} (?:nguoi|khach) (?:ngay )?{date} (?:luc |vao luc |vao )?{time}");
+        rule("get_revenue", Access.MANAGER,
+                "(?:xem |bao cao |tong )?doanh thu(?: thang {month})?|revenue");
+        rule("cancel_booking", Access.MANAGER,
+                "(?:huy|cancel) (?:dat ban|booking|ban dat)(?: so)? #?{id}");
+        rule("complete_booking", Access.MANAGER,
+                "(?:hoan thanh|complete) (?:dat ban|booking)(?: so)? #?{id}");
+        rule("calculate_bill", Access.MANAGER,
+                "(?:tinh tien|thanh toan|bill|hoa don)(?: cho)? (?:dat ban|booking)(?: so)? #?{id}");
+
+        StringBuilder alternation = new StringBuilder("^(?:");
+        for (int i = 0; i < rules.size(); i++) {
+            if (i > 0) alternation.append('|');
+            alternation.append("(?<r").append(i).append('>').append(rules.get(i).regex).append(')');
+        }
+        combined = Pattern.compile(alternation.append(")$").toString());
+    }
+
+    // Tên group phải duy nhất trong Pattern ghép nên slot được đổi thành r<chỉ số luật><tên slot>
+    private void rule(String action, Access access, String template) {
+        Rule rule = new Rule(action, access);
+        int index = rules.size();
+        Matcher slot = SLOT.matcher(template);
+        StringBuilder regex = new StringBuilder();
+        while (slot.find()) {
+            String name = slot.group(1);
+            rule.slots.add(name);
+            slot.appendReplacement(regex, Matcher.quoteReplacement(
+                    "(?<r" + index + name + ">" + SLOT_PATTERNS.get(name) + ")"));
+        }
+        slot.appendTail(regex);
+        rule.regex = regex.toString();
+        rules.add(rule);
+    }
+
+    /**
+     * Chữ thường, bỏ dấu tiếng Việt (kể cả đ), gộp khoảng trắng, bỏ dấu câu ở cuối
+     */
+    static String normalize(String input) {
+        String text = Normalizer.normalize(input, Normalizer.Form.NFD);
+        text = MARKS.matcher(text).replaceAll("").replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+        text = WHITESPACE.matcher(text).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(text).replaceAll("").trim();
+    }
+
+    /**
+     * Phản hồi dựng tại chỗ nếu câu khớp chắc chắn một luật mà role được phép dùng, null nếu cần hỏi AI Agent
+     */
+    public AIResponse match(String userInput, String role, Customer customer) {
+        if (userInput == null) return null;
+        lookups.increment();
+        Matcher m = combined.matcher(normalize(userInput));
+        if (!m.matches()) return null;
+        for (int i = 0; i < rules.size(); i++) {
+            if (m.start("r" + i) < 0) continue;
+            Rule rule = rules.get(i);
+            if (!allowed(rule.access, role, customer)) return null;
+            Map<String, Object> parameters = extractSlots(rule, i, m, customer);
+            if (parameters == null) return null;
+            hits.increment();
+            return new AIResponse(rule.action, parameters, "");
+        }
+        return null;
+    }
+
+    private boolean allowed(Access access, String role, Customer customer) {
+        switch (access) {
+            case MANAGER:
+                return "MANAGER".equalsIgnoreCase(role);
+            case CUSTOMER:
+                return customer != null && customer.getName() != null && customer.getPhone() != null;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Chuyển slot sang đúng dạng tham số handler mong đợi; slot không hợp lệ (giờ 25:00, ngày 31/02...) trả về null
+     */
+    private Map<String, Object> extractSlots(Rule rule, int index, Matcher m, Customer customer) {
+        Map<String, Object> parameters = new HashMap<>();
+        try {
+            for (String slot : rule.slots) {
+                String value = m.group("r" + index + slot);
+                if (value == null) continue;
+                switch (slot) {
+                    case "id" -> parameters.put("bookingId", Integer.parseInt(value));
+                    case "guests" -> parameters.put("guests", Integer.parseInt(value));
+                    case "month" -> parameters.put("month", parseMonth(value).toString());
+                    default -> { }
+                }
+            }
+            if (rule.slots.contains("time")) {
+                LocalDateTime bookingTime = parseDate(m.group("r" + index + "date")).atTime(
+                        parseTime(m.group("r" + index + "time")));
+                parameters.put("time", bookingTime.format(BOOKING_TIME_FORMAT));
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
+        }
+        if (rule.access == Access.CUSTOMER) {
+            parameters.put("customerName", customer.getName());
+            parameters.put("customerPhone", customer.getPhone());
+        }
+        return parameters;
+    }
+
+    private static LocalTime parseTime(String value) {
+        Matcher time = TIME.matcher(value);
+        if (!time.matches()) throw new DateTimeException("Invalid time: " + value);
+        String minutes = time.group(2) != null ? time.group(2) : time.group(3);
+        return LocalTime.of(Integer.parseInt(time.group(1)), minutes != null ? Integer.parseInt(minutes) : 0);
+    }
+
+    private static LocalDate parseDate(String value) {
+        if ("hom nay".equals(value)) return LocalDate.now();
+        if ("ngay mai".equals(value)) return LocalDate.now().plusDays(1);
+        String[] parts = value.split("/");
+        int year = parts.length > 2 ? Integer.parseInt(parts[2]) : LocalDate.now().getYear();
+        return LocalDate.of(year, Integer.parseInt(parts[1]), Integer.parseInt(parts[0]));
+    }
+
+    private static YearMonth parseMonth(String value) {
+        String[] parts = value.split("/");
+        int year = parts.length > 1 ? Integer.parseInt(parts[1]) : LocalDate.now().getYear();
+        return YearMonth.of(year, Integer.parseInt(parts[0]));
+    }
+
+    /** Số câu đã thử nhận diện tại chỗ */
+    public long getLookups() { return lookups.sum(); }
+    /** Số câu được xử lý tại chỗ, không gọi AI Agent */
+    public long getHits() { return hits.sum(); }
+    /** Tỉ lệ câu được xử lý tại chỗ (0..1) */
+    public double getHitRate() {
+        long total = lookups.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lookups=%d, hits=%d, hitRate=%.0f%%", getLookups(), getHits(), getHitRate() * 100);
+    }
+}
@@ -0,0 +1,196 @@
+package restaurantbookingmanagement.ai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Design Pattern: Token Bucket + Fair Queue
+// Purpose: Giới hạn tốc độ gọi LLM ngay phía Java để một người gửi dồn dập hay LLM đang bị throttle
+//          không làm mọi terminal cùng treo; chat tương tác được ưu tiên hơn việc nền như refresh knowledge.
+/**
+ * Mỗi request tới AI Agent cần một token; bucket chứa tối đa capacity token và được nạp đều theo thời gian.
+ * Hết token thì request xếp hàng theo session và được cấp token lần lượt xoay vòng giữa các session.
+ * Hàng đợi đầy (tổng hoặc của một session) thì request bị từ chối ngay thay vì chờ mãi.
+ * Việc nền chỉ chạy khi không ai đang chờ và bucket còn trên nửa, nếu không thì bị bỏ (load shedding).
+ */
+public final class RequestScheduler {
+    private static final class Ticket {
+        final CompletableFuture<Void> permit = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+    }
+
+    private final int capacity;
+    private final double tokensPerNano;
+    private final int maxQueued;
+    private final int maxQueuedPerSession;
+    private final Executor executor;
+
+    // Các field dưới được truy cập trong synchronized
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private final Map<String, ArrayDeque<Ticket>> waiting = new HashMap<>();
+    // Thứ tự xoay vòng giữa các session đang có request chờ
+    private final ArrayDeque<String> rotation = new ArrayDeque<>();
+    private int queueDepth;
+    private int maxQueueDepth;
+    private boolean wakeScheduled;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder backgroundShed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    RequestScheduler(int capacity, int requestsPerMinute, int maxQueued, int maxQueuedPerSession, Executor executor) {
+        this.capacity = capacity;
+        this.tokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerSession = maxQueuedPerSession;
+        this.executor = executor;
+        this.tokens = capacity;
+    }
+
+    /**
+     * Xin token cho một request tương tác. Future hoàn thành khi được gửi; hàng đợi đầy thì hoàn thành bằng
+     * RejectedExecutionException. Hủy future thì rút request khỏi hàng đợi.
+     */
+    synchronized CompletableFuture<Void> acquire(String sessionId) {
+        refill();
+        if (queueDepth == 0 && tokens >= 1) {
+            tokens--;
+            admitted.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        ArrayDeque<Ticket> queue = waiting.get(sessionId);
+        if (queueDepth >= maxQueued || (queue != null && queue.size() >= maxQueuedPerSession)) {
+            shed.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("AI request queue is full"));
+        }
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            waiting.put(sessionId, queue);
+            rotation.addLast(sessionId);
+        }
+        Ticket ticket = new Ticket();
+        queue.addLast(ticket);
+        queueDepth++;
+        maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+        delayed.increment();
+        ticket.permit.whenComplete((granted, error) -> {
+            if (ticket.permit.isCancelled()) withdraw(sessionId, ticket);
+        });
+        scheduleWake();
+        return ticket.permit;
+    }
+
+    /**
+     * Xin token cho việc nền; trả về false (bị bỏ) nếu đang có request chờ hoặc bucket đã xuống dưới nửa
+     */
+    synchronized boolean tryAcquireBackground() {
+        refill();
+        if (queueDepth == 0 && tokens >= 1 + capacity / 2.0) {
+            tokens--;
+            admitted.increment();
+            return true;
+        }
+        backgroundShed.increment();
+        return false;
+    }
+
+    /**
+     * LLM báo quá giới hạn (429): bỏ hết token đang có để các request sau chờ bucket nạp lại
+     */
+    synchronized void throttle() {
+        refill();
+        tokens = 0;
+        throttled.increment();
+    }
+
+    private synchronized void withdraw(String sessionId, Ticket ticket) {
+        ArrayDeque<Ticket> queue = waiting.get(sessionId);
+        if (queue == null || !queue.remove(ticket)) return;
+        queueDepth--;
+        if (queue.isEmpty()) {
+            waiting.remove(sessionId);
+            rotation.remove(sessionId);
+        }
+    }
+
+    private void dispatch() {
+        List<Ticket> granted = new ArrayList<>();
+        synchronized (this) {
+            wakeScheduled = false;
+            refill();
+            while (tokens >= 1 && !rotation.isEmpty()) {
+                String sessionId = rotation.pollFirst();
+                ArrayDeque<Ticket> queue = waiting.get(sessionId);
+                Ticket ticket = queue.pollFirst();
+                queueDepth--;
+                if (queue.isEmpty()) waiting.remove(sessionId);
+                else rotation.addLast(sessionId);
+                tokens--;
+                granted.add(ticket);
+            }
+            scheduleWake();
+        }
+        // Hoàn thành ngoài lock: callback của permit gửi request ngay trên thread này
+        long now = System.nanoTime();
+        for (Ticket ticket : granted) {
+            admitted.increment();
+            waited.increment();
+            waitNanos.add(now - ticket.enqueuedAt);
+            ticket.permit.complete(null);
+        }
+    }
+
+    // Gọi trong synchronized: hẹn lần cấp token kế tiếp đúng lúc bucket có thêm một token
+    private void scheduleWake() {
+        if (wakeScheduled || queueDepth == 0) return;
+        wakeScheduled = true;
+        long delay = Math.max(0, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, executor).execute(this::dispatch);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+
+    /** Số request đang chờ token */
+    public synchronized int getQueueDepth() { return queueDepth; }
+    /** Số request chờ nhiều nhất từng thấy */
+    public synchronized int getMaxQueueDepth() { return maxQueueDepth; }
+    /** Số request đã được gửi (kể cả việc nền) */
+    public long getAdmitted() { return admitted.sum(); }
+    /** Số request phải xếp hàng */
+    public long getDelayed() { return delayed.sum(); }
+    /** Số request tương tác bị từ chối vì hàng đợi đầy */
+    public long getShed() { return shed.sum(); }
+    /** Số việc nền bị bỏ */
+    public long getBackgroundShed() { return backgroundShed.sum(); }
+    /** Số lần LLM báo quá giới hạn */
+    public long getThrottled() { return throttled.sum(); }
+
+    /** Thời gian chờ trung bình (ms) của các request đã xếp hàng rồi được gửi */
+    public double getAverageWaitMillis() {
+        long count = waited.sum();
+        return count == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queueDepth=%d, maxQueueDepth=%d, admitted=%d, delayed=%d, avgWait=%.0fms, shed=%d, backgroundShed=%d, throttled=%d",
+                getQueueDepth(), getMaxQueueDepth(), getAdmitted(), getDelayed(), getAverageWaitMillis(),
+                getShed(), getBackgroundShed(), getThrottled());
+    }
+}
@@ -0,0 +1,109 @@
+package restaurantbookingmanagement.ai;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Cache TTL + LRU cho phản hồi AI của các intent chỉ đọc dữ liệu (xem menu, giờ mở cửa, địa chỉ...).
+ * Khóa là role + câu hỏi đã chuẩn hóa; chỉ phản hồi có action nằm trong CACHEABLE_ACTIONS được lưu.
+ * Dữ liệu đổi thì gọi invalidate() để xóa sạch, kể cả các request đang chạy dở không được ghi vào nữa.
+ */
+final class ResponseCache {
+    static final Set<String> CACHEABLE_ACTIONS = Set.of(
+            "show_menu", "opening_hours", "restaurant_address", "contact_info", "show_all_tables");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.,;:]+$");
+
+    private final long ttlMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // Truy cập trong synchronized; access-order để phần tử ít dùng nhất bị đẩy ra trước
+    private final LinkedHashMap<String, Entry> entries;
+    private long generation;
+
+    private static final class Entry {
+        final AIResponse response;
+        final long expiresAt;
+
+        Entry(AIResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    ResponseCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Khóa cache: chữ thường, Unicode NFC, gộp khoảng trắng, bỏ dấu câu ở cuối
+     */
+    static String key(String userInput, String role) {
+        String normalized = Normalizer.normalize(userInput, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ");
+        normalized = TRAILING_PUNCTUATION.matcher(normalized).replaceAll("").trim();
+        return (role != null ? role.toUpperCase(Locale.ROOT) : "") + "|" + normalized;
+    }
+
+    /**
+     * Bản sao phản hồi đã cache, null nếu chưa có hoặc đã hết hạn
+     */
+    synchronized AIResponse get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(entry.response);
+    }
+
+    /**
+     * Thế hệ hiện tại, lấy trước khi gửi request để put() bỏ qua phản hồi đã cũ nếu dữ liệu đổi giữa chừng
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized void put(String key, AIResponse response, long observedGeneration) {
+        if (observedGeneration != generation || !CACHEABLE_ACTIONS.contains(response.getAction())) return;
+        entries.put(key, new Entry(copy(response), System.currentTimeMillis() + ttlMillis));
+    }
+
+    synchronized void invalidate() {
+        generation++;
+        entries.clear();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    // Người gọi có thể sửa parameters của phản hồi nên cache chỉ giữ và trả ra bản sao
+    private static AIResponse copy(AIResponse response) {
+        Map<String, Object> parameters = response.getParameters() != null ? new HashMap<>(response.getParameters()) : new HashMap<>();
+        AIResponse copy = new AIResponse(response.getAction(), parameters, response.getNaturalResponse());
+        copy.setExtensions(new LinkedHashMap<>(response.getExtensions()));
+        return copy;
+    }
+}
@@ -0,0 +1,203 @@
+package restaurantbookingmanagement.ai;
+
+import com.google.gson.Gson;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Gửi request tới AI Agent qua Unix domain socket khi hai tiến trình chạy cùng máy, bỏ qua TCP và tầng HTTP.
+ * Giao thức (khớp với ai_agent/uds_server.py), mọi số nguyên là big-endian:
+ * <pre>
+ * request : [u32 độ dài][JSON UTF-8 {"method": "POST", "path": "/process", "body": {...}}]
+ * response: [u32 độ dài][u16 mã trạng thái][JSON UTF-8 body]   (độ dài tính cả 2 byte trạng thái)
+ * </pre>
+ * Endpoint stream gửi thêm các frame trạng thái 100 trước frame cuối, body là một đoạn text UTF-8.
+ * Mỗi kết nối chạy lần lượt từng request; kết nối rảnh được giữ lại (LIFO) để các request sau dùng tiếp.
+ * timeout tính tới lúc nhận frame đầu tiên (giống timeout của HttpRequest chỉ tính tới lúc nhận header).
+ * Bật bằng -Drbm.agentTransport=uds, đường dẫn socket lấy từ -Drbm.agentSocket hoặc biến môi trường RBM_AGENT_SOCKET.
+ */
+final class UnixSocketAgentTransport implements AgentTransport {
+    private static final String DEFAULT_SOCKET_NAME = "rbm-agent.sock";
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final int PARTIAL_STATUS = 100;
+    private static final Gson GSON = new Gson();
+
+    private final UnixDomainSocketAddress address;
+    private final AIAgentConnector.ConnectionStats stats;
+    private final ExecutorService executor;
+    private final Deque<SocketChannel> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    UnixSocketAgentTransport(Path socketPath, AIAgentConnector.ConnectionStats stats, ExecutorService executor) {
+        this.address = UnixDomainSocketAddress.of(socketPath);
+        this.stats = stats;
+        this.executor = executor;
+    }
+
+    static Path defaultSocketPath() {
+        String path = System.getProperty(SOCKET_PROPERTY);
+        if (path == null) path = System.getenv(SOCKET_ENV);
+        if (path == null) path = Path.of(System.getProperty("java.io.tmpdir"), DEFAULT_SOCKET_NAME).toString();
+        return Path.of(path);
+    }
+
+    @Override
+    public CompletableFuture<Reply> send(String method, String path, String body, Duration timeout) {
+        return exchange(method, path, body, timeout, null);
+    }
+
+    @Override
+    public CompletableFuture<Reply> stream(String path, String body, Duration timeout, Consumer<String> onPartial) {
+        return exchange("POST", path, body, timeout, onPartial);
+    }
+
+    private CompletableFuture<Reply> exchange(String method, String path, String body, Duration timeout,
+                                              Consumer<String> onPartial) {
+        CompletableFuture<Reply> reply = new CompletableFuture<>();
+        // Kết nối đang dùng; ai getAndSet/compareAndSet lấy được nó ra trước (thread hủy hay roundTrip) thì người đó xử lý
+        AtomicReference<SocketChannel> inUse = new AtomicReference<>();
+        AtomicBoolean responding = new AtomicBoolean();
+        byte[] request = ("{\"method\":" + GSON.toJson(method) + ",\"path\":" + GSON.toJson(path)
+                + ",\"body\":" + (body != null ? body : "null") + "}").getBytes(StandardCharsets.UTF_8);
+        executor.execute(() -> {
+            try {
+                Reply result = roundTrip(request, inUse, reply, responding, onPartial);
+                if (result != null) reply.complete(result);
+            } catch (Exception e) {
+                reply.completeExceptionally(e);
+            }
+        });
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS, executor).execute(() -> {
+            if (!responding.get()) {
+                reply.completeExceptionally(new TimeoutException("AI Agent did not respond within " + timeout));
+            }
+        });
+        // Hủy hoặc quá hạn: đóng kết nối đang dùng để thread đang chờ đọc thoát ra ngay
+        reply.whenComplete((result, error) -> {
+            if (error != null) closeQuietly(inUse.getAndSet(null));
+        });
+        return reply;
+    }
+
+    private Reply roundTrip(byte[] request, AtomicReference<SocketChannel> inUse, CompletableFuture<Reply> reply,
+                            AtomicBoolean responding, Consumer<String> onPartial) throws IOException {
+        SocketChannel channel = idle.pollFirst();
+        boolean reused = channel != null;
+        if (channel == null) channel = open();
+        if (!claim(inUse, channel, reply)) return null;
+        try {
+            writeFrame(channel, request);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            if (!reused) throw e;
+            // Kết nối rảnh đã bị agent đóng (agent khởi động lại): request chưa tới agent nên gửi lại trên kết nối mới
+            channel = open();
+            reused = false;
+            if (!claim(inUse, channel, reply)) return null;
+            writeFrame(channel, request);
+        }
+        try {
+            Reply result = readReply(channel);
+            responding.set(true);
+            while (result.status == PARTIAL_STATUS) {
+                if (onPartial != null && !reply.isDone()) onPartial.accept(result.body);
+                result = readReply(channel);
+            }
+            stats.record(reused);
+            // Lấy lại kết nối trước khi trả về pool: nếu thread hủy đã lấy (và đóng) nó thì không trả nữa,
+            // tránh việc hủy muộn đóng nhầm kết nối mà request khác đang dùng
+            if (inUse.compareAndSet(channel, null)) release(channel);
+            return result;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Ghi nhận kết nối đang dùng; request đã bị hủy hoặc quá hạn thì trả kết nối (chưa dùng) về pool và trả về false
+     */
+    private boolean claim(AtomicReference<SocketChannel> inUse, SocketChannel channel, CompletableFuture<Reply> reply) {
+        inUse.set(channel);
+        if (!reply.isDone()) return true;
+        if (inUse.compareAndSet(channel, null)) release(channel);
+        return false;
+    }
+
+    private SocketChannel open() throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(address);
+            return channel;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private void release(SocketChannel channel) {
+        if (!closed && channel.isOpen() && idle.size() < MAX_IDLE_CONNECTIONS) idle.offerFirst(channel);
+        else closeQuietly(channel);
+    }
+
+    private static void writeFrame(SocketChannel channel, byte[] payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload.length);
+        frame.putInt(payload.length).put(payload).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private static Reply readReply(SocketChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, 4);
+        int length = header.getInt();
+        if (length < 2 || length > MAX_FRAME_BYTES) throw new IOException("Invalid frame length from AI Agent: " + length);
+        ByteBuffer frame = readFully(channel, length);
+        int status = Short.toUnsignedInt(frame.getShort());
+        String body = new String(frame.array(), 2, length - 2, StandardCharsets.UTF_8);
+        return new Reply(status, body);
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("AI Agent closed the socket");
+        }
+        return buffer.flip();
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Đang bỏ kết nối, không còn gì để xử lý
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        SocketChannel channel;
+        while ((channel = idle.pollFirst()) != null) {
+            closeQuietly(channel);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package restaurantbookingmanagement.ai.handlers;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import restaurantbookingmanagement.ai.AIResponse;
 import restaurantbookingmanagement.view.ConsoleView;
 import restaurantbookingmanagement.model.Customer;
@@ -159,6 +161,20 @@ public class AIActionHandlerRegistry {
     public static class GetRevenueHandler implements AIActionHandler {
         @Override
         public void handle(AIResponse response, ServiceContext context, ConsoleView view) {
+            String month = AIResponseUtils.getString(response.getParameters(), "month");
+            if (month != null && !month.isBlank()) {
+                YearMonth ym;
+                try {
+                    ym = YearMonth.parse(month.trim());
+                } catch (DateTimeParseException e) {
+                    view.displayError("❌ Tháng không hợp lệ (định dạng yyyy-MM): " + month);
+                    return;
+                }
+                double revenue = context.getOrderService().getRevenueBetween(
+                        ym.atDay(1).atStartOfDay(), ym.plusMonths(1).atDay(1).atStartOfDay());
+                view.displaySuccess("💰 Doanh thu tháng " + ym + ": " + String.format("%.0f VND", revenue));
+                return;
+            }
             double revenue = context.getOrderService().getTotalRevenue();
             view.displaySuccess("💰 Tổng doanh thu: " + String.format("%.0f VND", revenue));
         }
@@ -2,27 +2,48 @@ package restaurantbookingmanagement.controller;
 
 import restaurantbookingmanagement.ai.AIAgentConnector;
 import restaurantbookingmanagement.ai.AIResponse;
+import restaurantbookingmanagement.ai.ChatSession;
+import restaurantbookingmanagement.ai.ChatSession.PendingAction;
+import restaurantbookingmanagement.ai.ChatSessionStore;
+import restaurantbookingmanagement.ai.LocalIntentMatcher;
 import restaurantbookingmanagement.model.Customer;
-import java.util.HashMap;
+import restaurantbookingmanagement.utils.DebugUtil;
+import java.time.Duration;
 import java.util.Map;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Controller điều phối giao tiếp với AI Agent, không chứa logic nghiệp vụ.
  */
 public class AiController {
     private final AIAgentConnector aiAgentConnector;
-    // Lưu trạng thái pending action theo sessionId
-    private final Map<String, PendingAction> pendingActions = new HashMap<>();
+    // Lệnh đơn giản được nhận diện tại chỗ; dùng chung để tỉ lệ hit tính trên cả tiến trình
+    private static final LocalIntentMatcher LOCAL_INTENTS = new LocalIntentMatcher();
+    private static final int MAX_SESSIONS = 500;
+    private static final long SESSION_IDLE_TTL_MS = TimeUnit.MINUTES.toMillis(30);
+    // Session hội thoại dùng chung cho mọi controller; session bị xóa thì báo agent xóa lịch sử tương ứng
+    private static final ChatSessionStore SESSIONS = new ChatSessionStore(MAX_SESSIONS, SESSION_IDLE_TTL_MS,
+            session -> AIAgentConnector.shared().endSession(session.getId()));
 
-    public static class PendingAction {
-        public String originalTool;
-        public Map<String, Object> collectedParams;
-        public List<String> missingParams;
+    public AiController() {
+        this.aiAgentConnector = AIAgentConnector.shared();
     }
 
-    public AiController() {
-        this.aiAgentConnector = new AIAgentConnector();
+    /**
+     * Mở session hội thoại mới cho một người dùng (gọi khi vào chế độ chat)
+     */
+    public ChatSession openSession(String role, Customer customer) {
+        return SESSIONS.open(role, customer);
+    }
+
+    /**
+     * Đóng session khi người dùng rời chế độ chat
+     */
+    public void closeSession(ChatSession session) {
+        SESSIONS.close(session);
     }
 
     /**
@@ -31,45 +52,96 @@ public class AiController {
      * Nếu có pending action, gửi kèm thông tin pending.
      */
     public AIResponse chatWithAI(String userInput, String role, Customer customer, String sessionId) {
-        PendingAction pending = pendingActions.get(sessionId);
-        AIResponse aiResponse;
-        if (pending != null) {
-            aiResponse = aiAgentConnector.processUserInput(
-                userInput,
-                role,
-                customer,
-                pending.originalTool,
-                pending.collectedParams,
-                pending.missingParams
-            );
-        } else {
-            aiResponse = (customer != null)
-                ? aiAgentConnector.processUserInput(userInput, role, customer)
-                : aiAgentConnector.processUserInput(userInput, role);
+        return chatWithAIAsync(userInput, role, customer, sessionId, null).join();
+    }
+
+    /**
+     * Bản dùng sessionId dạng chuỗi cho code cũ. sessionId null nghĩa là session mặc định của connector,
+     * tách riêng theo role và khách hàng để hai người gọi bản cũ không dùng chung hội thoại.
+     * sessionId đang thuộc người dùng khác thì future lỗi IllegalArgumentException.
+     */
+    public CompletableFuture<AIResponse> chatWithAIAsync(String userInput, String role, Customer customer,
+                                                         String sessionId, Duration deadline) {
+        String id = sessionId != null ? sessionId : legacySessionId(role, customer);
+        try {
+            return chatWithAIAsync(SESSIONS.getOrOpen(id, role, customer), userInput, deadline);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        // Nếu AI trả về ask_for_info, lưu lại pending action
-        if ("ask_for_info".equals(aiResponse.getAction())) {
-            PendingAction newPending = new PendingAction();
-            Object origTool = aiResponse.getParameters().get("original_tool");
-            newPending.originalTool = origTool != null ? origTool.toString() : null;
-            Object collected = aiResponse.getParameters().get("collected_params");
-            if (collected instanceof Map) {
-                newPending.collectedParams = (Map<String, Object>) collected;
-            } else {
-                newPending.collectedParams = new HashMap<>();
-            }
-            Object missing = aiResponse.getParameters().get("missing_params");
-            if (missing instanceof List) {
-                newPending.missingParams = (List<String>) missing;
-            } else {
-                newPending.missingParams = new java.util.ArrayList<>();
-            }
-            pendingActions.put(sessionId, newPending);
-        } else {
-            // Nếu không còn pending, xóa trạng thái
-            pendingActions.remove(sessionId);
+    }
+
+    private String legacySessionId(String role, Customer customer) {
+        return aiAgentConnector.getCurrentSessionId() + "_" + role
+                + (customer != null ? "_" + customer.getCustomerId() : "");
+    }
+
+    /**
+     * Bản bất đồng bộ của chatWithAI: không chặn thread gọi, future có thể cancel() để hủy request.
+     * deadline null là thời hạn mặc định.
+     * Mỗi session có pending action riêng nên nhiều người có thể chờ AI cùng lúc mà không lẫn hội thoại.
+     * Không có pending action mà câu khớp chắc chắn một lệnh đơn giản thì trả phản hồi dựng tại chỗ, không gọi AI Agent.
+     */
+    public CompletableFuture<AIResponse> chatWithAIAsync(ChatSession session, String userInput, Duration deadline) {
+        return chatWithAIAsync(session, userInput, deadline, null);
+    }
+
+    /**
+     * Như bản trên, onToken nhận từng đoạn câu trả lời khi bật stream (rbm.aiStreaming) để hiển thị dần;
+     * future vẫn hoàn thành với phản hồi đầy đủ cho AIActionHandlerRegistry.
+     */
+    public CompletableFuture<AIResponse> chatWithAIAsync(ChatSession session, String userInput, Duration deadline,
+                                                         Consumer<String> onToken) {
+        String role = session.getRole();
+        Customer customer = session.getCustomer();
+        long turn = session.beginTurn();
+        PendingAction pending = session.getPendingAction();
+        if (pending == null) {
+            AIResponse local = LOCAL_INTENTS.match(userInput, role, customer);
+            DebugUtil.debugPrint("⚡ Local intent " + (local != null ? "hit (" + local.getAction() + ")" : "miss")
+                    + ": " + LOCAL_INTENTS);
+            if (local != null) return CompletableFuture.completedFuture(local);
         }
-        return aiResponse;
+        CompletableFuture<AIResponse> response = pending != null
+            ? aiAgentConnector.processUserInputAsync(userInput, role, customer, pending.getOriginalTool(),
+                    pending.getCollectedParams(), pending.getMissingParams(), session.getId(), deadline, onToken)
+            : aiAgentConnector.processUserInputAsync(userInput, role, customer, null, null, null, session.getId(), deadline, onToken);
+        CompletableFuture<AIResponse> result = response.thenApply(aiResponse -> {
+            session.completeTurn(turn, toPendingAction(aiResponse));
+            return aiResponse;
+        });
+        // Hủy future của controller thì hủy luôn request bên dưới
+        result.whenComplete((aiResponse, error) -> {
+            if (result.isCancelled()) response.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Pending action mới theo phản hồi: AI trả về ask_for_info thì lưu lại, ngược lại xóa trạng thái
+     */
+    @SuppressWarnings("unchecked")
+    private PendingAction toPendingAction(AIResponse aiResponse) {
+        if (!"ask_for_info".equals(aiResponse.getAction())) return null;
+        Object origTool = aiResponse.getParameters().get("original_tool");
+        Object collected = aiResponse.getParameters().get("collected_params");
+        Object missing = aiResponse.getParameters().get("missing_params");
+        return new PendingAction(origTool != null ? origTool.toString() : null,
+                collected instanceof Map ? (Map<String, Object>) collected : Map.of(),
+                missing instanceof List ? (List<String>) missing : List.of());
+    }
+
+    /**
+     * Số session hội thoại đang mở
+     */
+    public static int getOpenSessionCount() {
+        return SESSIONS.size();
+    }
+
+    /**
+     * Bộ nhận diện lệnh tại chỗ, dùng để xem tỉ lệ câu không cần gọi AI Agent
+     */
+    public static LocalIntentMatcher getLocalIntentMatcher() {
+        return LOCAL_INTENTS;
     }
 
     /**
@@ -88,9 +160,9 @@ public class AiController {
 
     // Overload cho tương thích code cũ
     public AIResponse chatWithAI(String userInput, String role, Customer customer) {
-        return chatWithAI(userInput, role, customer, "default");
+        return chatWithAI(userInput, role, customer, null);
     }
     public AIResponse chatWithAI(String userInput, String role) {
-        return chatWithAI(userInput, role, null, "default");
+        return chatWithAI(userInput, role, null, null);
     }
 } 
\ No newline at end of file
@@ -128,7 +128,7 @@ public class BookingController {
         List<Booking> bookings = bookingService.getAllBookings();
         boolean found = false;
         for (Booking b : bookings) {
-            if (b.getCustomer().getName().toLowerCase().contains(name.toLowerCase())) {
+            if (b.getCustomer() != null && b.getCustomer().getName().toLowerCase().contains(name.toLowerCase())) {
                 view.displayMessage(b.toString());
                 found = true;
             }
@@ -148,7 +148,7 @@ public class BookingController {
         List<Booking> bookings = bookingService.getAllBookings();
         boolean found = false;
         for (Booking b : bookings) {
-            if (b.getCustomer().getPhone().contains(phone)) {
+            if (b.getCustomer() != null && b.getCustomer().getPhone().contains(phone)) {
                 view.displayMessage(b.toString());
                 found = true;
             }
@@ -3,6 +3,10 @@ package restaurantbookingmanagement.controller;
 import restaurantbookingmanagement.view.*;
 import restaurantbookingmanagement.utils.DebugUtil;
 import restaurantbookingmanagement.ai.AIResponse;
+import restaurantbookingmanagement.ai.ChatSession;
+import restaurantbookingmanagement.service.fileservice.ReplicaApplier;
+import restaurantbookingmanagement.service.fileservice.ReplicationLog;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller xử lý các chức năng cho manager (chỉ điều phối, không chứa logic nhập/xuất hoặc nghiệp vụ chi tiết)
@@ -44,6 +48,7 @@ public class ManagerController {
             "Xem Menu User",
             "Chat với AI",
             "Bật/Tắt Debug Mode",
+            "Trạng thái nhân bản",
             "Đăng xuất"
         }) {
             @Override
@@ -57,7 +62,8 @@ public class ManagerController {
                     case 6 -> userController.showUserMenuWithLogout();
                     case 7 -> chatWithAI();
                     case 8 -> toggleDebugMode();
-                    case 9 -> { logout[0] = true; throw new RuntimeException("LOGOUT"); }
+                    case 9 -> showReplicationStatus();
+                    case 10 -> { logout[0] = true; throw new RuntimeException("LOGOUT"); }
                     default-> view.displayError("Lựa chọn không hợp lệ.");
                 }
             }
@@ -77,34 +83,47 @@ public class ManagerController {
      * Chat với AI (chỉ điều phối, nhập xuất đã gom về view)
      */
     private void chatWithAI() {
-        view.displayMessage("\n--- Chế độ Chat với AI (gõ 'back' để quay lại menu, 'debug' để bật/tắt debug) ---");
-        String sessionId = "manager_" + System.currentTimeMillis();
-        while (true) {
-            String userInput = view.getUserInput();
-            if (userInput.equalsIgnoreCase("back") || userInput.equalsIgnoreCase("menu")) {
-                view.displayMessage("Quay lại menu chính.");
-                break;
-            }
-            if (userInput.equalsIgnoreCase("debug")) {
-                DebugUtil.toggleDebug();
-                view.displayMessage("Debug mode: " + (DebugUtil.isDebug() ? "ON" : "OFF"));
-                continue;
-            }
-            if (userInput.isEmpty()) continue;
+        view.displayMessage("\n--- Chế độ Chat với AI (gõ 'back' để quay lại menu, 'debug' để bật/tắt debug, 'cancel' khi đang chờ để hủy) ---");
+        ChatSession session = aiController.openSession("MANAGER", null);
+        try {
+            while (true) {
+                String userInput = view.getUserInput();
+                if (userInput.equalsIgnoreCase("back") || userInput.equalsIgnoreCase("menu")) {
+                    view.displayMessage("Quay lại menu chính.");
+                    break;
+                }
+                if (userInput.equalsIgnoreCase("debug")) {
+                    DebugUtil.toggleDebug();
+                    view.displayMessage("Debug mode: " + (DebugUtil.isDebug() ? "ON" : "OFF"));
+                    continue;
+                }
+                if (userInput.isEmpty()) continue;
 
-            // Gửi tới AI agent
-            AIResponse response = aiController.chatWithAI(userInput, "MANAGER", null);
-            if (response != null) {
-                            // Xử lý response thông qua AiService với đầy đủ services
-            aiService.processAIResponse(response, orderController.getOrderService(), 
-                                     bookingController.getBookingService(), 
-                                     customerController.getCustomerService(), view);
-            } else {
-                view.displayMessage("AI: Xin lỗi, tôi không thể trả lời lúc này.");
+                // Gửi tới AI agent không chặn; trong lúc chờ có thể gõ 'cancel' để hủy
+                CompletableFuture<AIResponse> pending = aiController.chatWithAIAsync(session, userInput, null, view::displayStreamedText);
+                AIResponse response = view.awaitWithProgress(pending, "🤖 AI đang xử lý");
+                if (pending.isCancelled()) continue;
+                if (response != null) {
+                    // Xử lý response thông qua AiService với đầy đủ services
+                    aiService.processAIResponse(response, orderController.getOrderService(),
+                                                bookingController.getBookingService(),
+                                                customerController.getCustomerService(), view);
+                } else {
+                    view.displayMessage("AI: Xin lỗi, tôi không thể trả lời lúc này.");
+                }
             }
+        } finally {
+            aiController.closeSession(session);
         }
     }
     
+    /**
+     * Trạng thái nhân bản của tiến trình này (replica và/hoặc primary)
+     */
+    private void showReplicationStatus() {
+        view.displayReplicationStatus(ReplicaApplier.isReplica() ? ReplicaApplier.status() : null, ReplicationLog.primaryStatus());
+    }
+    
     /**
      * Bật/tắt debug mode (chỉ điều phối)
      */
@@ -7,6 +7,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
 import restaurantbookingmanagement.ai.AIResponse;
+import restaurantbookingmanagement.ai.ChatSession;
 import restaurantbookingmanagement.view.dto.BookingRequest;
 import restaurantbookingmanagement.view.dto.OrderRequest;
 
@@ -143,7 +144,7 @@ public class UserController {
         view.displayMessage("--- Đặt Món ---");
         Customer currentCustomer = authController.getCurrentCustomer();
         List<Booking> userBookings = (currentCustomer != null)
-            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> "CONFIRMED".equals(b.getStatus())).toList()
+            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> b.getStatus() == BookingStatus.CONFIRMED).toList()
             : null;
         OrderRequest req = view.getOrderRequest(userBookings, menuService.getAllMenuItems());
         if (req == null) {
@@ -169,7 +170,7 @@ public class UserController {
         view.displayMessage("--- Tính Tiền ---");
         Customer currentCustomer = authController.getCurrentCustomer();
         List<Booking> userBookings = (currentCustomer != null)
-            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> "CONFIRMED".equals(b.getStatus())).toList()
+            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> b.getStatus() == BookingStatus.CONFIRMED).toList()
             : new ArrayList<>();
         Booking booking = view.getBookingForPayment(userBookings);
         if (booking == null) return;
@@ -183,15 +184,15 @@ public class UserController {
         Order order = orderService.getOrderForBooking(booking);
         
         // Kiểm tra nếu order đã được thanh toán
-        if ("COMPLETED".equals(order.getStatus())) {
+        if (order.getStatus() == OrderStatus.COMPLETED) {
             view.displayMessage("Đơn hàng này đã được thanh toán.");
             return;
         }
         
         // Hiển thị chi tiết hóa đơn
         view.displayMessage("=== CHI TIẾT HÓA ĐƠN ===");
-        view.displayMessage("Bàn #" + booking.getTable().getTableId());
-        view.displayMessage("Khách hàng: " + booking.getCustomer().getName());
+        view.displayMessage("Bàn #" + booking.getTableId());
+        view.displayMessage("Khách hàng: " + (booking.getCustomer() != null ? booking.getCustomer().getName() : "N/A"));
         view.displayMessage("Số người: " + booking.getNumberOfGuests());
         view.displayMessage("Thời gian đặt: " + booking.getBookingTime().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
         view.displayBillDetails(order);
@@ -258,7 +259,7 @@ public class UserController {
         view.displayMessage("--- Hủy Đặt Bàn ---");
         Customer currentCustomer = authController.getCurrentCustomer();
         List<Booking> userBookings = (currentCustomer != null)
-            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> "CONFIRMED".equals(b.getStatus())).toList()
+            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> b.getStatus() == BookingStatus.CONFIRMED).toList()
             : new ArrayList<>();
         Integer bookingId = view.getBookingIdForCancel(userBookings);
         if (bookingId == null) {
@@ -276,7 +277,7 @@ public class UserController {
     private void handleRemoveItemFromOrder() {
         Customer currentCustomer = authController.getCurrentCustomer();
         List<Booking> userBookings = (currentCustomer != null)
-            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> "CONFIRMED".equals(b.getStatus())).toList()
+            ? bookingService.getBookingsByCustomer(currentCustomer).stream().filter(b -> b.getStatus() == BookingStatus.CONFIRMED).toList()
             : null;
         Booking booking = (userBookings != null && !userBookings.isEmpty()) ? userBookings.get(0) : null;
         if (userBookings != null && userBookings.size() > 1) {
@@ -315,17 +316,25 @@ public class UserController {
             view.displayError("Bạn cần đăng nhập trước khi đặt bàn qua AI.");
             return;
         }
-        view.displayMessage("\n--- Chế độ Chat với AI (gõ 'back' để quay lại menu) ---");
-        while (true) {
-            String userInput = view.getUserInput();
-            if (userInput == null || userInput.equalsIgnoreCase("back") || userInput.equalsIgnoreCase("menu")) {
-                view.displayMessage("Quay lại menu chính.");
-                break;
-        }
-        // Gọi AI Agent, truyền thông tin user
-        AIResponse aiResponse = aiController.chatWithAI(userInput, "user", currentCustomer);
-        // Xử lý action từ AIResponse qua AiService
-        aiService.processAIResponse(aiResponse, orderService, bookingService, customerService, view);
+        view.displayMessage("\n--- Chế độ Chat với AI (gõ 'back' để quay lại menu, 'cancel' khi đang chờ để hủy) ---");
+        // Mỗi lần vào chat là một session riêng để nhiều người chat cùng lúc không lẫn hội thoại
+        ChatSession session = aiController.openSession("user", currentCustomer);
+        try {
+            while (true) {
+                String userInput = view.getUserInput();
+                if (userInput == null || userInput.equalsIgnoreCase("back") || userInput.equalsIgnoreCase("menu")) {
+                    view.displayMessage("Quay lại menu chính.");
+                    break;
+                }
+                // Gọi AI Agent không chặn, truyền thông tin user; trong lúc chờ có thể gõ 'cancel' để hủy
+                AIResponse aiResponse = view.awaitWithProgress(
+                        aiController.chatWithAIAsync(session, userInput, null, view::displayStreamedText), "🤖 AI đang xử lý");
+                if (aiResponse == null) continue;
+                // Xử lý action từ AIResponse qua AiService
+                aiService.processAIResponse(aiResponse, orderService, bookingService, customerService, view);
+            }
+        } finally {
+            aiController.closeSession(session);
         }
     }
     
@@ -7,19 +7,18 @@ import java.time.LocalDateTime;
  */
 public class Booking {
     private int bookingId;
-    private Customer customer;
-    private Table table;
+    // Chỉ customerId/tableId được lưu xuống file, object được hydrate khi đọc
+    private transient Customer customer;
+    private transient Table table;
     private LocalDateTime bookingTime;
     private int numberOfGuests;
-    private String status; // "CONFIRMED", "CANCELLED", "COMPLETED"
-    private transient BookingState state;
+    private BookingStatus status;
     private int customerId;
     private int tableId;
     
     // No-args constructor for Gson deserialization
     public Booking() {
-        this.status = "CONFIRMED";
-        this.state = BookingStateFactory.fromStatus(this.status);
+        this.status = BookingStatus.CONFIRMED;
     }
     
     public Booking(int bookingId, Customer customer, Table table, LocalDateTime bookingTime, int numberOfGuests) {
@@ -28,8 +27,7 @@ public class Booking {
         this.table = table;
         this.bookingTime = bookingTime;
         this.numberOfGuests = numberOfGuests;
-        this.status = "CONFIRMED";
-        this.state = BookingStateFactory.fromStatus(this.status);
+        this.status = BookingStatus.CONFIRMED;
     }
     
     // Getters
@@ -53,11 +51,11 @@ public class Booking {
         return numberOfGuests;
     }
     
-    public String getStatus() {
+    public BookingStatus getStatus() {
         return status;
     }
     
-    public BookingState getState() { return state; }
+    public BookingState getState() { return BookingStateFactory.fromStatus(status); }
     
     public int getCustomerId() {
         if (customer != null) return customer.getCustomerId();
@@ -95,13 +93,14 @@ public class Booking {
         this.numberOfGuests = numberOfGuests;
     }
     
-    public void setStatus(String status) {
+    public void setStatus(BookingStatus status) {
         this.status = status;
     }
     
-    public void setState(BookingState state) { this.state = state; this.status = state.getName(); }
+    public void setState(BookingState state) { this.status = state.getStatus(); }
     
     public void transitionTo(BookingState newState) {
+        BookingState state = getState();
         if (state.canTransitionTo(newState)) {
             setState(newState);
         } else {
@@ -109,10 +108,6 @@ public class Booking {
         }
     }
     
-    public void syncStateWithStatus() {
-        this.state = BookingStateFactory.fromStatus(this.status);
-    }
-    
     @Override
     public String toString() {
         String customerName = (customer != null) ? customer.getName() : "N/A";
@@ -123,51 +118,58 @@ public class Booking {
                bookingTimeStr;
     }
 
-    // State Pattern for Booking
+    // State Pattern for Booking (flyweight: mỗi trạng thái chỉ có một instance)
     public static interface BookingState {
         void handle(Booking booking);
         boolean canTransitionTo(BookingState newState);
-        String getName();
+        BookingStatus getStatus();
+        default String getName() { return getStatus().name(); }
     }
 
-    public static class ConfirmedState implements BookingState {
+    public static final class ConfirmedState implements BookingState {
+        public static final ConfirmedState INSTANCE = new ConfirmedState();
+        private ConfirmedState() { }
         @Override
         public void handle(Booking booking) {
             // Logic khi booking ở trạng thái CONFIRMED (nếu cần)
         }
         @Override
         public boolean canTransitionTo(BookingState newState) {
-            return newState instanceof CancelledState || newState instanceof CompletedState;
+            return newState == CancelledState.INSTANCE || newState == CompletedState.INSTANCE;
         }
         @Override
-        public String getName() { return "CONFIRMED"; }
+        public BookingStatus getStatus() { return BookingStatus.CONFIRMED; }
     }
 
-    public static class CancelledState implements BookingState {
+    public static final class CancelledState implements BookingState {
+        public static final CancelledState INSTANCE = new CancelledState();
+        private CancelledState() { }
         @Override
         public void handle(Booking booking) { }
         @Override
         public boolean canTransitionTo(BookingState newState) { return false; }
         @Override
-        public String getName() { return "CANCELLED"; }
+        public BookingStatus getStatus() { return BookingStatus.CANCELLED; }
     }
 
-    public static class CompletedState implements BookingState {
+    public static final class CompletedState implements BookingState {
+        public static final CompletedState INSTANCE = new CompletedState();
+        private CompletedState() { }
         @Override
         public void handle(Booking booking) { }
         @Override
         public boolean canTransitionTo(BookingState newState) { return false; }
         @Override
-        public String getName() { return "COMPLETED"; }
+        public BookingStatus getStatus() { return BookingStatus.COMPLETED; }
     }
 
     // Factory for BookingState
     public static class BookingStateFactory {
-        public static BookingState fromStatus(String status) {
+        public static BookingState fromStatus(BookingStatus status) {
             switch (status) {
-                case "CONFIRMED": return new ConfirmedState();
-                case "CANCELLED": return new CancelledState();
-                case "COMPLETED": return new CompletedState();
+                case CONFIRMED: return ConfirmedState.INSTANCE;
+                case CANCELLED: return CancelledState.INSTANCE;
+                case COMPLETED: return CompletedState.INSTANCE;
                 default: throw new IllegalArgumentException("Unknown status: " + status);
             }
         }
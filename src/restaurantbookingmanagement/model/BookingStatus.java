@@ -0,0 +1,20 @@
+package restaurantbookingmanagement.model;
+
+/**
+ * Enum định nghĩa trạng thái của booking
+ */
+public enum BookingStatus {
+    CONFIRMED("Đã xác nhận"),
+    CANCELLED("Đã hủy"),
+    COMPLETED("Đã hoàn thành");
+    
+    private final String description;
+    
+    BookingStatus(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
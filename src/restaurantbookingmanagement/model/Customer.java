@@ -1,7 +1,6 @@
 package restaurantbookingmanagement.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import restaurantbookingmanagement.utils.IntHashSet;
 
 /**
  * Entity đại diện cho khách hàng
@@ -11,13 +10,13 @@ public class Customer {
     private String name;
     private String phone;
     private String email;
-    private List<Integer> activeBookingIds; // Danh sách booking ID đang hoạt động
+    private IntHashSet activeBookingIds; // Danh sách booking ID đang hoạt động
     private String role; // "admin", "user", "guest"
     private String password;
     
     // No-args constructor for Gson deserialization
     public Customer() {
-        this.activeBookingIds = new ArrayList<>();
+        this.activeBookingIds = new IntHashSet();
         this.role = "user";
         this.password = "";
     }
@@ -27,7 +26,7 @@ public class Customer {
         this.name = name;
         this.phone = phone;
         this.email = "";
-        this.activeBookingIds = new ArrayList<>();
+        this.activeBookingIds = new IntHashSet();
         this.role = "user";
         this.password = "";
     }
@@ -37,7 +36,7 @@ public class Customer {
         this.name = name;
         this.phone = phone;
         this.email = email;
-        this.activeBookingIds = new ArrayList<>();
+        this.activeBookingIds = new IntHashSet();
         this.role = "user";
         this.password = "";
     }
@@ -48,7 +47,7 @@ public class Customer {
         this.name = name;
         this.phone = phone;
         this.email = email;
-        this.activeBookingIds = new ArrayList<>();
+        this.activeBookingIds = new IntHashSet();
         this.role = role;
         this.password = password;
     }
@@ -70,7 +69,7 @@ public class Customer {
         return email;
     }
     
-    public List<Integer> getActiveBookingIds() {
+    public IntHashSet getActiveBookingIds() {
         return activeBookingIds;
     }
     
@@ -99,7 +98,7 @@ public class Customer {
         this.email = email;
     }
     
-    public void setActiveBookingIds(List<Integer> activeBookingIds) {
+    public void setActiveBookingIds(IntHashSet activeBookingIds) {
         this.activeBookingIds = activeBookingIds;
     }
     
@@ -113,13 +112,11 @@ public class Customer {
     
     // Helper methods for booking management
     public void addBookingId(int bookingId) {
-        if (!activeBookingIds.contains(bookingId)) {
-            activeBookingIds.add(bookingId);
-        }
+        activeBookingIds.add(bookingId);
     }
     
     public void removeBookingId(int bookingId) {
-        activeBookingIds.remove(Integer.valueOf(bookingId));
+        activeBookingIds.remove(bookingId);
     }
     
     public boolean hasActiveBooking(int bookingId) {
@@ -40,7 +40,7 @@ public class CustomerInfo {
      */
     public long getActiveBookingsCount() {
         return bookings.stream()
-                .filter(b -> "CONFIRMED".equals(b.getStatus()))
+                .filter(b -> b.getStatus() == BookingStatus.CONFIRMED)
                 .count();
     }
     
@@ -49,7 +49,7 @@ public class CustomerInfo {
      */
     public long getCancelledBookingsCount() {
         return bookings.stream()
-                .filter(b -> "CANCELLED".equals(b.getStatus()))
+                .filter(b -> b.getStatus() == BookingStatus.CANCELLED)
                 .count();
     }
     
@@ -58,7 +58,7 @@ public class CustomerInfo {
      */
     public long getCompletedBookingsCount() {
         return bookings.stream()
-                .filter(b -> "COMPLETED".equals(b.getStatus()))
+                .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
                 .count();
     }
     
@@ -76,7 +76,7 @@ public class CustomerInfo {
      */
     public List<Booking> getActiveBookings() {
         return bookings.stream()
-                .filter(b -> "CONFIRMED".equals(b.getStatus()))
+                .filter(b -> b.getStatus() == BookingStatus.CONFIRMED)
                 .collect(java.util.stream.Collectors.toList());
     }
     
@@ -13,17 +13,22 @@ public class Order {
     private int bookingId; // Thêm trường bookingId để serialize
     private List<OrderItem> items;
     private LocalDateTime orderTime;
-    private String status; // "PENDING", "PREPARING", "READY", "COMPLETED"
+    private OrderStatus status;
     private double totalAmount;
     private int tableId; // ID của bàn
     
+    // No-args constructor cho TypeAdapter khi đọc từ file
+    public Order() {
+        this(0, null);
+    }
+    
     public Order(int orderId, Booking booking) {
         this.orderId = orderId;
         this.booking = booking;
         this.bookingId = booking != null ? booking.getBookingId() : 0;
         this.items = new ArrayList<>();
         this.orderTime = LocalDateTime.now();
-        this.status = "PENDING";
+        this.status = OrderStatus.PENDING;
         this.totalAmount = 0.0;
         this.tableId = booking != null && booking.getTable() != null ? booking.getTable().getTableId() : 0;
     }
@@ -45,7 +50,7 @@ public class Order {
         return orderTime;
     }
     
-    public String getStatus() {
+    public OrderStatus getStatus() {
         return status;
     }
     
@@ -112,14 +117,29 @@ public class Order {
         this.orderTime = orderTime;
     }
     
-    public void setStatus(String status) {
+    public void setStatus(OrderStatus status) {
         this.status = status;
     }
     
+    /**
+     * Chuyển trạng thái theo máy trạng thái của OrderStatus
+     */
+    public void transitionTo(OrderStatus newStatus) {
+        if (status.canTransitionTo(newStatus)) {
+            this.status = newStatus;
+        } else {
+            throw new IllegalStateException("Invalid state transition from " + status + " to " + newStatus);
+        }
+    }
+    
     public void setTableId(int tableId) {
         this.tableId = tableId;
     }
     
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+    
     // Business methods
     public void addItem(int itemId, int amount) {
         for (OrderItem oi : items) {
@@ -0,0 +1,31 @@
+package restaurantbookingmanagement.model;
+
+/**
+ * Enum định nghĩa trạng thái của đơn hàng.
+ * Máy trạng thái một chiều: PENDING → PREPARING → READY → COMPLETED
+ * (cho phép bỏ qua bước, ví dụ thanh toán ngay khi đơn còn PENDING).
+ */
+public enum OrderStatus {
+    PENDING("Chờ xử lý"),
+    PREPARING("Đang chuẩn bị"),
+    READY("Sẵn sàng"),
+    COMPLETED("Đã hoàn thành");
+    
+    private final String description;
+    
+    OrderStatus(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public boolean canTransitionTo(OrderStatus newStatus) {
+        return newStatus != null && newStatus.ordinal() > ordinal();
+    }
+    
+    public boolean isOpen() {
+        return this != COMPLETED;
+    }
+}
@@ -1,7 +1,6 @@
 package restaurantbookingmanagement.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import restaurantbookingmanagement.utils.IntHashSet;
 
 /**
  * Entity đại diện cho bàn trong nhà hàng
@@ -10,22 +9,19 @@ public class Table {
     private int tableId;
     private int capacity;
     private TableStatus status;
-    private List<Integer> orderIds; // Danh sách orderId của bàn này
-    private transient TableState state;
+    private IntHashSet orderIds; // Danh sách orderId của bàn này
     
     // No-args constructor for Gson deserialization
     public Table() {
         this.status = TableStatus.AVAILABLE;
-        this.orderIds = new ArrayList<>();
-        this.state = TableStateFactory.fromStatus(this.status);
+        this.orderIds = new IntHashSet();
     }
     
     public Table(int tableId, int capacity) {
         this.tableId = tableId;
         this.capacity = capacity;
         this.status = TableStatus.AVAILABLE;
-        this.orderIds = new ArrayList<>();
-        this.state = TableStateFactory.fromStatus(this.status);
+        this.orderIds = new IntHashSet();
     }
     
     // Getters
@@ -41,11 +37,11 @@ public class Table {
         return status;
     }
     
-    public List<Integer> getOrderIds() {
+    public IntHashSet getOrderIds() {
         return orderIds;
     }
     
-    public TableState getState() { return state; }
+    public TableState getState() { return TableStateFactory.fromStatus(status); }
     
     // Setters
     public void setTableId(int tableId) {
@@ -60,23 +56,22 @@ public class Table {
         this.status = status;
     }
     
-    public void setOrderIds(List<Integer> orderIds) {
+    public void setOrderIds(IntHashSet orderIds) {
         this.orderIds = orderIds;
     }
     
     public void addOrderId(int orderId) {
-        if (!orderIds.contains(orderId)) {
-            orderIds.add(orderId);
-        }
+        orderIds.add(orderId);
     }
     
     public void removeOrderId(int orderId) {
-        orderIds.remove(Integer.valueOf(orderId));
+        orderIds.remove(orderId);
     }
     
-    public void setState(TableState state) { this.state = state; this.status = TableStatus.valueOf(state.getName()); }
+    public void setState(TableState state) { this.status = state.getStatus(); }
     
     public void transitionTo(TableState newState) {
+        TableState state = getState();
         if (state.canTransitionTo(newState)) {
             setState(newState);
         } else {
@@ -84,23 +79,19 @@ public class Table {
         }
     }
     
-    public void syncStateWithStatus() {
-        this.state = TableStateFactory.fromStatus(this.status);
-    }
-    
     @Override
     public String toString() {
         return "Bàn " + tableId + " (Sức chứa: " + capacity + " người, Trạng thái: " + status.getDescription() + ")";
     }
     
-    // Factory for TableState
+    // Factory for TableState (trả về instance dùng chung, không cấp phát mới)
     public static class TableStateFactory {
         public static TableState fromStatus(TableStatus status) {
             switch (status) {
-                case AVAILABLE: return new AvailableState();
-                case RESERVED: return new ReservedState();
-                case OCCUPIED: return new OccupiedState();
-                case MAINTENANCE: return new MaintenanceState();
+                case AVAILABLE: return AvailableState.INSTANCE;
+                case RESERVED: return ReservedState.INSTANCE;
+                case OCCUPIED: return OccupiedState.INSTANCE;
+                case MAINTENANCE: return MaintenanceState.INSTANCE;
                 default: throw new IllegalArgumentException("Unknown status: " + status);
             }
         }
@@ -22,53 +22,62 @@ public enum TableStatus {
 
 // End of TableStatus enum
 
-// State Pattern for Table
+// State Pattern for Table (flyweight: mỗi trạng thái chỉ có một instance)
 interface TableState {
     void handle(Table table);
     boolean canTransitionTo(TableState newState);
-    String getName();
+    TableStatus getStatus();
+    default String getName() { return getStatus().name(); }
 }
 
-class AvailableState implements TableState {
+final class AvailableState implements TableState {
+    static final AvailableState INSTANCE = new AvailableState();
+    private AvailableState() { }
     @Override
     public void handle(Table table) { }
     @Override
     public boolean canTransitionTo(TableState newState) {
-        return newState instanceof ReservedState || newState instanceof OccupiedState || newState instanceof MaintenanceState;
+        return newState == ReservedState.INSTANCE || newState == OccupiedState.INSTANCE || newState == MaintenanceState.INSTANCE;
     }
     @Override
-    public String getName() { return "AVAILABLE"; }
+    public TableStatus getStatus() { return TableStatus.AVAILABLE; }
 }
 
-class ReservedState implements TableState {
+final class ReservedState implements TableState {
+    static final ReservedState INSTANCE = new ReservedState();
+    private ReservedState() { }
     @Override
     public void handle(Table table) { }
     @Override
     public boolean canTransitionTo(TableState newState) {
-        return newState instanceof OccupiedState || newState instanceof AvailableState;
+        return newState == OccupiedState.INSTANCE || newState == AvailableState.INSTANCE;
     }
     @Override
-    public String getName() { return "RESERVED"; }
+    public TableStatus getStatus() { return TableStatus.RESERVED; }
 }
 
-class OccupiedState implements TableState {
+final class OccupiedState implements TableState {
+    static final OccupiedState INSTANCE = new OccupiedState();
+    private OccupiedState() { }
     @Override
     public void handle(Table table) { }
     @Override
     public boolean canTransitionTo(TableState newState) {
-        return newState instanceof AvailableState;
+        return newState == AvailableState.INSTANCE;
     }
     @Override
-    public String getName() { return "OCCUPIED"; }
+    public TableStatus getStatus() { return TableStatus.OCCUPIED; }
 }
 
-class MaintenanceState implements TableState {
+final class MaintenanceState implements TableState {
+    static final MaintenanceState INSTANCE = new MaintenanceState();
+    private MaintenanceState() { }
     @Override
     public void handle(Table table) { }
     @Override
     public boolean canTransitionTo(TableState newState) {
-        return newState instanceof AvailableState;
+        return newState == AvailableState.INSTANCE;
     }
     @Override
-    public String getName() { return "MAINTENANCE"; }
-} 
\ No newline at end of file
+    public TableStatus getStatus() { return TableStatus.MAINTENANCE; }
+}
\ No newline at end of file
@@ -4,10 +4,17 @@ import restaurantbookingmanagement.model.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 import restaurantbookingmanagement.utils.DebugUtil;
+import restaurantbookingmanagement.service.fileservice.DataTransaction;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.read;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.write;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.BOOKINGS;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.CUSTOMERS;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.TABLES;
 import restaurantbookingmanagement.service.fileservice.BookingFileService;
 import restaurantbookingmanagement.service.fileservice.CustomerFileService;
+import restaurantbookingmanagement.service.actor.TableActorSystem;
 import restaurantbookingmanagement.service.validator.BookingValidator;
 import restaurantbookingmanagement.view.dto.BookingRequest;
 
@@ -21,78 +28,112 @@ public class BookingService {
     private final BookingFileService bookingFileService;
     private final CustomerFileService customerFileService;
     private final TableService tableService;
-    private int nextBookingId;
+    private final AtomicInteger nextBookingId;
+    private TableActorSystem tableActors;
     
     public BookingService(TableService tableService, BookingValidator bookingValidator) {
         this.bookingFileService = new BookingFileService();
         this.customerFileService = new CustomerFileService();
         this.tableService = tableService;
-        this.nextBookingId = 1;
+        this.nextBookingId = new AtomicInteger(1);
         
         // Tính toán nextBookingId từ dữ liệu hiện tại
         calculateNextBookingId();
     }
     
     private void calculateNextBookingId() {
-        List<Booking> existingBookings = bookingFileService.readBookingsFromFile();
-        if (!existingBookings.isEmpty()) {
-            this.nextBookingId = existingBookings.stream()
-                    .mapToInt(Booking::getBookingId)
-                    .max()
-                    .orElse(0) + 1;
-        }
+        syncNextBookingId(bookingFileService.readBookingsFromFile());
+    }
+    
+    /**
+     * Đẩy nextBookingId lên sau id lớn nhất trên đĩa (gọi trong transaction trước khi cấp id):
+     * tiến trình khác dùng chung data/ có thể đã cấp id mới kể từ lần tính trước
+     */
+    private void syncNextBookingId(List<Booking> bookings) {
+        // Tính cả booking đã lưu trữ để id mới không trùng với lịch sử
+        int maxId = Math.max(bookingFileService.getMaxArchivedBookingId(),
+                bookings.stream()
+                        .mapToInt(Booking::getBookingId)
+                        .max()
+                        .orElse(0));
+        this.nextBookingId.accumulateAndGet(maxId + 1, Math::max);
+    }
+    
+    /**
+     * Cấp id booking mới cho chế độ actor, từ danh sách booking writer vừa đọc lại trong transaction
+     */
+    private int allocateBookingId(List<Booking> bookings) {
+        syncNextBookingId(bookings);
+        return nextBookingId.getAndIncrement();
+    }
+    
+    /**
+     * Bật chế độ actor-per-table: các thao tác theo bàn được tuần tự hóa trên actor của bàn
+     */
+    public void setTableActorSystem(TableActorSystem tableActors) {
+        this.tableActors = tableActors;
     }
     
+    @SuppressWarnings("try")
     public Booking createBooking(Customer customer, int numberOfGuests, LocalDateTime bookingTime) {
-        List<Table> tables = tableService.getAllTables();
-        List<Booking> bookings = bookingFileService.readBookingsFromFile();
+        // Chế độ actor: BatchedWriter tự mở transaction khi ghi, giữ ở đây sẽ chặn writer
+        try (DataTransaction tx = tableActors == null ? DataTransaction.begin(write(BOOKINGS), write(CUSTOMERS), write(TABLES)) : null) {
+            List<Table> tables = tableService.getAllTables();
+            List<Booking> bookings = bookingFileService.readBookingsFromFile();
         
-        // Lưu thông tin khách hàng vào customers.json và lấy customer đã được lưu
-        Customer savedCustomer = saveCustomerToFile(customer);
+            // Lưu thông tin khách hàng vào customers.json và lấy customer đã được lưu
+            Customer savedCustomer = saveCustomerToFile(customer);
 
-        // Đọc lại customers từ file để đảm bảo đồng bộ
-        List<Customer> customers = customerFileService.readCustomersFromFile();
-        Customer realCustomer = customers.stream()
-            .filter(c -> c.getPhone().equals(savedCustomer.getPhone()))
-            .findFirst()
-            .orElse(savedCustomer);
+            // Đọc lại customers từ file để đảm bảo đồng bộ
+            List<Customer> customers = customerFileService.readCustomersFromFile();
+            Customer realCustomer = customers.stream()
+                .filter(c -> c.getPhone().equals(savedCustomer.getPhone()))
+                .findFirst()
+                .orElse(savedCustomer);
 
-        // Debug: Log customer returned from saveCustomerToFile
-        DebugUtil.debugPrint("🔍 DEBUG - Customer used for booking:");
-        DebugUtil.debugPrint("   - Name: " + realCustomer.getName());
-        DebugUtil.debugPrint("   - Phone: " + realCustomer.getPhone());
-        DebugUtil.debugPrint("   - ID: " + realCustomer.getCustomerId());
+            // Debug: Log customer returned from saveCustomerToFile
+            DebugUtil.debugPrint("🔍 DEBUG - Customer used for booking:");
+            DebugUtil.debugPrint("   - Name: " + realCustomer.getName());
+            DebugUtil.debugPrint("   - Phone: " + realCustomer.getPhone());
+            DebugUtil.debugPrint("   - ID: " + realCustomer.getCustomerId());
 
-        Table availableTable = tableService.findAvailableTable(numberOfGuests);
-        if (availableTable == null) {
-            return null; // Không có bàn phù hợp
-        }
+            if (tableActors != null) {
+                return tableActors.reserve(() -> tableService.getAvailableTablesForCapacity(numberOfGuests),
+                        realCustomer, bookingTime, numberOfGuests, this::allocateBookingId);
+            }
 
-        // Kiểm tra xem bàn có bị đặt trùng thời gian không
-        if (isTableBookedAtTime(availableTable, bookingTime, bookings)) {
-            return null; // Bàn đã được đặt vào thời gian này
-        }
+            Table availableTable = tableService.findAvailableTable(numberOfGuests);
+            if (availableTable == null) {
+                return null; // Không có bàn phù hợp
+            }
 
-        // Tạo booking mới với customer đã được lưu
-        Booking booking = new Booking(nextBookingId++, realCustomer, availableTable, bookingTime, numberOfGuests);
+            // Kiểm tra xem bàn có bị đặt trùng thời gian không
+            if (isTableBookedAtTime(availableTable, bookingTime, bookings)) {
+                return null; // Bàn đã được đặt vào thời gian này
+            }
 
-        // Cập nhật trạng thái bàn
-        availableTable.setStatus(TableStatus.RESERVED);
+            // Tạo booking mới với customer đã được lưu
+            syncNextBookingId(bookings);
+            Booking booking = new Booking(nextBookingId.getAndIncrement(), realCustomer, availableTable, bookingTime, numberOfGuests);
 
-        // Cập nhật danh sách bàn
-        updateTableInList(tables, availableTable);
-        tableService.writeTablesToFile(tables);
+            // Cập nhật trạng thái bàn
+            availableTable.setStatus(TableStatus.RESERVED);
 
-        // Thêm booking mới vào danh sách
-        bookings.add(booking);
-        bookingFileService.writeBookingsToFile(bookings);
+            // Cập nhật danh sách bàn
+            updateTableInList(tables, availableTable);
+            tableService.writeTablesToFile(tables);
+
+            // Thêm booking mới vào danh sách
+            bookings.add(booking);
+            bookingFileService.writeBookingsToFile(bookings);
 
-        // Cập nhật activeBookingIds cho customer
-        realCustomer.addBookingId(booking.getBookingId());
-        updateCustomerInList(customers, realCustomer);
-        customerFileService.writeCustomersToFile(customers);
+            // Cập nhật activeBookingIds cho customer
+            realCustomer.addBookingId(booking.getBookingId());
+            updateCustomerInList(customers, realCustomer);
+            customerFileService.writeCustomersToFile(customers);
 
-        return booking;
+            return booking;
+        }
     }
     
     private void updateTableInList(List<Table> tables, Table updatedTable) {
@@ -115,8 +156,8 @@ public class BookingService {
     
     private boolean isTableBookedAtTime(Table table, LocalDateTime bookingTime, List<Booking> bookings) {
         return bookings.stream()
-                .anyMatch(booking -> booking.getTable().getTableId() == table.getTableId() &&
-                                   booking.getStatus().equals("CONFIRMED") &&
+                .anyMatch(booking -> booking.getTableId() == table.getTableId() &&
+                                   booking.getStatus() == BookingStatus.CONFIRMED &&
                                    isTimeOverlap(booking.getBookingTime(), bookingTime));
     }
     
@@ -128,80 +169,91 @@ public class BookingService {
         return !time1.isAfter(endTime2) && !time2.isAfter(endTime1);
     }
     
+    @SuppressWarnings("try")
     private Customer saveCustomerToFile(Customer customer) {
-        List<Customer> customers = customerFileService.readCustomersFromFile();
+        try (DataTransaction tx = DataTransaction.begin(write(CUSTOMERS))) {
+            List<Customer> customers = customerFileService.readCustomersFromFile();
         
-        DebugUtil.debugPrint("🔍 DEBUG - saveCustomerToFile called with:");
-        DebugUtil.debugPrint("   - Name: " + customer.getName());
-        DebugUtil.debugPrint("   - Phone: " + customer.getPhone());
-        DebugUtil.debugPrint("   - ID: " + customer.getCustomerId());
+            DebugUtil.debugPrint("🔍 DEBUG - saveCustomerToFile called with:");
+            DebugUtil.debugPrint("   - Name: " + customer.getName());
+            DebugUtil.debugPrint("   - Phone: " + customer.getPhone());
+            DebugUtil.debugPrint("   - ID: " + customer.getCustomerId());
         
-        // Kiểm tra xem khách hàng đã tồn tại chưa (chỉ so sánh theo số điện thoại)
-        boolean customerExists = customers.stream()
-                .anyMatch(c -> c.getPhone().equals(customer.getPhone()));
+            // Kiểm tra xem khách hàng đã tồn tại chưa (chỉ so sánh theo số điện thoại)
+            boolean customerExists = customers.stream()
+                    .anyMatch(c -> c.getPhone().equals(customer.getPhone()));
         
-        DebugUtil.debugPrint("🔍 DEBUG - Customer exists check: " + customerExists);
+            DebugUtil.debugPrint("🔍 DEBUG - Customer exists check: " + customerExists);
         
-        if (!customerExists) {
-            // Tạo customerId mới nếu cần
-            Customer customerToSave = customer;
-            if (customer.getCustomerId() == 0) {
-                int nextCustomerId = customers.stream()
-                        .mapToInt(Customer::getCustomerId)
-                        .max()
-                        .orElse(0) + 1;
-                customerToSave = new Customer(nextCustomerId, customer.getName(), customer.getPhone());
-                DebugUtil.debugPrint("✅ Creating new customer with ID: " + nextCustomerId);
+            if (!customerExists) {
+                // Tạo customerId mới nếu cần
+                Customer customerToSave = customer;
+                if (customer.getCustomerId() == 0) {
+                    int nextCustomerId = customers.stream()
+                            .mapToInt(Customer::getCustomerId)
+                            .max()
+                            .orElse(0) + 1;
+                    customerToSave = new Customer(nextCustomerId, customer.getName(), customer.getPhone());
+                    DebugUtil.debugPrint("✅ Creating new customer with ID: " + nextCustomerId);
+                }
+                customers.add(customerToSave);
+                customerFileService.writeCustomersToFile(customers);
+                DebugUtil.debugPrint("✅ Added new customer to file and returning: " + customerToSave.getName() + " - " + customerToSave.getPhone());
+                return customerToSave; // Trả về customer đã được lưu
+            } else {
+                // Tìm customer đã tồn tại theo số điện thoại
+                Customer existingCustomer = customers.stream()
+                        .filter(c -> c.getPhone().equals(customer.getPhone()))
+                        .findFirst()
+                        .orElse(customer);
+                DebugUtil.debugPrint("⚠️ Found existing customer: " + existingCustomer.getName() + " - " + existingCustomer.getPhone());
+                return existingCustomer;
             }
-            customers.add(customerToSave);
-            customerFileService.writeCustomersToFile(customers);
-            DebugUtil.debugPrint("✅ Added new customer to file and returning: " + customerToSave.getName() + " - " + customerToSave.getPhone());
-            return customerToSave; // Trả về customer đã được lưu
-        } else {
-            // Tìm customer đã tồn tại theo số điện thoại
-            Customer existingCustomer = customers.stream()
-                    .filter(c -> c.getPhone().equals(customer.getPhone()))
-                    .findFirst()
-                    .orElse(customer);
-            DebugUtil.debugPrint("⚠️ Found existing customer: " + existingCustomer.getName() + " - " + existingCustomer.getPhone());
-            return existingCustomer;
         }
     }
     
+    @SuppressWarnings("try")
     public boolean cancelBooking(int bookingId) {
-        List<Booking> bookings = bookingFileService.readBookingsFromFile();
-        List<Table> tables = tableService.getAllTables();
-        List<Customer> customers = customerFileService.readCustomersFromFile();
+        if (tableActors != null) {
+            Booking booking = findBookingById(bookingId);
+            return booking != null && tableActors.closeBooking(booking.getTableId(), bookingId, Booking.CancelledState.INSTANCE);
+        }
+        try (DataTransaction tx = DataTransaction.begin(write(BOOKINGS), write(CUSTOMERS), write(TABLES))) {
+            List<Booking> bookings = bookingFileService.readBookingsFromFile();
+            List<Table> tables = tableService.getAllTables();
+            List<Customer> customers = customerFileService.readCustomersFromFile();
         
-        Booking booking = findBookingById(bookingId, bookings);
-        if (booking != null && booking.getStatus().equals("CONFIRMED")) {
-            booking.transitionTo(new Booking.CancelledState());
+            Booking booking = findBookingById(bookingId, bookings);
+            if (booking != null && booking.getStatus() == BookingStatus.CONFIRMED) {
+                booking.transitionTo(Booking.CancelledState.INSTANCE);
             
-            // Cập nhật trạng thái bàn
-            Table table = booking.getTable();
-            table.setStatus(TableStatus.AVAILABLE);
-            updateTableInList(tables, table);
+                // Cập nhật trạng thái bàn (bàn có thể đã bị xóa)
+                Table table = booking.getTable();
+                if (table != null) {
+                    table.setStatus(TableStatus.AVAILABLE);
+                    updateTableInList(tables, table);
+                }
             
-            // Xóa bookingId khỏi activeBookingIds của customer
-            Customer customer = booking.getCustomer();
-            if (customer != null) {
-                customer.removeBookingId(bookingId);
-                updateCustomerInList(customers, customer);
-                customerFileService.writeCustomersToFile(customers);
-            }
+                // Xóa bookingId khỏi activeBookingIds của customer
+                Customer customer = booking.getCustomer();
+                if (customer != null) {
+                    customer.removeBookingId(bookingId);
+                    updateCustomerInList(customers, customer);
+                    customerFileService.writeCustomersToFile(customers);
+                }
             
-            // Lưu thay đổi
-            bookings.remove(booking);
-            bookingFileService.writeBookingsToFile(bookings);
-            tableService.writeTablesToFile(tables);
+                // Lưu thay đổi (booking đã ở trạng thái cuối sẽ được chuyển vào archive khi ghi)
+                bookingFileService.writeBookingsToFile(bookings);
+                tableService.writeTablesToFile(tables);
             
-            return true;
+                return true;
+            }
+            return false;
         }
-        return false;
     }
     
     public Booking findBookingById(int bookingId) {
-        return findBookingById(bookingId, bookingFileService.readBookingsFromFile());
+        return bookingFileService.findBooking(booking -> booking.getBookingId() == bookingId);
     }
     
     private Booking findBookingById(int bookingId, List<Booking> bookings) {
@@ -212,9 +264,23 @@ public class BookingService {
     }
     
     public List<Booking> getBookingsByCustomer(Customer customer) {
-        return bookingFileService.readBookingsFromFile().stream()
-                .filter(booking -> booking.getCustomer().getCustomerId() == customer.getCustomerId())
-                .collect(Collectors.toList());
+        return bookingFileService.readBookingsMatching(booking -> booking.getCustomerId() == customer.getCustomerId());
+    }
+    
+    /**
+     * Lịch sử booking của khách hàng: booking đang mở và booking đã lưu trữ
+     */
+    public List<Booking> getBookingHistory(int customerId) {
+        List<Booking> history = bookingFileService.readBookingsMatching(booking -> booking.getCustomerId() == customerId);
+        history.addAll(bookingFileService.readArchivedBookingsMatching(booking -> booking.getCustomerId() == customerId));
+        return history;
+    }
+    
+    /**
+     * Lấy các booking có thời gian trong khoảng [from, to), chỉ đọc các partition tháng liên quan
+     */
+    public List<Booking> getBookingsBetween(LocalDateTime from, LocalDateTime to) {
+        return bookingFileService.readBookingsBetween(from, to, booking -> true);
     }
     
     public List<Booking> getAllBookings() {
@@ -236,173 +302,199 @@ public class BookingService {
                     .findFirst().orElse(null);
                 booking.setTable(table);
             }
-            // Khởi tạo lại state từ status
-            booking.syncStateWithStatus();
         }
         return bookings;
     }
     
+    @SuppressWarnings("try")
     public void completeBooking(int bookingId) {
-        List<Booking> bookings = bookingFileService.readBookingsFromFile();
-        List<Table> tables = tableService.getAllTables();
+        if (tableActors != null) {
+            Booking booking = findBookingById(bookingId);
+            if (booking != null) tableActors.closeBooking(booking.getTableId(), bookingId, Booking.CompletedState.INSTANCE);
+            return;
+        }
+        try (DataTransaction tx = DataTransaction.begin(write(BOOKINGS), write(CUSTOMERS), write(TABLES))) {
+            List<Booking> bookings = bookingFileService.readBookingsFromFile();
+            List<Table> tables = tableService.getAllTables();
         
-        Booking booking = findBookingById(bookingId, bookings);
-        if (booking != null) {
-            booking.transitionTo(new Booking.CompletedState());
+            Booking booking = findBookingById(bookingId, bookings);
+            if (booking != null) {
+                booking.transitionTo(Booking.CompletedState.INSTANCE);
             
-            // Cập nhật trạng thái bàn
-            Table table = booking.getTable();
-            table.setStatus(TableStatus.AVAILABLE);
-            updateTableInList(tables, table);
+                // Cập nhật trạng thái bàn (bàn có thể đã bị xóa)
+                Table table = booking.getTable();
+                if (table != null) {
+                    table.setStatus(TableStatus.AVAILABLE);
+                    updateTableInList(tables, table);
+                }
             
-            // Lưu thay đổi
-            bookings.remove(booking);
-            bookingFileService.writeBookingsToFile(bookings);
-            tableService.writeTablesToFile(tables);
+                // Lưu thay đổi (booking đã ở trạng thái cuối sẽ được chuyển vào archive khi ghi)
+                bookingFileService.writeBookingsToFile(bookings);
+                tableService.writeTablesToFile(tables);
+            }
         }
     }
     
     /**
      * Fix các booking có customer null
      */
+    @SuppressWarnings("try")
     public void fixBookingsWithNullCustomer() {
-        List<Booking> bookings = bookingFileService.readBookingsFromFile();
-        List<Customer> customers = customerFileService.readCustomersFromFile();
+        try (DataTransaction tx = DataTransaction.begin(write(BOOKINGS), write(CUSTOMERS), read(TABLES))) {
+            List<Booking> bookings = bookingFileService.readBookingsFromFile();
+            List<Customer> customers = customerFileService.readCustomersFromFile();
         
-        boolean hasChanges = false;
+            boolean hasChanges = false;
         
-        for (Booking booking : bookings) {
-            if (booking.getCustomer() == null) {
-                // Tạo customer mặc định
-                int nextCustomerId = customers.stream()
-                        .mapToInt(Customer::getCustomerId)
-                        .max()
-                        .orElse(0) + 1;
+            for (Booking booking : bookings) {
+                if (booking.getCustomer() == null) {
+                    // Tạo customer mặc định
+                    int nextCustomerId = customers.stream()
+                            .mapToInt(Customer::getCustomerId)
+                            .max()
+                            .orElse(0) + 1;
                 
-                Customer defaultCustomer = new Customer(nextCustomerId, "Khách hàng không xác định", "0000000000");
-                customers.add(defaultCustomer);
-                booking.setCustomer(defaultCustomer);
-                hasChanges = true;
+                    Customer defaultCustomer = new Customer(nextCustomerId, "Khách hàng không xác định", "0000000000");
+                    customers.add(defaultCustomer);
+                    booking.setCustomer(defaultCustomer);
+                    hasChanges = true;
                 
-                DebugUtil.debugPrint("🔧 Fixed booking #" + booking.getBookingId() + " with default customer");
+                    DebugUtil.debugPrint("🔧 Fixed booking #" + booking.getBookingId() + " with default customer");
+                }
             }
-        }
         
-        if (hasChanges) {
-            bookingFileService.writeBookingsToFile(bookings);
-            customerFileService.writeCustomersToFile(customers);
-            DebugUtil.debugPrint("✅ Fixed " + bookings.stream().filter(b -> b.getCustomer() != null).count() + " bookings");
-        } else {
-            DebugUtil.debugPrint("✅ No bookings need fixing");
+            if (hasChanges) {
+                bookingFileService.writeBookingsToFile(bookings);
+                customerFileService.writeCustomersToFile(customers);
+                DebugUtil.debugPrint("✅ Fixed " + bookings.stream().filter(b -> b.getCustomer() != null).count() + " bookings");
+            } else {
+                DebugUtil.debugPrint("✅ No bookings need fixing");
+            }
         }
     }
     
     /**
      * Delete a booking permanently
      */
+    @SuppressWarnings("try")
     public boolean deleteBooking(int bookingId) {
-        List<Booking> bookings = bookingFileService.readBookingsFromFile();
-        List<Table> tables = tableService.getAllTables();
-        Booking booking = findBookingById(bookingId, bookings);
-        if (booking != null) {
-            // Ánh xạ lại Table nếu đang null
-            if (booking.getTable() == null && booking.getTableId() > 0) {
-                Table table = tables.stream()
-                    .filter(t -> t.getTableId() == booking.getTableId())
-                    .findFirst().orElse(null);
-                booking.setTable(table);
-            }
-            // Ánh xạ lại Customer nếu đang null
-            if (booking.getCustomer() == null && booking.getCustomerId() > 0) {
-                List<Customer> customers = customerFileService.readCustomersFromFile();
-                Customer customer = customers.stream()
-                    .filter(c -> c.getCustomerId() == booking.getCustomerId())
-                    .findFirst().orElse(null);
-                booking.setCustomer(customer);
-            }
-            // Update table status if booking was confirmed
-            if (booking.getStatus().equals("CONFIRMED")) {
-                Table table = booking.getTable();
-                if (table != null) {
-                    table.setStatus(TableStatus.AVAILABLE);
-                    updateTableInList(tables, table);
-                    tableService.writeTablesToFile(tables);
+        try (DataTransaction tx = DataTransaction.begin(write(BOOKINGS), read(CUSTOMERS), write(TABLES))) {
+            List<Booking> bookings = bookingFileService.readBookingsFromFile();
+            List<Table> tables = tableService.getAllTables();
+            Booking booking = findBookingById(bookingId, bookings);
+            if (booking != null) {
+                // Ánh xạ lại Table nếu đang null
+                if (booking.getTable() == null && booking.getTableId() > 0) {
+                    Table table = tables.stream()
+                        .filter(t -> t.getTableId() == booking.getTableId())
+                        .findFirst().orElse(null);
+                    booking.setTable(table);
+                }
+                // Ánh xạ lại Customer nếu đang null
+                if (booking.getCustomer() == null && booking.getCustomerId() > 0) {
+                    List<Customer> customers = customerFileService.readCustomersFromFile();
+                    Customer customer = customers.stream()
+                        .filter(c -> c.getCustomerId() == booking.getCustomerId())
+                        .findFirst().orElse(null);
+                    booking.setCustomer(customer);
+                }
+                // Update table status if booking was confirmed
+                if (booking.getStatus() == BookingStatus.CONFIRMED) {
+                    Table table = booking.getTable();
+                    if (table != null) {
+                        table.setStatus(TableStatus.AVAILABLE);
+                        updateTableInList(tables, table);
+                        tableService.writeTablesToFile(tables);
+                    }
                 }
+                // Remove booking
+                bookings.remove(booking);
+                bookingFileService.writeBookingsToFile(bookings);
+                return true;
             }
-            // Remove booking
-            bookings.remove(booking);
-            bookingFileService.writeBookingsToFile(bookings);
-            return true;
+            return false;
         }
-        return false;
     }
     
+    @SuppressWarnings("try")
     public boolean updateBooking(int id, String guestsStr, String timeStr) {
-        List<Booking> bookings = bookingFileService.readBookingsFromFile();
-        Booking booking = null;
-        for (Booking b : bookings) if (b.getBookingId() == id) booking = b;
-        if (booking == null) return false;
-        if (guestsStr != null && !guestsStr.isEmpty()) {
-            try { booking.setNumberOfGuests(Integer.parseInt(guestsStr)); } catch (Exception e) { return false; }
-        }
-        if (timeStr != null && !timeStr.isEmpty()) {
-            try {
-                java.time.LocalDateTime newTime = java.time.LocalDateTime.parse(timeStr, java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-                booking.setBookingTime(newTime);
-            } catch (Exception e) { return false; }
+        try (DataTransaction tx = DataTransaction.begin(write(BOOKINGS), read(CUSTOMERS), read(TABLES))) {
+            List<Booking> bookings = bookingFileService.readBookingsFromFile();
+            Booking booking = null;
+            for (Booking b : bookings) if (b.getBookingId() == id) booking = b;
+            if (booking == null) return false;
+            if (guestsStr != null && !guestsStr.isEmpty()) {
+                try { booking.setNumberOfGuests(Integer.parseInt(guestsStr)); } catch (Exception e) { return false; }
+            }
+            if (timeStr != null && !timeStr.isEmpty()) {
+                try {
+                    java.time.LocalDateTime newTime = java.time.LocalDateTime.parse(timeStr, java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+                    booking.setBookingTime(newTime);
+                } catch (Exception e) { return false; }
+            }
+            for (int i = 0; i < bookings.size(); i++) if (bookings.get(i).getBookingId() == id) bookings.set(i, booking);
+            bookingFileService.writeBookingsToFile(bookings);
+            return true;
         }
-        for (int i = 0; i < bookings.size(); i++) if (bookings.get(i).getBookingId() == id) bookings.set(i, booking);
-        bookingFileService.writeBookingsToFile(bookings);
-        return true;
     }
     
     /**
      * Tạo booking từ BookingRequest DTO (refactor cho controller mỏng)
      */
+    @SuppressWarnings("try")
     public Booking createBooking(BookingRequest req) {
-        List<Table> tables = tableService.getAllTables();
-        List<Booking> bookings = bookingFileService.readBookingsFromFile();
+        // Chế độ actor: BatchedWriter tự mở transaction khi ghi, giữ ở đây sẽ chặn writer
+        try (DataTransaction tx = tableActors == null ? DataTransaction.begin(write(BOOKINGS), write(CUSTOMERS), write(TABLES)) : null) {
+            List<Table> tables = tableService.getAllTables();
+            List<Booking> bookings = bookingFileService.readBookingsFromFile();
 
-        // Lưu thông tin khách hàng vào customers.json và lấy customer đã được lưu
-        Customer customer = new Customer(0, req.getName(), req.getPhone(), req.getEmail(), "user", "");
-        Customer savedCustomer = saveCustomerToFile(customer);
+            // Lưu thông tin khách hàng vào customers.json và lấy customer đã được lưu
+            Customer customer = new Customer(0, req.getName(), req.getPhone(), req.getEmail(), "user", "");
+            Customer savedCustomer = saveCustomerToFile(customer);
 
-        // Đọc lại customers từ file để đảm bảo đồng bộ
-        List<Customer> customers = customerFileService.readCustomersFromFile();
-        Customer realCustomer = customers.stream()
-            .filter(c -> c.getPhone().equals(savedCustomer.getPhone()))
-            .findFirst()
-            .orElse(savedCustomer);
+            // Đọc lại customers từ file để đảm bảo đồng bộ
+            List<Customer> customers = customerFileService.readCustomersFromFile();
+            Customer realCustomer = customers.stream()
+                .filter(c -> c.getPhone().equals(savedCustomer.getPhone()))
+                .findFirst()
+                .orElse(savedCustomer);
 
-        Table availableTable = tableService.findAvailableTable(req.getGuests());
-        if (availableTable == null) {
-            return null; // Không có bàn phù hợp
-        }
+            if (tableActors != null) {
+                return tableActors.reserve(() -> tableService.getAvailableTablesForCapacity(req.getGuests()),
+                        realCustomer, req.getBookingTime(), req.getGuests(), this::allocateBookingId);
+            }
 
-        // Kiểm tra xem bàn có bị đặt trùng thời gian không
-        if (isTableBookedAtTime(availableTable, req.getBookingTime(), bookings)) {
-            return null; // Bàn đã được đặt vào thời gian này
-        }
+            Table availableTable = tableService.findAvailableTable(req.getGuests());
+            if (availableTable == null) {
+                return null; // Không có bàn phù hợp
+            }
 
-        // Tạo booking mới với customer đã được lưu
-        Booking booking = new Booking(nextBookingId++, realCustomer, availableTable, req.getBookingTime(), req.getGuests());
+            // Kiểm tra xem bàn có bị đặt trùng thời gian không
+            if (isTableBookedAtTime(availableTable, req.getBookingTime(), bookings)) {
+                return null; // Bàn đã được đặt vào thời gian này
+            }
 
-        // Cập nhật trạng thái bàn
-        availableTable.setStatus(TableStatus.RESERVED);
+            // Tạo booking mới với customer đã được lưu
+            syncNextBookingId(bookings);
+            Booking booking = new Booking(nextBookingId.getAndIncrement(), realCustomer, availableTable, req.getBookingTime(), req.getGuests());
 
-        // Cập nhật danh sách bàn
-        updateTableInList(tables, availableTable);
-        tableService.writeTablesToFile(tables);
+            // Cập nhật trạng thái bàn
+            availableTable.setStatus(TableStatus.RESERVED);
 
-        // Thêm booking mới vào danh sách
-        bookings.add(booking);
-        bookingFileService.writeBookingsToFile(bookings);
+            // Cập nhật danh sách bàn
+            updateTableInList(tables, availableTable);
+            tableService.writeTablesToFile(tables);
 
-        // Cập nhật activeBookingIds cho customer
-        realCustomer.addBookingId(booking.getBookingId());
-        updateCustomerInList(customers, realCustomer);
-        customerFileService.writeCustomersToFile(customers);
+            // Thêm booking mới vào danh sách
+            bookings.add(booking);
+            bookingFileService.writeBookingsToFile(bookings);
 
-        return booking;
+            // Cập nhật activeBookingIds cho customer
+            realCustomer.addBookingId(booking.getBookingId());
+            updateCustomerInList(customers, realCustomer);
+            customerFileService.writeCustomersToFile(customers);
+
+            return booking;
+        }
     }
 } 
\ No newline at end of file
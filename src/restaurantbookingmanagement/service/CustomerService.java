@@ -2,6 +2,12 @@ package restaurantbookingmanagement.service;
 
 import restaurantbookingmanagement.model.*;
 import restaurantbookingmanagement.service.fileservice.CustomerFileService;
+import restaurantbookingmanagement.service.fileservice.DataTransaction;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.read;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.write;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.BOOKINGS;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.CUSTOMERS;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.TABLES;
 import restaurantbookingmanagement.service.validator.BookingValidator;
 import restaurantbookingmanagement.service.validator.CustomerValidator;
 import restaurantbookingmanagement.service.search.CustomerSearchService;
@@ -39,36 +45,42 @@ public class CustomerService {
     /**
      * Tạo khách hàng mới
      */
+    @SuppressWarnings("try")
     public Customer createCustomer(String name, String phone, String email) {
-        List<Customer> customers = customerFileService.readCustomersFromFile();
-        if (!CustomerValidator.isValid(new Customer(0, name, phone))) return null;
-        boolean customerExists = customers.stream().anyMatch(c -> c.getPhone().equals(phone));
-        if (customerExists) {
-            return customers.stream().filter(c -> c.getPhone().equals(phone)).findFirst().orElse(null);
+        try (DataTransaction tx = DataTransaction.begin(write(CUSTOMERS))) {
+            List<Customer> customers = customerFileService.readCustomersFromFile();
+            if (!CustomerValidator.isValid(new Customer(0, name, phone))) return null;
+            boolean customerExists = customers.stream().anyMatch(c -> c.getPhone().equals(phone));
+            if (customerExists) {
+                return customers.stream().filter(c -> c.getPhone().equals(phone)).findFirst().orElse(null);
+            }
+            int nextCustomerId = customers.stream().mapToInt(Customer::getCustomerId).max().orElse(0) + 1;
+            Customer newCustomer = new Customer(nextCustomerId, name, phone);
+            if (email != null && !email.isEmpty()) newCustomer.setEmail(email);
+            customers.add(newCustomer);
+            customerFileService.writeCustomersToFile(customers);
+            return newCustomer;
         }
-        int nextCustomerId = customers.stream().mapToInt(Customer::getCustomerId).max().orElse(0) + 1;
-        Customer newCustomer = new Customer(nextCustomerId, name, phone);
-        if (email != null && !email.isEmpty()) newCustomer.setEmail(email);
-        customers.add(newCustomer);
-        customerFileService.writeCustomersToFile(customers);
-        return newCustomer;
     }
     
     /**
      * Tạo khách hàng mới với đầy đủ thông tin (role, password, ...)
      */
+    @SuppressWarnings("try")
     public Customer createCustomer(Customer customer) {
-        List<Customer> customers = customerFileService.readCustomersFromFile();
-        if (!CustomerValidator.isValid(customer)) return null;
-        boolean exists = customers.stream().anyMatch(c -> c.getPhone().equals(customer.getPhone()));
-        if (exists) {
-            return customers.stream().filter(c -> c.getPhone().equals(customer.getPhone())).findFirst().orElse(null);
+        try (DataTransaction tx = DataTransaction.begin(write(CUSTOMERS))) {
+            List<Customer> customers = customerFileService.readCustomersFromFile();
+            if (!CustomerValidator.isValid(customer)) return null;
+            boolean exists = customers.stream().anyMatch(c -> c.getPhone().equals(customer.getPhone()));
+            if (exists) {
+                return customers.stream().filter(c -> c.getPhone().equals(customer.getPhone())).findFirst().orElse(null);
+            }
+            int nextCustomerId = customers.stream().mapToInt(Customer::getCustomerId).max().orElse(0) + 1;
+            customer.setCustomerId(nextCustomerId);
+            customers.add(customer);
+            customerFileService.writeCustomersToFile(customers);
+            return customer;
         }
-        int nextCustomerId = customers.stream().mapToInt(Customer::getCustomerId).max().orElse(0) + 1;
-        customer.setCustomerId(nextCustomerId);
-        customers.add(customer);
-        customerFileService.writeCustomersToFile(customers);
-        return customer;
     }
     
     /**
@@ -110,19 +122,22 @@ public class CustomerService {
     /**
      * Cập nhật thông tin khách hàng theo ID
      */
+    @SuppressWarnings("try")
     public boolean updateCustomer(int customerId, String name, String phone, String email) {
-        List<Customer> customers = customerFileService.readCustomersFromFile();
-        for (int i = 0; i < customers.size(); i++) {
-            if (customers.get(i).getCustomerId() == customerId) {
-                Customer updatedCustomer = new Customer(customerId, name, phone);
-                if (email != null && !email.isEmpty()) updatedCustomer.setEmail(email);
-                if (!CustomerValidator.isValid(updatedCustomer)) return false;
-                customers.set(i, updatedCustomer);
-                customerFileService.writeCustomersToFile(customers);
-                return true;
+        try (DataTransaction tx = DataTransaction.begin(write(CUSTOMERS))) {
+            List<Customer> customers = customerFileService.readCustomersFromFile();
+            for (int i = 0; i < customers.size(); i++) {
+                if (customers.get(i).getCustomerId() == customerId) {
+                    Customer updatedCustomer = new Customer(customerId, name, phone);
+                    if (email != null && !email.isEmpty()) updatedCustomer.setEmail(email);
+                    if (!CustomerValidator.isValid(updatedCustomer)) return false;
+                    customers.set(i, updatedCustomer);
+                    customerFileService.writeCustomersToFile(customers);
+                    return true;
+                }
             }
+            return false;
         }
-        return false;
     }
 
 
@@ -130,19 +145,22 @@ public class CustomerService {
     /**
      * Xóa khách hàng (chỉ khi không có booking nào)
      */
+    @SuppressWarnings("try")
     public boolean deleteCustomer(int customerId) {
-        List<Booking> customerBookings = bookingService.getAllBookings().stream()
-                .filter(b -> b.getCustomer().getCustomerId() == customerId)
-                .collect(Collectors.toList());
+        try (DataTransaction tx = DataTransaction.begin(read(BOOKINGS), write(CUSTOMERS), read(TABLES))) {
+            List<Booking> customerBookings = bookingService.getAllBookings().stream()
+                    .filter(b -> b.getCustomerId() == customerId)
+                    .collect(Collectors.toList());
         
-        if (!customerBookings.isEmpty()) {
-            return false; // Không thể xóa vì có booking
-        }
+            if (!customerBookings.isEmpty()) {
+                return false; // Không thể xóa vì có booking
+            }
         
-        List<Customer> customers = customerFileService.readCustomersFromFile();
-        customers.removeIf(c -> c.getCustomerId() == customerId);
-        customerFileService.writeCustomersToFile(customers);
-        return true;
+            List<Customer> customers = customerFileService.readCustomersFromFile();
+            customers.removeIf(c -> c.getCustomerId() == customerId);
+            customerFileService.writeCustomersToFile(customers);
+            return true;
+        }
     }
     
     /**
@@ -154,9 +172,7 @@ public class CustomerService {
             return null;
         }
         
-        List<Booking> customerBookings = bookingService.getAllBookings().stream()
-                .filter(b -> b.getCustomer().getCustomerId() == customerId)
-                .collect(Collectors.toList());
+        List<Booking> customerBookings = bookingService.getBookingHistory(customerId);
         
         return new CustomerInfo(customer, customerBookings);
     }
@@ -203,10 +219,10 @@ public class CustomerService {
             
             for (Booking booking : bookings) {
                 String statusIcon = getStatusIcon(booking.getStatus());
-                String statusText = getStatusText(booking.getStatus());
+                String statusText = booking.getStatus().getDescription();
                 
                 System.out.println("   " + statusIcon + " Booking #" + booking.getBookingId());
-                System.out.println("      • Bàn: #" + booking.getTable().getTableId());
+                System.out.println("      • Bàn: #" + booking.getTableId());
                 System.out.println("      • Số người: " + booking.getNumberOfGuests());
                 System.out.println("      • Thời gian: " + booking.getBookingTime().format(formatter));
                 System.out.println("      • Trạng thái: " + statusText);
@@ -215,9 +231,9 @@ public class CustomerService {
         }
         
         // Thống kê
-        long confirmedCount = bookings.stream().filter(b -> "CONFIRMED".equals(b.getStatus())).count();
-        long cancelledCount = bookings.stream().filter(b -> "CANCELLED".equals(b.getStatus())).count();
-        long completedCount = bookings.stream().filter(b -> "COMPLETED".equals(b.getStatus())).count();
+        long confirmedCount = bookings.stream().filter(b -> b.getStatus() == BookingStatus.CONFIRMED).count();
+        long cancelledCount = bookings.stream().filter(b -> b.getStatus() == BookingStatus.CANCELLED).count();
+        long completedCount = bookings.stream().filter(b -> b.getStatus() == BookingStatus.COMPLETED).count();
         
         System.out.println("📊 Thống kê:");
         System.out.println("   • Đã xác nhận: " + confirmedCount);
@@ -237,27 +253,15 @@ public class CustomerService {
     /**
      * Lấy icon cho trạng thái booking
      */
-    private String getStatusIcon(String status) {
+    private String getStatusIcon(BookingStatus status) {
         switch (status) {
-            case "CONFIRMED": return "✅";
-            case "CANCELLED": return "❌";
-            case "COMPLETED": return "🎉";
+            case CONFIRMED: return "✅";
+            case CANCELLED: return "❌";
+            case COMPLETED: return "🎉";
             default: return "❓";
         }
     }
     
-    /**
-     * Lấy text cho trạng thái booking
-     */
-    private String getStatusText(String status) {
-        switch (status) {
-            case "CONFIRMED": return "Đã xác nhận";
-            case "CANCELLED": return "Đã hủy";
-            case "COMPLETED": return "Đã hoàn thành";
-            default: return "Không xác định";
-        }
-    }
-    
     /**
      * Tìm kiếm khách hàng theo tên hoặc số điện thoại
      */
@@ -280,7 +284,7 @@ public class CustomerService {
             for (Customer customer : customers) {
                 CustomerInfo customerInfo = getCustomerInfo(customer.getCustomerId());
                 long activeBookings = customerInfo.getBookings().stream()
-                        .filter(b -> "CONFIRMED".equals(b.getStatus()))
+                        .filter(b -> b.getStatus() == BookingStatus.CONFIRMED)
                         .count();
                 
                 System.out.println("👤 #" + customer.getCustomerId() + " - " + customer.getName());
@@ -305,61 +309,70 @@ public class CustomerService {
     /**
      * Cập nhật thông tin khách hàng theo số điện thoại
      */
+    @SuppressWarnings("try")
     public boolean updateCustomer(String phone, String newName, String newPhone, String newEmail) {
-        List<Customer> customers = customerFileService.readCustomersFromFile();
+        try (DataTransaction tx = DataTransaction.begin(write(CUSTOMERS))) {
+            List<Customer> customers = customerFileService.readCustomersFromFile();
         
-        for (int i = 0; i < customers.size(); i++) {
-            if (customers.get(i).getPhone().equals(phone)) {
-                Customer customer = customers.get(i);
-                if (newName != null && !newName.isEmpty()) {
-                    customer.setName(newName);
-                }
-                if (newPhone != null && !newPhone.isEmpty()) {
-                    customer.setPhone(newPhone);
+            for (int i = 0; i < customers.size(); i++) {
+                if (customers.get(i).getPhone().equals(phone)) {
+                    Customer customer = customers.get(i);
+                    if (newName != null && !newName.isEmpty()) {
+                        customer.setName(newName);
+                    }
+                    if (newPhone != null && !newPhone.isEmpty()) {
+                        customer.setPhone(newPhone);
+                    }
+                    if (newEmail != null && !newEmail.isEmpty()) {
+                        customer.setEmail(newEmail);
+                    }
+                    customers.set(i, customer);
+                    customerFileService.writeCustomersToFile(customers);
+                    return true;
                 }
-                if (newEmail != null && !newEmail.isEmpty()) {
-                    customer.setEmail(newEmail);
-                }
-                customers.set(i, customer);
-                customerFileService.writeCustomersToFile(customers);
-                return true;
             }
+            return false;
         }
-        return false;
     }
     
     /**
      * Xóa khách hàng theo số điện thoại
      */
+    @SuppressWarnings("try")
     public boolean deleteCustomer(String phone) {
-        List<Customer> customers = customerFileService.readCustomersFromFile();
+        try (DataTransaction tx = DataTransaction.begin(write(CUSTOMERS))) {
+            List<Customer> customers = customerFileService.readCustomersFromFile();
         
-        for (int i = 0; i < customers.size(); i++) {
-            if (customers.get(i).getPhone().equals(phone)) {
-                customers.remove(i);
-                customerFileService.writeCustomersToFile(customers);
-                return true;
+            for (int i = 0; i < customers.size(); i++) {
+                if (customers.get(i).getPhone().equals(phone)) {
+                    customers.remove(i);
+                    customerFileService.writeCustomersToFile(customers);
+                    return true;
+                }
             }
+            return false;
         }
-        return false;
     }
 
     /**
      * Tạo khách hàng mới nếu chưa tồn tại (theo tên, email, số điện thoại)
      * Trả về true nếu tạo thành công, false nếu trùng lặp
      */
+    @SuppressWarnings("try")
     public boolean createCustomerIfNotExists(Customer customer) {
-        List<Customer> customers = customerFileService.readCustomersFromFile();
-        boolean exists = customers.stream().anyMatch(c ->
-            c.getPhone().equals(customer.getPhone()) ||
-            c.getName().equalsIgnoreCase(customer.getName()) ||
-            (customer.getEmail() != null && !customer.getEmail().isEmpty() && c.getEmail() != null && c.getEmail().equalsIgnoreCase(customer.getEmail()))
-        );
-        if (exists) return false;
-        int nextCustomerId = customers.stream().mapToInt(Customer::getCustomerId).max().orElse(0) + 1;
-        customer.setCustomerId(nextCustomerId);
-        customers.add(customer);
-        customerFileService.writeCustomersToFile(customers);
-        return true;
+        try (DataTransaction tx = DataTransaction.begin(write(CUSTOMERS))) {
+            List<Customer> customers = customerFileService.readCustomersFromFile();
+            boolean exists = customers.stream().anyMatch(c ->
+                c.getPhone().equals(customer.getPhone()) ||
+                c.getName().equalsIgnoreCase(customer.getName()) ||
+                (customer.getEmail() != null && !customer.getEmail().isEmpty() && c.getEmail() != null && c.getEmail().equalsIgnoreCase(customer.getEmail()))
+            );
+            if (exists) return false;
+            int nextCustomerId = customers.stream().mapToInt(Customer::getCustomerId).max().orElse(0) + 1;
+            customer.setCustomerId(nextCustomerId);
+            customers.add(customer);
+            customerFileService.writeCustomersToFile(customers);
+            return true;
+        }
     }
 } 
\ No newline at end of file
@@ -3,6 +3,9 @@ package restaurantbookingmanagement.service;
 import restaurantbookingmanagement.model.MenuItem;
 import java.util.List;
 import java.util.ArrayList;
+import restaurantbookingmanagement.service.fileservice.DataTransaction;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.write;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.MENU;
 import restaurantbookingmanagement.service.fileservice.MenuItemFileService;
 
 public class MenuService {
@@ -30,52 +33,61 @@ public class MenuService {
                 .orElse(null);
     }
 
+    @SuppressWarnings("try")
     public MenuItem addMenuItem(String name, double price, String description) {
-        List<MenuItem> menuItems = menuItemFileService.readMenuItemsFromFile();
-        int nextItemId = menuItems.stream()
-                .mapToInt(MenuItem::getItemId)
-                .max()
-                .orElse(0) + 1;
-        MenuItem newItem = new MenuItem(nextItemId, name, price, description);
-        menuItems.add(newItem);
-        menuItemFileService.writeMenuItemsToFile(menuItems);
-        return newItem;
+        try (DataTransaction tx = DataTransaction.begin(write(MENU))) {
+            List<MenuItem> menuItems = menuItemFileService.readMenuItemsFromFile();
+            int nextItemId = menuItems.stream()
+                    .mapToInt(MenuItem::getItemId)
+                    .max()
+                    .orElse(0) + 1;
+            MenuItem newItem = new MenuItem(nextItemId, name, price, description);
+            menuItems.add(newItem);
+            menuItemFileService.writeMenuItemsToFile(menuItems);
+            return newItem;
+        }
     }
 
+    @SuppressWarnings("try")
     public boolean deleteMenuItem(int itemId) {
-        List<MenuItem> menuItems = menuItemFileService.readMenuItemsFromFile();
-        MenuItem itemToDelete = menuItems.stream()
-                .filter(item -> item.getItemId() == itemId)
-                .findFirst()
-                .orElse(null);
-        if (itemToDelete != null) {
-            menuItems.remove(itemToDelete);
-            menuItemFileService.writeMenuItemsToFile(menuItems);
-            return true;
+        try (DataTransaction tx = DataTransaction.begin(write(MENU))) {
+            List<MenuItem> menuItems = menuItemFileService.readMenuItemsFromFile();
+            MenuItem itemToDelete = menuItems.stream()
+                    .filter(item -> item.getItemId() == itemId)
+                    .findFirst()
+                    .orElse(null);
+            if (itemToDelete != null) {
+                menuItems.remove(itemToDelete);
+                menuItemFileService.writeMenuItemsToFile(menuItems);
+                return true;
+            }
+            return false;
         }
-        return false;
     }
 
+    @SuppressWarnings("try")
     public boolean updateMenuItem(int id, String newName, String priceStr, String newDesc) {
-        List<MenuItem> items = menuItemFileService.readMenuItemsFromFile();
-        MenuItem item = null;
-        for (MenuItem mi : items) {
-            if (mi.getItemId() == id) {
-                item = mi;
-                break;
+        try (DataTransaction tx = DataTransaction.begin(write(MENU))) {
+            List<MenuItem> items = menuItemFileService.readMenuItemsFromFile();
+            MenuItem item = null;
+            for (MenuItem mi : items) {
+                if (mi.getItemId() == id) {
+                    item = mi;
+                    break;
+                }
             }
-        }
-        if (item == null) return false;
-        if (newName != null && !newName.isEmpty()) item.setName(newName);
-        if (priceStr != null && !priceStr.isEmpty()) {
-            try {
-                item.setPrice(Double.parseDouble(priceStr));
-            } catch (Exception e) {
-                return false;
+            if (item == null) return false;
+            if (newName != null && !newName.isEmpty()) item.setName(newName);
+            if (priceStr != null && !priceStr.isEmpty()) {
+                try {
+                    item.setPrice(Double.parseDouble(priceStr));
+                } catch (Exception e) {
+                    return false;
+                }
             }
+            if (newDesc != null && !newDesc.isEmpty()) item.setDescription(newDesc);
+            menuItemFileService.writeMenuItemsToFile(items);
+            return true;
         }
-        if (newDesc != null && !newDesc.isEmpty()) item.setDescription(newDesc);
-        menuItemFileService.writeMenuItemsToFile(items);
-        return true;
     }
 } 
\ No newline at end of file
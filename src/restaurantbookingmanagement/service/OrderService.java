@@ -1,12 +1,20 @@
 package restaurantbookingmanagement.service;
 
 import restaurantbookingmanagement.model.*;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import restaurantbookingmanagement.service.actor.TableActorSystem;
+import restaurantbookingmanagement.service.fileservice.DataTransaction;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.read;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.write;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.MENU;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.ORDERS;
 import restaurantbookingmanagement.service.fileservice.MenuItemFileService;
 import restaurantbookingmanagement.service.fileservice.OrderFileService;
 import restaurantbookingmanagement.view.dto.OrderRequest;
 import java.util.ArrayList;
+import restaurantbookingmanagement.utils.IntHashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service xử lý logic nghiệp vụ đơn hàng
@@ -19,7 +27,8 @@ public class OrderService {
     private final OrderFileService orderFileService;
     private final BookingService bookingService;
     private final TableService tableService;
-    private int nextOrderId;
+    private final AtomicInteger nextOrderId;
+    private TableActorSystem tableActors;
     
     public OrderService(MenuService menuService, BookingService bookingService, TableService tableService) {
         this.menuItemFileService = new MenuItemFileService();
@@ -27,49 +36,66 @@ public class OrderService {
         this.orderFileService = new OrderFileService();
         this.bookingService = bookingService;
         this.tableService = tableService;
-        this.nextOrderId = 1;
+        this.nextOrderId = new AtomicInteger(1);
         
         // Tính toán nextOrderId từ dữ liệu hiện tại
         calculateNextOrderId();
     }
     
     private void calculateNextOrderId() {
-        List<Order> existingOrders = orderFileService.readOrdersFromFile();
-        if (!existingOrders.isEmpty()) {
-            this.nextOrderId = existingOrders.stream()
-                    .mapToInt(Order::getOrderId)
-                    .max()
-                    .orElse(0) + 1;
-        }
+        syncNextOrderId(orderFileService.readOrdersFromFile());
+    }
+    
+    /**
+     * Đẩy nextOrderId lên sau id lớn nhất trên đĩa (gọi trong transaction trước khi cấp id):
+     * tiến trình khác dùng chung data/ có thể đã cấp id mới kể từ lần tính trước
+     */
+    private void syncNextOrderId(List<Order> orders) {
+        // Tính cả order đã lưu trữ để id mới không trùng với lịch sử
+        int maxId = Math.max(orderFileService.getMaxArchivedOrderId(),
+                orders.stream()
+                        .mapToInt(Order::getOrderId)
+                        .max()
+                        .orElse(0));
+        this.nextOrderId.accumulateAndGet(maxId + 1, Math::max);
+    }
+    
+    /**
+     * Cấp id order mới cho chế độ actor, từ danh sách order writer vừa đọc lại trong transaction
+     */
+    private int allocateOrderId(List<Order> orders) {
+        syncNextOrderId(orders);
+        return nextOrderId.getAndIncrement();
+    }
+    
+    /**
+     * Bật chế độ actor-per-table: order của mỗi bàn được cập nhật tuần tự trên actor của bàn
+     */
+    public void setTableActorSystem(TableActorSystem tableActors) {
+        this.tableActors = tableActors;
     }
     
+    @SuppressWarnings("try")
     public Order createOrder(Booking booking) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        Order order = new Order(nextOrderId++, booking);
+        try (DataTransaction tx = DataTransaction.begin(write(ORDERS))) {
+            List<Order> orders = orderFileService.readOrdersFromFile();
+            syncNextOrderId(orders);
+            Order order = new Order(nextOrderId.getAndIncrement(), booking);
         
-        orders.add(order);
-        orderFileService.writeOrdersToFile(orders);
-        return order;
+            orders.add(order);
+            orderFileService.writeOrdersToFile(orders);
+            return order;
+        }
     }
     
     /**
      * Lấy order hiện có cho booking (chỉ trả về order chưa hoàn thành, không tạo mới)
      */
     public Order getOrderForBooking(Booking booking) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        // Ánh xạ lại booking cho tất cả order nếu bị null
-        for (Order order : orders) {
-            if (order.getBooking() == null && order.getBookingId() > 0) {
-                Booking b = bookingService.findBookingById(order.getBookingId());
-                order.setBooking(b);
-            }
-        }
-        Order foundOrder = orders.stream()
-                .filter(order -> order.getBooking() != null && order.getBooking().getBookingId() == booking.getBookingId() && 
-                               !order.getStatus().equals("COMPLETED"))
-                .findFirst()
-                .orElse(null);
+        Order foundOrder = orderFileService.findOrder(order -> order.getBookingId() == booking.getBookingId() &&
+                               order.getStatus().isOpen());
         if (foundOrder != null) {
+            foundOrder.setBooking(booking);
             // Đảm bảo mọi OrderItem đều có MenuItem
             List<Order> singleOrderList = new ArrayList<>();
             singleOrderList.add(foundOrder);
@@ -82,11 +108,8 @@ public class OrderService {
      * Tính bill cho booking cụ thể
      */
     public double calculateBillForBooking(int bookingId) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        
-        return orders.stream()
-                .filter(order -> order.getBooking().getBookingId() == bookingId && 
-                               !order.getStatus().equals("COMPLETED"))
+        return orderFileService.readOrdersMatching(order -> order.getBookingId() == bookingId &&
+                               order.getStatus().isOpen()).stream()
                 .mapToDouble(Order::getTotalAmount)
                 .sum();
     }
@@ -95,85 +118,105 @@ public class OrderService {
      * Lấy tất cả orders cho booking cụ thể
      */
     public List<Order> getOrdersForBooking(int bookingId) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
+        List<Order> orders = orderFileService.readOrdersMatching(order -> order.getBookingId() == bookingId);
         updateOrderItemsWithMenuItems(orders);
-        return orders.stream()
-                .filter(order -> order.getBooking().getBookingId() == bookingId)
-                .collect(Collectors.toList());
+        return orders;
     }
     
     /**
      * Hoàn thành order (thanh toán)
      */
+    @SuppressWarnings("try")
     public boolean completeOrder(int orderId) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        Order order = findOrderById(orderId, orders);
-        if (order != null) {
-            order.setStatus("COMPLETED");
-            orderFileService.writeOrdersToFile(orders);
-            return true;
+        if (tableActors != null) {
+            return updateOrderStatus(orderId, OrderStatus.COMPLETED);
+        }
+        try (DataTransaction tx = DataTransaction.begin(write(ORDERS))) {
+            List<Order> orders = orderFileService.readOrdersFromFile();
+            Order order = findOrderById(orderId, orders);
+            if (order != null && order.getStatus().canTransitionTo(OrderStatus.COMPLETED)) {
+                order.transitionTo(OrderStatus.COMPLETED);
+                orderFileService.writeOrdersToFile(orders);
+                return true;
+            }
+            return false;
         }
-        return false;
     }
     
+    @SuppressWarnings("try")
     public boolean addItemToOrder(int orderId, String itemName, int quantity) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        Order order = findOrderById(orderId, orders);
-        if (order == null) {
-            return false;
-        }
-        MenuItem item = menuService.findMenuItemByName(itemName);
-        if (item == null) {
-            return false;
+        try (DataTransaction tx = DataTransaction.begin(read(MENU), write(ORDERS))) {
+            List<Order> orders = orderFileService.readOrdersFromFile();
+            Order order = findOrderById(orderId, orders);
+            if (order == null) {
+                return false;
+            }
+            MenuItem item = menuService.findMenuItemByName(itemName);
+            if (item == null) {
+                return false;
+            }
+            order.addItem(item.getItemId(), quantity);
+            orderFileService.writeOrdersToFile(orders);
+            return true;
         }
-        order.addItem(item.getItemId(), quantity);
-        orderFileService.writeOrdersToFile(orders);
-        return true;
     }
     
+    @SuppressWarnings("try")
     public boolean addItemToOrder(int orderId, int itemId, int quantity) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        Order order = findOrderById(orderId, orders);
-        if (order == null) {
-            return false;
-        }
-        MenuItem item = menuService.findMenuItemById(itemId);
-        if (item == null) {
-            return false;
+        try (DataTransaction tx = DataTransaction.begin(read(MENU), write(ORDERS))) {
+            List<Order> orders = orderFileService.readOrdersFromFile();
+            Order order = findOrderById(orderId, orders);
+            if (order == null) {
+                return false;
+            }
+            MenuItem item = menuService.findMenuItemById(itemId);
+            if (item == null) {
+                return false;
+            }
+            order.addItem(itemId, quantity);
+            orderFileService.writeOrdersToFile(orders);
+            return true;
         }
-        order.addItem(itemId, quantity);
-        orderFileService.writeOrdersToFile(orders);
-        return true;
     }
     
+    @SuppressWarnings("try")
     public boolean removeItemFromOrder(int orderId, String itemName) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        Order order = findOrderById(orderId, orders);
-        if (order == null) {
-            return false;
-        }
-        MenuItem item = menuService.findMenuItemByName(itemName);
-        if (item == null) {
-            return false;
+        try (DataTransaction tx = DataTransaction.begin(read(MENU), write(ORDERS))) {
+            List<Order> orders = orderFileService.readOrdersFromFile();
+            Order order = findOrderById(orderId, orders);
+            if (order == null) {
+                return false;
+            }
+            MenuItem item = menuService.findMenuItemByName(itemName);
+            if (item == null) {
+                return false;
+            }
+            order.removeItem(item.getItemId());
+            orderFileService.writeOrdersToFile(orders);
+            return true;
         }
-        order.removeItem(item.getItemId());
-        orderFileService.writeOrdersToFile(orders);
-        return true;
     }
     
-    public boolean updateOrderStatus(int orderId, String status) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
-        Order order = findOrderById(orderId, orders);
-        if (order != null) {
-            order.setStatus(status);
-            orderFileService.writeOrdersToFile(orders);
-            return true;
+    @SuppressWarnings("try")
+    public boolean updateOrderStatus(int orderId, OrderStatus status) {
+        if (tableActors != null) {
+            Order order = findOrderById(orderId);
+            return order != null && tableActors.updateOrderStatus(order.getTableId(), orderId, status);
+        }
+        try (DataTransaction tx = DataTransaction.begin(write(ORDERS))) {
+            List<Order> orders = orderFileService.readOrdersFromFile();
+            Order order = findOrderById(orderId, orders);
+            if (order != null && order.getStatus().canTransitionTo(status)) {
+                order.transitionTo(status);
+                orderFileService.writeOrdersToFile(orders);
+                return true;
+            }
+            return false;
         }
-        return false;
     }
     
     public Order findOrderById(int orderId) {
-        return findOrderById(orderId, orderFileService.readOrdersFromFile());
+        return orderFileService.findOrder(order -> order.getOrderId() == orderId);
     }
     
     private Order findOrderById(int orderId, List<Order> orders) {
@@ -198,20 +241,23 @@ public class OrderService {
     }
     
     public List<Order> getOrdersByBooking(Booking booking) {
-        List<Order> orders = orderFileService.readOrdersFromFile();
+        List<Order> orders = orderFileService.readOrdersMatching(order -> order.getBookingId() == booking.getBookingId());
         updateOrderItemsWithMenuItems(orders);
-        return orders.stream()
-                .filter(order -> order.getBooking().getBookingId() == booking.getBookingId())
-                .collect(Collectors.toList());
+        return orders;
     }
     
+    /**
+     * Lấy tất cả order, gồm cả order đã hoàn thành trong archive
+     */
     public List<Order> getAllOrders() {
         List<Order> orders = orderFileService.readOrdersFromFile();
+        orders.addAll(orderFileService.readArchivedOrdersMatching(order -> true));
         // Ánh xạ lại booking, table, menu item như cũ
         for (Order order : orders) {
             if ((order.getBooking() == null || order.getBookingId() > 0) && order.getBookingId() > 0) {
                 Booking booking = bookingService.findBookingById(order.getBookingId());
-                order.setBooking(booking);
+                // Booking đã lưu trữ thì giữ nguyên bookingId của order
+                if (booking != null) order.setBooking(booking);
             }
             if (order.getTable() == null && order.getTableId() > 0) {
                 Table table = tableService.getAllTables().stream()
@@ -231,24 +277,50 @@ public class OrderService {
         return orders;
     }
     
-    public List<Order> getOrdersByStatus(String status) {
-        return orderFileService.readOrdersFromFile().stream()
-                .filter(order -> order.getStatus().equals(status))
-                .collect(Collectors.toList());
+    public List<Order> getOrdersByStatus(OrderStatus status) {
+        List<Order> orders = orderFileService.readOrdersMatching(order -> order.getStatus() == status);
+        if (!status.isOpen()) {
+            orders.addAll(orderFileService.readArchivedOrdersMatching(order -> order.getStatus() == status));
+        }
+        return orders;
     }
     
     public double getTotalRevenue() {
-        return orderFileService.readOrdersFromFile().stream()
-                .filter(order -> order.getStatus().equals("COMPLETED"))
+        double active = orderFileService.readOrdersMatching(order -> order.getStatus() == OrderStatus.COMPLETED).stream()
                 .mapToDouble(Order::getTotalAmount)
                 .sum();
+        // Order lịch sử tính thẳng trên store ngoài heap, không tạo object
+        return active + orderFileService.getOrderHistory()
+                .sum(c -> c.status() == OrderStatus.COMPLETED ? c.totalAmount() : 0.0);
+    }
+    
+    /**
+     * Lấy các order trong khoảng [from, to): order đang mở chỉ đọc các partition tháng liên quan,
+     * order đã hoàn thành lấy từ archive
+     */
+    public List<Order> getOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        List<Order> orders = orderFileService.readOrdersBetween(from, to, order -> true);
+        orders.addAll(orderFileService.readArchivedOrdersMatching(order -> order.getOrderTime() != null
+                && !order.getOrderTime().isBefore(from) && order.getOrderTime().isBefore(to)));
+        return orders;
+    }
+    
+    /**
+     * Doanh thu của các order đã hoàn thành trong khoảng [from, to)
+     */
+    public double getRevenueBetween(LocalDateTime from, LocalDateTime to) {
+        double active = orderFileService.readOrdersBetween(from, to, order -> order.getStatus() == OrderStatus.COMPLETED).stream()
+                .mapToDouble(Order::getTotalAmount)
+                .sum();
+        return active + orderFileService.getOrderHistory()
+                .sum(c -> c.status() == OrderStatus.COMPLETED && c.isOrderedBetween(from, to) ? c.totalAmount() : 0.0);
     }
     
     /**
      * Thêm món vào order từ OrderRequest DTO (refactor cho controller mỏng)
      */
+    @SuppressWarnings("try")
     public boolean addOrderItem(OrderRequest req, MenuService menuService) {
-        Order order = getOrderForBooking(req.getBooking());
         MenuItem item = null;
         try {
             int id = Integer.parseInt(req.getItemInput());
@@ -257,22 +329,29 @@ public class OrderService {
             item = menuService.findMenuItemByName(req.getItemInput());
         }
         if (item == null) return false;
-        if (order == null) {
-            // Tạo order mới nếu chưa có
-            order = new Order(nextOrderId++, req.getBooking());
-            order.addItem(item.getItemId(), req.getQuantity());
-            List<Order> orders = orderFileService.readOrdersFromFile();
-            orders.add(order);
-            orderFileService.writeOrdersToFile(orders);
-            return true;
+        if (tableActors != null) {
+            return tableActors.addOrderItem(req.getBooking(), item.getItemId(), req.getQuantity(), this::allocateOrderId);
+        }
+        try (DataTransaction tx = DataTransaction.begin(read(MENU), write(ORDERS))) {
+            Order order = getOrderForBooking(req.getBooking());
+            if (order == null) {
+                // Tạo order mới nếu chưa có
+                List<Order> orders = orderFileService.readOrdersFromFile();
+                syncNextOrderId(orders);
+                order = new Order(nextOrderId.getAndIncrement(), req.getBooking());
+                order.addItem(item.getItemId(), req.getQuantity());
+                orders.add(order);
+                orderFileService.writeOrdersToFile(orders);
+                return true;
+            }
+            return addItemToOrder(order.getOrderId(), item.getItemId(), req.getQuantity());
         }
-        return addItemToOrder(order.getOrderId(), item.getItemId(), req.getQuantity());
     }
 
     public List<Order> getOrdersByCustomer(Customer customer) {
         if (customer == null) return new ArrayList<>();
-        List<Integer> userBookingIds = bookingService.getBookingsByCustomer(customer).stream()
-            .map(Booking::getBookingId).toList();
+        IntHashSet userBookingIds = new IntHashSet();
+        bookingService.getBookingHistory(customer.getCustomerId()).forEach(b -> userBookingIds.add(b.getBookingId()));
         return getAllOrders().stream()
             .filter(order -> userBookingIds.contains(order.getBookingId()))
             .toList();
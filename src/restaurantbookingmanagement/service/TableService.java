@@ -5,6 +5,10 @@ import restaurantbookingmanagement.model.TableStatus;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
+import restaurantbookingmanagement.service.actor.TableActorSystem;
+import restaurantbookingmanagement.service.fileservice.DataTransaction;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.write;
+import static restaurantbookingmanagement.service.fileservice.DataTransaction.TABLES;
 import restaurantbookingmanagement.service.fileservice.TableFileService;
 
 // Design Pattern: Dependency Injection, State
@@ -12,17 +16,21 @@ import restaurantbookingmanagement.service.fileservice.TableFileService;
 
 public class TableService {
     private final TableFileService tableFileService;
+    private TableActorSystem tableActors;
 
     public TableService() {
         this.tableFileService = new TableFileService();
     }
 
+    /**
+     * Bật chế độ actor-per-table: thay đổi trạng thái bàn đi qua actor của bàn
+     */
+    public void setTableActorSystem(TableActorSystem tableActors) {
+        this.tableActors = tableActors;
+    }
+
     public List<Table> getAllTables() {
-        List<Table> tables = new ArrayList<>(tableFileService.readTablesFromFile());
-        for (Table table : tables) {
-            table.syncStateWithStatus();
-        }
-        return tables;
+        return new ArrayList<>(tableFileService.readTablesFromFile());
     }
 
     public List<Table> getAvailableTables() {
@@ -44,49 +52,65 @@ public class TableService {
                 .orElse(null);
     }
 
+    @SuppressWarnings("try")
     public Table addTable(int capacity) {
-        List<Table> tables = tableFileService.readTablesFromFile();
-        int nextTableId = tables.stream()
-                .mapToInt(Table::getTableId)
-                .max()
-                .orElse(0) + 1;
-        Table newTable = new Table(nextTableId, capacity);
-        tables.add(newTable);
-        tableFileService.writeTablesToFile(tables);
-        return newTable;
+        try (DataTransaction tx = DataTransaction.begin(write(TABLES))) {
+            List<Table> tables = tableFileService.readTablesFromFile();
+            int nextTableId = tables.stream()
+                    .mapToInt(Table::getTableId)
+                    .max()
+                    .orElse(0) + 1;
+            Table newTable = new Table(nextTableId, capacity);
+            tables.add(newTable);
+            tableFileService.writeTablesToFile(tables);
+            return newTable;
+        }
     }
 
+    @SuppressWarnings("try")
     public boolean updateTable(int id, String newCapacity, String newStatus) {
-        List<Table> tables = tableFileService.readTablesFromFile();
-        Table table = null;
-        for (Table t : tables) if (t.getTableId() == id) table = t;
-        if (table == null) return false;
-        if (newCapacity != null && !newCapacity.isEmpty()) {
-            try { table.setCapacity(Integer.parseInt(newCapacity)); } catch (Exception e) { return false; }
-        }
-        if (newStatus != null && !newStatus.isEmpty()) {
+        if (tableActors != null) {
             try {
-                TableStatus statusEnum = TableStatus.valueOf(newStatus);
-                table.transitionTo(Table.TableStateFactory.fromStatus(statusEnum));
+                Integer capacity = (newCapacity != null && !newCapacity.isEmpty()) ? Integer.parseInt(newCapacity) : null;
+                TableStatus status = (newStatus != null && !newStatus.isEmpty()) ? TableStatus.valueOf(newStatus) : null;
+                return tableActors.updateTable(id, capacity, status);
             } catch (Exception e) { return false; }
         }
-        for (int i = 0; i < tables.size(); i++) if (tables.get(i).getTableId() == id) tables.set(i, table);
-        tableFileService.writeTablesToFile(tables);
-        return true;
+        try (DataTransaction tx = DataTransaction.begin(write(TABLES))) {
+            List<Table> tables = tableFileService.readTablesFromFile();
+            Table table = null;
+            for (Table t : tables) if (t.getTableId() == id) table = t;
+            if (table == null) return false;
+            if (newCapacity != null && !newCapacity.isEmpty()) {
+                try { table.setCapacity(Integer.parseInt(newCapacity)); } catch (Exception e) { return false; }
+            }
+            if (newStatus != null && !newStatus.isEmpty()) {
+                try {
+                    TableStatus statusEnum = TableStatus.valueOf(newStatus);
+                    table.transitionTo(Table.TableStateFactory.fromStatus(statusEnum));
+                } catch (Exception e) { return false; }
+            }
+            for (int i = 0; i < tables.size(); i++) if (tables.get(i).getTableId() == id) tables.set(i, table);
+            tableFileService.writeTablesToFile(tables);
+            return true;
+        }
     }
 
+    @SuppressWarnings("try")
     public boolean deleteTable(int id) {
-        List<Table> tables = tableFileService.readTablesFromFile();
-        boolean found = false;
-        for (int i = 0; i < tables.size(); i++) {
-            if (tables.get(i).getTableId() == id) {
-                tables.remove(i);
-                found = true;
-                break;
+        try (DataTransaction tx = DataTransaction.begin(write(TABLES))) {
+            List<Table> tables = tableFileService.readTablesFromFile();
+            boolean found = false;
+            for (int i = 0; i < tables.size(); i++) {
+                if (tables.get(i).getTableId() == id) {
+                    tables.remove(i);
+                    found = true;
+                    break;
+                }
             }
+            if (found) tableFileService.writeTablesToFile(tables);
+            return found;
         }
-        if (found) tableFileService.writeTablesToFile(tables);
-        return found;
     }
 
     public List<Table> searchTables(String keyword) {
@@ -0,0 +1,209 @@
+package restaurantbookingmanagement.service.actor;
+
+import restaurantbookingmanagement.model.Booking;
+import restaurantbookingmanagement.model.Customer;
+import restaurantbookingmanagement.model.Order;
+import restaurantbookingmanagement.model.Table;
+import restaurantbookingmanagement.service.fileservice.BookingFileService;
+import restaurantbookingmanagement.service.fileservice.CustomerFileService;
+import restaurantbookingmanagement.service.fileservice.DataTransaction;
+import restaurantbookingmanagement.service.fileservice.OrderFileService;
+import restaurantbookingmanagement.service.fileservice.TableFileService;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Writer dùng chung cho tất cả TableActor. Các thay đổi được gom thành batch:
+ * mỗi file chỉ được đọc và ghi một lần cho cả batch (group commit).
+ * Thay đổi được áp lên bản vừa đọc lại từ file trong transaction của batch, không phải bản cũ trong bộ nhớ,
+ * vì service khác và tiến trình khác cũng ghi các file này.
+ * Thay đổi ném exception được rollback: các list của batch được đọc lại (file chưa bị ghi và khóa vẫn đang giữ)
+ * rồi áp lại các thay đổi trước đó đã thành công. Ghi file lỗi thì mọi future của batch hoàn thành với lỗi.
+ */
+public class BatchedWriter {
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final BookingFileService bookingFileService = new BookingFileService();
+    private final OrderFileService orderFileService = new OrderFileService();
+    private final TableFileService tableFileService = new TableFileService();
+    private final CustomerFileService customerFileService = new CustomerFileService();
+    private final BlockingQueue<Change<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Một thay đổi cần ghi xuống file: hàm chạy trên các list của batch và trả kết quả cho người gửi.
+     * Thay đổi phải khai báo các file nó sửa. Hàm có thể bị chạy lại khi một thay đổi khác
+     * trong batch bị rollback, nên chỉ được sửa các list của batch, không có tác dụng phụ khác.
+     */
+    public static class Change<T> {
+        private final Function<Batch, T> apply;
+        private final Set<String> dataSets;
+        private final CompletableFuture<T> done = new CompletableFuture<>();
+
+        public Change(Function<Batch, T> apply, String... dataSets) {
+            this.apply = apply;
+            this.dataSets = Set.of(dataSets);
+        }
+    }
+
+    /**
+     * Các list của batch, đọc từ file ở lần dùng đầu tiên khi đang giữ khóa của transaction
+     */
+    public final class Batch {
+        // File mà thay đổi đang chạy đã khai báo
+        private Set<String> dataSets = Set.of();
+        private List<Booking> bookings;
+        private List<Order> orders;
+        private List<Table> tables;
+        private List<Customer> customers;
+
+        public List<Booking> bookings() {
+            checkDeclared(DataTransaction.BOOKINGS);
+            if (bookings == null) bookings = bookingFileService.readBookingsFromFile();
+            return bookings;
+        }
+
+        public List<Order> orders() {
+            checkDeclared(DataTransaction.ORDERS);
+            if (orders == null) orders = orderFileService.readOrdersFromFile();
+            return orders;
+        }
+
+        public List<Table> tables() {
+            checkDeclared(DataTransaction.TABLES);
+            if (tables == null) tables = tableFileService.readTablesFromFile();
+            return tables;
+        }
+
+        public List<Customer> customers() {
+            checkDeclared(DataTransaction.CUSTOMERS);
+            if (customers == null) customers = customerFileService.readCustomersFromFile();
+            return customers;
+        }
+
+        private void checkDeclared(String dataSet) {
+            if (!dataSets.contains(dataSet)) throw new IllegalStateException("Change did not declare " + dataSet);
+        }
+    }
+
+    public BatchedWriter() {
+        this.worker = Thread.ofVirtual().name("table-actor-writer").start(this::run);
+    }
+
+    /**
+     * Đưa thay đổi vào hàng đợi, future hoàn thành với kết quả của hàm khi batch chứa nó đã được ghi
+     */
+    public <T> CompletableFuture<T> submit(Change<T> change) {
+        if (!running) {
+            change.done.completeExceptionally(new IllegalStateException("Batched writer is stopped"));
+        } else {
+            queue.add(change);
+        }
+        return change.done;
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            List<Change<?>> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                running = false;
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                System.err.println("Error writing table actor batch: " + e.getMessage());
+                for (Change<?> change : batch) change.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void writeBatch(List<Change<?>> batch) throws IOException {
+        Set<String> dataSets = new HashSet<>();
+        for (Change<?> change : batch) dataSets.addAll(change.dataSets);
+        // Chỉ khóa các file batch đụng tới; đọc booking còn gắn customer/table nên cần khóa đọc hai file đó
+        List<DataTransaction.Access> accesses = new ArrayList<>();
+        for (String dataSet : dataSets) accesses.add(DataTransaction.write(dataSet));
+        if (dataSets.contains(DataTransaction.BOOKINGS)) {
+            accesses.add(DataTransaction.read(DataTransaction.CUSTOMERS));
+            accesses.add(DataTransaction.read(DataTransaction.TABLES));
+        }
+        Object[] results = new Object[batch.size()];
+        try (DataTransaction tx = DataTransaction.begin(accesses.toArray(new DataTransaction.Access[0]))) {
+            Batch lists = new Batch();
+            for (int i = 0; i < batch.size(); i++) {
+                results[i] = apply(lists, batch.get(i));
+                if (results[i] instanceof RuntimeException) {
+                    // Chỉ thay đổi này thất bại, nhưng nó có thể đã sửa list trước khi ném
+                    lists = replay(batch, results, i);
+                }
+            }
+            boolean written = true;
+            if (lists.bookings != null) written &= bookingFileService.writeBookingsToFile(lists.bookings);
+            if (lists.orders != null) written &= orderFileService.writeOrdersToFile(lists.orders);
+            if (lists.tables != null) written &= tableFileService.writeTablesToFile(lists.tables);
+            if (lists.customers != null) written &= customerFileService.writeCustomersToFile(lists.customers);
+            if (!written) throw new IOException("Could not write table actor batch, see errors above");
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), results[i]);
+        }
+    }
+
+    private static Object apply(Batch lists, Change<?> change) {
+        lists.dataSets = change.dataSets;
+        try {
+            return change.apply.apply(lists);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Rollback: bỏ các list đã sửa, đọc lại từ file và áp lại các thay đổi đã thành công trước vị trí end.
+     * Thay đổi áp lại mà thất bại thì cũng bị coi là lỗi và batch được dựng lại lần nữa không có nó.
+     */
+    private Batch replay(List<Change<?>> batch, Object[] results, int end) {
+        while (true) {
+            Batch lists = new Batch();
+            boolean failed = false;
+            for (int i = 0; i < end && !failed; i++) {
+                if (results[i] instanceof RuntimeException) continue;
+                results[i] = apply(lists, batch.get(i));
+                failed = results[i] instanceof RuntimeException;
+            }
+            if (!failed) return lists;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void complete(Change<T> change, Object result) {
+        if (result instanceof RuntimeException e) change.done.completeExceptionally(e);
+        else change.done.complete((T) result);
+    }
+
+    /**
+     * Dừng writer sau khi ghi hết các thay đổi đang chờ
+     */
+    public void stop() {
+        running = false;
+        queue.add(new Change<>(lists -> null));
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package restaurantbookingmanagement.service.actor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+// Design Pattern: Actor
+// Purpose: Mỗi bàn có một mailbox riêng, xử lý tuần tự trên một virtual thread.
+
+/**
+ * Actor của một bàn: mọi thao tác lên bàn (đặt, hủy, order, đổi trạng thái) được đưa vào mailbox
+ * và xử lý lần lượt theo thứ tự gửi. Việc ghi của mọi bàn đều đi qua một BatchedWriter duy nhất
+ * nên các bàn không được ghi song song; actor chỉ bảo đảm thứ tự thao tác trên từng bàn.
+ * Actor không giữ bản sao dữ liệu của bàn: service khác và tiến trình khác cũng ghi các file này,
+ * nên mỗi message đọc lại bàn, booking và order trong transaction của BatchedWriter.
+ */
+public class TableActor {
+    private final int tableId;
+    private final BlockingQueue<Runnable> mailbox = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    TableActor(int tableId) {
+        this.tableId = tableId;
+        this.worker = Thread.ofVirtual().name("table-actor-" + tableId).start(this::processMailbox);
+    }
+
+    public int getTableId() {
+        return tableId;
+    }
+
+    /**
+     * Gửi message vào mailbox, kết quả trả về qua CompletableFuture
+     */
+    public <T> CompletableFuture<T> ask(Function<TableActor, T> message) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Table actor " + tableId + " is stopped"));
+            return result;
+        }
+        mailbox.add(() -> {
+            try {
+                result.complete(message.apply(this));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    private void processMailbox() {
+        while (running || !mailbox.isEmpty()) {
+            try {
+                mailbox.take().run();
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Dừng actor sau khi xử lý hết các message đang chờ
+     */
+    void stop() {
+        running = false;
+        mailbox.add(() -> { });
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
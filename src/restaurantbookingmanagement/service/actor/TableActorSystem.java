@@ -0,0 +1,188 @@
+package restaurantbookingmanagement.service.actor;
+
+import restaurantbookingmanagement.model.*;
+import restaurantbookingmanagement.service.fileservice.DataTransaction;
+import restaurantbookingmanagement.service.fileservice.TableFileService;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Chế độ thực thi tùy chọn: mỗi bàn do một TableActor quản lý, các thay đổi
+ * được ghi xuống file qua một BatchedWriter dùng chung. Mỗi thay đổi kiểm tra và sửa bản ghi
+ * vừa đọc lại trong transaction của writer, nên ghi từ service khác hoặc tiến trình khác không bị ghi đè.
+ * Chế độ này không làm tăng thông lượng so với chế độ mặc định: mọi thay đổi vẫn được ghi tuần tự
+ * bởi một writer, lợi ích duy nhất là các thay đổi đến cùng lúc được gom thành một lần ghi mỗi file.
+ * Bật bằng system property: -Drbm.tableActors=true
+ */
+public class TableActorSystem implements AutoCloseable {
+    private static final String ENABLED_PROPERTY = "rbm.tableActors";
+
+    private final Map<Integer, TableActor> actors = new ConcurrentHashMap<>();
+    private final BatchedWriter writer = new BatchedWriter();
+    private final TableFileService tableFileService = new TableFileService();
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Lấy (hoặc khởi tạo) actor cho bàn, trả về null nếu bàn không tồn tại
+     */
+    public TableActor actorFor(int tableId) {
+        return actors.computeIfAbsent(tableId, this::spawn);
+    }
+
+    private TableActor spawn(int tableId) {
+        boolean exists = tableFileService.readTablesFromFile().stream()
+                .anyMatch(t -> t.getTableId() == tableId);
+        return exists ? new TableActor(tableId) : null;
+    }
+
+    /**
+     * Chạy thay đổi trên actor của bàn; thay đổi đọc lại dữ liệu trong transaction của writer
+     */
+    private <T> T ask(int tableId, BatchedWriter.Change<T> change) {
+        TableActor actor = actorFor(tableId);
+        if (actor == null) return null;
+        return actor.ask(a -> writer.submit(change).join()).join();
+    }
+
+    /**
+     * Đặt bàn: thử lần lượt các bàn còn trống đủ sức chứa, actor của từng bàn kiểm tra lại trạng thái.
+     * Các bàn đều đã bị đặt mất thì lấy lại danh sách, vì trong lúc thử có thể đã có bàn mới được thêm hoặc trả lại.
+     * nextBookingId cấp id từ danh sách booking vừa đọc lại (đã gồm booking của tiến trình khác).
+     */
+    public Booking reserve(Supplier<List<Table>> candidates, Customer customer, LocalDateTime bookingTime,
+                           int numberOfGuests, ToIntFunction<List<Booking>> nextBookingId) {
+        Set<Integer> tried = new HashSet<>();
+        List<Table> untried;
+        while (!(untried = candidates.get().stream().filter(t -> tried.add(t.getTableId())).toList()).isEmpty()) {
+            Booking booking = reserveAny(untried, customer, bookingTime, numberOfGuests, nextBookingId);
+            if (booking != null) return booking;
+        }
+        return null;
+    }
+
+    private Booking reserveAny(List<Table> candidates, Customer customer, LocalDateTime bookingTime,
+                               int numberOfGuests, ToIntFunction<List<Booking>> nextBookingId) {
+        for (Table candidate : candidates) {
+            int tableId = candidate.getTableId();
+            Booking booking = ask(tableId, new BatchedWriter.Change<>(lists -> {
+                Table table = findById(lists.tables(), tableId, Table::getTableId);
+                if (table == null || table.getStatus() != TableStatus.AVAILABLE || table.getCapacity() < numberOfGuests) return null;
+                List<Booking> bookings = lists.bookings();
+                boolean overlap = bookings.stream()
+                        .anyMatch(b -> b.getTableId() == tableId && b.getStatus() == BookingStatus.CONFIRMED
+                                && isTimeOverlap(b.getBookingTime(), bookingTime));
+                if (overlap) return null;
+                // Dùng bản khách hàng trên đĩa, bản của người gọi có thể đã cũ
+                Customer current = findById(lists.customers(), customer.getCustomerId(), Customer::getCustomerId);
+                if (current == null) throw new IllegalStateException("Customer " + customer.getCustomerId() + " no longer exists");
+
+                Booking created = new Booking(nextBookingId.applyAsInt(bookings), current, table, bookingTime, numberOfGuests);
+                table.setStatus(TableStatus.RESERVED);
+                current.addBookingId(created.getBookingId());
+                bookings.add(created);
+                return created;
+            }, DataTransaction.BOOKINGS, DataTransaction.TABLES, DataTransaction.CUSTOMERS));
+            if (booking != null) return booking;
+        }
+        return null;
+    }
+
+    /**
+     * Hủy hoặc hoàn thành booking trên actor của bàn
+     */
+    public boolean closeBooking(int tableId, int bookingId, Booking.BookingState newState) {
+        boolean cancel = newState == Booking.CancelledState.INSTANCE;
+        String[] dataSets = cancel
+                ? new String[] {DataTransaction.BOOKINGS, DataTransaction.TABLES, DataTransaction.CUSTOMERS}
+                : new String[] {DataTransaction.BOOKINGS, DataTransaction.TABLES};
+        Boolean closed = ask(tableId, new BatchedWriter.Change<>(lists -> {
+            Booking booking = findById(lists.bookings(), bookingId, Booking::getBookingId);
+            if (booking == null || booking.getTableId() != tableId || booking.getStatus() != BookingStatus.CONFIRMED) return false;
+            booking.transitionTo(newState);
+            Table table = findById(lists.tables(), tableId, Table::getTableId);
+            if (table != null) table.setStatus(TableStatus.AVAILABLE);
+            if (cancel) {
+                Customer customer = findById(lists.customers(), booking.getCustomerId(), Customer::getCustomerId);
+                if (customer != null) customer.removeBookingId(bookingId);
+            }
+            return true;
+        }, dataSets));
+        return Boolean.TRUE.equals(closed);
+    }
+
+    /**
+     * Thêm món vào order đang mở của booking, tạo order mới nếu chưa có.
+     * nextOrderId cấp id từ danh sách order vừa đọc lại.
+     */
+    public boolean addOrderItem(Booking booking, int itemId, int quantity, ToIntFunction<List<Order>> nextOrderId) {
+        Boolean added = ask(booking.getTableId(), new BatchedWriter.Change<>(lists -> {
+            List<Order> orders = lists.orders();
+            Order order = orders.stream()
+                    .filter(o -> o.getBookingId() == booking.getBookingId() && o.getStatus().isOpen())
+                    .findFirst().orElse(null);
+            if (order == null) {
+                order = new Order(nextOrderId.applyAsInt(orders), booking);
+                orders.add(order);
+            }
+            order.addItem(itemId, quantity);
+            return true;
+        }, DataTransaction.ORDERS));
+        return Boolean.TRUE.equals(added);
+    }
+
+    /**
+     * Cập nhật trạng thái order trên actor của bàn
+     */
+    public boolean updateOrderStatus(int tableId, int orderId, OrderStatus status) {
+        Boolean updated = ask(tableId, new BatchedWriter.Change<>(lists -> {
+            Order order = findById(lists.orders(), orderId, Order::getOrderId);
+            if (order == null || !order.getStatus().canTransitionTo(status)) return false;
+            order.transitionTo(status);
+            return true;
+        }, DataTransaction.ORDERS));
+        return Boolean.TRUE.equals(updated);
+    }
+
+    /**
+     * Cập nhật sức chứa và/hoặc chuyển trạng thái bàn theo State pattern
+     */
+    public boolean updateTable(int tableId, Integer capacity, TableStatus status) {
+        Boolean updated = ask(tableId, new BatchedWriter.Change<>(lists -> {
+            Table table = findById(lists.tables(), tableId, Table::getTableId);
+            // Bàn đã bị xóa (bởi service khác hoặc tiến trình khác) thì không ghi lại
+            if (table == null) return false;
+            // Chuyển trạng thái trước: chuyển không hợp lệ sẽ ném exception khi bàn chưa bị sửa
+            if (status != null) table.transitionTo(Table.TableStateFactory.fromStatus(status));
+            if (capacity != null) table.setCapacity(capacity);
+            return true;
+        }, DataTransaction.TABLES));
+        return Boolean.TRUE.equals(updated);
+    }
+
+    private static <T> T findById(List<T> list, int target, ToIntFunction<T> id) {
+        for (T value : list) {
+            if (id.applyAsInt(value) == target) return value;
+        }
+        return null;
+    }
+
+    private static boolean isTimeOverlap(LocalDateTime time1, LocalDateTime time2) {
+        // Giả sử mỗi booking kéo dài 2 giờ
+        return !time1.isAfter(time2.plusHours(2)) && !time2.isAfter(time1.plusHours(2));
+    }
+
+    @Override
+    public void close() {
+        actors.values().forEach(TableActor::stop);
+        writer.stop();
+    }
+}
@@ -0,0 +1,285 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import restaurantbookingmanagement.utils.IntArrayList;
+import restaurantbookingmanagement.utils.IntHashSet;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Kho lưu trữ append-only cho record đã ở trạng thái cuối (hoàn thành/hủy):
+ * data/archive/<name>/segment-NNNNNN.jsonl.gz, mỗi dòng một record JSON.
+ * Mỗi lần append ghi thêm một gzip member vào segment hiện tại; segment đủ
+ * SEGMENT_SIZE record thì được niêm phong và không bao giờ bị ghi lại.
+ * index.json lưu danh sách id và số byte đã commit của từng segment để tra cứu theo id.
+ * index là điểm commit: segment được ghi trước rồi mới lưu index, người đọc bỏ qua phần byte
+ * sau độ dài đã commit (phần ghi dở của tiến trình chết giữa chừng), lần append sau ghi đè lên phần đó.
+ * Segment không bao giờ được migrate lại trên đĩa, record cũ được nâng cấp khi đọc.
+ * Mọi method phải được gọi khi đang giữ DataLock của file tương ứng; người đọc giữ shared lock
+ * có thể chạy song song nên việc nạp lại index được đồng bộ và mỗi lần đọc dùng một index cố định.
+ */
+class ArchiveStore<T> {
+    private static final String INDEX_FILE = "index.json";
+    private static final int SEGMENT_SIZE = 10_000;
+
+    private final File dir;
+    private final Class<T> type;
+    private final ToIntFunction<T> idOf;
+    private Index index;
+    private FileFingerprint indexFingerprint;
+    private IntHashSet archivedIds;
+    // Số lần index được nạp từ file, tăng khi archive được ghi thêm bởi tiến trình khác
+    private long loadCount;
+
+    static class Index {
+        List<Segment> segments = new ArrayList<>();
+    }
+
+    static class Segment {
+        String name;
+        boolean sealed;
+        // schemaVersion của record trong segment, 0 nghĩa là segment cũ
+        int version;
+        IntArrayList ids = new IntArrayList();
+        // Số byte đã commit; -1 là index cũ chưa có trường này, khi đó tin toàn bộ file
+        long bytes = -1;
+    }
+
+    ArchiveStore(String dataDir, String name, Class<T> type, ToIntFunction<T> idOf) {
+        this.dir = new File(new File(dataDir, "archive"), name);
+        this.type = type;
+        this.idOf = idOf;
+    }
+
+    /**
+     * Ghi thêm các record vào archive, bỏ qua record đã có (id trùng) nên gọi lại nhiều lần vẫn an toàn
+     */
+    void append(List<T> records) throws IOException {
+        ensureLoaded();
+        List<T> pending = new ArrayList<>();
+        for (T record : records) {
+            if (!archivedIds.contains(idOf.applyAsInt(record))) pending.add(record);
+        }
+        if (pending.isEmpty()) return;
+
+        dir.mkdirs();
+        TypeAdapter<T> adapter = FileServiceBase.gson.getAdapter(type);
+        try {
+            int from = 0;
+            while (from < pending.size()) {
+                Segment segment = currentSegment();
+                int to = Math.min(pending.size(), from + SEGMENT_SIZE - segment.ids.size());
+                File segmentFile = new File(dir, segment.name);
+                long committed = committedLength(segment, segmentFile);
+                ReplicationLog.appending(segmentFile, committed);
+                try (FileOutputStream out = new FileOutputStream(segmentFile, true)) {
+                    // Cắt phần ghi dở chưa có trong index trước khi ghi nối
+                    out.getChannel().truncate(committed);
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8));
+                    for (T record : pending.subList(from, to)) {
+                        writer.write(adapter.toJson(record));
+                        writer.write('\n');
+                        segment.ids.add(idOf.applyAsInt(record));
+                        archivedIds.add(idOf.applyAsInt(record));
+                    }
+                    writer.close();
+                }
+                segment.bytes = segmentFile.length();
+                if (segment.ids.size() >= SEGMENT_SIZE) segment.sealed = true;
+                from = to;
+            }
+            saveIndex();
+        } catch (IOException | RuntimeException e) {
+            // Index trong bộ nhớ đã có id chưa được commit, đọc lại bản trên đĩa
+            index = null;
+            throw e;
+        }
+    }
+
+    private static long committedLength(Segment segment, File file) {
+        return segment.bytes >= 0 ? Math.min(segment.bytes, file.length()) : file.length();
+    }
+
+    /**
+     * Bọc filter để bỏ record đã nằm trong archive. Nếu tiến trình chết sau khi append mà chưa kịp
+     * ghi lại file đang dùng, record còn ở cả hai nơi; bản trong archive (trạng thái cuối) là bản mới hơn.
+     */
+    synchronized <R extends T> Predicate<R> notArchived(Predicate<? super R> filter) throws IOException {
+        ensureLoaded();
+        IntHashSet ids = archivedIds;
+        return record -> !ids.contains(idOf.applyAsInt(record)) && filter.test(record);
+    }
+
+    /**
+     * Đọc streaming toàn bộ archive, chỉ giữ lại record thỏa predicate
+     */
+    List<T> read(Predicate<? super T> filter) throws IOException {
+        Index current = ensureLoaded();
+        List<T> result = new ArrayList<>();
+        for (Segment segment : current.segments) {
+            scanSegment(segment, filter, result, false);
+        }
+        return result;
+    }
+
+    /**
+     * Tra id qua index, chỉ giải nén segment chứa record đó
+     */
+    T find(int id) throws IOException {
+        if (!contains(id)) return null;
+        for (Segment segment : ensureLoaded().segments) {
+            if (segment.ids.contains(id)) {
+                List<T> found = new ArrayList<>(1);
+                scanSegment(segment, record -> idOf.applyAsInt(record) == id, found, true);
+                if (!found.isEmpty()) return found.get(0);
+            }
+        }
+        return null;
+    }
+
+    synchronized boolean contains(int id) throws IOException {
+        ensureLoaded();
+        return archivedIds.contains(id);
+    }
+
+    /**
+     * Phiên bản của index đang dùng (sau khi đã kiểm tra file), đổi khi index được nạp lại từ file;
+     * ghi thêm từ chính tiến trình này không làm đổi phiên bản
+     */
+    synchronized long version() throws IOException {
+        ensureLoaded();
+        return loadCount;
+    }
+
+    synchronized int maxId() throws IOException {
+        ensureLoaded();
+        return archivedIds.stream().max().orElse(0);
+    }
+
+    private void scanSegment(Segment segment, Predicate<? super T> filter, List<T> result, boolean firstOnly) throws IOException {
+        File file = new File(dir, segment.name);
+        if (!file.exists()) return;
+        TypeAdapter<T> adapter = FileServiceBase.gson.getAdapter(type);
+        // Chỉ đọc phần đã commit trong index
+        InputStream committed = new BoundedInputStream(new FileInputStream(file), committedLength(segment, file));
+        try (JsonReader reader = FileServiceBase.gson.newJsonReader(new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(committed), StandardCharsets.UTF_8)))) {
+            // Các record nối tiếp nhau, JsonReader lenient đọc được từng dòng
+            reader.setLenient(true);
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                T record = FileServiceBase.readRecord(reader, adapter, type, segment.version);
+                if (record != null && filter.test(record)) {
+                    result.add(record);
+                    if (firstOnly) return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Chỉ cho đọc tối đa limit byte đầu của stream
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+
+    private Segment currentSegment() {
+        if (!index.segments.isEmpty()) {
+            Segment last = index.segments.get(index.segments.size() - 1);
+            // Segment ở schema cũ không được ghi thêm record mới
+            if (!last.sealed && last.version == SchemaMigrations.currentVersion(type)) return last;
+        }
+        Segment segment = new Segment();
+        segment.name = String.format("segment-%06d.jsonl.gz", index.segments.size() + 1);
+        segment.version = SchemaMigrations.currentVersion(type);
+        index.segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Bỏ index đang cache nếu tiến trình khác đã ghi thêm vào archive, trả về true nếu có thay đổi
+     */
+    synchronized boolean reloadIfChanged() throws IOException {
+        if (index == null) return false;
+        FileFingerprint current = indexFingerprint.refresh(new File(dir, INDEX_FILE));
+        if (current == indexFingerprint || current.sameContent(indexFingerprint)) {
+            indexFingerprint = current;
+            return false;
+        }
+        index = null;
+        return true;
+    }
+
+    /**
+     * Nạp index nếu chưa có. Index đang cache được so mtime/size với file trước mỗi lần dùng:
+     * tiến trình khác có thể đã ghi thêm vào archive mà DataDirectoryWatcher không theo dõi data/archive
+     */
+    private synchronized Index ensureLoaded() throws IOException {
+        File indexFile = new File(dir, INDEX_FILE);
+        if (index != null && !reloadIfChanged()) return index;
+        indexFingerprint = FileFingerprint.of(indexFile);
+        Index loaded = null;
+        if (indexFile.exists()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8)) {
+                loaded = FileServiceBase.gson.fromJson(reader, Index.class);
+            }
+        }
+        index = loaded != null ? loaded : new Index();
+        loadCount++;
+        archivedIds = new IntHashSet();
+        for (Segment segment : index.segments) {
+            segment.ids.forEach(archivedIds::add);
+        }
+        return index;
+    }
+
+    private void saveIndex() throws IOException {
+        FileServiceBase.replaceAtomically(new File(dir, INDEX_FILE), out -> {
+            try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                FileServiceBase.gson.toJson(index, writer);
+            }
+        });
+        indexFingerprint = FileFingerprint.of(new File(dir, INDEX_FILE));
+    }
+}
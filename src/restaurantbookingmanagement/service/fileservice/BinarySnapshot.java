@@ -0,0 +1,188 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot nhị phân của một file dữ liệu, ghi song song với JSON (JSON vẫn là định dạng chính).
+ * Định dạng: header (magic, version, stamp của nguồn JSON, số record, offset bảng chuỗi),
+ * các record có tiền tố độ dài, cuối cùng là bảng chuỗi dùng chung (chuỗi lặp lại chỉ lưu một lần).
+ * Khi đọc, cả file được đọc vào một buffer trên heap rồi giải mã: không giữ mapping nào trỏ tới file,
+ * nên lần save sau (đổi tên đè lên file) không bị chặn trên Windows.
+ * Bật bằng system property: -Drbm.snapshot=true
+ */
+class BinarySnapshot<T> {
+    private static final String ENABLED_PROPERTY = "rbm.snapshot";
+    private static final int MAGIC = 0x52424D53; // "RBMS"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8;
+
+    private final File file;
+    private final Codec<T> codec;
+
+    /**
+     * Chuyển một record sang/từ dạng nhị phân
+     */
+    interface Codec<T> {
+        void write(T value, Output out) throws IOException;
+        T read(Input in);
+    }
+
+    BinarySnapshot(String dataDir, String name, Codec<T> codec) {
+        this.file = new File(new File(dataDir, "snapshot"), name + ".bin");
+        this.codec = codec;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Stamp của file nguồn: generation của tập dữ liệu kết hợp size và mtime, snapshot chỉ dùng được khi stamp khớp.
+     * Không đọc nội dung file nguồn, nên lần khởi động nguội chỉ đọc snapshot.
+     * Mỗi lần ứng dụng ghi đều tăng generation, vì vậy ghi lại trong cùng tick đồng hồ với cùng độ dài
+     * vẫn đổi stamp; chỉ sửa tay từ bên ngoài đúng như vậy mới lọt qua.
+     */
+    static long stampOf(String dataSet, File source) throws IOException {
+        long stamp = DataGenerations.current(dataSet);
+        if (!source.exists()) return stamp;
+        stamp = stamp * 31 + source.length();
+        return stamp * 31 + source.lastModified();
+    }
+
+    /**
+     * Nạp snapshot, trả về null nếu chưa bật, chưa có hoặc đã cũ so với nguồn
+     */
+    List<T> load(long sourceStamp) {
+        if (!isEnabled() || !file.exists()) return null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+            if (buffer.getLong() != sourceStamp) return null;
+            int count = buffer.getInt();
+            int stringTableOffset = (int) buffer.getLong();
+
+            ByteBuffer strings = buffer.duplicate().position(stringTableOffset);
+            String[] table = new String[strings.getInt()];
+            for (int i = 0; i < table.length; i++) {
+                byte[] bytes = new byte[strings.getInt()];
+                strings.get(bytes);
+                table[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            Input in = new Input(buffer, table);
+            List<T> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                int next = buffer.position() + length;
+                result.add(codec.read(in));
+                buffer.position(next);
+            }
+            return result;
+        } catch (Exception e) {
+            System.err.println("Warning: Could not load snapshot " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ghi snapshot ra file tạm rồi đổi tên, nên người đọc không thấy file ghi dở
+     */
+    void save(List<T> values, long sourceStamp) {
+        if (!isEnabled()) return;
+        try {
+            Output out = new Output();
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            DataOutputStream recordsOut = new DataOutputStream(records);
+            for (T value : values) {
+                out.record.reset();
+                codec.write(value, out);
+                recordsOut.writeInt(out.record.size());
+                out.record.writeTo(recordsOut);
+            }
+
+            file.getParentFile().mkdirs();
+            // Snapshot được ghi cả từ đường đọc (chỉ giữ khóa shared) nên mỗi lần ghi dùng file tạm riêng
+            File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(VERSION);
+                dos.writeLong(sourceStamp);
+                dos.writeInt(values.size());
+                dos.writeLong(HEADER_SIZE + records.size());
+                records.writeTo(dos);
+                dos.writeInt(out.strings.size());
+                for (String s : out.strings.keySet()) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    dos.writeInt(bytes.length);
+                    dos.write(bytes);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            System.err.println("Warning: Could not write snapshot " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi field của một record; chuỗi được thay bằng chỉ số trong bảng chuỗi
+     */
+    static class Output {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(record);
+
+        void writeInt(int v) throws IOException { data.writeInt(v); }
+        void writeDouble(double v) throws IOException { data.writeDouble(v); }
+        void writeBoolean(boolean v) throws IOException { data.writeBoolean(v); }
+
+        void writeString(String s) throws IOException {
+            data.writeInt(s == null ? -1 : strings.computeIfAbsent(s, k -> strings.size()));
+        }
+
+        void writeDateTime(LocalDateTime t) throws IOException {
+            data.writeBoolean(t != null);
+            if (t != null) {
+                data.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+                data.writeInt(t.getNano());
+            }
+        }
+    }
+
+    /**
+     * Đọc field của một record từ buffer của snapshot
+     */
+    static class Input {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        Input(ByteBuffer buffer, String[] strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        int readInt() { return buffer.getInt(); }
+        double readDouble() { return buffer.getDouble(); }
+        boolean readBoolean() { return buffer.get() != 0; }
+
+        String readString() {
+            int index = buffer.getInt();
+            return index < 0 ? null : strings[index];
+        }
+
+        LocalDateTime readDateTime() {
+            if (!readBoolean()) return null;
+            long seconds = buffer.getLong();
+            return LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC);
+        }
+    }
+}
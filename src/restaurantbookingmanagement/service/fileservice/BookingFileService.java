@@ -1,39 +1,175 @@
 package restaurantbookingmanagement.service.fileservice;
 
 import restaurantbookingmanagement.model.Booking;
+import restaurantbookingmanagement.model.BookingStatus;
+import restaurantbookingmanagement.model.Customer;
+import restaurantbookingmanagement.model.Table;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import com.google.gson.reflect.TypeToken;
+import java.util.Map;
+import java.util.function.Predicate;
 
 public class BookingFileService extends FileServiceBase {
     private static final String BOOKINGS_FILE = "bookings.json";
-    public synchronized List<Booking> readBookingsFromFile() {
-        try {
-            File file = new File(DATA_DIR, BOOKINGS_FILE);
-            if (!file.exists()) {
-                return new ArrayList<>();
-            }
-            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-                java.lang.reflect.Type listType = new TypeToken<List<Booking>>(){}.getType();
-                List<Booking> bookings = gson.fromJson(reader, listType);
-                return bookings != null ? bookings : new ArrayList<>();
+    // Lưu theo tháng trong data/bookings/, dùng chung cho mọi instance
+    private static final PartitionedFileStore<Booking> STORE = new PartitionedFileStore<>(
+            DATA_DIR, "bookings", Booking.class, Booking::getBookingTime);
+    // Record đã hủy/hoàn thành được chuyển sang archive nén, chỉ ghi thêm
+    private static final ArchiveStore<Booking> ARCHIVE = new ArchiveStore<>(DATA_DIR, "bookings", Booking.class, Booking::getBookingId);
+    private static final BinarySnapshot<Booking> SNAPSHOT = new BinarySnapshot<>(DATA_DIR, "bookings", SnapshotCodecs.BOOKING);
+    private static final Predicate<Booking> TERMINAL = b -> b.getStatus() != BookingStatus.CONFIRMED;
+    // File booking chỉ lưu customerId/tableId, object được gắn lại khi đọc
+    private final CustomerFileService customerFileService = new CustomerFileService();
+    private final TableFileService tableFileService = new TableFileService();
+    @SuppressWarnings("try")
+    public List<Booking> readBookingsFromFile() {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            // Record còn sót trong file đang dùng sau khi đã vào archive (tiến trình chết giữa hai bước ghi) bị bỏ qua
+            Predicate<Booking> active = ARCHIVE.notArchived(booking -> true);
+            List<Booking> cached = SNAPSHOT.load(STORE.stamp());
+            if (cached != null) {
+                cached.removeIf(active.negate());
+                return hydrate(cached);
             }
+            List<Booking> bookings = STORE.read(active);
+            SNAPSHOT.save(bookings, STORE.stamp());
+            return hydrate(bookings);
+        } catch (Exception e) {
+            System.err.println("Error reading bookings from file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    /**
+     * Đọc streaming, chỉ materialize các booking thỏa predicate
+     */
+    @SuppressWarnings("try")
+    public List<Booking> readBookingsMatching(Predicate<? super Booking> filter) {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            return hydrate(STORE.read(ARCHIVE.notArchived(filter)));
+        } catch (Exception e) {
+            System.err.println("Error reading bookings from file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    /**
+     * Đọc các booking trong khoảng [from, to), chỉ mở các partition tháng liên quan
+     */
+    @SuppressWarnings("try")
+    public List<Booking> readBookingsBetween(LocalDateTime from, LocalDateTime to, Predicate<? super Booking> filter) {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            return hydrate(STORE.readBetween(from, to, ARCHIVE.notArchived(filter)));
+        } catch (Exception e) {
+            System.err.println("Error reading bookings from file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    /**
+     * Tìm booking đầu tiên thỏa predicate, dừng đọc file khi đã thấy
+     */
+    @SuppressWarnings("try")
+    public Booking findBooking(Predicate<? super Booking> filter) {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            return hydrate(STORE.findFirst(ARCHIVE.notArchived(filter)));
         } catch (Exception e) {
             System.err.println("Error reading bookings from file: " + e.getMessage());
+            return null;
+        }
+    }
+    /**
+     * Đọc streaming các booking trong archive (lịch sử), chỉ giữ lại record thỏa predicate
+     */
+    @SuppressWarnings("try")
+    public List<Booking> readArchivedBookingsMatching(Predicate<? super Booking> filter) {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            return hydrate(ARCHIVE.read(filter));
+        } catch (Exception e) {
+            System.err.println("Error reading archived bookings: " + e.getMessage());
             return new ArrayList<>();
         }
     }
-    public synchronized void writeBookingsToFile(List<Booking> bookings) {
-        try {
-            File file = new File(DATA_DIR, BOOKINGS_FILE);
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                gson.toJson(bookings, writer);
+    /**
+     * Tìm booking trong archive theo id qua index của archive
+     */
+    @SuppressWarnings("try")
+    public Booking findArchivedBooking(int id) {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            return hydrate(ARCHIVE.find(id));
+        } catch (Exception e) {
+            System.err.println("Error reading archived bookings: " + e.getMessage());
+            return null;
+        }
+    }
+    /**
+     * Id lớn nhất đã nằm trong archive, dùng khi cấp id mới để không bị trùng
+     */
+    @SuppressWarnings("try")
+    public int getMaxArchivedBookingId() {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            return ARCHIVE.maxId();
+        } catch (Exception e) {
+            System.err.println("Error reading archived bookings: " + e.getMessage());
+            return 0;
+        }
+    }
+    /**
+     * Bỏ cache manifest/partition/index archive nếu data/bookings bị sửa từ bên ngoài, trả về true nếu có thay đổi
+     */
+    @SuppressWarnings("try")
+    static boolean reloadIfChanged() throws IOException {
+        try (DataLock lock = DataLock.shared(BOOKINGS_FILE)) {
+            return STORE.reloadIfChanged() | ARCHIVE.reloadIfChanged();
+        }
+    }
+    /**
+     * Ghi danh sách booking: record ở trạng thái cuối được chuyển vào archive,
+     * file đang dùng chỉ giữ record còn mở. Trả về false nếu không ghi được
+     */
+    @SuppressWarnings("try")
+    public boolean writeBookingsToFile(List<Booking> bookings) {
+        try (DataTransaction tx = DataTransaction.begin(DataTransaction.write(BOOKINGS_FILE))) {
+            List<Booking> active = new ArrayList<>();
+            List<Booking> terminal = new ArrayList<>();
+            for (Booking booking : bookings) {
+                (TERMINAL.test(booking) ? terminal : active).add(booking);
             }
+            publish("bookings", () -> {
+                // Ghi archive trước để không mất lịch sử nếu bị dừng giữa chừng
+                ARCHIVE.append(terminal);
+                STORE.write(active);
+            });
+            SNAPSHOT.save(active, STORE.stamp());
             notifyAIAgentOfChange();
+            return true;
         } catch (Exception e) {
             System.err.println("Error writing bookings to file: " + e.getMessage());
+            return false;
+        }
+    }
+    /**
+     * Gắn Customer/Table vào booking theo id qua index id -> object.
+     * Khóa luôn được lấy theo thứ tự bookings rồi customers/tables nên giữ lồng nhau an toàn.
+     */
+    private List<Booking> hydrate(List<Booking> bookings) {
+        if (bookings.isEmpty()) return bookings;
+        Map<Integer, Customer> customers = new HashMap<>();
+        for (Customer customer : customerFileService.readCustomersFromFile()) {
+            customers.put(customer.getCustomerId(), customer);
+        }
+        Map<Integer, Table> tables = new HashMap<>();
+        for (Table table : tableFileService.readTablesFromFile()) {
+            tables.put(table.getTableId(), table);
         }
+        for (Booking booking : bookings) {
+            booking.setCustomer(customers.get(booking.getCustomerId()));
+            booking.setTable(tables.get(booking.getTableId()));
+        }
+        return bookings;
+    }
+    private Booking hydrate(Booking booking) {
+        if (booking != null) hydrate(List.of(booking));
+        return booking;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
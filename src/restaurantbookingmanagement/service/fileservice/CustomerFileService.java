@@ -3,37 +3,48 @@ package restaurantbookingmanagement.service.fileservice;
 import restaurantbookingmanagement.model.Customer;
 import java.util.List;
 import java.util.ArrayList;
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
 
 public class CustomerFileService extends FileServiceBase {
     private static final String CUSTOMERS_FILE = "customers.json";
-    public synchronized List<Customer> readCustomersFromFile() {
+    private static final BinarySnapshot<Customer> SNAPSHOT = new BinarySnapshot<>(DATA_DIR, "customers", SnapshotCodecs.CUSTOMER);
+    // Giữ trong bộ nhớ, được DataDirectoryWatcher nạp lại khi file bị sửa từ bên ngoài
+    private static final EntityCache<Customer> CACHE = new EntityCache<>(
+            new File(DATA_DIR, CUSTOMERS_FILE), Customer.class, CustomerFileService::load);
+    public List<Customer> readCustomersFromFile() {
         try {
-            File file = new File(DATA_DIR, CUSTOMERS_FILE);
-            if (!file.exists()) {
-                return new ArrayList<>();
-            }
-            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-                java.lang.reflect.Type listType = new TypeToken<List<Customer>>(){}.getType();
-                List<Customer> customers = gson.fromJson(reader, listType);
-                return customers != null ? customers : new ArrayList<>();
-            }
+            return CACHE.read();
         } catch (Exception e) {
             System.err.println("Error reading customers from file: " + e.getMessage());
             return new ArrayList<>();
         }
     }
-    public synchronized void writeCustomersToFile(List<Customer> customers) {
-        try {
+    @SuppressWarnings("try")
+    public boolean writeCustomersToFile(List<Customer> customers) {
+        try (DataTransaction tx = DataTransaction.begin(DataTransaction.write(CUSTOMERS_FILE))) {
             File file = new File(DATA_DIR, CUSTOMERS_FILE);
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                gson.toJson(customers, writer);
-            }
+            publish("customers", () -> writeList(file, customers, Customer.class));
+            SNAPSHOT.save(customers, BinarySnapshot.stampOf("customers", file));
+            CACHE.update(customers);
             notifyAIAgentOfChange();
+            return true;
         } catch (Exception e) {
             System.err.println("Error writing customers to file: " + e.getMessage());
+            return false;
         }
     }
-} 
\ No newline at end of file
+    /**
+     * Nạp lại nếu file đã bị sửa từ bên ngoài, trả về true nếu có thay đổi
+     */
+    static boolean reloadIfChanged() throws IOException {
+        return CACHE.reloadIfChanged();
+    }
+    private static List<Customer> load(File file) throws IOException {
+        List<Customer> cached = SNAPSHOT.load(BinarySnapshot.stampOf("customers", file));
+        if (cached != null) return cached;
+        List<Customer> customers = readList(file, Customer.class);
+        SNAPSHOT.save(customers, BinarySnapshot.stampOf("customers", file));
+        return customers;
+    }
+}
\ No newline at end of file
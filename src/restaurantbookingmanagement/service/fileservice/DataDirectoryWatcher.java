@@ -0,0 +1,132 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import restaurantbookingmanagement.ai.AIAgentConnector;
+import restaurantbookingmanagement.utils.DebugUtil;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Design Pattern: Observer
+// Purpose: Theo dõi thư mục data/ bằng WatchService để file bị sửa từ bên ngoài (AI agent, người vận hành)
+//          được nạp lại trong nền mà không cần khởi động lại ứng dụng.
+/**
+ * Mỗi tập entity chỉ được nạp lại khi file của nó thực sự đổi nội dung (so mtime/size, rồi CRC32),
+ * nên các lần ghi của chính ứng dụng không gây nạp lại. Sự kiện được gom trong DEBOUNCE_MS
+ * vì một lần lưu của editor thường sinh nhiều sự kiện liên tiếp.
+ */
+public class DataDirectoryWatcher implements AutoCloseable {
+    private static final long DEBOUNCE_MS = 200;
+    private static volatile boolean running;
+
+    // Tên file/thư mục trong data/ -> cách nạp lại tập entity tương ứng
+    private final Map<String, Reloader> reloaders = new LinkedHashMap<>();
+    private final Path dataDir = Paths.get(FileServiceBase.DATA_DIR);
+    private final WatchService watchService;
+    private final Thread worker;
+
+    private interface Reloader {
+        boolean reload() throws IOException;
+    }
+
+    public DataDirectoryWatcher() throws IOException {
+        reloaders.put("menu_items.json", MenuItemFileService::reloadIfChanged);
+        reloaders.put("customers.json", CustomerFileService::reloadIfChanged);
+        reloaders.put("tables.json", TableFileService::reloadIfChanged);
+        reloaders.put("bookings", BookingFileService::reloadIfChanged);
+        reloaders.put("orders", OrderFileService::reloadIfChanged);
+
+        Files.createDirectories(dataDir);
+        watchService = FileSystems.getDefault().newWatchService();
+        register(dataDir);
+        for (String name : reloaders.keySet()) {
+            Path path = dataDir.resolve(name);
+            if (Files.isDirectory(path)) register(path);
+        }
+        running = true;
+        worker = Thread.ofVirtual().name("data-dir-watcher").start(this::run);
+    }
+
+    /**
+     * Khi watcher đang chạy, cache không cần tự kiểm tra file ở mỗi lần đọc
+     */
+    static boolean isRunning() {
+        return running;
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                WatchKey key = watchService.take();
+                Set<String> changed = new LinkedHashSet<>();
+                collect(key, changed);
+                // Gom các sự kiện tới gần nhau thành một lần nạp lại
+                while ((key = watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                for (String name : changed) {
+                    reload(name);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Dừng watcher
+        } finally {
+            // Watcher dừng thì cache quay lại tự kiểm tra file khi đọc
+            running = false;
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(reloaders.keySet());
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            // Thư mục partition được tạo sau khi watcher khởi động
+            if (dir.equals(dataDir) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Files.isDirectory(path) && reloaders.containsKey(path.getFileName().toString())) {
+                try {
+                    register(path);
+                } catch (IOException e) {
+                    System.err.println("Warning: Could not watch " + path + ": " + e.getMessage());
+                }
+            }
+            Path relative = dataDir.relativize(path);
+            String name = relative.getName(0).toString();
+            if (reloaders.containsKey(name)) changed.add(name);
+        }
+        key.reset();
+    }
+
+    private void reload(String name) {
+        try {
+            if (reloaders.get(name).reload()) {
+                DebugUtil.debugPrint("[DataWatcher] Reloaded " + name + " after external change");
+                AIAgentConnector.shared().invalidateResponseCache();
+            }
+        } catch (Exception e) {
+            System.err.println("Error reloading " + name + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Warning: Could not close data watcher: " + e.getMessage());
+        }
+        worker.interrupt();
+    }
+}
@@ -0,0 +1,80 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import com.google.gson.reflect.TypeToken;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Số generation của từng tập dữ liệu (menu_items, customers, tables, bookings, orders),
+ * lưu ở data/generations.json để tiến trình khác (AI agent Python) biết khi nào dữ liệu đã đổi.
+ * Generation lẻ nghĩa là đang ghi. Người đọc đợi tới khi chẵn, đọc dữ liệu rồi so lại
+ * generation (kiểu seqlock); khác thì đọc lại. Generation không đổi thì dùng lại bản đã parse.
+ */
+final class DataGenerations {
+    private static final String GENERATIONS_FILE = "generations.json";
+    private static final String LOCK_NAME = "generations";
+    private static final File FILE = new File(FileServiceBase.DATA_DIR, GENERATIONS_FILE);
+
+    private DataGenerations() {}
+
+    /**
+     * Bắt đầu ghi: generation chuyển sang số lẻ.
+     * Được gọi khi đang giữ DataLock exclusive của tập dữ liệu, nên nếu generation đã lẻ
+     * thì đó là lần ghi dở của một tiến trình đã chết: mở generation mới sau nó.
+     */
+    @SuppressWarnings("try")
+    static void begin(String dataSet) throws IOException {
+        try (DataLock lock = DataLock.exclusive(LOCK_NAME)) {
+            Map<String, Long> generations = load();
+            long generation = generations.getOrDefault(dataSet, 0L);
+            generations.put(dataSet, generation % 2 == 0 ? generation + 1 : generation + 2);
+            save(generations);
+        }
+    }
+
+    /**
+     * Ghi xong: generation chuyển sang số chẵn tiếp theo, trạng thái mới được công bố.
+     * Trả về generation đã commit.
+     */
+    @SuppressWarnings("try")
+    static long end(String dataSet) throws IOException {
+        try (DataLock lock = DataLock.exclusive(LOCK_NAME)) {
+            Map<String, Long> generations = load();
+            long generation = generations.getOrDefault(dataSet, 0L);
+            long committed = generation % 2 == 0 ? generation + 2 : generation + 1;
+            generations.put(dataSet, committed);
+            save(generations);
+            return committed;
+        }
+    }
+
+    @SuppressWarnings("try")
+    static long current(String dataSet) throws IOException {
+        try (DataLock lock = DataLock.shared(LOCK_NAME)) {
+            return load().getOrDefault(dataSet, 0L);
+        }
+    }
+
+    private static void save(Map<String, Long> generations) throws IOException {
+        FILE.getParentFile().mkdirs();
+        FileServiceBase.replaceAtomically(FILE, out -> {
+            try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                FileServiceBase.gson.toJson(generations, writer);
+            }
+        });
+    }
+
+    // Luôn đọc lại từ đĩa vì tiến trình khác có thể vừa tăng generation của tập dữ liệu khác
+    private static Map<String, Long> load() throws IOException {
+        Map<String, Long> generations = new TreeMap<>();
+        if (FILE.exists()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(FILE), StandardCharsets.UTF_8)) {
+                Map<String, Long> loaded = FileServiceBase.gson.fromJson(reader, new TypeToken<Map<String, Long>>() {}.getType());
+                if (loaded != null) generations.putAll(loaded);
+            }
+        }
+        return generations;
+    }
+}
@@ -0,0 +1,90 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Khóa theo tên, có hiệu lực cả trong JVM lẫn giữa các tiến trình dùng chung thư mục data/.
+ * Trong JVM là ReentrantLock (store bên dưới không an toàn khi nhiều thread đọc cùng lúc, giống monitor cũ);
+ * giữa các tiến trình là FileChannel.lock trên data/locks/<tên>.lock: shared khi đọc
+ * (nhiều tiến trình đọc song song), exclusive khi ghi. Giữ lồng nhau trong cùng thread thì dùng lại
+ * FileLock đang có; không được xin exclusive khi đang giữ shared.
+ */
+final class DataLock implements AutoCloseable {
+    private static final File LOCK_DIR = new File(FileServiceBase.DATA_DIR, "locks");
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private final Entry entry;
+
+    private static final class Entry {
+        final String name;
+        final ReentrantLock local = new ReentrantLock();
+        // Các field dưới chỉ được truy cập khi đang giữ local
+        FileChannel channel;
+        FileLock fileLock;
+        int holds;
+
+        Entry(String name) {
+            this.name = name;
+        }
+    }
+
+    private DataLock(Entry entry) {
+        this.entry = entry;
+    }
+
+    static DataLock shared(String name) throws IOException {
+        return acquire(name, false);
+    }
+
+    static DataLock exclusive(String name) throws IOException {
+        return acquire(name, true);
+    }
+
+    private static DataLock acquire(String name, boolean exclusive) throws IOException {
+        Entry entry = ENTRIES.computeIfAbsent(name, Entry::new);
+        entry.local.lock();
+        try {
+            if (entry.holds == 0) {
+                DataTransaction.checkDeclared(name);
+                entry.fileLock = channelOf(entry).lock(0, Long.MAX_VALUE, !exclusive);
+            } else if (exclusive && entry.fileLock.isShared()) {
+                throw new IllegalStateException("Cannot upgrade shared lock " + name + " to exclusive");
+            }
+            entry.holds++;
+        } catch (IOException | RuntimeException e) {
+            entry.local.unlock();
+            throw e;
+        }
+        return new DataLock(entry);
+    }
+
+    private static FileChannel channelOf(Entry entry) throws IOException {
+        if (entry.channel == null || !entry.channel.isOpen()) {
+            LOCK_DIR.mkdirs();
+            // Channel được giữ mở suốt vòng đời ứng dụng, đóng channel sẽ nhả mọi FileLock trên nó
+            entry.channel = new RandomAccessFile(new File(LOCK_DIR, entry.name + ".lock"), "rw").getChannel();
+        }
+        return entry.channel;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (--entry.holds == 0) {
+                entry.fileLock.release();
+                entry.fileLock = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not release lock " + entry.name + ": " + e.getMessage());
+        } finally {
+            entry.local.unlock();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import restaurantbookingmanagement.ai.AIAgentConnector;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Design Pattern: Unit of Work (đơn giản)
+// Purpose: Nhiều console (lễ tân, quản lý) chạy chung một thư mục data/. Service đọc list, sửa rồi ghi lại
+//          toàn bộ, nên nếu hai tiến trình xen kẽ nhau thì lần ghi sau xóa mất thay đổi của lần ghi trước.
+/**
+ * Giữ khóa liên tiến trình trên các tập dữ liệu mà một thao tác đọc - sửa - ghi của service dùng tới:
+ * exclusive với tập được ghi, shared với tập chỉ đọc, nên hai thao tác trên hai tập khác nhau
+ * (ví dụ sửa menu và tạo order) không phải chờ nhau.
+ * Khóa luôn được lấy theo thứ tự tên, vì vậy transaction phải khai báo mọi tập nó đọc hoặc ghi
+ * (kể cả tập được đọc gián tiếp, ví dụ booking gắn customer/table khi đọc); đọc tập chưa khai báo
+ * trong transaction có thể deadlock với transaction khác và sẽ bị cảnh báo.
+ * Khi lấy khóa, cache trong bộ nhớ của các tập đó được kiểm tra lại với file trên đĩa
+ * nên thao tác luôn dựa trên dữ liệu mới nhất, kể cả thay đổi vừa được tiến trình khác ghi.
+ * Transaction lồng nhau (service gọi service) dùng lại khóa đang giữ.
+ * Thông báo AI Agent nạp lại dữ liệu được gom lại và chỉ gửi (bất đồng bộ) sau khi transaction ngoài cùng nhả khóa.
+ *
+ * <pre>
+ * try (DataTransaction tx = DataTransaction.begin(write(BOOKINGS), write(TABLES), read(CUSTOMERS))) {
+ *     List&lt;Booking&gt; bookings = bookingFileService.readBookingsFromFile();
+ *     ...
+ *     bookingFileService.writeBookingsToFile(bookings);
+ * }
+ * </pre>
+ */
+public final class DataTransaction implements AutoCloseable {
+    // Tên tập dữ liệu, trùng tên khóa mà file service dùng khi đọc/ghi
+    public static final String BOOKINGS = "bookings.json";
+    public static final String CUSTOMERS = "customers.json";
+    public static final String MENU = "menu_items.json";
+    public static final String ORDERS = "orders.json";
+    public static final String TABLES = "tables.json";
+    private static final Set<String> DATA_SETS = Set.of(BOOKINGS, CUSTOMERS, MENU, ORDERS, TABLES);
+    // Tập mà thread đang giữ qua transaction: tên -> có phải exclusive không
+    private static final ThreadLocal<Map<String, Boolean>> HELD = new ThreadLocal<>();
+    // Transaction đang chạy trên thread đã ghi dữ liệu, cần báo AI Agent khi nhả khóa
+    private static final ThreadLocal<Boolean> CHANGED = new ThreadLocal<>();
+
+    private final List<String> acquired;
+    private final List<DataLock> locks;
+
+    /**
+     * Một tập dữ liệu mà transaction dùng tới, tạo bằng {@link #read} hoặc {@link #write}
+     */
+    public static final class Access {
+        private final String name;
+        private final boolean exclusive;
+
+        private Access(String name, boolean exclusive) {
+            if (!DATA_SETS.contains(name)) throw new IllegalArgumentException("Unknown data set: " + name);
+            this.name = name;
+            this.exclusive = exclusive;
+        }
+    }
+
+    private DataTransaction(List<String> acquired, List<DataLock> locks) {
+        this.acquired = acquired;
+        this.locks = locks;
+    }
+
+    public static Access read(String dataSet) {
+        return new Access(dataSet, false);
+    }
+
+    public static Access write(String dataSet) {
+        return new Access(dataSet, true);
+    }
+
+    /**
+     * Bắt đầu transaction trên các tập đã khai báo; tập vừa đọc vừa ghi được khóa exclusive.
+     * Không lấy được khóa file thì vẫn chạy và báo cảnh báo.
+     * Transaction lồng nhau ghi vào tập mà transaction ngoài chỉ khai báo đọc là lỗi lập trình (IllegalStateException).
+     */
+    public static DataTransaction begin(Access... accesses) {
+        // Gộp theo tên và sắp theo tên: mọi transaction lấy khóa cùng một thứ tự
+        Map<String, Boolean> wanted = new TreeMap<>();
+        for (Access access : accesses) {
+            wanted.merge(access.name, access.exclusive, Boolean::logicalOr);
+        }
+        Map<String, Boolean> held = HELD.get();
+        if (held == null) {
+            held = new HashMap<>();
+            HELD.set(held);
+        }
+        boolean nested = !held.isEmpty();
+        List<String> acquired = new ArrayList<>();
+        List<DataLock> locks = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Boolean> entry : wanted.entrySet()) {
+                String name = entry.getKey();
+                boolean exclusive = entry.getValue();
+                Boolean heldExclusive = held.get(name);
+                if (heldExclusive != null) {
+                    if (exclusive && !heldExclusive) {
+                        throw new IllegalStateException("Transaction writes " + name + " but the enclosing transaction only declared it for reading");
+                    }
+                    continue;
+                }
+                if (nested) warnUndeclared(name, held);
+                // Ghi nhận trước khi lấy khóa để DataLock không coi đây là lần dùng tập chưa khai báo
+                held.put(name, exclusive);
+                acquired.add(name);
+                try {
+                    locks.add(exclusive ? DataLock.exclusive(name) : DataLock.shared(name));
+                } catch (IOException e) {
+                    System.err.println("Warning: Could not acquire data lock " + name + ", continuing without cross-process locking: " + e.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            new DataTransaction(acquired, locks).close();
+            throw e;
+        }
+        reloadStaleCaches(acquired);
+        return new DataTransaction(acquired, locks);
+    }
+
+    /**
+     * Gọi bởi DataLock trước khi lấy khóa mới: trong transaction mà lấy khóa của tập chưa khai báo
+     * thì thứ tự lấy khóa không còn được đảm bảo
+     */
+    static void checkDeclared(String lockName) {
+        Map<String, Boolean> held = HELD.get();
+        if (held != null && !held.isEmpty() && DATA_SETS.contains(lockName) && !held.containsKey(lockName)) {
+            warnUndeclared(lockName, held);
+        }
+    }
+
+    /**
+     * Ghi nhận dữ liệu đã đổi: AI Agent được báo sau khi transaction ngoài cùng nhả khóa,
+     * gọi ngoài transaction thì báo ngay (vẫn không chặn)
+     */
+    static void markChanged() {
+        Map<String, Boolean> held = HELD.get();
+        if (held == null || held.isEmpty()) {
+            AIAgentConnector.shared().requestKnowledgeRefresh();
+        } else {
+            CHANGED.set(Boolean.TRUE);
+        }
+    }
+
+    private static void warnUndeclared(String name, Map<String, Boolean> held) {
+        System.err.println("Warning: " + name + " is used inside a transaction that did not declare it (declared: "
+                + held.keySet() + "), this can deadlock with other transactions");
+    }
+
+    private static void reloadStaleCaches(List<String> dataSets) {
+        try {
+            boolean changed = false;
+            for (String dataSet : dataSets) {
+                changed |= switch (dataSet) {
+                    case BOOKINGS -> BookingFileService.reloadIfChanged();
+                    case CUSTOMERS -> CustomerFileService.reloadIfChanged();
+                    case MENU -> MenuItemFileService.reloadIfChanged();
+                    case ORDERS -> OrderFileService.reloadIfChanged();
+                    case TABLES -> TableFileService.reloadIfChanged();
+                    default -> false;
+                };
+            }
+            if (changed) AIAgentConnector.shared().invalidateResponseCache();
+        } catch (Exception e) {
+            System.err.println("Warning: Could not reload data changed by another process: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        Map<String, Boolean> held = HELD.get();
+        for (String name : acquired) held.remove(name);
+        boolean outermost = held.isEmpty();
+        if (outermost) HELD.remove();
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).close();
+        }
+        if (outermost && CHANGED.get() != null) {
+            CHANGED.remove();
+            AIAgentConnector.shared().requestKnowledgeRefresh();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cache trong bộ nhớ cho một tập entity nhỏ được đọc toàn bộ (menu, khách hàng, bàn).
+ * Record được giữ dạng cây JSON bất biến; mỗi lần đọc tạo object mới nên code gọi
+ * sửa object mà không ghi lại thì cũng không làm bẩn cache.
+ * Nội dung được thay nguyên khối (một tham chiếu volatile): người đọc chỉ thấy bản cũ hoặc bản mới.
+ * Khi DataDirectoryWatcher không chạy, mỗi lần đọc so mtime/size của file để phát hiện sửa từ bên ngoài.
+ */
+class EntityCache<T> {
+    private final File file;
+    private final TypeAdapter<T> adapter;
+    private final String lockName;
+    private final Loader<T> loader;
+    private volatile Entry entry;
+
+    /**
+     * Đọc tập entity từ đĩa (snapshot hoặc JSON), được gọi khi đang giữ DataLock của file
+     */
+    interface Loader<T> {
+        List<T> load(File file) throws IOException;
+    }
+
+    private static final class Entry {
+        final List<JsonElement> records;
+        final FileFingerprint fingerprint;
+
+        Entry(List<JsonElement> records, FileFingerprint fingerprint) {
+            this.records = records;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    EntityCache(File file, Class<T> type, Loader<T> loader) {
+        this.file = file;
+        this.adapter = FileServiceBase.gson.getAdapter(type);
+        this.lockName = file.getName();
+        this.loader = loader;
+    }
+
+    /**
+     * Bản sao mới của tập entity; chỉ chạm đĩa ở lần đầu hoặc khi file đã đổi
+     */
+    @SuppressWarnings("try")
+    List<T> read() throws IOException {
+        Entry current = entry;
+        if (current == null || (!DataDirectoryWatcher.isRunning() && !current.fingerprint.sameStat(file))) {
+            try (DataLock lock = DataLock.shared(lockName)) {
+                refresh();
+                current = entry;
+            }
+        }
+        List<T> result = new ArrayList<>(current.records.size());
+        for (JsonElement record : current.records) {
+            result.add(adapter.fromJsonTree(record));
+        }
+        return result;
+    }
+
+    /**
+     * Cập nhật cache sau khi chính ứng dụng vừa ghi file (gọi khi đang giữ DataLock exclusive)
+     */
+    void update(List<T> values) throws IOException {
+        entry = new Entry(encode(values), FileFingerprint.of(file));
+    }
+
+    /**
+     * Nạp lại nếu nội dung file khác với bản đang cache, trả về true nếu đã thay.
+     * Cache chưa từng được đọc thì bỏ qua, lần đọc đầu tiên sẽ tự nạp.
+     */
+    @SuppressWarnings("try")
+    boolean reloadIfChanged() throws IOException {
+        try (DataLock lock = DataLock.shared(lockName)) {
+            return entry != null && refresh();
+        }
+    }
+
+    // Gọi khi đang giữ DataLock
+    private boolean refresh() throws IOException {
+        Entry current = entry;
+        // Lần nạp đầu không đọc nội dung JSON: loader có thể chỉ cần snapshot
+        FileFingerprint fingerprint = current != null ? current.fingerprint.refresh(file) : FileFingerprint.statOf(file);
+        if (current != null && fingerprint == current.fingerprint) return false;
+        if (current != null && fingerprint.sameContent(current.fingerprint)) {
+            entry = new Entry(current.records, fingerprint);
+            return false;
+        }
+        // Tạo bản mới hoàn chỉnh rồi mới thay tham chiếu
+        entry = new Entry(encode(loader.load(file)), fingerprint);
+        return current != null;
+    }
+
+    private List<JsonElement> encode(List<T> values) {
+        List<JsonElement> records = new ArrayList<>(values.size());
+        for (T value : values) {
+            records.add(adapter.toJsonTree(value));
+        }
+        return List.copyOf(records);
+    }
+}
@@ -0,0 +1,70 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * Dấu vân tay của file: mtime, kích thước và CRC32 nội dung.
+ * Khi kiểm tra, mtime/size được so trước; chỉ khi chúng khác mới phải đọc file để tính hash,
+ * nên việc "touch" hay ghi lại đúng nội dung cũ không bị coi là thay đổi.
+ * Fingerprint chỉ có mtime/size (statOf) không biết nội dung: khi file đổi mtime/size nó luôn bị coi là khác.
+ */
+final class FileFingerprint {
+    static final FileFingerprint MISSING = new FileFingerprint(0, -1, 0);
+    // CRC32 luôn không âm
+    private static final long UNKNOWN_HASH = -1;
+
+    private final long modified;
+    private final long size;
+    private final long hash;
+
+    private FileFingerprint(long modified, long size, long hash) {
+        this.modified = modified;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    static FileFingerprint of(File file) throws IOException {
+        if (!file.exists()) return MISSING;
+        return of(file, Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Chỉ lấy mtime/size, không đọc nội dung (dùng khi nạp lần đầu từ snapshot)
+     */
+    static FileFingerprint statOf(File file) {
+        if (!file.exists()) return MISSING;
+        return new FileFingerprint(file.lastModified(), file.length(), UNKNOWN_HASH);
+    }
+
+    /**
+     * Fingerprint từ nội dung vừa đọc/ghi, tránh phải đọc file thêm lần nữa
+     */
+    static FileFingerprint of(File file, byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return new FileFingerprint(file.lastModified(), content.length, crc.getValue());
+    }
+
+    /**
+     * mtime và size còn khớp, không cần đọc nội dung
+     */
+    boolean sameStat(File file) {
+        if (!file.exists()) return this == MISSING;
+        return file.lastModified() == modified && file.length() == size;
+    }
+
+    /**
+     * Fingerprint hiện tại của file; trả về chính nó nếu mtime/size chưa đổi
+     */
+    FileFingerprint refresh(File file) throws IOException {
+        return sameStat(file) ? this : of(file);
+    }
+
+    boolean sameContent(FileFingerprint other) {
+        if (this == MISSING || other == MISSING) return this == other;
+        return hash != UNKNOWN_HASH && size == other.size && hash == other.hash;
+    }
+}
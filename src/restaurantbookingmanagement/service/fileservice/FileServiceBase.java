@@ -2,23 +2,209 @@ package restaurantbookingmanagement.service.fileservice;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import restaurantbookingmanagement.ai.AIAgentConnector;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import restaurantbookingmanagement.model.*;
+import restaurantbookingmanagement.utils.IntArrayList;
+import restaurantbookingmanagement.utils.IntCollectionAdapters;
+import restaurantbookingmanagement.utils.IntHashSet;
 import restaurantbookingmanagement.utils.LocalDateTimeAdapter;
+import restaurantbookingmanagement.utils.ModelTypeAdapters;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
 
 public abstract class FileServiceBase {
     protected static final String DATA_DIR = "data";
-    protected final Gson gson = new GsonBuilder()
-        .setPrettyPrinting()
-        .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-        .create();
-    private final AIAgentConnector aiAgentConnector = new AIAgentConnector();
+    // Mặc định ghi JSON gọn; bật -Drbm.json.pretty=true để ghi dạng dễ đọc
+    private static final String PRETTY_PROPERTY = "rbm.json.pretty";
+    // Header của file dữ liệu
+    private static final String VERSION_FIELD = "schemaVersion";
+    private static final String RECORDS_FIELD = "records";
+    // Gson dùng chung cho mọi file service, các model dùng adapter viết tay (không reflection)
+    protected static final Gson gson = createGson();
 
-    protected void notifyAIAgentOfChange() {
+    private static Gson createGson() {
+        GsonBuilder builder = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(IntArrayList.class, new IntCollectionAdapters.IntArrayListAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntCollectionAdapters.IntHashSetAdapter())
+            .registerTypeAdapter(MenuItem.class, ModelTypeAdapters.MENU_ITEM)
+            .registerTypeAdapter(Customer.class, ModelTypeAdapters.CUSTOMER)
+            .registerTypeAdapter(Table.class, ModelTypeAdapters.TABLE)
+            .registerTypeAdapter(Booking.class, ModelTypeAdapters.BOOKING)
+            .registerTypeAdapter(Order.class, ModelTypeAdapters.ORDER);
+        if (Boolean.getBoolean(PRETTY_PROPERTY)) {
+            builder.setPrettyPrinting();
+        }
+        return builder.create();
+    }
+
+    /**
+     * Đọc mảng JSON trong file theo kiểu streaming, file không tồn tại thì trả về list rỗng
+     */
+    protected static <T> List<T> readList(File file, Class<T> type) throws IOException {
+        return readList(file, type, value -> true);
+    }
+
+    /**
+     * Đọc streaming và chỉ giữ lại các record thỏa predicate,
+     * bộ nhớ dùng tỉ lệ với số kết quả thay vì kích thước file
+     */
+    protected static <T> List<T> readList(File file, Class<T> type, Predicate<? super T> filter) throws IOException {
+        List<T> result = new ArrayList<>();
+        scan(file, type, value -> {
+            if (filter.test(value)) result.add(value);
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * Duyệt từng record trong file; visitor trả về false để dừng sớm
+     */
+    private static <T> void scan(File file, Class<T> type, Predicate<? super T> visitor) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        scan(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), type, visitor);
+    }
+
+    /**
+     * File có dạng {"schemaVersion": n, "records": [...]}; file cũ là mảng trần (version 1).
+     * Record có version cũ được migrate khi đọc, file chỉ được nâng cấp khi ghi lại lần tới.
+     */
+    static <T> void scan(Reader in, Class<T> type, Predicate<? super T> visitor) throws IOException {
+        TypeAdapter<T> adapter = gson.getAdapter(type);
+        try (JsonReader reader = gson.newJsonReader(new BufferedReader(in))) {
+            if (reader.peek() == JsonToken.END_DOCUMENT) return;
+            if (reader.peek() == JsonToken.NULL) return;
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                scanRecords(reader, adapter, type, SchemaMigrations.LEGACY_VERSION, visitor);
+                return;
+            }
+            int version = SchemaMigrations.LEGACY_VERSION;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case VERSION_FIELD -> version = reader.nextInt();
+                    case RECORDS_FIELD -> {
+                        if (!scanRecords(reader, adapter, type, version, visitor)) return;
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+    }
+
+    /**
+     * Duyệt mảng record, trả về false nếu visitor đã dừng sớm
+     */
+    private static <T> boolean scanRecords(JsonReader reader, TypeAdapter<T> adapter, Class<T> type,
+                                           int version, Predicate<? super T> visitor) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            T value = readRecord(reader, adapter, type, version);
+            if (value != null && !visitor.test(value)) return false;
+        }
+        reader.endArray();
+        return true;
+    }
+
+    /**
+     * Đọc một record; record đúng version đi thẳng qua adapter,
+     * record cũ được đọc thành cây JSON rồi chạy qua chuỗi migrator
+     */
+    static <T> T readRecord(JsonReader reader, TypeAdapter<T> adapter, Class<T> type, int version) throws IOException {
+        if (SchemaMigrations.normalize(version) >= SchemaMigrations.currentVersion(type)) {
+            return adapter.read(reader);
+        }
+        JsonElement element = JsonParser.parseReader(reader);
+        if (element.isJsonObject()) {
+            SchemaMigrations.migrate(type, element.getAsJsonObject(), version);
+        }
+        return adapter.fromJsonTree(element);
+    }
+
+    /**
+     * Ghi list ra file kèm header schemaVersion theo kiểu streaming
+     */
+    protected static <T> void writeList(File file, List<T> values, Class<T> type) throws IOException {
+        replaceAtomically(file, out -> writeList(out, values, type));
+    }
+
+    static <T> void writeList(OutputStream out, List<T> values, Class<T> type) throws IOException {
+        TypeAdapter<T> adapter = gson.getAdapter(type);
+        try (JsonWriter writer = gson.newJsonWriter(
+                new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)))) {
+            writer.beginObject();
+            writer.name(VERSION_FIELD).value(SchemaMigrations.currentVersion(type));
+            writer.name(RECORDS_FIELD);
+            writer.beginArray();
+            for (T value : values) {
+                adapter.write(writer, value);
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Ghi nội dung ra file tạm cạnh file đích rồi đổi tên nguyên tử,
+     * tiến trình khác chỉ thấy file cũ hoặc file mới hoàn chỉnh, không bao giờ thấy file ghi dở
+     */
+    static void replaceAtomically(File target, OutputAction write) throws IOException {
+        File tmp = new File(target.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            write.writeTo(out);
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ReplicationLog.replaced(target);
+    }
+
+    /**
+     * Chạy một lần ghi của tập dữ liệu: generation là số lẻ trong lúc ghi,
+     * ghi xong (kể cả khi lỗi) thì thành số chẵn để người đọc biết có trạng thái mới.
+     * Khi bật nhân bản, các file đã ghi được gửi sang replica như một change record.
+     */
+    protected static void publish(String dataSet, WriteAction write) throws IOException {
+        if (ReplicaApplier.isReplica()) {
+            throw new IOException("Data directory is a read-only replica");
+        }
+        DataGenerations.begin(dataSet);
+        ReplicationLog.begin();
         try {
-            aiAgentConnector.notifyKnowledgeRefresh();
-        } catch (Exception e) {
-            System.err.println("Warning: Could not notify AI Agent of data change: " + e.getMessage());
+            write.run();
+        } finally {
+            // File đã ghi vẫn được gửi khi lỗi giữa chừng để replica giống hệt primary
+            List<ReplicationLog.FileChange> changes = ReplicationLog.end();
+            long generation = DataGenerations.end(dataSet);
+            ReplicationLog.commit(dataSet, generation, changes);
         }
     }
-} 
\ No newline at end of file
+
+    interface OutputAction {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    protected interface WriteAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Báo AI Agent dữ liệu đã đổi; được hoãn tới khi transaction nhả khóa và gửi không chặn
+     */
+    protected void notifyAIAgentOfChange() {
+        DataTransaction.markChanged();
+    }
+}
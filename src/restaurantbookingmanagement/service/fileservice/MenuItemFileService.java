@@ -3,37 +3,48 @@ package restaurantbookingmanagement.service.fileservice;
 import restaurantbookingmanagement.model.MenuItem;
 import java.util.List;
 import java.util.ArrayList;
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
 
 public class MenuItemFileService extends FileServiceBase {
     private static final String MENU_ITEMS_FILE = "menu_items.json";
-    public synchronized List<MenuItem> readMenuItemsFromFile() {
+    private static final BinarySnapshot<MenuItem> SNAPSHOT = new BinarySnapshot<>(DATA_DIR, "menu_items", SnapshotCodecs.MENU_ITEM);
+    // Giữ trong bộ nhớ, được DataDirectoryWatcher nạp lại khi file bị sửa từ bên ngoài
+    private static final EntityCache<MenuItem> CACHE = new EntityCache<>(
+            new File(DATA_DIR, MENU_ITEMS_FILE), MenuItem.class, MenuItemFileService::load);
+    public List<MenuItem> readMenuItemsFromFile() {
         try {
-            File file = new File(DATA_DIR, MENU_ITEMS_FILE);
-            if (!file.exists()) {
-                return new ArrayList<>();
-            }
-            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-                java.lang.reflect.Type listType = new TypeToken<List<MenuItem>>(){}.getType();
-                List<MenuItem> menuItems = gson.fromJson(reader, listType);
-                return menuItems != null ? menuItems : new ArrayList<>();
-            }
+            return CACHE.read();
         } catch (Exception e) {
             System.err.println("Error reading menu items from file: " + e.getMessage());
             return new ArrayList<>();
         }
     }
-    public synchronized void writeMenuItemsToFile(List<MenuItem> menuItems) {
-        try {
+    @SuppressWarnings("try")
+    public boolean writeMenuItemsToFile(List<MenuItem> menuItems) {
+        try (DataTransaction tx = DataTransaction.begin(DataTransaction.write(MENU_ITEMS_FILE))) {
             File file = new File(DATA_DIR, MENU_ITEMS_FILE);
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                gson.toJson(menuItems, writer);
-            }
+            publish("menu_items", () -> writeList(file, menuItems, MenuItem.class));
+            SNAPSHOT.save(menuItems, BinarySnapshot.stampOf("menu_items", file));
+            CACHE.update(menuItems);
             notifyAIAgentOfChange();
+            return true;
         } catch (Exception e) {
             System.err.println("Error writing menu items to file: " + e.getMessage());
+            return false;
         }
     }
-} 
\ No newline at end of file
+    /**
+     * Nạp lại nếu file đã bị sửa từ bên ngoài, trả về true nếu có thay đổi
+     */
+    static boolean reloadIfChanged() throws IOException {
+        return CACHE.reloadIfChanged();
+    }
+    private static List<MenuItem> load(File file) throws IOException {
+        List<MenuItem> cached = SNAPSHOT.load(BinarySnapshot.stampOf("menu_items", file));
+        if (cached != null) return cached;
+        List<MenuItem> menuItems = readList(file, MenuItem.class);
+        SNAPSHOT.save(menuItems, BinarySnapshot.stampOf("menu_items", file));
+        return menuItems;
+    }
+}
\ No newline at end of file
@@ -1,39 +1,170 @@
 package restaurantbookingmanagement.service.fileservice;
 
 import restaurantbookingmanagement.model.Order;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import com.google.gson.reflect.TypeToken;
+import java.util.function.Predicate;
 
 public class OrderFileService extends FileServiceBase {
     private static final String ORDERS_FILE = "orders.json";
-    public synchronized List<Order> readOrdersFromFile() {
-        try {
-            File file = new File(DATA_DIR, ORDERS_FILE);
-            if (!file.exists()) {
-                return new ArrayList<>();
-            }
-            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-                java.lang.reflect.Type listType = new TypeToken<List<Order>>(){}.getType();
-                List<Order> orders = gson.fromJson(reader, listType);
-                return orders != null ? orders : new ArrayList<>();
+    // Lưu theo tháng trong data/orders/, dùng chung cho mọi instance
+    private static final PartitionedFileStore<Order> STORE = new PartitionedFileStore<>(
+            DATA_DIR, "orders", Order.class, Order::getOrderTime);
+    // Record đã hoàn thành được chuyển sang archive nén, chỉ ghi thêm
+    private static final ArchiveStore<Order> ARCHIVE = new ArchiveStore<>(DATA_DIR, "orders", Order.class, Order::getOrderId);
+    // Order lịch sử được giữ ngoài heap cho báo cáo, nạp từ archive ở lần dùng đầu tiên
+    private static final OrderHistoryStore HISTORY = new OrderHistoryStore();
+    private static boolean historyLoaded;
+    private static long historyVersion;
+    private static final BinarySnapshot<Order> SNAPSHOT = new BinarySnapshot<>(DATA_DIR, "orders", SnapshotCodecs.ORDER);
+    private static final Predicate<Order> TERMINAL = o -> !o.getStatus().isOpen();
+    @SuppressWarnings("try")
+    public List<Order> readOrdersFromFile() {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            // Record còn sót trong file đang dùng sau khi đã vào archive (tiến trình chết giữa hai bước ghi) bị bỏ qua
+            Predicate<Order> active = ARCHIVE.notArchived(order -> true);
+            List<Order> cached = SNAPSHOT.load(STORE.stamp());
+            if (cached != null) {
+                cached.removeIf(active.negate());
+                return cached;
             }
+            List<Order> orders = STORE.read(active);
+            SNAPSHOT.save(orders, STORE.stamp());
+            return orders;
+        } catch (Exception e) {
+            System.err.println("Error reading orders from file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    /**
+     * Đọc streaming, chỉ materialize các order thỏa predicate
+     */
+    @SuppressWarnings("try")
+    public List<Order> readOrdersMatching(Predicate<? super Order> filter) {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            return STORE.read(ARCHIVE.notArchived(filter));
+        } catch (Exception e) {
+            System.err.println("Error reading orders from file: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    /**
+     * Đọc các order trong khoảng [from, to), chỉ mở các partition tháng liên quan
+     */
+    @SuppressWarnings("try")
+    public List<Order> readOrdersBetween(LocalDateTime from, LocalDateTime to, Predicate<? super Order> filter) {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            return STORE.readBetween(from, to, ARCHIVE.notArchived(filter));
         } catch (Exception e) {
             System.err.println("Error reading orders from file: " + e.getMessage());
             return new ArrayList<>();
         }
     }
-    public synchronized void writeOrdersToFile(List<Order> orders) {
-        try {
-            File file = new File(DATA_DIR, ORDERS_FILE);
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                gson.toJson(orders, writer);
+    /**
+     * Tìm order đầu tiên thỏa predicate, dừng đọc file khi đã thấy
+     */
+    @SuppressWarnings("try")
+    public Order findOrder(Predicate<? super Order> filter) {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            return STORE.findFirst(ARCHIVE.notArchived(filter));
+        } catch (Exception e) {
+            System.err.println("Error reading orders from file: " + e.getMessage());
+            return null;
+        }
+    }
+    /**
+     * Đọc streaming các order trong archive (lịch sử), chỉ giữ lại record thỏa predicate
+     */
+    @SuppressWarnings("try")
+    public List<Order> readArchivedOrdersMatching(Predicate<? super Order> filter) {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            return ARCHIVE.read(filter);
+        } catch (Exception e) {
+            System.err.println("Error reading archived orders: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    /**
+     * Tìm order trong archive theo id qua index của archive
+     */
+    @SuppressWarnings("try")
+    public Order findArchivedOrder(int id) {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            return ARCHIVE.find(id);
+        } catch (Exception e) {
+            System.err.println("Error reading archived orders: " + e.getMessage());
+            return null;
+        }
+    }
+    /**
+     * Order đã lưu trữ trong store ngoài heap, dùng cho báo cáo không cần tạo object
+     */
+    @SuppressWarnings("try")
+    public OrderHistoryStore getOrderHistory() {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            long version = ARCHIVE.version();
+            if (!historyLoaded || version != historyVersion) {
+                // Filter trả về false để không giữ lại list object trên heap; HISTORY.add bỏ qua id đã có
+                ARCHIVE.read(order -> {
+                    HISTORY.add(order);
+                    return false;
+                });
+                historyLoaded = true;
+                historyVersion = version;
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading order history: " + e.getMessage());
+        }
+        return HISTORY;
+    }
+    /**
+     * Id lớn nhất đã nằm trong archive, dùng khi cấp id mới để không bị trùng
+     */
+    @SuppressWarnings("try")
+    public int getMaxArchivedOrderId() {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            return ARCHIVE.maxId();
+        } catch (Exception e) {
+            System.err.println("Error reading archived orders: " + e.getMessage());
+            return 0;
+        }
+    }
+    /**
+     * Bỏ cache manifest/partition/index archive nếu data/orders bị sửa từ bên ngoài, trả về true nếu có thay đổi
+     */
+    @SuppressWarnings("try")
+    static boolean reloadIfChanged() throws IOException {
+        try (DataLock lock = DataLock.shared(ORDERS_FILE)) {
+            // HISTORY được bổ sung ở lần getOrderHistory kế tiếp khi phiên bản index archive đổi
+            return STORE.reloadIfChanged() | ARCHIVE.reloadIfChanged();
+        }
+    }
+    /**
+     * Ghi danh sách order: record ở trạng thái cuối được chuyển vào archive,
+     * file đang dùng chỉ giữ record còn mở
+     */
+    @SuppressWarnings("try")
+    public boolean writeOrdersToFile(List<Order> orders) {
+        try (DataTransaction tx = DataTransaction.begin(DataTransaction.write(ORDERS_FILE))) {
+            List<Order> active = new ArrayList<>();
+            List<Order> terminal = new ArrayList<>();
+            for (Order order : orders) {
+                (TERMINAL.test(order) ? terminal : active).add(order);
             }
+            publish("orders", () -> {
+                // Ghi archive trước để không mất lịch sử nếu bị dừng giữa chừng
+                ARCHIVE.append(terminal);
+                if (historyLoaded) terminal.forEach(HISTORY::add);
+                STORE.write(active);
+            });
+            SNAPSHOT.save(active, STORE.stamp());
             notifyAIAgentOfChange();
+            return true;
         } catch (Exception e) {
             System.err.println("Error writing orders to file: " + e.getMessage());
+            return false;
         }
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
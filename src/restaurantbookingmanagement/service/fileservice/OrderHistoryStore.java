@@ -0,0 +1,203 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import restaurantbookingmanagement.model.Order;
+import restaurantbookingmanagement.model.OrderStatus;
+import restaurantbookingmanagement.utils.IntHashSet;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Lưu order lịch sử (đã lưu trữ) ngoài heap, trong direct ByteBuffer với layout cố định.
+ * Mỗi order chiếm RECORD_SIZE byte, các món nằm ở buffer riêng (itemId, amount).
+ * Index id -> vị trí record là một IntHashSet giữ thứ tự thêm vào, nên offset = vị trí * RECORD_SIZE.
+ * Code báo cáo duyệt qua OrderCursor dùng lại được, không tạo object cho từng order.
+ */
+public class OrderHistoryStore {
+    // Layout một record order
+    private static final int ORDER_ID = 0;
+    private static final int BOOKING_ID = 4;
+    private static final int TABLE_ID = 8;
+    private static final int STATUS = 12;
+    private static final int EPOCH_SECOND = 16;
+    private static final int NANO = 24;
+    private static final int ITEM_COUNT = 28;
+    private static final int TOTAL_AMOUNT = 32;
+    private static final int ITEMS_START = 40;
+    private static final int RECORD_SIZE = 48;
+    private static final int ITEM_SIZE = 8;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final IntHashSet ids = new IntHashSet(1024);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ByteBuffer records = ByteBuffer.allocateDirect(1024 * RECORD_SIZE);
+    private ByteBuffer items = ByteBuffer.allocateDirect(4096 * ITEM_SIZE);
+    private int itemCount;
+
+    /**
+     * Thêm order vào store, bỏ qua nếu id đã có (lịch sử không thay đổi)
+     */
+    public boolean add(Order order) {
+        lock.writeLock().lock();
+        try {
+            if (ids.contains(order.getOrderId())) return false;
+            List<Order.OrderItem> orderItems = order.getItems() != null ? order.getItems() : List.of();
+            records = ensureCapacity(records, (ids.size() + 1) * RECORD_SIZE);
+            items = ensureCapacity(items, (itemCount + orderItems.size()) * ITEM_SIZE);
+
+            int base = ids.size() * RECORD_SIZE;
+            records.putInt(base + ORDER_ID, order.getOrderId());
+            records.putInt(base + BOOKING_ID, order.getBookingId());
+            records.putInt(base + TABLE_ID, order.getTableId());
+            records.put(base + STATUS, (byte) (order.getStatus() != null ? order.getStatus().ordinal() : -1));
+            LocalDateTime time = order.getOrderTime();
+            records.putLong(base + EPOCH_SECOND, time != null ? time.toEpochSecond(ZoneOffset.UTC) : NO_TIME);
+            records.putInt(base + NANO, time != null ? time.getNano() : 0);
+            records.putInt(base + ITEM_COUNT, orderItems.size());
+            records.putDouble(base + TOTAL_AMOUNT, order.getTotalAmount());
+            records.putInt(base + ITEMS_START, itemCount);
+            for (Order.OrderItem oi : orderItems) {
+                items.putInt(itemCount * ITEM_SIZE, oi.getItemId());
+                items.putInt(itemCount * ITEM_SIZE + 4, oi.getAmount());
+                itemCount++;
+            }
+            ids.add(order.getOrderId());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(int orderId) {
+        lock.readLock().lock();
+        try {
+            return ids.contains(orderId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tạo lại Order từ record (chỉ dùng khi cần object thật), null nếu không có
+     */
+    public Order get(int orderId) {
+        lock.readLock().lock();
+        try {
+            int index = ids.indexOf(orderId);
+            return index < 0 ? null : new OrderCursor(index).toOrder();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Duyệt mọi record qua cùng một cursor; không giữ cursor lại sau khi visitor trả về
+     */
+    public void forEach(Consumer<OrderCursor> visitor) {
+        lock.readLock().lock();
+        try {
+            OrderCursor cursor = new OrderCursor(0);
+            for (int i = 0; i < ids.size(); i++) {
+                cursor.index = i;
+                visitor.accept(cursor);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tổng giá trị tính trên từng record, ví dụ doanh thu theo điều kiện
+     */
+    public double sum(ToDoubleFunction<OrderCursor> value) {
+        double[] total = {0.0};
+        forEach(cursor -> total[0] += value.applyAsDouble(cursor));
+        return total[0];
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int required) {
+        if (required <= buffer.capacity()) return buffer;
+        int capacity = buffer.capacity();
+        while (capacity < required) capacity *= 2;
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        grown.put(buffer.duplicate().clear());
+        return grown;
+    }
+
+    /**
+     * Con trỏ đọc trực tiếp field của record hiện tại trong buffer
+     */
+    public final class OrderCursor {
+        private int index;
+
+        private OrderCursor(int index) {
+            this.index = index;
+        }
+
+        private int base() {
+            return index * RECORD_SIZE;
+        }
+
+        public int orderId() { return records.getInt(base() + ORDER_ID); }
+        public int bookingId() { return records.getInt(base() + BOOKING_ID); }
+        public int tableId() { return records.getInt(base() + TABLE_ID); }
+        public double totalAmount() { return records.getDouble(base() + TOTAL_AMOUNT); }
+        public int itemCount() { return records.getInt(base() + ITEM_COUNT); }
+
+        public OrderStatus status() {
+            byte ordinal = records.get(base() + STATUS);
+            return ordinal < 0 ? null : STATUSES[ordinal];
+        }
+
+        /**
+         * Thời điểm order dạng epoch second (UTC), Long.MIN_VALUE nếu không có
+         */
+        public long orderEpochSecond() { return records.getLong(base() + EPOCH_SECOND); }
+
+        public boolean isOrderedBetween(LocalDateTime from, LocalDateTime to) {
+            long t = orderEpochSecond();
+            return t != NO_TIME && t >= from.toEpochSecond(ZoneOffset.UTC) && t < to.toEpochSecond(ZoneOffset.UTC);
+        }
+
+        public int itemId(int i) { return items.getInt(itemOffset(i)); }
+        public int itemAmount(int i) { return items.getInt(itemOffset(i) + 4); }
+
+        private int itemOffset(int i) {
+            return (records.getInt(base() + ITEMS_START) + i) * ITEM_SIZE;
+        }
+
+        public Order toOrder() {
+            Order order = new Order();
+            order.setOrderId(orderId());
+            order.setBookingId(bookingId());
+            order.setTableId(tableId());
+            order.setStatus(status());
+            long t = orderEpochSecond();
+            order.setOrderTime(t == NO_TIME ? null
+                    : LocalDateTime.ofEpochSecond(t, records.getInt(base() + NANO), ZoneOffset.UTC));
+            List<Order.OrderItem> orderItems = new ArrayList<>(itemCount());
+            for (int i = 0; i < itemCount(); i++) {
+                orderItems.add(new Order.OrderItem(itemId(i), itemAmount(i)));
+            }
+            order.setItems(orderItems);
+            order.setTotalAmount(totalAmount());
+            return order;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Lưu record theo partition tháng: data/<name>/yyyy-MM.json kèm manifest.json.
+ * Record ở trạng thái cuối nằm trong archive nên partition chỉ giữ record còn mở; partition của tháng đã qua
+ * được đánh dấu closed theo tuổi: nội dung được cache trong bộ nhớ và file chỉ bị ghi lại khi nội dung
+ * thực sự đổi (record cũ còn mở được hoàn thành rồi chuyển sang archive), gần như không bao giờ.
+ * Mọi method phải được gọi khi đang giữ DataLock của file tương ứng.
+ */
+class PartitionedFileStore<T> {
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String UNDATED = "undated";
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final String name;
+    private final File dir;
+    private final File legacyFile;
+    private final Class<T> type;
+    private final Function<T, LocalDateTime> timeOf;
+    private final Map<String, byte[]> closedCache = new HashMap<>();
+    // Fingerprint của file tương ứng với nội dung đang cache, dùng để phát hiện sửa từ bên ngoài
+    private final Map<String, FileFingerprint> closedFingerprints = new HashMap<>();
+    private FileFingerprint manifestFingerprint;
+    private Manifest manifest;
+
+    static class Manifest {
+        List<Partition> partitions = new ArrayList<>();
+    }
+
+    static class Partition {
+        String key;
+        int count;
+        boolean closed;
+        // schemaVersion của file partition, 0 nghĩa là file cũ chưa có header
+        int version;
+    }
+
+    /**
+     * @param name tên thư mục partition, file cũ name.json sẽ được tách ở lần dùng đầu tiên
+     * @param timeOf thời điểm dùng để chọn partition cho record
+     */
+    PartitionedFileStore(String dataDir, String name, Class<T> type, Function<T, LocalDateTime> timeOf) {
+        this.name = name;
+        this.dir = new File(dataDir, name);
+        this.legacyFile = new File(dataDir, name + ".json");
+        this.type = type;
+        this.timeOf = timeOf;
+    }
+
+    /**
+     * Stamp của store: generation của tập dữ liệu (tăng mỗi lần ghi, kể cả khi manifest giữ nguyên
+     * vì chỉ sửa record trong partition) kết hợp với size/mtime của manifest
+     */
+    long stamp() throws IOException {
+        ensureLoaded();
+        return BinarySnapshot.stampOf(name, new File(dir, MANIFEST_FILE));
+    }
+
+    List<T> read(Predicate<? super T> filter) throws IOException {
+        return read(partitions(), filter);
+    }
+
+    /**
+     * Chỉ mở các partition giao với khoảng [from, to)
+     */
+    List<T> readBetween(LocalDateTime from, LocalDateTime to, Predicate<? super T> filter) throws IOException {
+        String fromKey = keyOf(from);
+        String toKey = keyOf(to);
+        List<Partition> pruned = new ArrayList<>();
+        for (Partition p : partitions()) {
+            if (!p.key.equals(UNDATED) && p.key.compareTo(fromKey) >= 0 && p.key.compareTo(toKey) <= 0) {
+                pruned.add(p);
+            }
+        }
+        return read(pruned, value -> {
+            LocalDateTime time = timeOf.apply(value);
+            return !time.isBefore(from) && time.isBefore(to) && filter.test(value);
+        });
+    }
+
+    T findFirst(Predicate<? super T> filter) throws IOException {
+        List<T> found = new ArrayList<>(1);
+        for (Partition p : partitions()) {
+            scanPartition(p, value -> {
+                if (!filter.test(value)) return true;
+                found.add(value);
+                return false;
+            });
+            if (!found.isEmpty()) return found.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Ghi toàn bộ record: partition closed không đổi nội dung thì bỏ qua (kể cả khi file
+     * còn ở schema cũ, nó chỉ được nâng cấp khi thực sự thay đổi), partition không còn record thì bị xóa
+     */
+    void write(List<T> records) throws IOException {
+        ensureLoaded();
+        Map<String, List<T>> groups = new TreeMap<>();
+        for (T record : records) {
+            groups.computeIfAbsent(keyOf(timeOf.apply(record)), k -> new ArrayList<>()).add(record);
+        }
+        String currentMonth = YearMonth.now().format(MONTH);
+        Map<String, Partition> existing = new HashMap<>();
+        for (Partition p : manifest.partitions) existing.put(p.key, p);
+
+        List<Partition> updated = new ArrayList<>();
+        for (Map.Entry<String, List<T>> group : groups.entrySet()) {
+            String key = group.getKey();
+            List<T> values = group.getValue();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            FileServiceBase.writeList(buffer, values, type);
+            byte[] bytes = buffer.toByteArray();
+
+            Partition p = existing.getOrDefault(key, new Partition());
+            p.key = key;
+            boolean unchanged = p.closed && Arrays.equals(bytes, closedBytes(p));
+            if (!unchanged) {
+                dir.mkdirs();
+                FileServiceBase.replaceAtomically(partitionFile(key), out -> out.write(bytes));
+                p.version = SchemaMigrations.currentVersion(type);
+            }
+            p.count = values.size();
+            p.closed = !key.equals(UNDATED) && key.compareTo(currentMonth) < 0;
+            if (p.closed && !unchanged) cacheClosed(key, bytes, FileFingerprint.of(partitionFile(key), bytes));
+            else if (!p.closed) uncacheClosed(key);
+            updated.add(p);
+        }
+        for (Partition p : manifest.partitions) {
+            if (!groups.containsKey(p.key)) {
+                Files.deleteIfExists(partitionFile(p.key).toPath());
+                ReplicationLog.deleted(partitionFile(p.key));
+                uncacheClosed(p.key);
+            }
+        }
+        manifest.partitions = updated;
+        saveManifest();
+    }
+
+    private List<T> read(List<Partition> partitions, Predicate<? super T> filter) throws IOException {
+        List<T> result = new ArrayList<>();
+        for (Partition p : partitions) {
+            scanPartition(p, value -> {
+                if (filter.test(value)) result.add(value);
+                return true;
+            });
+        }
+        return result;
+    }
+
+    private void scanPartition(Partition p, Predicate<? super T> visitor) throws IOException {
+        Reader in;
+        if (p.closed) {
+            byte[] bytes = closedBytes(p);
+            if (bytes == null) return;
+            in = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+        } else {
+            File file = partitionFile(p.key);
+            if (!file.exists()) return;
+            in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+        }
+        FileServiceBase.scan(in, type, visitor);
+    }
+
+    /**
+     * Nội dung partition closed theo định dạng hiện tại; file còn ở schema cũ được
+     * migrate trong bộ nhớ, file trên đĩa giữ nguyên
+     */
+    private byte[] closedBytes(Partition p) throws IOException {
+        byte[] bytes = closedCache.get(p.key);
+        if (bytes == null) {
+            File file = partitionFile(p.key);
+            if (!file.exists()) return null;
+            bytes = Files.readAllBytes(file.toPath());
+            FileFingerprint fingerprint = FileFingerprint.of(file, bytes);
+            if (SchemaMigrations.normalize(p.version) < SchemaMigrations.currentVersion(type)) {
+                List<T> values = new ArrayList<>();
+                FileServiceBase.scan(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8), type, value -> {
+                    values.add(value);
+                    return true;
+                });
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                FileServiceBase.writeList(buffer, values, type);
+                bytes = buffer.toByteArray();
+            }
+            cacheClosed(p.key, bytes, fingerprint);
+        }
+        return bytes;
+    }
+
+    private void cacheClosed(String key, byte[] bytes, FileFingerprint fingerprint) {
+        closedCache.put(key, bytes);
+        closedFingerprints.put(key, fingerprint);
+    }
+
+    private void uncacheClosed(String key) {
+        closedCache.remove(key);
+        closedFingerprints.remove(key);
+    }
+
+    /**
+     * Bỏ phần đã cache nếu file bị sửa từ bên ngoài: manifest đổi thì nạp lại manifest,
+     * partition closed đổi thì chỉ bỏ cache của partition đó. Trả về true nếu có thay đổi.
+     */
+    boolean reloadIfChanged() throws IOException {
+        if (manifest == null) return false;
+        boolean changed = false;
+        File manifestFile = new File(dir, MANIFEST_FILE);
+        FileFingerprint current = manifestFingerprint.refresh(manifestFile);
+        if (current != manifestFingerprint && !current.sameContent(manifestFingerprint)) {
+            manifest = null;
+            closedCache.clear();
+            closedFingerprints.clear();
+            return true;
+        }
+        manifestFingerprint = current;
+        for (String key : new ArrayList<>(closedFingerprints.keySet())) {
+            FileFingerprint known = closedFingerprints.get(key);
+            FileFingerprint now = known.refresh(partitionFile(key));
+            if (now != known && !now.sameContent(known)) {
+                uncacheClosed(key);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private List<Partition> partitions() throws IOException {
+        ensureLoaded();
+        return manifest.partitions;
+    }
+
+    /**
+     * Nạp manifest; lần đầu chạy thì tách file JSON cũ thành các partition
+     */
+    @SuppressWarnings("try")
+    private void ensureLoaded() throws IOException {
+        if (manifest != null) return;
+        File manifestFile = new File(dir, MANIFEST_FILE);
+        if (manifestFile.exists()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8)) {
+                Manifest loaded = FileServiceBase.gson.fromJson(reader, Manifest.class);
+                manifest = loaded != null ? loaded : new Manifest();
+            }
+            manifestFingerprint = FileFingerprint.of(manifestFile);
+            return;
+        }
+        manifest = new Manifest();
+        manifestFingerprint = FileFingerprint.MISSING;
+        if (legacyFile.exists()) {
+            // Người gọi có thể chỉ giữ khóa shared: việc tách file có khóa exclusive riêng,
+            // tiến trình tới sau đợi rồi đọc manifest mà tiến trình trước đã tạo
+            try (DataLock lock = DataLock.exclusive(legacyFile.getName() + ".migration")) {
+                if (manifestFile.exists()) {
+                    manifest = null;
+                    ensureLoaded();
+                } else if (legacyFile.exists()) {
+                    List<T> records = FileServiceBase.readList(legacyFile, type);
+                    FileServiceBase.WriteAction migrate = () -> {
+                        write(records);
+                        legacyFile.renameTo(new File(legacyFile.getPath() + ".migrated"));
+                        ReplicationLog.deleted(legacyFile);
+                    };
+                    // Tách như một lần ghi bình thường: generation tăng và replica nhận partition mới.
+                    // Replica không được publish nên tự tách bản của nó, primary sau đó gửi sang đúng các file đó
+                    if (ReplicaApplier.isReplica()) migrate.run();
+                    else FileServiceBase.publish(name, migrate);
+                }
+            }
+        }
+    }
+
+    private void saveManifest() throws IOException {
+        dir.mkdirs();
+        FileServiceBase.replaceAtomically(new File(dir, MANIFEST_FILE), out -> {
+            try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                FileServiceBase.gson.toJson(manifest, writer);
+            }
+        });
+        manifestFingerprint = FileFingerprint.of(new File(dir, MANIFEST_FILE));
+    }
+
+    private File partitionFile(String key) {
+        return new File(dir, key + ".json");
+    }
+
+    private static String keyOf(LocalDateTime time) {
+        return time != null ? time.format(MONTH) : UNDATED;
+    }
+}
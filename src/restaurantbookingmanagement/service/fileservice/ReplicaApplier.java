@@ -0,0 +1,250 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import restaurantbookingmanagement.ai.AIAgentConnector;
+import restaurantbookingmanagement.utils.DebugUtil;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Base64;
+
+// Design Pattern: Observer
+// Purpose: Tiến trình replica theo dõi replication/inbox/ và áp dụng change record do primary gửi sang,
+//          để các báo cáo chỉ đọc (doanh thu, lịch sử khách hàng) chạy trên bản sao mà không tranh khóa với primary.
+/**
+ * Record được áp dụng theo thứ tự seq, mỗi record dưới DataLock exclusive của tập dữ liệu và
+ * một cặp generation begin/end như một lần ghi bình thường, rồi cache tương ứng được nạp lại.
+ * Trạng thái (seq đã áp dụng, số record chờ, thời điểm commit của record cũ nhất còn chờ) được ghi ra
+ * data/replication/replica.json; độ trễ được tính lại mỗi lần đọc nên vẫn tăng khi replica bị kẹt.
+ * Thiếu record (lỗ hổng seq) hoặc primary báo không gửi được record (replication/diverged.json) thì
+ * replica dừng áp dụng và được đánh dấu cần khởi tạo lại; trạng thái này giữ nguyên qua các lần khởi động.
+ * Replica là chỉ đọc: mọi lần publish trên replica đều bị từ chối.
+ * Bật bằng system property: -Drbm.replica=true; thư mục data của replica được khởi tạo (hoặc khởi tạo lại)
+ * bằng cách thay toàn bộ data/ của replica bằng bản sao data/ của primary (kể cả replication/primary.json).
+ */
+public final class ReplicaApplier implements AutoCloseable {
+    private static final String ENABLED_PROPERTY = "rbm.replica";
+    private static final String REPLICA_STATE_FILE = "replica.json";
+    private static final long POLL_MS = 250;
+    private static volatile Status status = new Status();
+
+    private final File replicationDir = new File(FileServiceBase.DATA_DIR, ReplicationLog.REPLICATION_DIR);
+    private final File inbox = new File(replicationDir, ReplicationLog.INBOX_DIR);
+    private Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Trạng thái nhân bản của replica
+     */
+    public static final class Status {
+        long appliedSeq;
+        int pendingRecords;
+        // Thời điểm primary commit record cũ nhất chưa áp dụng (0 khi đã bắt kịp) và record cuối đã áp dụng
+        long oldestPendingAt;
+        long lastAppliedAt;
+        long updatedAt;
+        boolean needsReseed;
+        long missingSeq;
+
+        /** Seq của change record cuối cùng đã áp dụng */
+        public long getAppliedSeq() { return appliedSeq; }
+        /** Số change record đã nhận nhưng chưa áp dụng */
+        public int getPendingRecords() { return pendingRecords; }
+        /** Tuổi của record cũ nhất chưa áp dụng (tính tới lúc gọi, kể cả khi replica đang dừng), 0 khi đã bắt kịp */
+        public long getLagMillis() { return oldestPendingAt == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldestPendingAt); }
+        /**
+         * Tuổi của record cuối cùng đã áp dụng, -1 nếu chưa áp dụng record nào.
+         * Tăng dần khi primary không gửi gì nữa (không có thay đổi, hoặc primary đã dừng gửi)
+         */
+        public long getLastAppliedAgeMillis() { return lastAppliedAt == 0 ? -1 : Math.max(0, System.currentTimeMillis() - lastAppliedAt); }
+        /** Replica đã lệch khỏi primary và phải được khởi tạo lại từ data/ của primary */
+        public boolean isNeedsReseed() { return needsReseed; }
+        /** Seq của record bị thiếu khiến replica dừng áp dụng, 0 khi không thiếu */
+        public long getMissingSeq() { return missingSeq; }
+    }
+
+    private ReplicaApplier() throws IOException {
+        Status initial = ReplicationLog.readJson(new File(replicationDir, REPLICA_STATE_FILE), Status.class);
+        if (initial == null) {
+            // Lần đầu: bản sao đã chứa mọi thay đổi tới seq cuối cùng primary gửi lúc sao chép
+            initial = new Status();
+            initial.appliedSeq = ReplicationLog.lastShippedSeq(new File(FileServiceBase.DATA_DIR));
+        }
+        status = initial;
+        inbox.mkdirs();
+    }
+
+    /**
+     * Nạp trạng thái đã lưu rồi chạy thread áp dụng record
+     */
+    public static ReplicaApplier start() throws IOException {
+        ReplicaApplier applier = new ReplicaApplier();
+        applier.worker = Thread.ofVirtual().name("replica-applier").start(applier::run);
+        return applier;
+    }
+
+    public static boolean isReplica() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Trạng thái hiện tại (seq đã áp dụng, số record chờ, độ trễ, có cần khởi tạo lại không)
+     */
+    public static Status status() {
+        return status;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                applyPending();
+                Thread.sleep(POLL_MS);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                System.err.println("Error applying replication changes: " + e.getMessage());
+                try {
+                    Thread.sleep(POLL_MS);
+                } catch (InterruptedException ie) {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Áp dụng lần lượt mọi record đang chờ trong inbox, dừng ở record bị thiếu đầu tiên
+     */
+    void applyPending() throws IOException {
+        if (status.needsReseed) return;
+        // Seq mà primary báo không gửi được; cờ cũ hơn seq đã áp dụng là từ trước lần khởi tạo lại
+        ReplicationLog.DivergedMarker marker = ReplicationLog.readJson(new File(replicationDir, ReplicationLog.DIVERGED_FILE), ReplicationLog.DivergedMarker.class);
+        long lostSeq = marker != null && marker.lostSeq > status.appliedSeq ? marker.lostSeq : Long.MAX_VALUE;
+        File[] files = inbox.listFiles((dir, name) -> name.endsWith(ReplicationLog.RECORD_SUFFIX));
+        if (files == null) files = new File[0];
+        // Tên file được đệm số 0 nên thứ tự tên cũng là thứ tự seq
+        Arrays.sort(files);
+        for (int i = 0; i < files.length && running; i++) {
+            ReplicationLog.ChangeRecord record = ReplicationLog.readJson(files[i], ReplicationLog.ChangeRecord.class);
+            long appliedSeq = status.appliedSeq;
+            if (record == null || record.seq <= appliedSeq) {
+                // Đã có trong bản sao ban đầu hoặc đã áp dụng trước khi tiến trình dừng
+                files[i].delete();
+                continue;
+            }
+            if (record.seq != appliedSeq + 1 || record.seq >= lostSeq) {
+                markNeedsReseed(appliedSeq + 1, files.length - i, record.committedAt);
+                return;
+            }
+            updateStatus(appliedSeq, files.length - i, record.committedAt, status.lastAppliedAt);
+            apply(record);
+            files[i].delete();
+            DebugUtil.debugPrint("[Replica] Applied change #" + record.seq + " (" + record.dataSet + ")");
+            int pending = files.length - i - 1;
+            // Record kế tiếp được commit sau record này, tuổi của nó không lớn hơn
+            updateStatus(record.seq, pending, pending > 0 ? record.committedAt : 0, record.committedAt);
+        }
+        if (status.appliedSeq + 1 >= lostSeq) {
+            markNeedsReseed(status.appliedSeq + 1, 0, marker.detectedAt);
+        } else if (files.length == 0 && status.pendingRecords != 0) {
+            updateStatus(status.appliedSeq, 0, 0, status.lastAppliedAt);
+        }
+    }
+
+    /**
+     * Record seq không bao giờ tới: áp dụng tiếp sẽ làm replica sai lệch âm thầm, nên dừng lại
+     * và lưu cờ cần khởi tạo lại; record còn trong inbox được giữ nguyên
+     */
+    private void markNeedsReseed(long missingSeq, int pendingRecords, long stalledSince) throws IOException {
+        System.err.println("Error: Replication record #" + missingSeq + " is missing, replica stopped applying changes"
+                + " and must be re-seeded from the primary data directory");
+        Status next = copyStatus();
+        next.pendingRecords = pendingRecords;
+        // Replica không còn tiến lên: độ trễ tiếp tục tăng từ record đang bị chặn
+        next.oldestPendingAt = stalledSince;
+        next.needsReseed = true;
+        next.missingSeq = missingSeq;
+        saveStatus(next);
+    }
+
+    @SuppressWarnings("try")
+    private void apply(ReplicationLog.ChangeRecord record) throws IOException {
+        try (DataLock lock = DataLock.exclusive(record.dataSet + ".json")) {
+            DataGenerations.begin(record.dataSet);
+            try {
+                for (ReplicationLog.FileChange change : record.files) {
+                    File target = new File(FileServiceBase.DATA_DIR, change.path);
+                    if (change.delete) {
+                        Files.deleteIfExists(target.toPath());
+                        continue;
+                    }
+                    target.getParentFile().mkdirs();
+                    byte[] data = Base64.getDecoder().decode(change.data);
+                    if (change.append) {
+                        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+                            raf.seek(change.offset);
+                            raf.write(data);
+                            raf.setLength(change.offset + data.length);
+                        }
+                    } else {
+                        FileServiceBase.replaceAtomically(target, out -> out.write(data));
+                    }
+                }
+            } finally {
+                DataGenerations.end(record.dataSet);
+            }
+        }
+        reload(record.dataSet);
+    }
+
+    private void reload(String dataSet) throws IOException {
+        switch (dataSet) {
+            case "menu_items" -> MenuItemFileService.reloadIfChanged();
+            case "customers" -> CustomerFileService.reloadIfChanged();
+            case "tables" -> TableFileService.reloadIfChanged();
+            case "bookings" -> BookingFileService.reloadIfChanged();
+            case "orders" -> OrderFileService.reloadIfChanged();
+            default -> System.err.println("Warning: Unknown replicated data set: " + dataSet);
+        }
+        AIAgentConnector.shared().invalidateResponseCache();
+    }
+
+    private void updateStatus(long appliedSeq, int pendingRecords, long oldestPendingAt, long lastAppliedAt) throws IOException {
+        Status next = copyStatus();
+        next.appliedSeq = appliedSeq;
+        next.pendingRecords = pendingRecords;
+        next.oldestPendingAt = oldestPendingAt;
+        next.lastAppliedAt = lastAppliedAt;
+        saveStatus(next);
+    }
+
+    private static Status copyStatus() {
+        Status current = status;
+        Status next = new Status();
+        next.appliedSeq = current.appliedSeq;
+        next.pendingRecords = current.pendingRecords;
+        next.oldestPendingAt = current.oldestPendingAt;
+        next.lastAppliedAt = current.lastAppliedAt;
+        next.needsReseed = current.needsReseed;
+        next.missingSeq = current.missingSeq;
+        return next;
+    }
+
+    private void saveStatus(Status next) throws IOException {
+        next.updatedAt = System.currentTimeMillis();
+        status = next;
+        replicationDir.mkdirs();
+        ReplicationLog.writeJson(new File(replicationDir, REPLICA_STATE_FILE), next);
+    }
+
+    @Override
+    public void close() {
+        // Không interrupt: ngắt giữa lúc ghi sẽ đóng FileChannel của DataLock, chỉ cần đợi hết vòng poll
+        running = false;
+        if (worker == null) return;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Phía primary của chế độ nhân bản: mỗi lần ghi đã commit (một lần publish) được đóng gói thành
+ * một change record gồm nội dung các file vừa bị thay/ghi thêm, rồi chuyển vào
+ * replication/inbox/ của thư mục data replica. Tiến trình replica (ReplicaApplier) áp dụng theo thứ tự seq.
+ * Bật bằng system property: -Drbm.replicateTo=&lt;thư mục data của replica&gt;; thư mục này được ghi vào
+ * replication/primary.json nên mọi tiến trình ghi trên cùng thư mục data (kể cả tiến trình khởi động không có
+ * property) đều gửi thay đổi. Tắt bằng -Drbm.replicateTo= (rỗng).
+ */
+public final class ReplicationLog {
+    private static final String TARGET_PROPERTY = "rbm.replicateTo";
+    private static final String LOCK_NAME = "replication";
+    static final String REPLICATION_DIR = "replication";
+    static final String INBOX_DIR = "inbox";
+    static final String PRIMARY_STATE_FILE = "primary.json";
+    static final String DIVERGED_FILE = "diverged.json";
+    static final String RECORD_SUFFIX = ".json";
+
+    // Các file bị ghi trong lần publish đang chạy trên thread hiện tại; null khi không ở trong publish
+    private static final ThreadLocal<List<FileChange>> PENDING = new ThreadLocal<>();
+
+    private ReplicationLog() {}
+
+    /**
+     * Một change record: tập dữ liệu, generation sau khi commit và các file đã đổi
+     */
+    static final class ChangeRecord {
+        long seq;
+        String dataSet;
+        long generation;
+        long committedAt;
+        List<FileChange> files = new ArrayList<>();
+    }
+
+    /**
+     * Thay đổi của một file, đường dẫn tương đối so với thư mục data.
+     * append = true nghĩa là data được ghi nối từ vị trí offset (segment archive), delete = true nghĩa là file bị xóa,
+     * ngược lại data là nội dung mới của cả file.
+     * Ghi theo offset nên áp dụng lại cùng một record trên replica không nhân đôi dữ liệu.
+     */
+    static final class FileChange {
+        String path;
+        boolean append;
+        boolean delete;
+        long offset;
+        String data;
+        transient File file;
+    }
+
+    private static final class PrimaryState {
+        // Thư mục data của replica (đường dẫn tuyệt đối), null khi không nhân bản
+        String target;
+        long lastSeq;
+        // Seq gần nhất không gửi được sang replica, 0 nếu chưa từng mất record nào.
+        // Replica có seq đã áp dụng nhỏ hơn giá trị này đã lệch và phải được khởi tạo lại.
+        long lastLostSeq;
+        // Thời điểm commit của record cuối cùng đã gửi
+        long lastShippedAt;
+    }
+
+    /**
+     * Trạng thái nhân bản phía primary
+     */
+    public static final class PrimaryStatus {
+        private final String target;
+        private final PrimaryState state;
+
+        private PrimaryStatus(String target, PrimaryState state) {
+            this.target = target;
+            this.state = state;
+        }
+
+        /** Thư mục data của replica */
+        public String getTarget() { return target; }
+        /** Seq của record cuối cùng đã gửi */
+        public long getLastShippedSeq() { return state.lastSeq; }
+        /** Seq gần nhất không gửi được, 0 nếu chưa mất record nào; replica chưa áp dụng tới seq này phải khởi tạo lại */
+        public long getLastLostSeq() { return state.lastLostSeq; }
+        /** Tuổi của record cuối cùng đã gửi, -1 nếu chưa gửi record nào */
+        public long getLastShippedAgeMillis() {
+            return state.lastShippedAt == 0 ? -1 : Math.max(0, System.currentTimeMillis() - state.lastShippedAt);
+        }
+    }
+
+    /**
+     * Cờ mà primary đặt vào thư mục replica khi không gửi được một record
+     */
+    static final class DivergedMarker {
+        long lostSeq;
+        long detectedAt;
+    }
+
+    static boolean isEnabled() {
+        return target() != null;
+    }
+
+    /**
+     * Ghi thư mục replica của -Drbm.replicateTo vào primary.json (giá trị rỗng xóa nó),
+     * gọi một lần lúc khởi động; không có property thì giữ nguyên cấu hình đã lưu
+     */
+    @SuppressWarnings("try")
+    public static void registerTarget() {
+        String property = System.getProperty(TARGET_PROPERTY);
+        if (property == null) return;
+        String target = property.isEmpty() ? null : new File(property).getAbsolutePath();
+        try (DataLock lock = DataLock.exclusive(LOCK_NAME)) {
+            PrimaryState state = readPrimaryState();
+            if (!Objects.equals(state.target, target)) {
+                state.target = target;
+                savePrimaryState(state);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not record replica directory in " + PRIMARY_STATE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Thư mục data của replica: theo system property nếu có, nếu không thì theo primary.json
+     */
+    private static String target() {
+        String property = System.getProperty(TARGET_PROPERTY);
+        if (property != null) return property.isEmpty() ? null : property;
+        try {
+            String target = readPrimaryState().target;
+            // primary.json được sao chép sang replica khi khởi tạo: thư mục replica không tự gửi cho chính nó
+            if (target == null || new File(target).getCanonicalFile().equals(new File(FileServiceBase.DATA_DIR).getCanonicalFile())) return null;
+            return target;
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read replica directory from " + PRIMARY_STATE_FILE + ", this write is not replicated: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Trạng thái phía primary đọc từ primary.json, null nếu tiến trình này không nhân bản
+     */
+    public static PrimaryStatus primaryStatus() {
+        String target = target();
+        if (target == null) return null;
+        try {
+            return new PrimaryStatus(target, readPrimaryState());
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read replication state: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Bắt đầu ghi nhận các file bị ghi trong một lần publish
+     */
+    static void begin() {
+        if (isEnabled()) PENDING.set(new ArrayList<>());
+    }
+
+    /**
+     * File vừa được thay nguyên khối (replaceAtomically)
+     */
+    static void replaced(File file) {
+        List<FileChange> pending = PENDING.get();
+        if (pending == null) return;
+        pending.removeIf(change -> !change.append && change.file.equals(file));
+        FileChange change = new FileChange();
+        change.file = file;
+        pending.add(change);
+    }
+
+    /**
+     * File vừa bị xóa (partition rỗng)
+     */
+    static void deleted(File file) {
+        List<FileChange> pending = PENDING.get();
+        if (pending == null) return;
+        pending.removeIf(change -> change.file.equals(file));
+        FileChange change = new FileChange();
+        change.file = file;
+        change.delete = true;
+        pending.add(change);
+    }
+
+    /**
+     * File sắp được ghi nối từ vị trí offset (độ dài file trước khi ghi)
+     */
+    static void appending(File file, long offset) {
+        List<FileChange> pending = PENDING.get();
+        if (pending == null) return;
+        FileChange change = new FileChange();
+        change.file = file;
+        change.append = true;
+        change.offset = offset;
+        pending.add(change);
+    }
+
+    /**
+     * Dừng ghi nhận, trả về các file đã bị ghi trong lần publish (null nếu không bật nhân bản)
+     */
+    static List<FileChange> end() {
+        List<FileChange> pending = PENDING.get();
+        PENDING.remove();
+        return pending;
+    }
+
+    /**
+     * Gửi change record sang replica. Được gọi khi vẫn giữ DataLock exclusive
+     * của tập dữ liệu, nên thứ tự seq của cùng một tập dữ liệu khớp với thứ tự ghi trên primary.
+     * Gửi không được thì seq của record bị coi là mất: primary ghi lại seq đó, replica thấy lỗ hổng
+     * (hoặc cờ diverged.json) thì dừng áp dụng và báo cần khởi tạo lại.
+     */
+    static void commit(String dataSet, long generation, List<FileChange> pending) {
+        if (pending == null || pending.isEmpty()) return;
+        String target = target();
+        if (target == null) return;
+        ChangeRecord record = new ChangeRecord();
+        try {
+            record.dataSet = dataSet;
+            record.generation = generation;
+            record.committedAt = System.currentTimeMillis();
+            Path dataDir = Paths.get(FileServiceBase.DATA_DIR).toAbsolutePath();
+            for (FileChange change : pending) {
+                change.path = dataDir.relativize(change.file.toPath().toAbsolutePath()).toString().replace(File.separatorChar, '/');
+                if (!change.delete) {
+                    change.data = Base64.getEncoder().encodeToString(readFrom(change.file, change.append ? change.offset : 0));
+                }
+                record.files.add(change);
+            }
+            ship(target, record);
+        } catch (IOException e) {
+            System.err.println("Error: Could not ship " + dataSet + " change to replica, replica has diverged and must be re-seeded: " + e.getMessage());
+            markDiverged(target, record);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private static void ship(String target, ChangeRecord record) throws IOException {
+        File inbox = new File(new File(target, REPLICATION_DIR), INBOX_DIR);
+        // Cấp seq trong khóa; seq được lưu trước khi đưa record vào inbox nên không bao giờ bị cấp lại,
+        // record không vào được inbox để lại lỗ hổng seq mà replica phát hiện được
+        try (DataLock lock = DataLock.exclusive(LOCK_NAME)) {
+            PrimaryState state = readPrimaryState();
+            record.seq = ++state.lastSeq;
+            state.lastShippedAt = record.committedAt;
+            savePrimaryState(state);
+
+            inbox.mkdirs();
+            writeJson(new File(inbox, recordName(record.seq)), record);
+        }
+    }
+
+    /**
+     * Ghi nhận record không gửi được: lưu seq bị mất vào primary.json và, nếu còn ghi được,
+     * đặt cờ diverged.json vào thư mục replica để replica biết ngay cả khi primary không ghi thêm gì
+     */
+    @SuppressWarnings("try")
+    private static void markDiverged(String target, ChangeRecord record) {
+        try (DataLock lock = DataLock.exclusive(LOCK_NAME)) {
+            PrimaryState state = readPrimaryState();
+            // Lỗi trước khi cấp seq: dùng luôn seq kế tiếp làm seq bị mất
+            long lost = record.seq != 0 ? record.seq : state.lastSeq + 1;
+            state.lastSeq = Math.max(state.lastSeq, lost);
+            state.lastLostSeq = Math.max(state.lastLostSeq, lost);
+            savePrimaryState(state);
+
+            DivergedMarker marker = new DivergedMarker();
+            marker.lostSeq = lost;
+            marker.detectedAt = System.currentTimeMillis();
+            try {
+                File replicaDir = new File(target, REPLICATION_DIR);
+                replicaDir.mkdirs();
+                writeJson(new File(replicaDir, DIVERGED_FILE), marker);
+            } catch (IOException e) {
+                System.err.println("Warning: Could not flag replica as diverged, it will notice the missing record #" + lost + ": " + e.getMessage());
+            }
+        } catch (IOException e) {
+            System.err.println("Error: Could not record diverged replica state: " + e.getMessage());
+        }
+    }
+
+    private static PrimaryState readPrimaryState() throws IOException {
+        PrimaryState state = readJson(primaryStateFile(), PrimaryState.class);
+        return state != null ? state : new PrimaryState();
+    }
+
+    private static void savePrimaryState(PrimaryState state) throws IOException {
+        File stateFile = primaryStateFile();
+        stateFile.getParentFile().mkdirs();
+        writeJson(stateFile, state);
+    }
+
+    private static File primaryStateFile() {
+        return new File(new File(FileServiceBase.DATA_DIR, REPLICATION_DIR), PRIMARY_STATE_FILE);
+    }
+
+    static void writeJson(File file, Object value) throws IOException {
+        FileServiceBase.replaceAtomically(file, out -> {
+            try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                FileServiceBase.gson.toJson(value, writer);
+            }
+        });
+    }
+
+    /**
+     * Tên file record, đệm số 0 để sắp xếp theo tên cũng là theo seq
+     */
+    static String recordName(long seq) {
+        return String.format("%020d", seq) + RECORD_SUFFIX;
+    }
+
+    /**
+     * Seq cuối cùng primary đã gửi, đọc từ thư mục data đã sao chép làm bản gốc của replica
+     */
+    static long lastShippedSeq(File dataDir) throws IOException {
+        PrimaryState state = readJson(new File(new File(dataDir, REPLICATION_DIR), PRIMARY_STATE_FILE), PrimaryState.class);
+        return state != null ? state.lastSeq : 0;
+    }
+
+    static <S> S readJson(File file, Class<S> type) throws IOException {
+        if (!file.exists()) return null;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return FileServiceBase.gson.fromJson(reader, type);
+        }
+    }
+
+    private static byte[] readFrom(File file, long offset) throws IOException {
+        if (offset == 0) return Files.readAllBytes(file.toPath());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) (raf.length() - offset)];
+            raf.seek(offset);
+            raf.readFully(bytes);
+            return bytes;
+        }
+    }
+}
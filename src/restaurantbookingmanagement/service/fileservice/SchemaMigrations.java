@@ -0,0 +1,82 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import restaurantbookingmanagement.model.Booking;
+import restaurantbookingmanagement.model.Order;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chuỗi migrator theo từng record cho định dạng file dữ liệu.
+ * Mỗi file ghi schemaVersion trong header; file JSON cũ (mảng trần, không header) là version 1.
+ * Record có version cũ được nâng cấp khi đọc, và chỉ được ghi lại theo định dạng mới
+ * khi file/partition chứa nó được lưu lần tới (không rewrite toàn bộ dữ liệu).
+ * Thêm field mới: thêm migrator vào cuối danh sách của model, version hiện tại tự tăng theo.
+ */
+final class SchemaMigrations {
+    static final int LEGACY_VERSION = 1;
+
+    /**
+     * Nâng một record từ version n lên n + 1, sửa trực tiếp trên JsonObject
+     */
+    @FunctionalInterface
+    interface RecordMigrator {
+        void migrate(JsonObject record);
+    }
+
+    // Phần tử thứ i nâng record từ version i + 1 lên i + 2
+    private static final Map<Class<?>, List<RecordMigrator>> MIGRATORS = new HashMap<>();
+
+    static {
+        // 1 -> 2: booking chỉ lưu customerId/tableId, bỏ object Customer/Table nhúng
+        MIGRATORS.put(Booking.class, List.of(record -> {
+            moveEmbeddedId(record, "customer", "customerId");
+            moveEmbeddedId(record, "table", "tableId");
+        }));
+        // 1 -> 2: món trong order chỉ lưu itemId, bỏ MenuItem nhúng
+        MIGRATORS.put(Order.class, List.of(record -> {
+            JsonElement items = record.get("items");
+            if (items == null || !items.isJsonArray()) return;
+            for (JsonElement item : items.getAsJsonArray()) {
+                if (item.isJsonObject()) item.getAsJsonObject().remove("item");
+            }
+        }));
+    }
+
+    private SchemaMigrations() {}
+
+    /**
+     * Version hiện tại của định dạng record cho model
+     */
+    static int currentVersion(Class<?> type) {
+        return LEGACY_VERSION + MIGRATORS.getOrDefault(type, List.of()).size();
+    }
+
+    /**
+     * Version được lưu không có (0) thì coi là file cũ
+     */
+    static int normalize(int storedVersion) {
+        return storedVersion <= 0 ? LEGACY_VERSION : storedVersion;
+    }
+
+    /**
+     * Áp dụng các migrator từ fromVersion lên version hiện tại
+     */
+    static void migrate(Class<?> type, JsonObject record, int fromVersion) {
+        List<RecordMigrator> chain = MIGRATORS.getOrDefault(type, List.of());
+        for (int v = normalize(fromVersion); v < currentVersion(type); v++) {
+            chain.get(v - LEGACY_VERSION).migrate(record);
+        }
+    }
+
+    private static void moveEmbeddedId(JsonObject record, String embedded, String idField) {
+        JsonElement object = record.remove(embedded);
+        JsonElement id = record.get(idField);
+        boolean missing = id == null || id.isJsonNull() || id.getAsInt() == 0;
+        if (missing && object != null && object.isJsonObject() && object.getAsJsonObject().has(idField)) {
+            record.add(idField, object.getAsJsonObject().get(idField));
+        }
+    }
+}
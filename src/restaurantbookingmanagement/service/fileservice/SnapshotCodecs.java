@@ -0,0 +1,156 @@
+package restaurantbookingmanagement.service.fileservice;
+
+import restaurantbookingmanagement.model.*;
+import restaurantbookingmanagement.utils.IntHashSet;
+import restaurantbookingmanagement.utils.ModelTypeAdapters;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codec nhị phân cho các model, dùng bởi BinarySnapshot.
+ * Thứ tự field cố định; đổi layout thì phải tăng VERSION của BinarySnapshot.
+ */
+class SnapshotCodecs {
+
+    static final BinarySnapshot.Codec<MenuItem> MENU_ITEM = new BinarySnapshot.Codec<>() {
+        @Override
+        public void write(MenuItem item, BinarySnapshot.Output out) throws IOException {
+            out.writeInt(item.getItemId());
+            out.writeString(item.getName());
+            out.writeDouble(item.getPrice());
+            out.writeString(item.getDescription());
+        }
+
+        @Override
+        public MenuItem read(BinarySnapshot.Input in) {
+            return new MenuItem(in.readInt(), in.readString(), in.readDouble(), in.readString());
+        }
+    };
+
+    static final BinarySnapshot.Codec<Customer> CUSTOMER = new BinarySnapshot.Codec<>() {
+        @Override
+        public void write(Customer customer, BinarySnapshot.Output out) throws IOException {
+            out.writeInt(customer.getCustomerId());
+            out.writeString(customer.getName());
+            out.writeString(customer.getPhone());
+            out.writeString(customer.getEmail());
+            writeIntSet(customer.getActiveBookingIds(), out);
+            out.writeString(customer.getRole());
+            out.writeString(customer.getPassword());
+        }
+
+        @Override
+        public Customer read(BinarySnapshot.Input in) {
+            Customer customer = new Customer();
+            customer.setCustomerId(in.readInt());
+            customer.setName(in.readString());
+            customer.setPhone(in.readString());
+            customer.setEmail(in.readString());
+            customer.setActiveBookingIds(readIntSet(in));
+            customer.setRole(in.readString());
+            customer.setPassword(in.readString());
+            return customer;
+        }
+    };
+
+    static final BinarySnapshot.Codec<Table> TABLE = new BinarySnapshot.Codec<>() {
+        @Override
+        public void write(Table table, BinarySnapshot.Output out) throws IOException {
+            out.writeInt(table.getTableId());
+            out.writeInt(table.getCapacity());
+            out.writeString(table.getStatus() != null ? table.getStatus().name() : null);
+            writeIntSet(table.getOrderIds(), out);
+        }
+
+        @Override
+        public Table read(BinarySnapshot.Input in) {
+            Table table = new Table();
+            table.setTableId(in.readInt());
+            table.setCapacity(in.readInt());
+            String status = in.readString();
+            if (status != null) table.setStatus(ModelTypeAdapters.tableStatus(status));
+            table.setOrderIds(readIntSet(in));
+            return table;
+        }
+    };
+
+    static final BinarySnapshot.Codec<Booking> BOOKING = new BinarySnapshot.Codec<>() {
+        @Override
+        public void write(Booking booking, BinarySnapshot.Output out) throws IOException {
+            out.writeInt(booking.getBookingId());
+            out.writeDateTime(booking.getBookingTime());
+            out.writeInt(booking.getNumberOfGuests());
+            out.writeString(booking.getStatus() != null ? booking.getStatus().name() : null);
+            out.writeInt(booking.getCustomerId());
+            out.writeInt(booking.getTableId());
+        }
+
+        @Override
+        public Booking read(BinarySnapshot.Input in) {
+            Booking booking = new Booking();
+            booking.setBookingId(in.readInt());
+            booking.setBookingTime(in.readDateTime());
+            booking.setNumberOfGuests(in.readInt());
+            String status = in.readString();
+            if (status != null) booking.setStatus(ModelTypeAdapters.bookingStatus(status));
+            booking.setCustomerId(in.readInt());
+            booking.setTableId(in.readInt());
+            return booking;
+        }
+    };
+
+    static final BinarySnapshot.Codec<Order> ORDER = new BinarySnapshot.Codec<>() {
+        @Override
+        public void write(Order order, BinarySnapshot.Output out) throws IOException {
+            out.writeInt(order.getOrderId());
+            out.writeInt(order.getBookingId());
+            List<Order.OrderItem> items = order.getItems() != null ? order.getItems() : List.of();
+            out.writeInt(items.size());
+            for (Order.OrderItem oi : items) {
+                out.writeInt(oi.getItemId());
+                out.writeInt(oi.getAmount());
+            }
+            out.writeDateTime(order.getOrderTime());
+            out.writeString(order.getStatus() != null ? order.getStatus().name() : null);
+            out.writeDouble(order.getTotalAmount());
+            out.writeInt(order.getTableId());
+        }
+
+        @Override
+        public Order read(BinarySnapshot.Input in) {
+            Order order = new Order();
+            order.setOrderId(in.readInt());
+            order.setBookingId(in.readInt());
+            int size = in.readInt();
+            List<Order.OrderItem> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(new Order.OrderItem(in.readInt(), in.readInt()));
+            }
+            order.setItems(items);
+            order.setOrderTime(in.readDateTime());
+            String status = in.readString();
+            if (status != null) order.setStatus(ModelTypeAdapters.orderStatus(status));
+            order.setTotalAmount(in.readDouble());
+            order.setTableId(in.readInt());
+            return order;
+        }
+    };
+
+    private static void writeIntSet(IntHashSet set, BinarySnapshot.Output out) throws IOException {
+        if (set == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(set.size());
+        for (int v : set.toArray()) out.writeInt(v);
+    }
+
+    private static IntHashSet readIntSet(BinarySnapshot.Input in) {
+        int size = in.readInt();
+        if (size < 0) return null;
+        IntHashSet set = new IntHashSet(size);
+        for (int i = 0; i < size; i++) set.add(in.readInt());
+        return set;
+    }
+}
@@ -1,75 +1,50 @@
 package restaurantbookingmanagement.service.fileservice;
 
 import restaurantbookingmanagement.model.Table;
-import restaurantbookingmanagement.model.TableStatus;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Map;
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
 
 public class TableFileService extends FileServiceBase {
     private static final String TABLES_FILE = "tables.json";
-    public synchronized List<Table> readTablesFromFile() {
+    private static final BinarySnapshot<Table> SNAPSHOT = new BinarySnapshot<>(DATA_DIR, "tables", SnapshotCodecs.TABLE);
+    // Giữ trong bộ nhớ, được DataDirectoryWatcher nạp lại khi file bị sửa từ bên ngoài
+    private static final EntityCache<Table> CACHE = new EntityCache<>(
+            new File(DATA_DIR, TABLES_FILE), Table.class, TableFileService::load);
+    public List<Table> readTablesFromFile() {
         try {
-            File file = new File(DATA_DIR, TABLES_FILE);
-            if (!file.exists()) {
-                return new ArrayList<>();
-            }
-            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-                java.lang.reflect.Type listType = new TypeToken<List<Map<String, Object>>>(){}.getType();
-                List<Map<String, Object>> rawTables = gson.fromJson(reader, listType);
-                if (rawTables == null) return new ArrayList<>();
-                List<Table> tables = new ArrayList<>();
-                for (Map<String, Object> rawTable : rawTables) {
-                    Table table = new Table();
-                    if (rawTable.containsKey("tableId")) {
-                        table.setTableId(((Number) rawTable.get("tableId")).intValue());
-                    }
-                    if (rawTable.containsKey("capacity")) {
-                        table.setCapacity(((Number) rawTable.get("capacity")).intValue());
-                    }
-                    if (rawTable.containsKey("status")) {
-                        table.setStatus(TableStatus.valueOf((String) rawTable.get("status")));
-                    }
-                    if (rawTable.containsKey("orderIds")) {
-                        List<?> orderIdsRaw = (List<?>) rawTable.get("orderIds");
-                        List<Integer> orderIds = new ArrayList<>();
-                        for (Object d : orderIdsRaw) {
-                            if (d instanceof Number) {
-                                orderIds.add(((Number) d).intValue());
-                            }
-                        }
-                        table.setOrderIds(orderIds);
-                    }
-                    tables.add(table);
-                }
-                return tables;
-            }
+            return CACHE.read();
         } catch (Exception e) {
             System.err.println("Error reading tables from file: " + e.getMessage());
             return new ArrayList<>();
         }
     }
-    public synchronized void writeTablesToFile(List<Table> tables) {
-        try {
+    @SuppressWarnings("try")
+    public boolean writeTablesToFile(List<Table> tables) {
+        try (DataTransaction tx = DataTransaction.begin(DataTransaction.write(TABLES_FILE))) {
             File file = new File(DATA_DIR, TABLES_FILE);
-            List<Map<String, Object>> jsonTables = new ArrayList<>();
-            for (Table table : tables) {
-                Map<String, Object> jsonTable = new java.util.HashMap<>();
-                jsonTable.put("tableId", table.getTableId());
-                jsonTable.put("capacity", table.getCapacity());
-                jsonTable.put("status", table.getStatus().name());
-                jsonTable.put("orderIds", table.getOrderIds());
-                jsonTables.add(jsonTable);
-            }
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                gson.toJson(jsonTables, writer);
-            }
+            publish("tables", () -> writeList(file, tables, Table.class));
+            SNAPSHOT.save(tables, BinarySnapshot.stampOf("tables", file));
+            CACHE.update(tables);
             notifyAIAgentOfChange();
+            return true;
         } catch (Exception e) {
             System.err.println("Error writing tables to file: " + e.getMessage());
+            return false;
         }
     }
-} 
\ No newline at end of file
+    /**
+     * Nạp lại nếu file đã bị sửa từ bên ngoài, trả về true nếu có thay đổi
+     */
+    static boolean reloadIfChanged() throws IOException {
+        return CACHE.reloadIfChanged();
+    }
+    private static List<Table> load(File file) throws IOException {
+        List<Table> cached = SNAPSHOT.load(BinarySnapshot.stampOf("tables", file));
+        if (cached != null) return cached;
+        List<Table> tables = readList(file, Table.class);
+        SNAPSHOT.save(tables, BinarySnapshot.stampOf("tables", file));
+        return tables;
+    }
+}
\ No newline at end of file
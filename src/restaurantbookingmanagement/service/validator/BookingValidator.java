@@ -9,7 +9,7 @@ public class BookingValidator {
                booking.getTable() != null &&
                booking.getBookingTime() != null &&
                booking.getNumberOfGuests() > 0 &&
-               (booking.getStatus().equals("CONFIRMED") || booking.getStatus().equals("CANCELLED") || booking.getStatus().equals("COMPLETED"));
+               booking.getStatus() != null;
     }
     public static String validate(Booking booking) {
         if (booking == null) return "Booking is null";
@@ -17,7 +17,7 @@ public class BookingValidator {
         if (booking.getTable() == null) return "Table is required";
         if (booking.getBookingTime() == null) return "Booking time is required";
         if (booking.getNumberOfGuests() <= 0) return "Number of guests must be > 0";
-        if (!(booking.getStatus().equals("CONFIRMED") || booking.getStatus().equals("CANCELLED") || booking.getStatus().equals("COMPLETED"))) return "Invalid status";
+        if (booking.getStatus() == null) return "Invalid status";
         return null;
     }
 } 
\ No newline at end of file
@@ -4,8 +4,11 @@
  */
 package restaurantbookingmanagement.utils;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Scanner;
 
 /**
@@ -15,17 +18,19 @@ import java.util.Scanner;
 public class InputHandler {
     
     private static final Scanner scanner = new Scanner(System.in); 
+    // Các dòng người dùng gõ trong lúc chờ tác vụ nền, được dùng trước khi đọc tiếp từ bàn phím
+    private static final Deque<String> replayed = new ArrayDeque<>();
     
     public String getString(String message) {
         System.out.print(message);
-        return scanner.nextLine().trim();
+        return nextLine();
     }
 
     public int getInt(String message) {
         System.out.println(message);
         while (true) {
             try {
-                return Integer.parseInt(scanner.nextLine().trim());
+                return Integer.parseInt(nextLine());
             } catch (NumberFormatException e) {
                 System.err.println("Invalid input. Please enter a valid integer.");
             }
@@ -36,7 +41,7 @@ public class InputHandler {
         System.out.println(message);
         while (true) {
             try {
-                return Double.parseDouble(scanner.nextLine().trim());
+                return Double.parseDouble(nextLine());
             } catch (NumberFormatException e) {
                 System.err.println("Invalid input. Please enter a valid double.");
             }
@@ -46,7 +51,7 @@ public class InputHandler {
     public boolean getBoolean(String message) {
         System.out.println(message + " (true/false)");
         while (true) {
-            String input = scanner.nextLine().trim().toLowerCase();
+            String input = nextLine().toLowerCase();
             if ("true".equals(input)) {
                 return true;
             } else if ("false".equals(input)) {
@@ -60,7 +65,7 @@ public class InputHandler {
     public LocalDate getDate(String message) {
         System.out.println(message + " (format: dd/MM/yyyy)");
         while (true) {
-            String input = scanner.nextLine().trim();
+            String input = nextLine();
             try {
                 return LocalDate.parse(input, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
             } catch (Exception e) {
@@ -83,9 +88,47 @@ public class InputHandler {
      */
     public String getStringWithCancel(String message) {
         System.out.println(message + " (gõ 'cancel' hoặc 'thoát' để hủy)");
-        String input = scanner.nextLine().trim();
+        String input = nextLine();
         if (checkCancel(input)) return null;
         return input;
     }
+
+    /**
+     * Đọc dòng người dùng đã gõ sẵn (sau khi hasPendingInput trả về true), bỏ qua các dòng đang chờ dùng lại
+     */
+    public String readPendingLine() {
+        return scanner.nextLine().trim();
+    }
+
+    /**
+     * Giữ lại một dòng đã đọc để lần nhập kế tiếp dùng luôn, như thể người dùng vừa gõ nó
+     */
+    public void replay(String line) {
+        synchronized (replayed) {
+            replayed.addLast(line);
+        }
+    }
+
+    private static String nextLine() {
+        String line;
+        synchronized (replayed) {
+            line = replayed.pollFirst();
+        }
+        if (line == null) return scanner.nextLine().trim();
+        // Dòng đã được gõ từ trước, in lại sau prompt để người dùng thấy câu nào đang được xử lý
+        System.out.println(line);
+        return line;
+    }
+
+    /**
+     * Kiểm tra không chặn xem người dùng đã gõ sẵn một dòng chưa (dùng khi đang chờ tác vụ chạy nền)
+     */
+    public boolean hasPendingInput() {
+        try {
+            return System.in.available() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
 }
 
@@ -0,0 +1,71 @@
+package restaurantbookingmanagement.utils;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Gson adapter cho IntArrayList/IntHashSet, ghi dưới dạng mảng JSON số nguyên
+ * (giữ nguyên định dạng cũ của List&lt;Integer&gt;)
+ */
+public class IntCollectionAdapters {
+
+    public static class IntArrayListAdapter extends TypeAdapter<IntArrayList> {
+        @Override
+        public void write(JsonWriter out, IntArrayList value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int i = 0; i < value.size(); i++) out.value(value.get(i));
+            out.endArray();
+        }
+
+        @Override
+        public IntArrayList read(JsonReader in) throws IOException {
+            IntArrayList list = new IntArrayList();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return list;
+            }
+            in.beginArray();
+            while (in.hasNext()) list.add(readInt(in));
+            in.endArray();
+            return list;
+        }
+    }
+
+    public static class IntHashSetAdapter extends TypeAdapter<IntHashSet> {
+        @Override
+        public void write(JsonWriter out, IntHashSet value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int i = 0; i < value.size(); i++) out.value(value.get(i));
+            out.endArray();
+        }
+
+        @Override
+        public IntHashSet read(JsonReader in) throws IOException {
+            IntHashSet set = new IntHashSet();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return set;
+            }
+            in.beginArray();
+            while (in.hasNext()) set.add(readInt(in));
+            in.endArray();
+            return set;
+        }
+    }
+
+    // Đọc lỏng: chấp nhận cả 3 và 3.0
+    private static int readInt(JsonReader in) throws IOException {
+        return (int) in.nextDouble();
+    }
+}
@@ -0,0 +1,141 @@
+package restaurantbookingmanagement.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Tập số nguyên không boxing, giữ thứ tự thêm vào.
+ * contains/add O(1) nhờ bảng băm open addressing; remove O(n) vì phải dồn
+ * mảng để giữ thứ tự (các tập dùng trong model đều nhỏ và ít khi xóa).
+ */
+public class IntHashSet {
+    private static final int EMPTY = 0;
+
+    private final IntArrayList values;
+    // Lưu vị trí + 1 của phần tử trong values, 0 là ô trống
+    private int[] slots;
+
+    public IntHashSet() {
+        this(4);
+    }
+
+    public IntHashSet(int expectedSize) {
+        this.values = new IntArrayList(expectedSize);
+        this.slots = new int[tableSizeFor(expectedSize)];
+    }
+
+    public static IntHashSet of(int... elements) {
+        IntHashSet set = new IntHashSet(elements.length);
+        for (int e : elements) set.add(e);
+        return set;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public boolean contains(int value) {
+        return slots[findSlot(value)] != EMPTY;
+    }
+
+    /**
+     * Thêm phần tử, trả về false nếu đã tồn tại
+     */
+    public boolean add(int value) {
+        int slot = findSlot(value);
+        if (slots[slot] != EMPTY) return false;
+        values.add(value);
+        slots[slot] = values.size();
+        if (values.size() * 2 > slots.length) rehash(slots.length * 2);
+        return true;
+    }
+
+    public boolean remove(int value) {
+        if (!values.removeValue(value)) return false;
+        rehash(slots.length);
+        return true;
+    }
+
+    /**
+     * Vị trí (theo thứ tự thêm vào) của phần tử, -1 nếu không có; O(1)
+     */
+    public int indexOf(int value) {
+        return slots[findSlot(value)] - 1;
+    }
+
+    /**
+     * Phần tử thứ index theo thứ tự thêm vào
+     */
+    public int get(int index) {
+        return values.get(index);
+    }
+
+    public void clear() {
+        values.clear();
+        Arrays.fill(slots, EMPTY);
+    }
+
+    public void forEach(IntConsumer action) {
+        values.forEach(action);
+    }
+
+    public int[] toArray() {
+        return values.toArray();
+    }
+
+    public IntStream stream() {
+        return values.stream();
+    }
+
+    private int findSlot(int value) {
+        int mask = slots.length - 1;
+        int slot = mix(value) & mask;
+        while (slots[slot] != EMPTY && values.get(slots[slot] - 1) != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < values.size(); i++) {
+            int slot = mix(values.get(i)) & mask;
+            while (slots[slot] != EMPTY) slot = (slot + 1) & mask;
+            slots[slot] = i + 1;
+        }
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int n = 8;
+        while (n < expectedSize * 2) n <<= 1;
+        return n;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntHashSet)) return false;
+        return values.equals(((IntHashSet) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,321 @@
+package restaurantbookingmanagement.utils;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import restaurantbookingmanagement.model.*;
+
+/**
+ * Gson adapter viết tay (streaming, không dùng reflection) cho các model.
+ * Tên field trên JSON giữ nguyên như khi Gson serialize bằng reflection;
+ * field lạ được bỏ qua để tương thích với file cũ/mới.
+ */
+public class ModelTypeAdapters {
+    private static final LocalDateTimeAdapter DATE_TIME = new LocalDateTimeAdapter();
+    private static final IntCollectionAdapters.IntHashSetAdapter INT_SET = new IntCollectionAdapters.IntHashSetAdapter();
+
+    public static final MenuItemAdapter MENU_ITEM = new MenuItemAdapter();
+    public static final CustomerAdapter CUSTOMER = new CustomerAdapter();
+    public static final TableAdapter TABLE = new TableAdapter();
+    public static final BookingAdapter BOOKING = new BookingAdapter();
+    public static final OrderAdapter ORDER = new OrderAdapter();
+
+    public static class MenuItemAdapter extends TypeAdapter<MenuItem> {
+        @Override
+        public void write(JsonWriter out, MenuItem item) throws IOException {
+            if (item == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("itemId").value(item.getItemId());
+            writeString(out, "name", item.getName());
+            out.name("price").value(item.getPrice());
+            writeString(out, "description", item.getDescription());
+            out.endObject();
+        }
+
+        @Override
+        public MenuItem read(JsonReader in) throws IOException {
+            if (skipNull(in)) return null;
+            MenuItem item = new MenuItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "itemId" -> item.setItemId(in.nextInt());
+                    case "name" -> item.setName(readString(in));
+                    case "price" -> item.setPrice(in.nextDouble());
+                    case "description" -> item.setDescription(readString(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return item;
+        }
+    }
+
+    public static class CustomerAdapter extends TypeAdapter<Customer> {
+        @Override
+        public void write(JsonWriter out, Customer customer) throws IOException {
+            if (customer == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("customerId").value(customer.getCustomerId());
+            writeString(out, "name", customer.getName());
+            writeString(out, "phone", customer.getPhone());
+            writeString(out, "email", customer.getEmail());
+            if (customer.getActiveBookingIds() != null) {
+                out.name("activeBookingIds");
+                INT_SET.write(out, customer.getActiveBookingIds());
+            }
+            writeString(out, "role", customer.getRole());
+            writeString(out, "password", customer.getPassword());
+            out.endObject();
+        }
+
+        @Override
+        public Customer read(JsonReader in) throws IOException {
+            if (skipNull(in)) return null;
+            Customer customer = new Customer();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "customerId" -> customer.setCustomerId(in.nextInt());
+                    case "name" -> customer.setName(readString(in));
+                    case "phone" -> customer.setPhone(readString(in));
+                    case "email" -> customer.setEmail(readString(in));
+                    case "activeBookingIds" -> customer.setActiveBookingIds(INT_SET.read(in));
+                    case "role" -> customer.setRole(readString(in));
+                    case "password" -> customer.setPassword(readString(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return customer;
+        }
+    }
+
+    public static class TableAdapter extends TypeAdapter<Table> {
+        @Override
+        public void write(JsonWriter out, Table table) throws IOException {
+            if (table == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("tableId").value(table.getTableId());
+            out.name("capacity").value(table.getCapacity());
+            if (table.getStatus() != null) out.name("status").value(table.getStatus().name());
+            if (table.getOrderIds() != null) {
+                out.name("orderIds");
+                INT_SET.write(out, table.getOrderIds());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Table read(JsonReader in) throws IOException {
+            if (skipNull(in)) return null;
+            Table table = new Table();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "tableId" -> table.setTableId(in.nextInt());
+                    case "capacity" -> table.setCapacity(in.nextInt());
+                    case "status" -> table.setStatus(tableStatus(readString(in)));
+                    case "orderIds" -> table.setOrderIds(INT_SET.read(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return table;
+        }
+    }
+
+    /**
+     * Booking chỉ lưu customerId/tableId; record cũ có object nhúng được
+     * SchemaMigrations chuyển đổi trước khi tới adapter
+     */
+    public static class BookingAdapter extends TypeAdapter<Booking> {
+        @Override
+        public void write(JsonWriter out, Booking booking) throws IOException {
+            if (booking == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("bookingId").value(booking.getBookingId());
+            if (booking.getBookingTime() != null) {
+                out.name("bookingTime");
+                DATE_TIME.write(out, booking.getBookingTime());
+            }
+            out.name("numberOfGuests").value(booking.getNumberOfGuests());
+            if (booking.getStatus() != null) out.name("status").value(booking.getStatus().name());
+            out.name("customerId").value(booking.getCustomerId());
+            out.name("tableId").value(booking.getTableId());
+            out.endObject();
+        }
+
+        @Override
+        public Booking read(JsonReader in) throws IOException {
+            if (skipNull(in)) return null;
+            Booking booking = new Booking();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "bookingId" -> booking.setBookingId(in.nextInt());
+                    case "bookingTime" -> booking.setBookingTime(readDateTime(in));
+                    case "numberOfGuests" -> booking.setNumberOfGuests(in.nextInt());
+                    case "status" -> booking.setStatus(bookingStatus(readString(in)));
+                    case "customerId" -> booking.setCustomerId(in.nextInt());
+                    case "tableId" -> booking.setTableId(in.nextInt());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return booking;
+        }
+    }
+
+    public static class OrderAdapter extends TypeAdapter<Order> {
+        @Override
+        public void write(JsonWriter out, Order order) throws IOException {
+            if (order == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("orderId").value(order.getOrderId());
+            out.name("bookingId").value(order.getBookingId());
+            if (order.getItems() != null) {
+                out.name("items").beginArray();
+                for (Order.OrderItem oi : order.getItems()) {
+                    out.beginObject();
+                    out.name("itemId").value(oi.getItemId());
+                    out.name("amount").value(oi.getAmount());
+                    // MenuItem không được nhúng, chỉ lưu itemId
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            if (order.getOrderTime() != null) {
+                out.name("orderTime");
+                DATE_TIME.write(out, order.getOrderTime());
+            }
+            if (order.getStatus() != null) out.name("status").value(order.getStatus().name());
+            out.name("totalAmount").value(order.getTotalAmount());
+            out.name("tableId").value(order.getTableId());
+            out.endObject();
+        }
+
+        @Override
+        public Order read(JsonReader in) throws IOException {
+            if (skipNull(in)) return null;
+            Order order = new Order();
+            List<Order.OrderItem> items = new ArrayList<>();
+            double totalAmount = 0.0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "orderId" -> order.setOrderId(in.nextInt());
+                    case "bookingId" -> order.setBookingId(in.nextInt());
+                    case "items" -> items = readItems(in);
+                    case "orderTime" -> order.setOrderTime(readDateTime(in));
+                    case "status" -> order.setStatus(orderStatus(readString(in)));
+                    case "totalAmount" -> totalAmount = in.nextDouble();
+                    case "tableId" -> order.setTableId(in.nextInt());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            order.setItems(items);
+            // Giữ nguyên tổng tiền đã lưu thay vì giá trị tính lại từ items
+            order.setTotalAmount(totalAmount);
+            return order;
+        }
+
+        private List<Order.OrderItem> readItems(JsonReader in) throws IOException {
+            List<Order.OrderItem> items = new ArrayList<>();
+            if (skipNull(in)) return items;
+            in.beginArray();
+            while (in.hasNext()) {
+                Order.OrderItem oi = new Order.OrderItem();
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "itemId" -> oi.setItemId(in.nextInt());
+                        case "amount" -> oi.setAmount(in.nextInt());
+                        case "item" -> oi.setItem(MENU_ITEM.read(in));
+                        default -> in.skipValue();
+                    }
+                }
+                in.endObject();
+                items.add(oi);
+            }
+            in.endArray();
+            return items;
+        }
+    }
+
+    /**
+     * Trạng thái bàn đọc từ file; giá trị lạ (công cụ khác ghi, đổi tên) thành MAINTENANCE để bàn không bị đặt nhầm
+     */
+    public static TableStatus tableStatus(String value) {
+        return parseStatus(TableStatus.class, value, TableStatus.MAINTENANCE);
+    }
+
+    /**
+     * Trạng thái booking đọc từ file; giá trị lạ thành CONFIRMED để booking vẫn giữ bàn và hiện ra cho nhân viên xử lý
+     */
+    public static BookingStatus bookingStatus(String value) {
+        return parseStatus(BookingStatus.class, value, BookingStatus.CONFIRMED);
+    }
+
+    /**
+     * Trạng thái order đọc từ file; giá trị lạ thành PENDING để order còn mở, không bị chuyển vào archive
+     */
+    public static OrderStatus orderStatus(String value) {
+        return parseStatus(OrderStatus.class, value, OrderStatus.PENDING);
+    }
+
+    /**
+     * Không phân biệt hoa thường; giá trị null hoặc không nhận ra thì dùng fallback và cảnh báo thay vì ném exception,
+     * vì một record lỗi sẽ làm cả lần đọc trả về list rỗng và lần ghi sau xóa sạch tập dữ liệu
+     */
+    private static <E extends Enum<E>> E parseStatus(Class<E> type, String value, E fallback) {
+        if (value == null) return fallback;
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Warning: Unknown " + type.getSimpleName() + " '" + value + "', using " + fallback);
+            return fallback;
+        }
+    }
+
+    private static boolean skipNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        return skipNull(in) ? null : in.nextString();
+    }
+
+    private static LocalDateTime readDateTime(JsonReader in) throws IOException {
+        return skipNull(in) ? null : DATE_TIME.read(in);
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) out.name(name).value(value);
+    }
+}
@@ -4,6 +4,13 @@ import restaurantbookingmanagement.model.*;
 
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import restaurantbookingmanagement.service.fileservice.ReplicaApplier;
+import restaurantbookingmanagement.service.fileservice.ReplicationLog;
 import restaurantbookingmanagement.utils.InputHandler;
 import restaurantbookingmanagement.view.dto.BookingRequest;
 import restaurantbookingmanagement.model.Customer;
@@ -13,7 +20,10 @@ import restaurantbookingmanagement.view.dto.OrderRequest;
  * View handles console interface
  */
 public class ConsoleView {
+    private static final long PROGRESS_INTERVAL_MS = 500;
     private InputHandler inputHandler = new InputHandler();
+    // Câu trả lời AI đã in dần trong lượt chờ hiện tại (ghi từ thread của transport, đọc từ thread console)
+    private final StringBuilder streamedText = new StringBuilder();
     
     public ConsoleView() {
     }
@@ -90,7 +100,82 @@ public class ConsoleView {
         return inputHandler.getString(prompt);
     }
     
+    /**
+     * Đợi tác vụ chạy nền (ví dụ phản hồi AI), in dấu chấm tiến trình trong lúc chờ.
+     * Gõ 'cancel' rồi Enter để hủy; trả về null nếu đã hủy hoặc tác vụ lỗi.
+     * Dòng khác gõ trong lúc chờ được giữ lại và dùng cho lần nhập kế tiếp.
+     */
+    public <T> T awaitWithProgress(CompletableFuture<T> task, String message) {
+        synchronized (streamedText) {
+            streamedText.setLength(0);
+        }
+        System.out.print(message);
+        while (true) {
+            try {
+                T result = task.get(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                System.out.println();
+                return result;
+            } catch (TimeoutException e) {
+                printProgressDot();
+                if (inputHandler.hasPendingInput()) {
+                    String line = inputHandler.readPendingLine();
+                    if (inputHandler.checkCancel(line)) {
+                        task.cancel(true);
+                        System.out.println();
+                        displayMessage("Đã hủy yêu cầu.");
+                        return null;
+                    }
+                    // Câu gõ trước trong lúc chờ: giữ lại làm lần nhập kế tiếp thay vì bỏ mất
+                    if (!line.isEmpty()) inputHandler.replay(line);
+                }
+            } catch (CancellationException e) {
+                System.out.println();
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(true);
+                return null;
+            } catch (ExecutionException e) {
+                System.out.println();
+                displayError(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * In thêm một đoạn câu trả lời AI ngay khi nhận được (phản hồi stream); đoạn đầu tiên xuống dòng khỏi dòng tiến trình
+     */
+    public void displayStreamedText(String text) {
+        synchronized (streamedText) {
+            if (streamedText.length() == 0) System.out.println();
+            System.out.print(text);
+            System.out.flush();
+            streamedText.append(text);
+        }
+    }
+    
+    private void printProgressDot() {
+        synchronized (streamedText) {
+            // Câu trả lời đang hiện dần thì không chen dấu chấm vào giữa
+            if (streamedText.length() == 0) System.out.print(".");
+        }
+    }
+    
+    /**
+     * Đúng câu vừa in dần thì không in lại; mọi lần hiển thị đều kết thúc phần đã stream của lượt trước
+     */
+    private boolean isAlreadyStreamed(String message) {
+        synchronized (streamedText) {
+            if (streamedText.length() == 0) return false;
+            boolean same = message != null && streamedText.toString().strip().equals(message.strip());
+            streamedText.setLength(0);
+            return same;
+        }
+    }
+    
     public void displayMessage(String message) {
+        if (isAlreadyStreamed(message)) return;
         System.out.println(message);
     }
     
@@ -144,9 +229,10 @@ public class ConsoleView {
         System.out.println("──────────────────────────────────────────────────────────────");
         System.out.println("📋 Booking Information:");
         System.out.println("   • Booking ID: #" + booking.getBookingId());
-        System.out.println("   • Customer: " + booking.getCustomer().getName());
-        System.out.println("   • Phone: " + booking.getCustomer().getPhone());
-        System.out.println("   • Table: #" + booking.getTable().getTableId());
+        Customer customer = booking.getCustomer();
+        System.out.println("   • Customer: " + (customer != null ? customer.getName() : "N/A"));
+        System.out.println("   • Phone: " + (customer != null ? customer.getPhone() : "N/A"));
+        System.out.println("   • Table: #" + booking.getTableId());
         System.out.println("   • Guests: " + booking.getNumberOfGuests());
         System.out.println("   • Time: " + booking.getBookingTime().format(
             DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
@@ -355,7 +441,7 @@ public class ConsoleView {
             displayMessage("Bạn có nhiều bàn đang đặt. Vui lòng chọn bàn để gọi món:");
             for (int i = 0; i < userBookings.size(); i++) {
                 Booking b = userBookings.get(i);
-                displayMessage((i+1) + ". Bàn #" + b.getTable().getTableId() + " | Thời gian: " + b.getBookingTime().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+                displayMessage((i+1) + ". Bàn #" + b.getTableId() + " | Thời gian: " + b.getBookingTime().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
             }
             Integer choice = null;
             while (choice == null || choice < 1 || choice > userBookings.size()) {
@@ -391,7 +477,7 @@ public class ConsoleView {
         displayMessage("Bạn có " + userBookings.size() + " bàn đang hoạt động. Vui lòng chọn bàn để tính tiền:");
         for (int i = 0; i < userBookings.size(); i++) {
             Booking b = userBookings.get(i);
-            displayMessage((i+1) + ". Bàn #" + b.getTable().getTableId() +
+            displayMessage((i+1) + ". Bàn #" + b.getTableId() +
                 " | " + b.getNumberOfGuests() + " người" +
                 " | " + b.getBookingTime().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
         }
@@ -412,7 +498,7 @@ public class ConsoleView {
         }
         displayMessage("Chọn ID đặt bàn cần hủy:");
         for (Booking b : userBookings) {
-            displayMessage("- ID: " + b.getBookingId() + ", Bàn: #" + b.getTable().getTableId() + ", Thời gian: " + b.getBookingTime().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+            displayMessage("- ID: " + b.getBookingId() + ", Bàn: #" + b.getTableId() + ", Thời gian: " + b.getBookingTime().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
         }
         Integer bookingId = null;
         while (bookingId == null) {
@@ -560,4 +646,36 @@ public class ConsoleView {
             displayMessage("- ID: " + c.getCustomerId() + ", Tên: " + c.getName() + ", SĐT: " + c.getPhone() + (c.getEmail() != null && !c.getEmail().isEmpty() ? ", Email: " + c.getEmail() : ""));
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Hiển thị trạng thái nhân bản: phía replica (replica khác null) và/hoặc phía primary (primary khác null)
+     */
+    public void displayReplicationStatus(ReplicaApplier.Status replica, ReplicationLog.PrimaryStatus primary) {
+        if (replica == null && primary == null) {
+            displayMessage("Nhân bản chưa được bật (-Drbm.replica=true hoặc -Drbm.replicateTo=<thư mục data replica>).");
+            return;
+        }
+        if (replica != null) {
+            displayMessage("\nREPLICA:");
+            displayMessage("- Seq đã áp dụng: " + replica.getAppliedSeq() + ", record đang chờ: " + replica.getPendingRecords());
+            displayMessage("- Độ trễ (record cũ nhất chưa áp dụng): " + formatAge(replica.getLagMillis()));
+            displayMessage("- Record cuối đã áp dụng cách đây: " + formatAge(replica.getLastAppliedAgeMillis()));
+            if (replica.isNeedsReseed()) {
+                displayError("❌ Thiếu record #" + replica.getMissingSeq() + ", replica đã dừng và cần được khởi tạo lại từ data/ của primary.");
+            }
+        }
+        if (primary != null) {
+            displayMessage("\nPRIMARY -> " + primary.getTarget() + ":");
+            displayMessage("- Seq đã gửi: " + primary.getLastShippedSeq() + ", record cuối gửi cách đây: " + formatAge(primary.getLastShippedAgeMillis()));
+            if (primary.getLastLostSeq() > 0) {
+                displayError("❌ Record #" + primary.getLastLostSeq() + " không gửi được, replica chưa áp dụng tới seq này phải được khởi tạo lại.");
+            }
+        }
+    }
+
+    private static String formatAge(long millis) {
+        if (millis < 0) return "chưa có";
+        if (millis < 1000) return millis + " ms";
+        return String.format("%.1f giây", millis / 1000.0);
+    }
+}